@@ -0,0 +1,166 @@
+package integrationTests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The Class ClassesLoadedConcurrently, whose nested classes get loaded and instrumented by several threads at once,
+ * while other threads execute code from the same source file.
+ */
+public final class ClassesLoadedConcurrently {
+
+    /** The number of threads loading nested classes, and of threads executing already loaded code. */
+    private static final int THREADS = 4;
+
+    /**
+     * Exercise nested classes concurrently.
+     *
+     * @param iterations
+     *            the iterations
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public static void exerciseNestedClassesConcurrently(int iterations) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(2 * THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(2 * THREADS);
+
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            results.add(executor.submit(() -> start.await() + First.sum(iterations)));
+            results.add(executor.submit(() -> start.await() + Second.sum(iterations)));
+            results.add(executor.submit(() -> start.await() + Third.sum(iterations)));
+            results.add(executor.submit(() -> start.await() + Fourth.sum(iterations)));
+
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> start.await() + classify(iterations)));
+            }
+
+            for (Future<Integer> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Classify.
+     *
+     * @param iterations
+     *            the iterations
+     *
+     * @return the difference between the even and the odd numbers
+     */
+    static int classify(int iterations) {
+        int evenNumbers = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            // @formatter:off
+            if (i % 2 == 0) evenNumbers++; else evenNumbers--;
+            // @formatter:on
+        }
+
+        return evenNumbers;
+    }
+
+    /**
+     * The Class First, loaded and initialized by one of the threads.
+     */
+    static final class First {
+
+        /**
+         * Sum.
+         *
+         * @param iterations
+         *            the iterations
+         *
+         * @return the sum
+         */
+        static int sum(int iterations) {
+            int sum = 0;
+
+            for (int i = 0; i < iterations; i++) {
+                sum += i;
+            }
+
+            return sum;
+        }
+    }
+
+    /**
+     * The Class Second, loaded and initialized by one of the threads.
+     */
+    static final class Second {
+
+        /**
+         * Sum.
+         *
+         * @param iterations
+         *            the iterations
+         *
+         * @return the sum
+         */
+        static int sum(int iterations) {
+            int sum = 0;
+
+            for (int i = 0; i < iterations; i++) {
+                sum += i;
+            }
+
+            return sum;
+        }
+    }
+
+    /**
+     * The Class Third, loaded and initialized by one of the threads.
+     */
+    static final class Third {
+
+        /**
+         * Sum.
+         *
+         * @param iterations
+         *            the iterations
+         *
+         * @return the sum
+         */
+        static int sum(int iterations) {
+            int sum = 0;
+
+            for (int i = 0; i < iterations; i++) {
+                sum += i;
+            }
+
+            return sum;
+        }
+    }
+
+    /**
+     * The Class Fourth, loaded and initialized by one of the threads.
+     */
+    static final class Fourth {
+
+        /**
+         * Sum.
+         *
+         * @param iterations
+         *            the iterations
+         *
+         * @return the sum
+         */
+        static int sum(int iterations) {
+            int sum = 0;
+
+            for (int i = 0; i < iterations; i++) {
+                sum += i;
+            }
+
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package integrationTests;
+
+/**
+ * The Class CodeCalledFromTests.
+ */
+public final class CodeCalledFromTests {
+
+    /**
+     * Instantiates a new code called from tests.
+     */
+    private CodeCalledFromTests() {
+    }
+
+    /**
+     * Doubles a value.
+     *
+     * @param value
+     *            the value
+     *
+     * @return the int
+     */
+    public static int doubleValue(int value) {
+        return 2 * value;
+    }
+}
@@ -18,4 +18,50 @@ public final class MultiThreadedCode {
         worker.start();
         return worker;
     }
+
+    /**
+     * Counts the even numbers below a limit in several threads at once, so that the same lines and branches get
+     * executed concurrently.
+     *
+     * @param threads
+     *            the threads
+     * @param limit
+     *            the limit
+     *
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    public static void countEvenNumbersConcurrently(int threads, int limit) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> countEvenNumbers(limit));
+            workers[i].start();
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * Count even numbers.
+     *
+     * @param limit
+     *            the limit
+     *
+     * @return the difference between the even and the odd numbers
+     */
+    static int countEvenNumbers(int limit) {
+        int evenNumbers = 0;
+        int oddNumbers = 0;
+
+        for (int i = 0; i < limit; i++) {
+            // @formatter:off
+            if (i % 2 == 0) evenNumbers++; else oddNumbers++;
+            // @formatter:on
+        }
+
+        return evenNumbers - oddNumbers;
+    }
 }
@@ -27,8 +27,8 @@ public final class AbstractClassTest extends CoverageTest {
         tested.doSomething("test", true);
         tested.returnValue();
 
-        assertEquals(1, fileData.lineCoverageInfo.getExecutableLineCount());
+        assertEquals(1, lineCoverage().getExecutableLineCount());
         assertLines(6, 6, 1);
-        assertEquals(100, fileData.lineCoverageInfo.getCoveragePercentage());
+        assertEquals(100, lineCoverage().getCoveragePercentage());
     }
 }
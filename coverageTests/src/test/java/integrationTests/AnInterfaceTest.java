@@ -26,9 +26,9 @@ public final class AnInterfaceTest extends CoverageTest {
     public void useAnInterface() {
         tested.doSomething("test", true);
 
-        assertEquals(0, fileData.lineCoverageInfo.getExecutableLineCount());
-        assertEquals(-1, fileData.lineCoverageInfo.getCoveragePercentage());
-        assertEquals(0, fileData.lineCoverageInfo.getTotalItems());
-        assertEquals(0, fileData.lineCoverageInfo.getCoveredItems());
+        assertEquals(0, lineCoverage().getExecutableLineCount());
+        assertEquals(-1, lineCoverage().getCoveragePercentage());
+        assertEquals(0, lineCoverage().getTotalItems());
+        assertEquals(0, lineCoverage().getCoveredItems());
     }
 }
@@ -0,0 +1,43 @@
+package integrationTests;
+
+import static integrationTests.CallPointsTest.assertCalledFromSameTestMethodAsBefore;
+
+import mockit.coverage.data.CoverageData;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+final class CallPointsInJUnit5Test {
+    @BeforeAll
+    static void recordCallPoints() {
+        CoverageData.instance().setWithCallPoints(true);
+    }
+
+    @AfterAll
+    static void stopRecordingCallPoints() {
+        CoverageData.instance().setWithCallPoints(false);
+    }
+
+    @Test
+    void callFromTestMethod() {
+        assertCalledFromSameTestMethodAsBefore(new Throwable(), CodeCalledFromTests.doubleValue(5));
+    }
+
+    @RepeatedTest(3)
+    void callFromRepeatedTestMethod() {
+        Runnable caller = () -> assertCalledFromSameTestMethodAsBefore(new Throwable(),
+                CodeCalledFromTests.doubleValue(6));
+        caller.run();
+    }
+
+    @Nested
+    final class NestedTests {
+        @Test
+        void callFromTestMethodOfNestedClass() {
+            assertCalledFromSameTestMethodAsBefore(new Throwable(), CodeCalledFromTests.doubleValue(7));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package integrationTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import mockit.coverage.CallPoint;
+import mockit.coverage.TestRun;
+import mockit.coverage.data.CoverageData;
+import mockit.coverage.data.FileCoverageData;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public final class CallPointsTest {
+    private static final int LINE_CALLED = 23;
+
+    // Number of calls expected from each test method line, found for each call as CallPoint used to find them.
+    private static final Map<String, Integer> EXPECTED_CALL_POINTS = new HashMap<>();
+
+    @BeforeClass
+    public static void recordCallPoints() {
+        // Must happen before the covered class gets loaded, so it isn't instrumented with probes.
+        CoverageData.instance().setWithCallPoints(true);
+    }
+
+    @AfterClass
+    public static void stopRecordingCallPoints() {
+        CoverageData.instance().setWithCallPoints(false);
+    }
+
+    @Test
+    public void callFromTestMethod() {
+        assertCalledFromSameTestMethodAsBefore(new Throwable(), CodeCalledFromTests.doubleValue(1));
+    }
+
+    @Test
+    public void callFromHelperMethodOfTestClass() {
+        callFromHelperMethod();
+    }
+
+    private static void callFromHelperMethod() {
+        assertCalledFromSameTestMethodAsBefore(new Throwable(), CodeCalledFromTests.doubleValue(2));
+    }
+
+    @Test
+    public void callFromLambda() {
+        Runnable caller = () -> assertCalledFromSameTestMethodAsBefore(new Throwable(),
+                CodeCalledFromTests.doubleValue(3));
+        caller.run();
+    }
+
+    @Test
+    public void callFromNestedClassOfTestClass() {
+        new Caller().call();
+    }
+
+    static final class Caller {
+        void call() {
+            assertCalledFromSameTestMethodAsBefore(new Throwable(), CodeCalledFromTests.doubleValue(4));
+        }
+    }
+
+    @Test
+    public void callFromTestMethodCalledByAnotherOne() {
+        callFromTestMethod();
+    }
+
+    // The result of the covered call is passed only so that the throwable gets created on the same line as the call.
+    static void assertCalledFromSameTestMethodAsBefore(@Nonnull Throwable atCallSite, int ignoredResult) {
+        StackTraceElement expectedTestFrame = findTestFrameThroughThrowable(atCallSite);
+        assertNotNull(expectedTestFrame);
+        EXPECTED_CALL_POINTS.merge(keyOf(expectedTestFrame), 1, Integer::sum);
+
+        TestRun.flushPendingExecutions();
+        String filePath = CodeCalledFromTests.class.getName().replace('.', '/') + ".java";
+        FileCoverageData fileData = CoverageData.instance().getFileToFileData().get(filePath);
+        List<CallPoint> callPoints = fileData.lineCoverageInfo.getLineData(LINE_CALLED).getCallPoints();
+        assertNotNull(callPoints);
+
+        Map<String, Integer> recordedCallPoints = new HashMap<>();
+
+        for (CallPoint callPoint : callPoints) {
+            recordedCallPoints.put(keyOf(callPoint.getStackTraceElement()), 1 + callPoint.getRepetitionCount());
+        }
+
+        assertEquals(EXPECTED_CALL_POINTS, recordedCallPoints);
+    }
+
+    @Nonnull
+    private static String keyOf(@Nonnull StackTraceElement testFrame) {
+        return testFrame.getClassName() + '#' + testFrame.getMethodName() + ':' + testFrame.getLineNumber();
+    }
+
+    // Same search for the test method as CallPoint used to do, from the stack trace of a new throwable.
+    @Nullable
+    private static StackTraceElement findTestFrameThroughThrowable(@Nonnull Throwable atCallSite) {
+        for (StackTraceElement ste : atCallSite.getStackTrace()) {
+            if (ste.getFileName() != null && ste.getLineNumber() >= 0 && !isClassInExcludedPackage(ste.getClassName())
+                    && isTestMethod(ste)) {
+                return ste;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isClassInExcludedPackage(@Nonnull String className) {
+        return className.startsWith("java.") || className.startsWith("javax.") || className.startsWith("sun.")
+                || className.startsWith("org.junit.") || className.startsWith("mockit.");
+    }
+
+    private static boolean isTestMethod(@Nonnull StackTraceElement ste) {
+        Class<?> aClass;
+
+        try {
+            aClass = Class.forName(ste.getClassName());
+        } catch (ClassNotFoundException ignore) {
+            return false;
+        }
+
+        for (Method method : aClass.getDeclaredMethods()) {
+            if (method.getReturnType() == void.class && ste.getMethodName().equals(method.getName())) {
+                for (Annotation annotation : method.getDeclaredAnnotations()) {
+                    if (annotation.annotationType().getName().startsWith("org.junit.")) {
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+        }
+
+        return false;
+    }
+}
@@ -12,9 +12,9 @@ public final class ClassWithNestedClassesTest extends CoverageTest {
         ClassWithNestedClasses.doSomething();
         ClassWithNestedClasses.methodContainingAnonymousClass(1);
 
-        assertEquals(16, fileData.lineCoverageInfo.getExecutableLineCount());
-        assertEquals(55, fileData.lineCoverageInfo.getCoveragePercentage());
-        assertEquals(20, fileData.lineCoverageInfo.getTotalItems());
-        assertEquals(11, fileData.lineCoverageInfo.getCoveredItems());
+        assertEquals(16, lineCoverage().getExecutableLineCount());
+        assertEquals(55, lineCoverage().getCoveragePercentage());
+        assertEquals(20, lineCoverage().getTotalItems());
+        assertEquals(11, lineCoverage().getCoveredItems());
     }
 }
@@ -11,9 +11,9 @@ public final class ClassWithReferenceToNestedClassTest extends CoverageTest {
     public void exerciseOnePathOfTwo() {
         ClassWithReferenceToNestedClass.doSomething();
 
-        assertEquals(4, fileData.lineCoverageInfo.getExecutableLineCount());
-        assertEquals(25, fileData.lineCoverageInfo.getCoveragePercentage());
-        assertEquals(4, fileData.lineCoverageInfo.getTotalItems());
-        assertEquals(1, fileData.lineCoverageInfo.getCoveredItems());
+        assertEquals(4, lineCoverage().getExecutableLineCount());
+        assertEquals(25, lineCoverage().getCoveragePercentage());
+        assertEquals(4, lineCoverage().getTotalItems());
+        assertEquals(1, lineCoverage().getCoveredItems());
     }
 }
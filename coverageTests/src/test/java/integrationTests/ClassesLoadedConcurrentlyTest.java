@@ -0,0 +1,23 @@
+package integrationTests;
+
+import org.junit.Test;
+
+public final class ClassesLoadedConcurrentlyTest extends CoverageTest {
+    ClassesLoadedConcurrently tested;
+
+    @Test
+    public void loadNestedClassesInManyThreadsWhileOtherThreadsExecuteCodeFromTheSameFile() throws Exception {
+        ClassesLoadedConcurrently.exerciseNestedClassesConcurrently(10000);
+
+        assertLine(60, 1, 1, 4);
+        assertLine(64, 3, 3, 40000, 20000, 20000);
+        assertLine(68, 1, 1, 4);
+
+        for (int firstLine : new int[] { 85, 109, 133, 157 }) {
+            assertLines(firstLine, firstLine + 6, 4);
+            assertLine(firstLine, 1, 1, 1);
+            assertLine(firstLine + 3, 1, 1, 10000);
+            assertLine(firstLine + 6, 1, 1, 1);
+        }
+    }
+}
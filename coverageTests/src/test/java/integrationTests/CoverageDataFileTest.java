@@ -0,0 +1,182 @@
+package integrationTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+
+import mockit.coverage.CallPoint;
+import mockit.coverage.TestRun;
+import mockit.coverage.data.CoverageData;
+import mockit.coverage.data.FileCoverageData;
+import mockit.coverage.dataItems.FieldData;
+import mockit.coverage.dataItems.PerFileDataCoverage;
+import mockit.coverage.lines.BranchCoverageData;
+import mockit.coverage.lines.LineCoverageData;
+import mockit.coverage.lines.LineSegmentData;
+import mockit.coverage.lines.PerFileLineCoverage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public final class CoverageDataFileTest {
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Nonnull
+    private final CoverageData coverageData = CoverageData.instance();
+
+    @Before
+    public void exerciseSomeCoveredCode() {
+        TestRun.flushPendingExecutions();
+        new IfElseStatements().ifAndElse(true);
+        TestRun.flushPendingExecutions();
+        assertFalse(coverageData.isEmpty());
+    }
+
+    @Test
+    public void readBackCoverageDataWrittenInCompactFormat() throws Exception {
+        File dataFile = tempFolder.newFile("coverage.ser");
+        coverageData.writeDataToFile(dataFile);
+
+        CoverageData readData = CoverageData.readDataFromFile(dataFile);
+
+        assertSameCoverageData(coverageData, readData);
+    }
+
+    @Test
+    public void readBackCoverageDataSerializedByEarlierVersion() throws Exception {
+        File dataFile = tempFolder.newFile("coverage.ser");
+
+        try (ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(dataFile))) {
+            output.writeObject(coverageData);
+        }
+
+        CoverageData readData = CoverageData.readDataFromFile(dataFile);
+
+        assertSameCoverageData(coverageData, readData);
+    }
+
+    @Test
+    public void mergingDataForFilesWithUnknownModificationTimeLeavesItUnchanged() throws Exception {
+        File dataFile = tempFolder.newFile("coverage.ser");
+        coverageData.writeDataToFile(dataFile);
+        CoverageData mergedData = CoverageData.readDataFromFile(dataFile);
+
+        // Data for files without a known last modified time is not merged into the existing data.
+        mergedData.mergeDataFromFile(dataFile);
+
+        assertSameCoverageData(coverageData, mergedData);
+    }
+
+    @Test
+    public void rejectDataFileOfUnsupportedVersion() throws Exception {
+        File dataFile = tempFolder.newFile("coverage.ser");
+        coverageData.writeDataToFile(dataFile);
+        corruptVersionByte(dataFile);
+
+        try {
+            CoverageData.readDataFromFile(dataFile);
+        } catch (IOException e) {
+            assertEquals("Unsupported version -1 of coverage data file", e.getMessage());
+            return;
+        }
+
+        throw new AssertionError("Data file of unsupported version was read");
+    }
+
+    private static void corruptVersionByte(@Nonnull File dataFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(dataFile, "rw")) {
+            file.seek(4);
+            file.write(0xFF);
+        }
+    }
+
+    private static void assertSameCoverageData(@Nonnull CoverageData expected, @Nonnull CoverageData actual) {
+        assertEquals(expected.isWithCallPoints(), actual.isWithCallPoints());
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    @Nonnull
+    private static String describe(@Nonnull CoverageData coverageData) {
+        Map<String, FileCoverageData> sortedFiles = new TreeMap<>(coverageData.getFileToFileData());
+        StringBuilder description = new StringBuilder();
+
+        for (Entry<String, FileCoverageData> fileAndFileData : sortedFiles.entrySet()) {
+            FileCoverageData fileData = fileAndFileData.getValue();
+            description.append(fileAndFileData.getKey()).append(' ').append(fileData.kindOfTopLevelType).append('\n');
+            describeLines(description, fileData.lineCoverageInfo);
+            describeFields(description, fileData.dataCoverageInfo);
+        }
+
+        return description.toString();
+    }
+
+    private static void describeLines(@Nonnull StringBuilder description, @Nonnull PerFileLineCoverage lineInfo) {
+        description.append(" lines: ").append(lineInfo.getExecutableLineCount()).append('\n');
+
+        for (int line = 1, lineCount = lineInfo.getLineCount(); line <= lineCount; line++) {
+            if (lineInfo.hasLineData(line)) {
+                LineCoverageData lineData = lineInfo.getLineData(line);
+                description.append("  ").append(line).append(": ");
+                describeSegment(description, lineData);
+
+                for (BranchCoverageData branchData : lineData.getBranches()) {
+                    describeSegment(description, branchData);
+                }
+
+                description.append('\n');
+            }
+        }
+    }
+
+    private static void describeSegment(@Nonnull StringBuilder description, @Nonnull LineSegmentData segmentData) {
+        description.append(segmentData.getExecutionCount());
+
+        if (segmentData.isEmpty()) {
+            description.append('e');
+        }
+
+        List<CallPoint> callPoints = segmentData.getCallPoints();
+
+        if (callPoints != null) {
+            for (CallPoint callPoint : callPoints) {
+                description.append(" @").append(callPoint.getStackTraceElement()).append('x')
+                        .append(callPoint.getRepetitionCount());
+            }
+        }
+
+        description.append(' ');
+    }
+
+    private static void describeFields(@Nonnull StringBuilder description, @Nonnull PerFileDataCoverage dataInfo) {
+        description.append(" fields: ").append(dataInfo.allFields).append(' ').append(dataInfo.getCoveredItems())
+                .append('/').append(dataInfo.getTotalItems()).append('\n');
+
+        for (Entry<String, ? extends FieldData> fieldAndData : dataInfo.staticFieldsData.entrySet()) {
+            describeField(description, fieldAndData.getKey(), fieldAndData.getValue());
+        }
+
+        for (Entry<String, ? extends FieldData> fieldAndData : dataInfo.instanceFieldsData.entrySet()) {
+            describeField(description, fieldAndData.getKey(), fieldAndData.getValue());
+        }
+    }
+
+    private static void describeField(@Nonnull StringBuilder description, @Nonnull String field,
+            @Nonnull FieldData fieldData) {
+        description.append("  ").append(field).append(": ").append(fieldData.getReadCount()).append(' ')
+                .append(fieldData.getWriteCount()).append(' ').append(fieldData.isCovered()).append('\n');
+    }
+}
@@ -17,6 +17,8 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import mockit.coverage.CallPoint;
+import mockit.coverage.ClassProbes;
+import mockit.coverage.TestRun;
 import mockit.coverage.data.CoverageData;
 import mockit.coverage.data.FileCoverageData;
 import mockit.coverage.dataItems.InstanceFieldData;
@@ -30,6 +32,9 @@ import org.junit.Before;
 
 @SuppressWarnings("JUnitTestCaseWithNoTests")
 public class CoverageTest {
+    // In "probes" recording mode, only whether each line or branch was executed gets recorded, not how many times.
+    private static final boolean EXECUTIONS_NOT_COUNTED = ClassProbes.isToBeUsed();
+
     @Nullable
     protected static FileCoverageData fileData;
     @Nullable
@@ -73,6 +78,8 @@ public class CoverageTest {
 
     @Nonnull
     private FileCoverageData fileData() {
+        flushPendingExecutions();
+
         if (fileData == null) {
             Object testedInstance;
 
@@ -90,6 +97,18 @@ public class CoverageTest {
         return fileData;
     }
 
+    private static void flushPendingExecutions() {
+        // Executions recorded in "buffered" or "probes" mode only get into the coverage data when flushed.
+        TestRun.flushPendingExecutions();
+    }
+
+    @Nonnull
+    protected static PerFileLineCoverage lineCoverage() {
+        flushPendingExecutions();
+        assertNotNull(fileData);
+        return fileData.lineCoverageInfo;
+    }
+
     // Line Coverage assertions
     // ////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
@@ -118,14 +137,14 @@ public class CoverageTest {
 
         assertEquals("Segments:", expectedSegments, info.getNumberOfSegments(line));
         assertEquals("Covered segments:", expectedCoveredSegments, lineData.getNumberOfCoveredSegments());
-        assertEquals("Execution count:", expectedExecutionCounts[0], info.getExecutionCount(line));
+        assertExecutionCount("Execution count:", expectedExecutionCounts[0], info.getExecutionCount(line));
 
         for (int i = 1; i < expectedExecutionCounts.length; i++) {
             BranchCoverageData segmentData = lineData.getBranchData(i - 1);
 
             int executionCount = segmentData.getExecutionCount();
-            assertEquals("Execution count for line " + line + ", segment " + i + ':', expectedExecutionCounts[i],
-                    executionCount);
+            assertExecutionCount("Execution count for line " + line + ", segment " + i + ':',
+                    expectedExecutionCounts[i], executionCount);
 
             List<CallPoint> callPoints = segmentData.getCallPoints();
 
@@ -142,6 +161,14 @@ public class CoverageTest {
         }
     }
 
+    private static void assertExecutionCount(@Nonnull String message, int expectedCount, int executionCount) {
+        if (EXECUTIONS_NOT_COUNTED) {
+            assertEquals(message, expectedCount > 0, executionCount > 0);
+        } else {
+            assertEquals(message, expectedCount, executionCount);
+        }
+    }
+
     protected final void assertBranchingPoints(@Nonnegative int line, @Nonnegative int expectedSourcesAndTargets,
             @Nonnegative int expectedCoveredSourcesAndTargets) {
         PerFileLineCoverage lineCoverageInfo = fileData().lineCoverageInfo;
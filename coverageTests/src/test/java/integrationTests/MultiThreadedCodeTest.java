@@ -15,4 +15,14 @@ public final class MultiThreadedCodeTest extends CoverageTest {
         assertLine(18, 1, 1, 1);
         assertLine(19, 1, 1, 1);
     }
+
+    @Test
+    public void sameLinesAndBranchesExecutedByManyThreadsAtOnce() throws Exception {
+        MultiThreadedCode.countEvenNumbersConcurrently(8, 10000);
+
+        assertLines(55, 65, 5);
+        assertLine(56, 1, 1, 8);
+        assertLine(61, 3, 3, 80000, 40000, 40000);
+        assertLine(65, 1, 1, 8);
+    }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates that invocations to mocked types are to be replayed in <em>bounded memory</em>, for long-running tests
+ * which make too many invocations to keep the arguments of every one until the end of the test.
+ * <p>
+ * This annotation is applicable to a mock field or mock parameter, in which case it applies to invocations on the
+ * instances associated with it (for an {@linkplain Injectable @Injectable} mock, the single injectable instance); or to
+ * a test method or test class, in which case it applies to all invocations to mocked types in the test(s), including
+ * those to <code>static</code> methods.
+ * <p>
+ * For each mocked method, the invocation count for each expectation and instance is always kept, but the arguments only
+ * for the {@link #recentInvocations} most recent invocations. Also, invocations to a given method and mocked instance
+ * with different arguments, which would otherwise each get a separate expectation, share a single one (unless an
+ * expectation recorded for the method was matched).
+ * <p>
+ * Such invocations can still be {@linkplain Verifications verified} and {@linkplain FullVerifications fully verified},
+ * but those which had their arguments discarded can only be matched by a verified invocation with no arguments or with
+ * only "<code>any</code>" argument matchers, so that they are counted as a whole; verifying them with specific
+ * argument values, other argument matchers, or argument capturing causes an <code>IllegalStateException</code>, rather
+ * than a result which would be wrong. Invocations replayed in bounded memory can't be
+ * {@linkplain VerificationsInOrder verified in order}.
+ */
+@Retention(RUNTIME)
+@Target({ FIELD, PARAMETER, METHOD, TYPE })
+public @interface BoundedReplay {
+
+    /**
+     * The maximum number of most recent invocations to each mocked method for which arguments are kept.
+     *
+     * @return the number of invocations
+     */
+    int recentInvocations() default 100;
+}
@@ -4,6 +4,7 @@ import static mockit.asm.jvmConstants.ConstantPoolTypes.INVOKE_DYNAMIC;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import mockit.asm.constantPool.AttributeWriter;
 import mockit.asm.constantPool.BootstrapMethodItem;
@@ -21,10 +22,20 @@ final class BootstrapMethodsWriter extends AttributeWriter {
     @Nonnull
     private final ByteVector bootstrapMethods;
     @Nonnegative
-    private final int bootstrapMethodsCount;
+    private int bootstrapMethodsCount;
     @Nonnegative
     private final int bsmStartCodeIndex;
 
+    /**
+     * Initializes a writer for a class which had no "BootstrapMethods" attribute, to which bootstrap methods are only
+     * {@linkplain #addInvokeDynamicReference added}.
+     */
+    BootstrapMethodsWriter(@Nonnull ConstantPoolGeneration cp) {
+        super(cp, "BootstrapMethods");
+        bootstrapMethods = new ByteVector();
+        bsmStartCodeIndex = 0;
+    }
+
     BootstrapMethodsWriter(@Nonnull ConstantPoolGeneration cp, @Nonnull ClassReader cr) {
         super(cp);
 
@@ -65,8 +76,8 @@ final class BootstrapMethodsWriter extends AttributeWriter {
     }
 
     /**
-     * Adds an invokedynamic reference to the constant pool of the class being built. Does nothing if the constant pool
-     * already contains a similar item.
+     * Adds an invokedynamic reference to the constant pool of the class being built, also adding the bootstrap method
+     * if not already present. Does nothing if the constant pool already contains a similar item.
      *
      * @param name
      *            name of the invoked method
@@ -95,9 +106,15 @@ final class BootstrapMethodsWriter extends AttributeWriter {
         hashCode = putBSMArgs(hashCode, bsmArgs);
         hashCode &= 0x7FFFFFFF;
 
-        methods.setLength(position); // revert to old position
+        BootstrapMethodItem bsmItem = findBSMItem(hashCode, position);
+
+        if (bsmItem == null) {
+            bsmItem = cp.newBootstrapMethodItem(bootstrapMethodsCount, position, hashCode);
+            bootstrapMethodsCount++;
+        } else {
+            methods.setLength(position); // revert to old position
+        }
 
-        BootstrapMethodItem bsmItem = getBSMItem(hashCode);
         return cp.createDynamicItem(INVOKE_DYNAMIC, name, desc, bsmItem.index);
     }
 
@@ -112,19 +129,37 @@ final class BootstrapMethodsWriter extends AttributeWriter {
         return hashCode;
     }
 
-    @Nonnull
-    private BootstrapMethodItem getBSMItem(@Nonnegative int hashCode) {
+    /**
+     * Finds an existing bootstrap method with the same hash code and the same data as the one just written at the given
+     * position.
+     */
+    @Nullable
+    private BootstrapMethodItem findBSMItem(@Nonnegative int hashCode, @Nonnegative int newPosition) {
         Item item = cp.getItem(hashCode);
 
         while (item != null) {
-            if (item instanceof BootstrapMethodItem && item.getHashCode() == hashCode) {
+            if (item instanceof BootstrapMethodItem && item.getHashCode() == hashCode
+                    && isSameBSM(((BootstrapMethodItem) item).getPosition(), newPosition)) {
                 return (BootstrapMethodItem) item;
             }
 
             item = item.getNext();
         }
 
-        throw new IllegalStateException("BootstrapMethodItem not found for hash code " + hashCode);
+        return null;
+    }
+
+    private boolean isSameBSM(@Nonnegative int position, @Nonnegative int newPosition) {
+        byte[] data = bootstrapMethods.getData();
+
+        // Since the data includes the argument count, it's not necessary to compare lengths.
+        for (int i = 0, n = bootstrapMethods.getLength() - newPosition; i < n; i++) {
+            if (data[position + i] != data[newPosition + i]) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     @Nonnegative
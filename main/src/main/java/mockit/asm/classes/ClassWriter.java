@@ -59,7 +59,7 @@ public final class ClassWriter extends ClassVisitor {
     @Nonnull
     private final List<AttributeWriter> attributeWriters;
     @Nullable
-    final BootstrapMethodsWriter bootstrapMethodsWriter;
+    private BootstrapMethodsWriter bootstrapMethodsWriter;
     @Nullable
     private InterfaceWriter interfaceWriter;
     @Nullable
@@ -288,7 +288,11 @@ public final class ClassWriter extends ClassVisitor {
     @Nonnull
     public DynamicItem addInvokeDynamicReference(@Nonnull String name, @Nonnull String desc, @Nonnull MethodHandle bsm,
             @Nonnull Object... bsmArgs) {
-        assert bootstrapMethodsWriter != null;
+        if (bootstrapMethodsWriter == null) {
+            bootstrapMethodsWriter = new BootstrapMethodsWriter(cp);
+            attributeWriters.add(bootstrapMethodsWriter);
+        }
+
         return bootstrapMethodsWriter.addInvokeDynamicReference(name, desc, bsm, bsmArgs);
     }
 
@@ -25,6 +25,11 @@ public final class BootstrapMethodItem extends Item {
         type = BSM;
     }
 
+    @Nonnegative
+    public int getPosition() {
+        return position;
+    }
+
     @Override
     boolean isEqualTo(@Nonnull Item item) {
         return ((BootstrapMethodItem) item).position == position;
@@ -735,6 +735,18 @@ public final class ConstantPoolGeneration {
         index = ll;
     }
 
+    /**
+     * Adds a new bootstrap method item to the constant pool's hash table, for a bootstrap method written at the given
+     * position of the "BootstrapMethods" attribute.
+     */
+    @Nonnull
+    public BootstrapMethodItem newBootstrapMethodItem(@Nonnegative int bsmIndex, @Nonnegative int position,
+            int hashCode) {
+        BootstrapMethodItem item = new BootstrapMethodItem(bsmIndex, position, hashCode);
+        put(item);
+        return item;
+    }
+
     @Nonnull
     public DynamicItem createDynamicItem(int type, @Nonnull String name, @Nonnull String desc,
             @Nonnegative int bsmIndex) {
@@ -4,23 +4,39 @@
  */
 package mockit.coverage;
 
+import static java.lang.StackWalker.Option.RETAIN_CLASS_REFERENCE;
 import static java.lang.reflect.Modifier.isPublic;
 
 import java.io.Serializable;
+import java.lang.StackWalker.StackFrame;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import mockit.internal.util.StackTrace;
+import mockit.coverage.data.CoverageDataInput;
+import mockit.coverage.data.CoverageDataOutput;
 
 public final class CallPoint implements Serializable {
     private static final long serialVersionUID = 362727169057343840L;
-    private static final Map<StackTraceElement, Boolean> steCache = new HashMap<>();
+    @Nonnull
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(RETAIN_CLASS_REFERENCE);
+
+    /**
+     * Whether each method (identified by name, as in {@link #isTestMethod(Class, String)}) of a class already found
+     * in a call stack is a test method, so that the reflective check is done only once per method.
+     */
+    @Nonnull
+    private static final ClassValue<Map<String, Boolean>> TEST_METHODS = new ClassValue<Map<String, Boolean>>() {
+        @Override
+        protected Map<String, Boolean> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
     private static final Class<? extends Annotation> testAnnotation;
     private static final boolean checkTestAnnotationOnClass;
     private static final boolean checkIfTestCaseSubclass;
@@ -87,6 +103,26 @@ public final class CallPoint implements Serializable {
         this.ste = ste;
     }
 
+    public void writeTo(@Nonnull CoverageDataOutput output) {
+        output.writeString(ste.getClassName());
+        output.writeString(ste.getMethodName());
+        output.writeNullableString(ste.getFileName());
+        output.writeSignedInt(ste.getLineNumber());
+        output.writeInt(repetitionCount);
+    }
+
+    @Nonnull
+    public static CallPoint readFrom(@Nonnull CoverageDataInput input) {
+        String className = input.readString();
+        String methodName = input.readString();
+        String fileName = input.readNullableString();
+        int lineNumber = input.readSignedInt();
+
+        CallPoint callPoint = new CallPoint(new StackTraceElement(className, methodName, fileName, lineNumber));
+        callPoint.repetitionCount = input.readInt();
+        return callPoint;
+    }
+
     @Nonnull
     public StackTraceElement getStackTraceElement() {
         return ste;
@@ -113,41 +149,35 @@ public final class CallPoint implements Serializable {
     }
 
     @Nullable
-    static CallPoint create(@Nonnull Throwable newThrowable) {
-        StackTrace st = new StackTrace(newThrowable);
-        int n = st.getDepth();
+    static CallPoint create() {
+        StackFrame testFrame = STACK_WALKER.walk(frames -> frames
+                .dropWhile(frame -> frame.getClassName().startsWith("mockit.coverage."))
+                .skip(1) // the method containing the line or branch just executed
+                .filter(CallPoint::isTestMethod).findFirst().orElse(null));
 
-        for (int i = 2; i < n; i++) {
-            StackTraceElement ste = st.getElement(i);
-
-            if (isTestMethod(ste)) {
-                return new CallPoint(ste);
-            }
-        }
-
-        return null;
+        return testFrame == null ? null : new CallPoint(testFrame.toStackTraceElement());
     }
 
-    private static boolean isTestMethod(@Nonnull StackTraceElement ste) {
-        if (steCache.containsKey(ste)) {
-            return steCache.get(ste);
+    private static boolean isTestMethod(@Nonnull StackFrame frame) {
+        if (frame.getFileName() == null || frame.getLineNumber() < 0) {
+            return false;
         }
 
-        boolean isTestMethod = false;
+        Class<?> aClass = frame.getDeclaringClass();
 
-        if (ste.getFileName() != null && ste.getLineNumber() >= 0) {
-            String className = ste.getClassName();
+        if (isClassInExcludedPackage(aClass.getName())) {
+            return false;
+        }
 
-            if (!isClassInExcludedPackage(className)) {
-                Class<?> aClass = loadClass(className);
+        String methodName = frame.getMethodName();
+        Map<String, Boolean> testMethods = TEST_METHODS.get(aClass);
+        Boolean isTestMethod = testMethods.get(methodName);
 
-                if (aClass != null) {
-                    isTestMethod = isTestMethod(aClass, ste.getMethodName());
-                }
-            }
+        if (isTestMethod == null) {
+            isTestMethod = isTestMethod(aClass, methodName);
+            testMethods.put(methodName, isTestMethod);
         }
 
-        steCache.put(ste, isTestMethod);
         return isTestMethod;
     }
 
@@ -157,15 +187,6 @@ public final class CallPoint implements Serializable {
                 || className.startsWith("mockit.");
     }
 
-    @Nullable
-    private static Class<?> loadClass(@Nonnull String className) {
-        try {
-            return Class.forName(className);
-        } catch (ClassNotFoundException | LinkageError ignore) {
-            return null;
-        }
-    }
-
     private static boolean isTestMethod(@Nonnull Class<?> testClass, @Nonnull String methodName) {
         if (checkTestAnnotationOnClass && testClass.isAnnotationPresent(testAnnotation)) {
             return true;
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import mockit.coverage.data.CoverageData;
+import mockit.coverage.data.FileCoverageData;
+import mockit.coverage.lines.PerFileLineCoverage;
+import mockit.coverage.testRedundancy.TestCoverage;
+
+/**
+ * The probes of a class instrumented in "probes" recording mode, where each line or branch execution only stores
+ * <code>true</code> into an element of the <code>boolean</code> array for the class, rather than calling into
+ * {@link TestRun}.
+ * <p>
+ * Since those arrays only tell whether each line or branch was executed at least once, this mode is not used when call
+ * points or redundant tests are to be reported. The arrays are read back into the corresponding
+ * {@link PerFileLineCoverage} when the test run {@linkplain #recordAllExecutions() terminates}, or when
+ * {@linkplain TestRun#flushPendingExecutions() flushed} before that, in which case each probe read as executed is reset
+ * so that it only gets counted again if executed again.
+ * <p>
+ * No field or method gets added to instrumented classes, so they can still be redefined when mocked.
+ */
+public final class ClassProbes {
+    private static final boolean ENABLED = "probes".equals(Configuration.getProperty("recording"));
+    @Nonnull
+    private static final List<ClassProbes> ALL_CLASSES = new ArrayList<>();
+
+    /**
+     * The probes for each instrumented class, indexed by {@link #index}; read directly by instrumented code.
+     */
+    @Nonnull
+    public static volatile boolean[][] probesByClass = new boolean[0][];
+
+    public static boolean isToBeUsed() {
+        return ENABLED && !CoverageData.instance().isWithCallPoints() && TestCoverage.INSTANCE == null;
+    }
+
+    @Nonnull
+    public static ClassProbes create(@Nonnull FileCoverageData fileData) {
+        synchronized (ALL_CLASSES) {
+            ClassProbes classProbes = new ClassProbes(ALL_CLASSES.size(), fileData);
+            ALL_CLASSES.add(classProbes);
+            return classProbes;
+        }
+    }
+
+    static void recordAllExecutions() {
+        synchronized (ALL_CLASSES) {
+            boolean[][] allProbes = probesByClass;
+
+            for (ClassProbes classProbes : ALL_CLASSES) {
+                int classIndex = classProbes.index;
+
+                if (classIndex < allProbes.length && allProbes[classIndex] != null) {
+                    classProbes.recordExecutions(allProbes[classIndex]);
+                }
+            }
+        }
+    }
+
+    @Nonnegative
+    public final int index;
+    @Nonnull
+    private final FileCoverageData fileData;
+    @Nonnull
+    private int[] lines;
+    @Nonnull
+    private int[] branchIndexes;
+    @Nonnegative
+    private int probeCount;
+
+    private ClassProbes(@Nonnegative int index, @Nonnull FileCoverageData fileData) {
+        this.index = index;
+        this.fileData = fileData;
+        lines = new int[64];
+        branchIndexes = new int[64];
+    }
+
+    @Nonnegative
+    public int addLineProbe(@Nonnegative int line) {
+        return addProbe(line, -1);
+    }
+
+    @Nonnegative
+    public int addBranchProbe(@Nonnegative int line, @Nonnegative int branchIndex) {
+        return addProbe(line, branchIndex);
+    }
+
+    @Nonnegative
+    private int addProbe(@Nonnegative int line, int branchIndex) {
+        int probeIndex = probeCount;
+
+        if (probeIndex == lines.length) {
+            int newLength = 2 * probeIndex;
+            int[] newLines = new int[newLength];
+            int[] newBranchIndexes = new int[newLength];
+            System.arraycopy(lines, 0, newLines, 0, probeIndex);
+            System.arraycopy(branchIndexes, 0, newBranchIndexes, 0, probeIndex);
+            lines = newLines;
+            branchIndexes = newBranchIndexes;
+        }
+
+        lines[probeIndex] = line;
+        branchIndexes[probeIndex] = branchIndex;
+        probeCount++;
+        return probeIndex;
+    }
+
+    /**
+     * Creates the probes array for the class, once all of its probes have been added; must be called before the
+     * modified class gets defined.
+     */
+    public void createProbes() {
+        synchronized (ALL_CLASSES) {
+            boolean[][] allProbes = probesByClass;
+
+            if (index >= allProbes.length) {
+                boolean[][] newProbes = new boolean[Math.max(index + 1, 2 * allProbes.length)][];
+                System.arraycopy(allProbes, 0, newProbes, 0, allProbes.length);
+                allProbes = newProbes;
+            }
+
+            allProbes[index] = new boolean[probeCount];
+            probesByClass = allProbes;
+        }
+    }
+
+    private void recordExecutions(@Nonnull boolean[] classProbes) {
+        PerFileLineCoverage lineCoverageInfo = fileData.lineCoverageInfo;
+
+        for (int probeIndex = 0, n = classProbes.length; probeIndex < n; probeIndex++) {
+            if (classProbes[probeIndex]) {
+                classProbes[probeIndex] = false;
+                int line = lines[probeIndex];
+                int branchIndex = branchIndexes[probeIndex];
+
+                if (branchIndex < 0) {
+                    lineCoverageInfo.registerExecutionConcurrently(line);
+                } else if (lineCoverageInfo.hasValidBranch(line, branchIndex)) {
+                    lineCoverageInfo.registerExecutionConcurrently(line, branchIndex);
+                }
+            }
+        }
+    }
+}
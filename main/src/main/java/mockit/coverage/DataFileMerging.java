@@ -6,9 +6,18 @@ package mockit.coverage;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import mockit.coverage.data.CoverageData;
@@ -37,26 +46,120 @@ final class DataFileMerging {
         }
     }
 
+    /**
+     * Merges the input files in parallel, with each fork-join task streaming a contiguous range of files into its own
+     * <code>CoverageData</code>, and the partial results then being merged pairwise in input order.
+     * <p>
+     * Which data gets merged for each source file is decided beforehand for all input files, since a partial result
+     * may start from the data of a different version of the class files than the one first found in earlier files.
+     */
     @Nonnull
     CoverageData merge() throws IOException {
-        CoverageData mergedData = null;
+        List<File> existingFiles = new ArrayList<>(inputFiles.size());
 
         for (File inputFile : inputFiles) {
             if (inputFile.exists()) {
-                CoverageData existingData = CoverageData.readDataFromFile(inputFile);
+                existingFiles.add(inputFile);
+            }
+        }
+
+        if (existingFiles.isEmpty()) {
+            throw new IllegalArgumentException("No input \"coverage.ser\" files found");
+        }
+
+        List<Set<String>> sourceFilesToMerge = findSourceFilesToMerge(existingFiles);
+        int maxFilesPerTask = Math.max(1, existingFiles.size() / (2 * ForkJoinPool.getCommonPoolParallelism()));
+        PartialMerge merge = new PartialMerge(existingFiles, sourceFilesToMerge, 0, existingFiles.size(),
+                maxFilesPerTask);
+
+        try {
+            return ForkJoinPool.commonPool().invoke(merge);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Finds the source files to be merged from each data file, as when merging the files one after the other: those
+     * found for the first time, and those with class files last modified at the same known time as when first found.
+     */
+    @Nonnull
+    private static List<Set<String>> findSourceFilesToMerge(@Nonnull List<File> dataFiles) throws IOException {
+        Map<String, Long> firstLastModifiedTimes = new HashMap<>();
+        List<Set<String>> sourceFilesToMerge = new ArrayList<>(dataFiles.size());
 
-                if (mergedData == null) {
-                    mergedData = existingData;
-                } else {
-                    mergedData.merge(existingData);
+        for (File dataFile : dataFiles) {
+            Map<String, Long> lastModifiedTimes = CoverageData.readLastModifiedTimesFromFile(dataFile);
+            Set<String> sourceFiles = new HashSet<>(lastModifiedTimes.size());
+
+            for (Entry<String, Long> sourceFileAndLastModified : lastModifiedTimes.entrySet()) {
+                String sourceFile = sourceFileAndLastModified.getKey();
+                long lastModified = sourceFileAndLastModified.getValue();
+                Long firstLastModified = firstLastModifiedTimes.putIfAbsent(sourceFile, lastModified);
+
+                if (firstLastModified == null || lastModified > 0L && lastModified == firstLastModified) {
+                    sourceFiles.add(sourceFile);
                 }
             }
+
+            sourceFilesToMerge.add(sourceFiles);
         }
 
-        if (mergedData == null) {
-            throw new IllegalArgumentException("No input \"coverage.ser\" files found");
+        return sourceFilesToMerge;
+    }
+
+    private static final class PartialMerge extends RecursiveTask<CoverageData> {
+        private static final long serialVersionUID = 1L;
+        @Nonnull
+        private final List<File> files;
+        @Nonnull
+        private final List<Set<String>> sourceFilesToMerge;
+        @Nonnegative
+        private final int from;
+        @Nonnegative
+        private final int to;
+        @Nonnegative
+        private final int maxFilesPerTask;
+
+        PartialMerge(@Nonnull List<File> files, @Nonnull List<Set<String>> sourceFilesToMerge, @Nonnegative int from,
+                @Nonnegative int to, @Nonnegative int maxFilesPerTask) {
+            this.files = files;
+            this.sourceFilesToMerge = sourceFilesToMerge;
+            this.from = from;
+            this.to = to;
+            this.maxFilesPerTask = maxFilesPerTask;
+        }
+
+        @Nonnull
+        @Override
+        protected CoverageData compute() {
+            if (to - from <= maxFilesPerTask) {
+                return mergeFilesSequentially();
+            }
+
+            int middle = from + to >>> 1;
+            PartialMerge secondHalf = new PartialMerge(files, sourceFilesToMerge, middle, to, maxFilesPerTask);
+            secondHalf.fork();
+
+            CoverageData mergedData = new PartialMerge(files, sourceFilesToMerge, from, middle, maxFilesPerTask)
+                    .compute();
+            mergedData.merge(secondHalf.join());
+            return mergedData;
         }
 
-        return mergedData;
+        @Nonnull
+        private CoverageData mergeFilesSequentially() {
+            CoverageData mergedData = new CoverageData();
+
+            for (int i = from; i < to; i++) {
+                try {
+                    mergedData.mergeDataFromFile(files.get(i), sourceFilesToMerge.get(i)::contains);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            return mergedData;
+        }
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import mockit.coverage.data.CoverageData;
+import mockit.coverage.lines.PerFileLineCoverage;
+
+/**
+ * Line execution counts recorded by a single thread, indexed by file index and line number, which are only merged into
+ * the shared {@link CoverageData} when {@linkplain #flushAll() flushed} at test boundaries and at the end of the test
+ * run.
+ * <p>
+ * Only the owner thread writes to its execution counts, while the flushing thread only writes to the counts already
+ * flushed. So, recording an execution needs no lock nor atomic read-modify-write operation, but each count is still
+ * written with opaque mode and read by the flushing thread with acquire mode, so that the writes can't be delayed or
+ * merged by the compiler and the flushing thread sees each count as of a recent execution. Executions recorded after
+ * a count was read are flushed the next time.
+ * <p>
+ * Each buffer takes one reference per file index up to the highest index of a file executed by its thread, plus one
+ * count per line of each such file, and is dropped on the first flush after its thread terminates. With source file
+ * indexes shared through an instrumented class cache, the highest index can be well above the number of files loaded.
+ */
+final class ProbeBuffer {
+    private static final int[] NO_LINES = {};
+    private static final VarHandle EXECUTION_COUNT = MethodHandles.arrayElementVarHandle(int[].class);
+    @Nonnull
+    private static final List<ProbeBuffer> ALL_BUFFERS = new ArrayList<>();
+    @Nonnull
+    private static final ThreadLocal<ProbeBuffer> BUFFER_FOR_CURRENT_THREAD = ThreadLocal.withInitial(() -> {
+        ProbeBuffer buffer = new ProbeBuffer(Thread.currentThread());
+
+        synchronized (ALL_BUFFERS) {
+            ALL_BUFFERS.add(buffer);
+        }
+
+        return buffer;
+    });
+
+    @Nonnull
+    static ProbeBuffer forCurrentThread() {
+        return BUFFER_FOR_CURRENT_THREAD.get();
+    }
+
+    static void flushAll() {
+        synchronized (ALL_BUFFERS) {
+            for (Iterator<ProbeBuffer> itr = ALL_BUFFERS.iterator(); itr.hasNext();) {
+                ProbeBuffer buffer = itr.next();
+                buffer.flush();
+
+                if (!buffer.owner.isAlive()) {
+                    itr.remove();
+                }
+            }
+        }
+    }
+
+    @Nonnull
+    private final Thread owner;
+    @Nonnull
+    private volatile int[][] executionCounts;
+    @Nonnull
+    private int[][] flushedCounts;
+
+    private ProbeBuffer(@Nonnull Thread owner) {
+        this.owner = owner;
+        executionCounts = new int[0][];
+        flushedCounts = new int[0][];
+    }
+
+    void lineExecuted(@Nonnegative int fileIndex, @Nonnegative int line) {
+        int[][] counts = executionCounts;
+
+        if (fileIndex < counts.length) {
+            int[] lineCounts = counts[fileIndex];
+
+            if (lineCounts != null && line < lineCounts.length) {
+                EXECUTION_COUNT.setOpaque(lineCounts, line, lineCounts[line] + 1);
+                return;
+            }
+        }
+
+        int[] lineCounts = growForLine(fileIndex, line);
+        EXECUTION_COUNT.setOpaque(lineCounts, line, lineCounts[line] + 1);
+    }
+
+    @Nonnull
+    private int[] growForLine(@Nonnegative int fileIndex, @Nonnegative int line) {
+        int[][] counts = executionCounts;
+
+        if (fileIndex >= counts.length) {
+            int[][] newCounts = new int[fileIndex + 10][];
+            System.arraycopy(counts, 0, newCounts, 0, counts.length);
+            counts = newCounts;
+        }
+
+        int[] lineCounts = counts[fileIndex];
+
+        if (lineCounts == null) {
+            lineCounts = NO_LINES;
+        }
+
+        PerFileLineCoverage fileData = CoverageData.instance().getFileData(fileIndex).lineCoverageInfo;
+        int[] newLineCounts = new int[Math.max(line, fileData.getLineCount()) + 1];
+        System.arraycopy(lineCounts, 0, newLineCounts, 0, lineCounts.length);
+        counts[fileIndex] = newLineCounts;
+
+        executionCounts = counts;
+        return newLineCounts;
+    }
+
+    private void flush() {
+        int[][] counts = executionCounts;
+        CoverageData coverageData = CoverageData.instance();
+
+        for (int fileIndex = 0, n = counts.length; fileIndex < n; fileIndex++) {
+            int[] lineCounts = counts[fileIndex];
+
+            if (lineCounts != null) {
+                int[] alreadyFlushed = getFlushedCounts(fileIndex, lineCounts.length);
+                PerFileLineCoverage fileData = coverageData.getFileData(fileIndex).lineCoverageInfo;
+
+                for (int line = 0, lineCount = lineCounts.length; line < lineCount; line++) {
+                    int executionsToFlush = (int) EXECUTION_COUNT.getAcquire(lineCounts, line) - alreadyFlushed[line];
+
+                    if (executionsToFlush > 0) {
+                        alreadyFlushed[line] += executionsToFlush;
+                        int previousExecutionCount = fileData.registerExecutionsConcurrently(line, executionsToFlush);
+                        TestRun.recordNewLineOrSegmentAsCoveredIfApplicable(previousExecutionCount);
+                    }
+                }
+            }
+        }
+    }
+
+    @Nonnull
+    private int[] getFlushedCounts(@Nonnegative int fileIndex, @Nonnegative int lineCount) {
+        int[][] flushed = flushedCounts;
+
+        if (fileIndex >= flushed.length) {
+            int[][] newFlushed = new int[fileIndex + 10][];
+            System.arraycopy(flushed, 0, newFlushed, 0, flushed.length);
+            flushedCounts = flushed = newFlushed;
+        }
+
+        int[] lineCounts = flushed[fileIndex];
+
+        if (lineCounts == null || lineCount > lineCounts.length) {
+            int[] newLineCounts = new int[lineCount];
+
+            if (lineCounts != null) {
+                System.arraycopy(lineCounts, 0, newLineCounts, 0, lineCounts.length);
+            }
+
+            flushed[fileIndex] = lineCounts = newLineCounts;
+        }
+
+        return lineCounts;
+    }
+}
@@ -15,6 +15,9 @@ import mockit.coverage.testRedundancy.TestCoverage;
 @SuppressWarnings("unused")
 public final class TestRun {
     private static final Object LOCK = new Object();
+    private static final String RECORDING = Configuration.getProperty("recording", "");
+    private static final boolean BUFFERED_RECORDING = "buffered".equals(RECORDING);
+    private static final boolean CONCURRENT_RECORDING = BUFFERED_RECORDING || "concurrent".equals(RECORDING);
     private static boolean terminated;
 
     private TestRun() {
@@ -25,13 +28,23 @@ public final class TestRun {
             return;
         }
 
+        if (CONCURRENT_RECORDING) {
+            if (BUFFERED_RECORDING && !CoverageData.instance().isWithCallPoints()) {
+                ProbeBuffer.forCurrentThread().lineExecuted(fileIndex, line);
+            } else {
+                registerLineExecutionConcurrently(fileIndex, line);
+            }
+
+            return;
+        }
+
         synchronized (LOCK) {
             CoverageData coverageData = CoverageData.instance();
             PerFileLineCoverage fileData = coverageData.getFileData(fileIndex).lineCoverageInfo;
             CallPoint callPoint = null;
 
             if (coverageData.isWithCallPoints() && fileData.acceptsAdditionalCallPoints(line)) {
-                callPoint = CallPoint.create(new Throwable());
+                callPoint = CallPoint.create();
             }
 
             int previousExecutionCount = fileData.registerExecution(line, callPoint);
@@ -39,7 +52,31 @@ public final class TestRun {
         }
     }
 
-    private static void recordNewLineOrSegmentAsCoveredIfApplicable(@Nonnegative int previousExecutionCount) {
+    /**
+     * Increments the execution count for the line without taking the global lock, which is then only needed when a new
+     * call point gets registered.
+     */
+    private static void registerLineExecutionConcurrently(@Nonnegative int fileIndex, @Nonnegative int line) {
+        CoverageData coverageData = CoverageData.instance();
+        PerFileLineCoverage fileData = coverageData.getFileData(fileIndex).lineCoverageInfo;
+        int previousExecutionCount = fileData.registerExecutionConcurrently(line);
+
+        if (coverageData.isWithCallPoints()) {
+            synchronized (LOCK) {
+                if (fileData.acceptsAdditionalCallPoints(line)) {
+                    CallPoint callPoint = CallPoint.create();
+
+                    if (callPoint != null) {
+                        fileData.registerCallPoint(line, callPoint);
+                    }
+                }
+            }
+        }
+
+        recordNewLineOrSegmentAsCoveredIfApplicable(previousExecutionCount);
+    }
+
+    static void recordNewLineOrSegmentAsCoveredIfApplicable(@Nonnegative int previousExecutionCount) {
         TestCoverage testCoverage = TestCoverage.INSTANCE;
 
         if (testCoverage != null) {
@@ -52,6 +89,11 @@ public final class TestRun {
             return;
         }
 
+        if (CONCURRENT_RECORDING) {
+            registerBranchExecutionConcurrently(fileIndex, line, branchIndex);
+            return;
+        }
+
         synchronized (LOCK) {
             CoverageData coverageData = CoverageData.instance();
             PerFileLineCoverage fileData = coverageData.getFileData(fileIndex).lineCoverageInfo;
@@ -60,7 +102,7 @@ public final class TestRun {
                 CallPoint callPoint = null;
 
                 if (coverageData.isWithCallPoints() && fileData.acceptsAdditionalCallPoints(line, branchIndex)) {
-                    callPoint = CallPoint.create(new Throwable());
+                    callPoint = CallPoint.create();
                 }
 
                 int previousExecutionCount = fileData.registerExecution(line, branchIndex, callPoint);
@@ -69,6 +111,30 @@ public final class TestRun {
         }
     }
 
+    private static void registerBranchExecutionConcurrently(@Nonnegative int fileIndex, @Nonnegative int line,
+            @Nonnegative int branchIndex) {
+        CoverageData coverageData = CoverageData.instance();
+        PerFileLineCoverage fileData = coverageData.getFileData(fileIndex).lineCoverageInfo;
+
+        if (fileData.hasValidBranch(line, branchIndex)) {
+            int previousExecutionCount = fileData.registerExecutionConcurrently(line, branchIndex);
+
+            if (coverageData.isWithCallPoints()) {
+                synchronized (LOCK) {
+                    if (fileData.acceptsAdditionalCallPoints(line, branchIndex)) {
+                        CallPoint callPoint = CallPoint.create();
+
+                        if (callPoint != null) {
+                            fileData.registerCallPoint(line, branchIndex, callPoint);
+                        }
+                    }
+                }
+            }
+
+            recordNewLineOrSegmentAsCoveredIfApplicable(previousExecutionCount);
+        }
+    }
+
     public static void fieldAssigned(@Nonnull String file, @Nonnull String classAndFieldNames) {
         if (terminated) {
             return;
@@ -118,8 +184,29 @@ public final class TestRun {
         }
     }
 
+    /**
+     * Merges the line executions recorded by each thread into the shared coverage data, when in "buffered" recording
+     * mode. This is done at test boundaries, so that new lines covered get attributed to the test just completed.
+     */
+    public static void flushBufferedExecutions() {
+        if (BUFFERED_RECORDING) {
+            ProbeBuffer.flushAll();
+        }
+    }
+
+    /**
+     * Merges all executions recorded but not yet in the shared coverage data, when in "buffered" or "probes" recording
+     * mode, so that the coverage data can be read while tests are still running. In "probes" mode, a line or branch
+     * executed since the previous call only gets its execution count incremented by one.
+     */
+    public static void flushPendingExecutions() {
+        flushBufferedExecutions();
+        ClassProbes.recordAllExecutions();
+    }
+
     static void terminate() {
         terminated = true;
+        flushPendingExecutions();
     }
 
     public static boolean isTerminated() {
@@ -4,21 +4,29 @@
  */
 package mockit.coverage.data;
 
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -36,6 +44,7 @@ public final class CoverageData implements Serializable {
     private static final long serialVersionUID = -4860004226098360259L;
     @Nonnull
     private static final CoverageData instance = new CoverageData();
+    private static final boolean ON_WINDOWS = File.separatorChar == '\\';
 
     @Nonnull
     public static CoverageData instance() {
@@ -44,10 +53,16 @@ public final class CoverageData implements Serializable {
 
     private boolean withCallPoints;
 
+    // Classes can be instrumented by multiple class loading threads at the same time, so files are registered without
+    // locking, and the file data is found by index from instrumented code through an array only replaced when full.
+    @Nonnull
+    private final Map<String, FileCoverageData> fileToFileData = new ConcurrentHashMap<>();
     @Nonnull
-    private final Map<String, FileCoverageData> fileToFileData = new LinkedHashMap<>();
+    private final transient AtomicInteger fileCount = new AtomicInteger();
     @Nonnull
-    private final List<FileCoverageData> indexedFileData = new ArrayList<>(100);
+    private transient volatile FileCoverageData[] filesByIndex = new FileCoverageData[100];
+    @Nullable
+    private transient ToIntFunction<String> fileIndexAssignment;
 
     public boolean isWithCallPoints() {
         return withCallPoints;
@@ -57,6 +72,18 @@ public final class CoverageData implements Serializable {
         this.withCallPoints = withCallPoints;
     }
 
+    /**
+     * Makes the indexes of source files added from now on be assigned by the given function rather than in the order
+     * the files get added, so that they can be the same in every JVM instrumenting the same classes.
+     * <p>
+     * The function must always assign the same index to the same file, as it can be called more than once for a file
+     * added concurrently by several threads. Assigned indexes need not be contiguous, but the array through which
+     * files are found by index grows up to the highest one, taking one reference per index.
+     */
+    public void setFileIndexAssignment(@Nullable ToIntFunction<String> fileIndexAssignment) {
+        this.fileIndexAssignment = fileIndexAssignment;
+    }
+
     @Nonnull
     public Map<String, FileCoverageData> getFileToFileData() {
         return fileToFileData;
@@ -68,10 +95,11 @@ public final class CoverageData implements Serializable {
 
         // For a class with nested/inner classes, a previous class in the same source file may already have been added.
         if (fileData == null) {
-            int fileIndex = indexedFileData.size();
-            fileData = new FileCoverageData(fileIndex, kindOfTopLevelType);
-            indexedFileData.add(fileData);
-            fileToFileData.put(file, fileData);
+            // An assigned index is obtained before locking the map entry, since assigning it may take a file lock, and
+            // the same index is assigned every time for the same file.
+            ToIntFunction<String> indexAssignment = fileIndexAssignment;
+            int assignedIndex = indexAssignment == null ? -1 : indexAssignment.applyAsInt(file);
+            fileData = fileToFileData.computeIfAbsent(file, f -> addFile(assignedIndex, kindOfTopLevelType));
         } else if (kindOfTopLevelType != null) {
             fileData.kindOfTopLevelType = kindOfTopLevelType;
         }
@@ -79,6 +107,28 @@ public final class CoverageData implements Serializable {
         return fileData;
     }
 
+    @Nonnull
+    private FileCoverageData addFile(int assignedIndex, @Nullable String kindOfTopLevelType) {
+        int fileIndex = assignedIndex < 0 ? fileCount.getAndIncrement() : assignedIndex;
+        FileCoverageData fileData = new FileCoverageData(fileIndex, kindOfTopLevelType);
+        publishFileData(fileData);
+        return fileData;
+    }
+
+    private synchronized void publishFileData(@Nonnull FileCoverageData fileData) {
+        FileCoverageData[] files = filesByIndex;
+        int fileIndex = fileData.index;
+
+        if (fileIndex >= files.length) {
+            files = Arrays.copyOf(files, Math.max(fileIndex + 1, 2 * files.length));
+        }
+
+        files[fileIndex] = fileData;
+
+        // Written back even if not replaced, so that the new element is visible to threads reading the array.
+        filesByIndex = files;
+    }
+
     @Nonnull
     public FileCoverageData getFileData(@Nonnull String file) {
         return fileToFileData.get(file);
@@ -86,7 +136,7 @@ public final class CoverageData implements Serializable {
 
     @Nonnull
     public FileCoverageData getFileData(@Nonnegative int fileIndex) {
-        return indexedFileData.get(fileIndex);
+        return filesByIndex[fileIndex];
     }
 
     public boolean isEmpty() {
@@ -230,16 +280,127 @@ public final class CoverageData implements Serializable {
     }
 
     /**
-     * Reads a serialized <code>CoverageData</code> object from the given file (normally, a "<code>coverage.ser</code>"
-     * file generated at the end of a previous test run).
+     * Reads a <code>CoverageData</code> object from the given file (normally, a "<code>coverage.ser</code>" file
+     * generated at the end of a previous test run).
+     * <p>
+     * The file is memory-mapped and read in the compact binary format written by {@link #writeDataToFile(File)}; files
+     * from older versions, which contain a serialized <code>CoverageData</code> instance instead, are still accepted.
      *
      * @param dataFile
-     *            the ".ser" file containing a serialized <code>CoverageData</code> instance
+     *            the ".ser" file containing the coverage data
      *
      * @return a new object containing all coverage data resulting from a previous test run
      */
     @Nonnull
     public static CoverageData readDataFromFile(@Nonnull File dataFile) throws IOException {
+        CoverageData data = new CoverageData();
+        data.mergeDataFromFile(dataFile);
+        return data;
+    }
+
+    /**
+     * Merges the coverage data from the given file into this object, one source file at a time, so that the whole data
+     * from the file never needs to be held in memory.
+     * <p>
+     * As in {@link #merge(CoverageData)}, the data for a source file already present is only merged if it came from
+     * the same version of the class files; otherwise, its section of the data file gets skipped without being read.
+     */
+    public void mergeDataFromFile(@Nonnull File dataFile) throws IOException {
+        mergeDataFromFile(dataFile, sourceFile -> true);
+    }
+
+    /**
+     * Same as {@link #mergeDataFromFile(File)}, but only for the source files accepted by the given filter; the
+     * sections of the data file for other source files get skipped.
+     */
+    public void mergeDataFromFile(@Nonnull File dataFile, @Nonnull Predicate<String> sourceFilesToMerge)
+            throws IOException {
+        ByteBuffer fileContents = readFileContents(dataFile);
+
+        if (!CoverageDataInput.isInCompactFormat(fileContents)) {
+            merge(readSerializedDataFromFile(dataFile), sourceFilesToMerge);
+            return;
+        }
+
+        CoverageDataInput input = new CoverageDataInput(fileContents);
+        withCallPoints |= input.readBoolean();
+
+        for (int fileIndex = 0, fileCount = input.readInt(); fileIndex < fileCount; fileIndex++) {
+            String file = input.readString();
+            long lastModified = input.readLong();
+            int sectionLength = input.readSectionLength();
+            FileCoverageData fileData = fileToFileData.get(file);
+
+            if (!sourceFilesToMerge.test(file)) {
+                input.skip(sectionLength);
+            } else if (fileData == null) {
+                FileCoverageData previousFileData = FileCoverageData.readFrom(input, fileIndex, lastModified);
+                fileToFileData.put(file, previousFileData);
+            } else if (fileData.lastModified > 0 && lastModified == fileData.lastModified) {
+                FileCoverageData previousFileData = FileCoverageData.readFrom(input, fileIndex, lastModified);
+                fileData.mergeWithDataFromPreviousTestRun(previousFileData);
+            } else {
+                input.skip(sectionLength);
+            }
+        }
+    }
+
+    /**
+     * Reads the last modified times the class files of each source file had when its coverage data was written to the
+     * given file, without reading the data itself, except for files in the serialized format of older versions.
+     *
+     * @return the last modified times by source file
+     */
+    @Nonnull
+    public static Map<String, Long> readLastModifiedTimesFromFile(@Nonnull File dataFile) throws IOException {
+        ByteBuffer fileContents = readFileContents(dataFile);
+        Map<String, Long> lastModifiedTimes = new HashMap<>();
+
+        if (!CoverageDataInput.isInCompactFormat(fileContents)) {
+            for (Entry<String, FileCoverageData> fileAndFileData : readSerializedDataFromFile(dataFile).fileToFileData
+                    .entrySet()) {
+                lastModifiedTimes.put(fileAndFileData.getKey(), fileAndFileData.getValue().lastModified);
+            }
+
+            return lastModifiedTimes;
+        }
+
+        CoverageDataInput input = new CoverageDataInput(fileContents);
+        input.readBoolean();
+
+        for (int fileIndex = 0, fileCount = input.readInt(); fileIndex < fileCount; fileIndex++) {
+            String file = input.readString();
+            lastModifiedTimes.put(file, input.readLong());
+            input.skip(input.readSectionLength());
+        }
+
+        return lastModifiedTimes;
+    }
+
+    @Nonnull
+    private static ByteBuffer readFileContents(@Nonnull File dataFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(), READ)) {
+            long fileSize = channel.size();
+
+            // On Windows, a mapped file can't be overwritten until the mapping gets garbage collected, which would make
+            // the rewriting of an accretion file fail.
+            if (!ON_WINDOWS) {
+                return channel.map(MapMode.READ_ONLY, 0L, fileSize);
+            }
+
+            ByteBuffer fileContents = ByteBuffer.allocate((int) fileSize);
+
+            while (fileContents.hasRemaining() && channel.read(fileContents) >= 0) {
+                // Keeps reading until the whole file is in the buffer.
+            }
+
+            fileContents.flip();
+            return fileContents;
+        }
+    }
+
+    @Nonnull
+    private static CoverageData readSerializedDataFromFile(@Nonnull File dataFile) throws IOException {
         try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFile)))) {
             return (CoverageData) input.readObject();
         } catch (ClassNotFoundException e) {
@@ -249,17 +410,39 @@ public final class CoverageData implements Serializable {
     }
 
     public void writeDataToFile(@Nonnull File dataFile) throws IOException {
-        try (ObjectOutputStream output = new ObjectOutputStream(
-                new BufferedOutputStream(new FileOutputStream(dataFile)))) {
-            output.writeObject(this);
+        CoverageDataOutput output = new CoverageDataOutput();
+        output.writeBoolean(withCallPoints);
+        output.writeInt(fileToFileData.size());
+
+        for (Entry<String, FileCoverageData> fileAndFileData : fileToFileData.entrySet()) {
+            FileCoverageData fileData = fileAndFileData.getValue();
+            output.writeString(fileAndFileData.getKey());
+            output.writeLong(fileData.lastModified);
+
+            int sectionStart = output.startSection();
+            fileData.writeTo(output);
+            output.endSection(sectionStart);
+        }
+
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+            output.writeTo(channel);
         }
     }
 
     public void merge(@Nonnull CoverageData previousData) {
+        merge(previousData, sourceFile -> true);
+    }
+
+    private void merge(@Nonnull CoverageData previousData, @Nonnull Predicate<String> sourceFilesToMerge) {
         withCallPoints |= previousData.withCallPoints;
 
         for (Entry<String, FileCoverageData> previousFileAndFileData : previousData.fileToFileData.entrySet()) {
             String previousFile = previousFileAndFileData.getKey();
+
+            if (!sourceFilesToMerge.test(previousFile)) {
+                continue;
+            }
+
             FileCoverageData previousFileData = previousFileAndFileData.getValue();
             FileCoverageData fileData = fileToFileData.get(previousFile);
 
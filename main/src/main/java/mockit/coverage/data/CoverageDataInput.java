@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.data;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Reads coverage data written by {@link CoverageDataOutput}, directly from a buffer holding the whole file, which is
+ * normally memory-mapped.
+ */
+public final class CoverageDataInput {
+    @Nonnull
+    private final ByteBuffer data;
+    @Nonnull
+    private final String[] strings;
+
+    public static boolean isInCompactFormat(@Nonnull ByteBuffer fileContents) {
+        return fileContents.remaining() >= 4 && fileContents.getInt(fileContents.position()) == CoverageDataOutput.MAGIC;
+    }
+
+    public CoverageDataInput(@Nonnull ByteBuffer fileContents) throws IOException {
+        data = fileContents;
+        data.getInt();
+        byte version = data.get();
+
+        if (version != CoverageDataOutput.VERSION) {
+            throw new IOException("Unsupported version " + version + " of coverage data file");
+        }
+
+        strings = readStringTable();
+    }
+
+    @Nonnull
+    private String[] readStringTable() {
+        String[] stringTable = new String[readInt()];
+
+        for (int i = 0; i < stringTable.length; i++) {
+            byte[] encodedString = new byte[readInt()];
+            data.get(encodedString);
+            stringTable[i] = new String(encodedString, UTF_8);
+        }
+
+        return stringTable;
+    }
+
+    public boolean readBoolean() {
+        return data.get() != 0;
+    }
+
+    @Nonnegative
+    public int readInt() {
+        return (int) readVarint();
+    }
+
+    public int readSignedInt() {
+        int value = readInt();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    @Nonnegative
+    public long readLong() {
+        return readVarint();
+    }
+
+    private long readVarint() {
+        long value = 0L;
+
+        for (int shift = 0;; shift += 7) {
+            byte b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    @Nonnegative
+    int readSectionLength() {
+        return data.getInt();
+    }
+
+    void skip(@Nonnegative int bytes) {
+        data.position(data.position() + bytes);
+    }
+
+    @Nonnull
+    public byte[] readBytes() {
+        byte[] value = new byte[readInt()];
+        data.get(value);
+        return value;
+    }
+
+    @Nonnull
+    public String readString() {
+        return strings[readInt()];
+    }
+
+    @Nullable
+    public String readNullableString() {
+        int index = readInt();
+        return index == 0 ? null : strings[index - 1];
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.data;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Writes coverage data in the compact binary format of "<code>coverage.ser</code>" files.
+ * <p>
+ * A file in this format starts with a {@linkplain #MAGIC magic number} and a {@linkplain #VERSION version}, followed by
+ * a table of the distinct strings (file, field, class, and method names) used in the data, and then by the data itself.
+ * The data for each source file is written in a section prefixed with its length, so that readers can skip it.
+ * Non-negative numbers are written as variable-length integers taking from one to five (or ten, for longs) bytes, and
+ * strings as indexes into the string table.
+ *
+ * @see CoverageDataInput
+ */
+public final class CoverageDataOutput {
+    static final int MAGIC = 0x4A4D4344; // "JMCD"
+    static final byte VERSION = 2;
+
+    @Nonnull
+    private final Map<String, Integer> stringIndexes;
+    @Nonnull
+    private final List<String> strings;
+    @Nonnull
+    private ByteBuffer data;
+
+    CoverageDataOutput() {
+        this(64 * 1024);
+    }
+
+    public CoverageDataOutput(@Nonnegative int initialCapacity) {
+        stringIndexes = new HashMap<>();
+        strings = new ArrayList<>();
+        data = ByteBuffer.allocate(initialCapacity);
+    }
+
+    public void writeBoolean(boolean value) {
+        ensureCapacity(1);
+        data.put(value ? (byte) 1 : (byte) 0);
+    }
+
+    public void writeInt(@Nonnegative int value) {
+        ensureCapacity(5);
+        putVarint(data, value & 0xFFFFFFFFL);
+    }
+
+    public void writeSignedInt(int value) {
+        writeInt(value << 1 ^ value >> 31);
+    }
+
+    public void writeLong(@Nonnegative long value) {
+        ensureCapacity(10);
+        putVarint(data, value);
+    }
+
+    public void writeBytes(@Nonnull byte[] value) {
+        writeInt(value.length);
+        ensureCapacity(value.length);
+        data.put(value);
+    }
+
+    public void writeString(@Nonnull String value) {
+        writeInt(getStringIndex(value));
+    }
+
+    public void writeNullableString(@Nullable String value) {
+        writeInt(value == null ? 0 : getStringIndex(value) + 1);
+    }
+
+    /**
+     * Starts a section whose length in bytes will be written before it, once {@linkplain #endSection(int) ended}.
+     *
+     * @return the position where the section starts
+     */
+    @Nonnegative
+    int startSection() {
+        ensureCapacity(4);
+        data.putInt(0);
+        return data.position();
+    }
+
+    void endSection(@Nonnegative int sectionStart) {
+        data.putInt(sectionStart - 4, data.position() - sectionStart);
+    }
+
+    @Nonnegative
+    private int getStringIndex(@Nonnull String value) {
+        Integer index = stringIndexes.get(value);
+
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndexes.put(value, index);
+        }
+
+        return index;
+    }
+
+    private void ensureCapacity(@Nonnegative int bytes) {
+        if (data.remaining() < bytes) {
+            ByteBuffer newData = ByteBuffer.allocate(Math.max(2 * data.capacity(), data.position() + bytes));
+            data.flip();
+            newData.put(data);
+            data = newData;
+        }
+    }
+
+    private static void putVarint(@Nonnull ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0L) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    public void writeTo(@Nonnull FileChannel channel) throws IOException {
+        ByteBuffer header = createHeaderWithStringTable();
+        data.flip();
+        ByteBuffer[] buffers = { header, data };
+
+        while (data.hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    @Nonnull
+    byte[] computeDigest() {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteBuffer writtenData = data.duplicate();
+        writtenData.flip();
+
+        digest.update(createHeaderWithStringTable());
+        digest.update(writtenData);
+        return digest.digest();
+    }
+
+    @Nonnull
+    private ByteBuffer createHeaderWithStringTable() {
+        int stringCount = strings.size();
+        byte[][] encodedStrings = new byte[stringCount][];
+        int headerSize = 4 + 1 + 5;
+
+        for (int i = 0; i < stringCount; i++) {
+            byte[] encodedString = strings.get(i).getBytes(UTF_8);
+            encodedStrings[i] = encodedString;
+            headerSize += 5 + encodedString.length;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(MAGIC).put(VERSION);
+        putVarint(header, stringCount);
+
+        for (byte[] encodedString : encodedStrings) {
+            putVarint(header, encodedString.length);
+            header.put(encodedString);
+        }
+
+        header.flip();
+        return header;
+    }
+}
@@ -46,17 +46,52 @@ public final class FileCoverageData implements Serializable {
     private final boolean loadedAfterTestCompletion;
 
     FileCoverageData(@Nonnegative int index, @Nullable String kindOfTopLevelType) {
+        this(index, kindOfTopLevelType, TestRun.isTerminated());
+    }
+
+    private FileCoverageData(@Nonnegative int index, @Nullable String kindOfTopLevelType,
+            boolean loadedAfterTestCompletion) {
         this.index = index;
         this.kindOfTopLevelType = kindOfTopLevelType;
         lineCoverageInfo = new PerFileLineCoverage();
         dataCoverageInfo = new PerFileDataCoverage();
-        loadedAfterTestCompletion = TestRun.isTerminated();
+        this.loadedAfterTestCompletion = loadedAfterTestCompletion;
+    }
+
+    @Nonnull
+    static FileCoverageData readFrom(@Nonnull CoverageDataInput input, @Nonnegative int index,
+            @Nonnegative long lastModified) {
+        String kindOfTopLevelType = input.readNullableString();
+        boolean loadedAfterTestCompletion = input.readBoolean();
+
+        FileCoverageData fileData = new FileCoverageData(index, kindOfTopLevelType, loadedAfterTestCompletion);
+        fileData.lastModified = lastModified;
+        fileData.lineCoverageInfo.readFrom(input);
+        fileData.dataCoverageInfo.readFrom(input);
+        return fileData;
+    }
+
+    void writeTo(@Nonnull CoverageDataOutput output) {
+        output.writeNullableString(kindOfTopLevelType);
+        output.writeBoolean(loadedAfterTestCompletion);
+        lineCoverageInfo.writeTo(output);
+        dataCoverageInfo.writeTo(output);
     }
 
     boolean wasLoadedAfterTestCompletion() {
         return loadedAfterTestCompletion;
     }
 
+    /**
+     * Computes a digest of the coverage data for the source file, which changes whenever the data changes in any way.
+     */
+    @Nonnull
+    public byte[] computeDigest() {
+        CoverageDataOutput output = new CoverageDataOutput(1024);
+        writeTo(output);
+        return output.computeDigest();
+    }
+
     @Nonnull
     public PerFileLineCoverage getLineCoverageData() {
         return lineCoverageInfo;
@@ -12,6 +12,9 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import mockit.coverage.data.CoverageDataInput;
+import mockit.coverage.data.CoverageDataOutput;
+
 public abstract class FieldData implements Serializable {
     private static final long serialVersionUID = 8565599590976858508L;
 
@@ -27,6 +30,18 @@ public abstract class FieldData implements Serializable {
         out.defaultWriteObject();
     }
 
+    final void writeTo(@Nonnull CoverageDataOutput output) {
+        output.writeInt(readCount);
+        output.writeInt(writeCount);
+        output.writeBoolean(isCovered());
+    }
+
+    final void readFrom(@Nonnull CoverageDataInput input) {
+        readCount = input.readInt();
+        writeCount = input.readInt();
+        covered = input.readBoolean();
+    }
+
     @Nonnegative
     public final int getReadCount() {
         return readCount;
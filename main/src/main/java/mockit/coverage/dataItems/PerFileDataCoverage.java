@@ -17,6 +17,8 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import mockit.coverage.CoveragePercentage;
+import mockit.coverage.data.CoverageDataInput;
+import mockit.coverage.data.CoverageDataOutput;
 import mockit.coverage.data.PerFileCoverage;
 
 public final class PerFileDataCoverage implements PerFileCoverage {
@@ -36,9 +38,77 @@ public final class PerFileDataCoverage implements PerFileCoverage {
         in.defaultReadObject();
     }
 
+    public void writeTo(@Nonnull CoverageDataOutput output) {
+        output.writeInt(allFields.size());
+
+        for (String classAndField : allFields) {
+            output.writeString(classAndField);
+        }
+
+        writeFieldsData(output, staticFieldsData);
+        writeFieldsData(output, instanceFieldsData);
+    }
+
+    private static void writeFieldsData(@Nonnull CoverageDataOutput output,
+            @Nonnull Map<String, ? extends FieldData> fieldsData) {
+        output.writeInt(fieldsData.size());
+
+        for (Entry<String, ? extends FieldData> classAndFieldAndData : fieldsData.entrySet()) {
+            output.writeString(classAndFieldAndData.getKey());
+            classAndFieldAndData.getValue().writeTo(output);
+        }
+    }
+
+    public void readFrom(@Nonnull CoverageDataInput input) {
+        for (int i = 0, fieldCount = input.readInt(); i < fieldCount; i++) {
+            allFields.add(input.readString());
+        }
+
+        for (int i = 0, fieldCount = input.readInt(); i < fieldCount; i++) {
+            String classAndField = input.readString();
+            StaticFieldData staticData = new StaticFieldData();
+            staticData.readFrom(input);
+            staticFieldsData.put(classAndField, staticData);
+        }
+
+        for (int i = 0, fieldCount = input.readInt(); i < fieldCount; i++) {
+            String classAndField = input.readString();
+            InstanceFieldData instanceData = new InstanceFieldData();
+            instanceData.readFrom(input);
+            instanceFieldsData.put(classAndField, instanceData);
+        }
+    }
+
+    /**
+     * Writes only the names of the fields added so far, and whether each one is static, without the coverage data
+     * gathered for them.
+     */
+    public void writeFieldNamesTo(@Nonnull CoverageDataOutput output) {
+        output.writeInt(allFields.size());
+
+        for (String classAndField : allFields) {
+            output.writeString(classAndField);
+            output.writeBoolean(staticFieldsData.containsKey(classAndField));
+        }
+    }
+
+    /**
+     * Adds the fields written by {@link #writeFieldNamesTo(CoverageDataOutput)}, as if each one was
+     * {@linkplain #addField(String, String, boolean) added} again.
+     */
+    public void readFieldNamesFrom(@Nonnull CoverageDataInput input) {
+        for (int i = 0, fieldCount = input.readInt(); i < fieldCount; i++) {
+            String classAndField = input.readString();
+            boolean isStatic = input.readBoolean();
+            addField(classAndField, isStatic);
+        }
+    }
+
     public void addField(@Nonnull String className, @Nonnull String fieldName, boolean isStatic) {
-        String classAndField = className + '.' + fieldName;
+        addField(className + '.' + fieldName, isStatic);
+    }
 
+    private void addField(@Nonnull String classAndField, boolean isStatic) {
         if (!allFields.contains(classAndField)) {
             allFields.add(classAndField);
         }
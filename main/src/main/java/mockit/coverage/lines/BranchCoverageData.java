@@ -12,6 +12,8 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import mockit.asm.controlFlow.Label;
+import mockit.coverage.data.CoverageDataInput;
+import mockit.coverage.data.CoverageDataOutput;
 
 /**
  * Coverage data gathered for a branch inside a line of source code.
@@ -37,6 +39,18 @@ public final class BranchCoverageData extends LineSegmentData {
         return label.jumpTargetLine == 0 ? label.line : label.jumpTargetLine;
     }
 
+    @Override
+    void writeTo(@Nonnull CoverageDataOutput output) {
+        output.writeInt(getLine());
+        super.writeTo(output);
+    }
+
+    @Override
+    void readFrom(@Nonnull CoverageDataInput input) {
+        label.line = input.readInt();
+        super.readFrom(input);
+    }
+
     private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
         label = new Label();
         label.line = in.readInt();
@@ -16,6 +16,8 @@ import javax.annotation.Nullable;
 
 import mockit.asm.controlFlow.Label;
 import mockit.coverage.CallPoint;
+import mockit.coverage.data.CoverageDataInput;
+import mockit.coverage.data.CoverageDataOutput;
 
 /**
  * Coverage data gathered for a single executable line of code in a source file.
@@ -71,6 +73,17 @@ public final class LineCoverageData extends LineSegmentData {
         return data.registerExecution(callPoint);
     }
 
+    @Nonnegative
+    int registerExecutionConcurrently(@Nonnegative int branchIndex) {
+        BranchCoverageData data = branches.get(branchIndex);
+        return data.registerExecutionConcurrently();
+    }
+
+    void addCallPoint(@Nonnegative int branchIndex, @Nonnull CallPoint callPoint) {
+        BranchCoverageData data = branches.get(branchIndex);
+        data.addCallPoint(callPoint);
+    }
+
     public boolean containsBranches() {
         return !noBranchesYet();
     }
@@ -199,6 +212,32 @@ public final class LineCoverageData extends LineSegmentData {
         return sourcesAndTargetsCovered;
     }
 
+    @Override
+    void writeTo(@Nonnull CoverageDataOutput output) {
+        super.writeTo(output);
+        output.writeInt(branches.size());
+
+        for (BranchCoverageData branch : branches) {
+            branch.writeTo(output);
+        }
+    }
+
+    @Override
+    void readFrom(@Nonnull CoverageDataInput input) {
+        super.readFrom(input);
+        int branchCount = input.readInt();
+
+        if (branchCount > 0) {
+            branches = new ArrayList<>(branchCount);
+
+            for (int i = 0; i < branchCount; i++) {
+                BranchCoverageData branch = new BranchCoverageData(new Label());
+                branch.readFrom(input);
+                branches.add(branch);
+            }
+        }
+    }
+
     void addCountsFromPreviousTestRun(@Nonnull LineCoverageData previousData) {
         addExecutionCountAndCallPointsFromPreviousTestRun(previousData);
 
@@ -5,6 +5,8 @@
 package mockit.coverage.lines;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,10 +16,21 @@ import javax.annotation.Nullable;
 
 import mockit.coverage.CallPoint;
 import mockit.coverage.Configuration;
+import mockit.coverage.data.CoverageDataInput;
+import mockit.coverage.data.CoverageDataOutput;
 
 public class LineSegmentData implements Serializable {
     private static final long serialVersionUID = -6233980722802474992L;
     private static final int MAX_CALL_POINTS = Integer.parseInt(Configuration.getProperty("maxCallPoints", "10"));
+    private static final VarHandle EXECUTION_COUNT;
+
+    static {
+        try {
+            EXECUTION_COUNT = MethodHandles.lookup().findVarHandle(LineSegmentData.class, "executionCount", int.class);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     // Constant data:
     private boolean unreachable;
@@ -60,7 +73,12 @@ public class LineSegmentData implements Serializable {
         return previousExecutionCount;
     }
 
-    private void addCallPoint(@Nonnull CallPoint callPoint) {
+    @Nonnegative
+    final int registerExecutionConcurrently() {
+        return (int) EXECUTION_COUNT.getAndAdd(this, 1);
+    }
+
+    final void addCallPoint(@Nonnull CallPoint callPoint) {
         if (callPoints == null) {
             callPoints = new ArrayList<>(MAX_CALL_POINTS);
         }
@@ -77,6 +95,37 @@ public class LineSegmentData implements Serializable {
         callPoints.add(callPoint);
     }
 
+    void writeTo(@Nonnull CoverageDataOutput output) {
+        output.writeBoolean(unreachable);
+        output.writeBoolean(empty);
+        output.writeInt(executionCount);
+
+        if (callPoints == null) {
+            output.writeInt(0);
+        } else {
+            output.writeInt(callPoints.size());
+
+            for (CallPoint callPoint : callPoints) {
+                callPoint.writeTo(output);
+            }
+        }
+    }
+
+    void readFrom(@Nonnull CoverageDataInput input) {
+        unreachable = input.readBoolean();
+        empty = input.readBoolean();
+        executionCount = input.readInt();
+        int callPointCount = input.readInt();
+
+        if (callPointCount > 0) {
+            callPoints = new ArrayList<>(callPointCount);
+
+            for (int i = 0; i < callPointCount; i++) {
+                callPoints.add(CallPoint.readFrom(input));
+            }
+        }
+    }
+
     public final boolean containsCallPoints() {
         return callPoints != null;
     }
@@ -6,9 +6,15 @@ package mockit.coverage.lines;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -16,17 +22,29 @@ import javax.annotation.Nullable;
 
 import mockit.coverage.CallPoint;
 import mockit.coverage.CoveragePercentage;
+import mockit.coverage.data.CoverageDataInput;
+import mockit.coverage.data.CoverageDataOutput;
 import mockit.coverage.data.PerFileCoverage;
 
 public final class PerFileLineCoverage implements PerFileCoverage {
     private static final long serialVersionUID = 6318915843739466316L;
     private static final int[] NO_EXECUTIONS_YET = {};
+    private static final VarHandle EXECUTION_COUNT = MethodHandles.arrayElementVarHandle(int[].class);
 
+    // Left in each element of a replaced execution counts array, so that executions still being added to it become
+    // negative counts, and get registered again in the array which replaced it.
+    private static final int MOVED_EXECUTION_COUNT = Integer.MIN_VALUE / 2;
+
+    // Executable lines with more than one segment, mapped to their segment data. Both collections are read without
+    // locking by recording threads, while new lines get added when classes from the file are loaded.
+    @Nonnull
+    private Map<Integer, LineCoverageData> lineToLineData;
     @Nonnull
-    private final Map<Integer, LineCoverageData> lineToLineData = new HashMap<>(128);
+    private transient Set<Integer> executableLines;
 
+    // Replaced by a larger array when lines are added after executions, and read without locking by recording threads.
     @Nonnull
-    private int[] executionCounts = NO_EXECUTIONS_YET;
+    private volatile int[] executionCounts = NO_EXECUTIONS_YET;
 
     @Nonnull
     private transient LineCoverageData sharedLineData;
@@ -38,6 +56,8 @@ public final class PerFileLineCoverage implements PerFileCoverage {
     private transient int coveredSegments;
 
     public PerFileLineCoverage() {
+        lineToLineData = new ConcurrentHashMap<>(128);
+        executableLines = ConcurrentHashMap.newKeySet(128);
         sharedLineData = new LineCoverageData();
         initializeCache();
     }
@@ -54,35 +74,166 @@ public final class PerFileLineCoverage implements PerFileCoverage {
         if (executionCounts.length == 0) {
             executionCounts = NO_EXECUTIONS_YET;
         }
+
+        // In the serialized form, executable lines with a single segment are mapped to null.
+        Map<Integer, LineCoverageData> serializedLines = lineToLineData;
+        lineToLineData = new ConcurrentHashMap<>(serializedLines.size());
+        executableLines = ConcurrentHashMap.newKeySet(serializedLines.size());
+
+        for (Entry<Integer, LineCoverageData> lineAndData : serializedLines.entrySet()) {
+            addLine(lineAndData.getKey(), lineAndData.getValue());
+        }
     }
 
-    public void addLine(@Nonnegative int line) {
-        if (!lineToLineData.containsKey(line)) {
-            lineToLineData.put(line, null);
+    // Keeps the serialized form of earlier versions, where all executable lines are in the map.
+    private void writeObject(@Nonnull ObjectOutputStream out) throws IOException {
+        Map<Integer, LineCoverageData> serializedLines = new HashMap<>(executableLines.size());
+
+        for (Integer line : executableLines) {
+            serializedLines.put(line, lineToLineData.get(line));
         }
 
-        if (line > lastLine) {
-            // Happens for source files with multiple types, where one is only loaded
-            // after another has already executed some code.
-            int[] initialExecutionCounts = executionCounts;
-
-            if (initialExecutionCounts != NO_EXECUTIONS_YET && line >= initialExecutionCounts.length) {
-                int[] newCounts = new int[line + 30];
-                System.arraycopy(initialExecutionCounts, 0, newCounts, 0, initialExecutionCounts.length);
-                executionCounts = newCounts;
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("lineToLineData", serializedLines);
+        fields.put("executionCounts", executionCounts);
+        fields.put("lastLine", lastLine);
+        out.writeFields();
+    }
+
+    private void addLine(@Nonnull Integer line, @Nullable LineCoverageData lineData) {
+        executableLines.add(line);
+
+        if (lineData != null) {
+            lineToLineData.put(line, lineData);
+        }
+    }
+
+    public void writeTo(@Nonnull CoverageDataOutput output) {
+        int[] counts = executionCounts;
+        int[] lines = getExecutableLinesInOrder();
+        boolean withExecutionCounts = counts.length > 0;
+
+        output.writeInt(lastLine);
+        output.writeInt(lines.length);
+        output.writeBoolean(withExecutionCounts);
+
+        for (int i = 0, previousLine = 0; i < lines.length; i++) {
+            int line = lines[i];
+            output.writeInt(line - previousLine);
+            previousLine = line;
+        }
+
+        if (withExecutionCounts) {
+            for (int line : lines) {
+                output.writeInt(line < counts.length ? counts[line] : 0);
+            }
+        }
+
+        for (int line : lines) {
+            LineCoverageData lineData = lineToLineData.get(line);
+            output.writeBoolean(lineData != null);
+
+            if (lineData != null) {
+                lineData.writeTo(output);
             }
+        }
+    }
+
+    @Nonnull
+    private int[] getExecutableLinesInOrder() {
+        Integer[] executableLineNumbers = executableLines.toArray(new Integer[0]);
+        int[] lines = new int[executableLineNumbers.length];
+
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = executableLineNumbers[i];
+        }
+
+        Arrays.sort(lines);
+        return lines;
+    }
+
+    public void readFrom(@Nonnull CoverageDataInput input) {
+        lastLine = input.readInt();
+        int[] lines = new int[input.readInt()];
+        boolean withExecutionCounts = input.readBoolean();
+
+        for (int i = 0, line = 0; i < lines.length; i++) {
+            line += input.readInt();
+            lines[i] = line;
+        }
+
+        if (withExecutionCounts) {
+            int maxLine = lines.length == 0 ? lastLine : Math.max(lastLine, lines[lines.length - 1]);
+            int[] counts = new int[maxLine + 1];
+
+            for (int line : lines) {
+                counts[line] = input.readInt();
+            }
+
+            executionCounts = counts;
+        }
+
+        for (int line : lines) {
+            LineCoverageData lineData = null;
+
+            if (input.readBoolean()) {
+                lineData = new LineCoverageData();
+                lineData.readFrom(input);
+            }
+
+            addLine(line, lineData);
+        }
+    }
+
+    public void addLine(@Nonnegative int line) {
+        executableLines.add(line);
 
+        if (line > lastLine) {
+            updateLastLine(line);
+        }
+    }
+
+    private synchronized void updateLastLine(@Nonnegative int line) {
+        // Happens for source files with multiple types, where one is only loaded
+        // after another has already executed some code.
+        int[] initialExecutionCounts = executionCounts;
+
+        if (initialExecutionCounts != NO_EXECUTIONS_YET && line >= initialExecutionCounts.length) {
+            int[] newCounts = new int[line + 30];
+            transferExecutionCounts(initialExecutionCounts, newCounts);
+            executionCounts = newCounts;
+        }
+
+        if (line > lastLine) {
             lastLine = line;
         }
     }
 
+    private static void transferExecutionCounts(@Nonnull int[] fromCounts, @Nonnull int[] toCounts) {
+        for (int line = 0, n = fromCounts.length; line < n; line++) {
+            toCounts[line] = (int) EXECUTION_COUNT.getAndSet(fromCounts, line, MOVED_EXECUTION_COUNT);
+        }
+    }
+
+    @Nonnull
+    private synchronized int[] createExecutionCountsIfNeeded() {
+        int[] counts = executionCounts;
+
+        if (counts == NO_EXECUTIONS_YET) {
+            counts = new int[lastLine + 1];
+            executionCounts = counts;
+        }
+
+        return counts;
+    }
+
     @Nonnull
     public LineCoverageData getOrCreateLineData(@Nonnegative int line) {
         LineCoverageData lineData = lineToLineData.get(line);
 
         if (lineData == null) {
-            lineData = new LineCoverageData();
-            lineToLineData.put(line, lineData);
+            executableLines.add(line);
+            lineData = lineToLineData.computeIfAbsent(line, l -> new LineCoverageData());
         }
 
         return lineData;
@@ -120,6 +271,45 @@ public final class PerFileLineCoverage implements PerFileCoverage {
         return previousExecutionCount;
     }
 
+    /**
+     * Same as {@link #registerExecution(int, CallPoint)}, but safe to be called from multiple threads without holding
+     * any lock, as long as no call point is to be registered.
+     */
+    @Nonnegative
+    public int registerExecutionConcurrently(@Nonnegative int line) {
+        return registerExecutionsConcurrently(line, 1);
+    }
+
+    @Nonnegative
+    public int registerExecutionsConcurrently(@Nonnegative int line, @Nonnegative int executions) {
+        int[] counts = executionCounts;
+
+        if (counts == NO_EXECUTIONS_YET) {
+            counts = createExecutionCountsIfNeeded();
+        }
+
+        int previousExecutionCount = (int) EXECUTION_COUNT.getAndAdd(counts, line, executions);
+
+        // The count was moved to a larger array meanwhile, together with any previous executions, so the executions are
+        // registered there instead.
+        while (previousExecutionCount < 0) {
+            counts = getExecutionCountsAfterReplacement();
+            previousExecutionCount = (int) EXECUTION_COUNT.getAndAdd(counts, line, executions);
+        }
+
+        return previousExecutionCount;
+    }
+
+    @Nonnull
+    private synchronized int[] getExecutionCountsAfterReplacement() {
+        return executionCounts;
+    }
+
+    public void registerCallPoint(@Nonnegative int line, @Nonnull CallPoint callPoint) {
+        LineCoverageData lineData = getOrCreateLineData(line);
+        lineData.addCallPoint(callPoint);
+    }
+
     public boolean hasValidBranch(@Nonnegative int line, @Nonnegative int branchIndex) {
         LineCoverageData lineData = lineToLineData.get(line);
         return lineData.isValidBranch(branchIndex);
@@ -136,6 +326,17 @@ public final class PerFileLineCoverage implements PerFileCoverage {
         return lineData.registerExecution(branchIndex, callPoint);
     }
 
+    @Nonnegative
+    public int registerExecutionConcurrently(@Nonnegative int line, @Nonnegative int branchIndex) {
+        LineCoverageData lineData = lineToLineData.get(line);
+        return lineData.registerExecutionConcurrently(branchIndex);
+    }
+
+    public void registerCallPoint(@Nonnegative int line, @Nonnegative int branchIndex, @Nonnull CallPoint callPoint) {
+        LineCoverageData lineData = lineToLineData.get(line);
+        lineData.addCallPoint(branchIndex, callPoint);
+    }
+
     @Nonnegative
     public int getLineCount() {
         return lastLine;
@@ -143,11 +344,11 @@ public final class PerFileLineCoverage implements PerFileCoverage {
 
     @Nonnegative
     public int getExecutableLineCount() {
-        return lineToLineData.size();
+        return executableLines.size();
     }
 
     public boolean hasLineData(@Nonnegative int line) {
-        return executionCounts != NO_EXECUTIONS_YET && lineToLineData.containsKey(line);
+        return executionCounts != NO_EXECUTIONS_YET && executableLines.contains(line);
     }
 
     @Nonnull
@@ -201,7 +402,7 @@ public final class PerFileLineCoverage implements PerFileCoverage {
         totalSegments = coveredSegments = 0;
 
         for (int line = 1, n = lastLine; line <= n; line++) {
-            if (lineToLineData.containsKey(line)) {
+            if (executableLines.contains(line)) {
                 LineCoverageData lineData = lineToLineData.get(line);
                 int executionCount = executionCounts == NO_EXECUTIONS_YET ? 0 : executionCounts[line];
 
@@ -222,7 +423,7 @@ public final class PerFileLineCoverage implements PerFileCoverage {
 
     @Nonnegative
     public int getNumberOfSegments(@Nonnegative int line) {
-        if (!lineToLineData.containsKey(line)) {
+        if (!executableLines.contains(line)) {
             return 0;
         }
 
@@ -245,18 +446,11 @@ public final class PerFileLineCoverage implements PerFileCoverage {
         Map<Integer, LineCoverageData> previousInfo = previousCoverage.lineToLineData;
         boolean previousRunHadLinesExecuted = previousCoverage.executionCounts.length > 0;
 
-        for (Entry<Integer, LineCoverageData> lineAndInfo : lineToLineData.entrySet()) {
-            Integer line = lineAndInfo.getKey();
+        for (Integer line : executableLines) {
             LineCoverageData previousLineInfo = previousInfo.get(line);
 
             if (previousLineInfo != null) {
-                LineCoverageData lineInfo = lineAndInfo.getValue();
-
-                if (lineInfo == null) {
-                    lineInfo = new LineCoverageData();
-                    lineAndInfo.setValue(lineInfo);
-                }
-
+                LineCoverageData lineInfo = getOrCreateLineData(line);
                 lineInfo.addCountsFromPreviousTestRun(previousLineInfo);
 
                 if (previousRunHadLinesExecuted) {
@@ -266,12 +460,9 @@ public final class PerFileLineCoverage implements PerFileCoverage {
             }
         }
 
-        for (Entry<Integer, LineCoverageData> lineAndInfo : previousInfo.entrySet()) {
-            Integer line = lineAndInfo.getKey();
-
-            if (!lineToLineData.containsKey(line)) {
-                LineCoverageData previousLineInfo = lineAndInfo.getValue();
-                lineToLineData.put(line, previousLineInfo);
+        for (Integer line : previousCoverage.executableLines) {
+            if (!executableLines.contains(line)) {
+                addLine(line, previousInfo.get(line));
 
                 if (previousRunHadLinesExecuted) {
                     createExecutionCountsArrayIfNeeded(previousCoverage);
@@ -6,9 +6,9 @@ package mockit.coverage.modification;
 
 import java.security.ProtectionDomain;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -22,11 +22,14 @@ public final class ClassModification {
     final List<ProtectionDomain> protectionDomainsWithUniqueLocations;
     @Nonnull
     private final ClassSelection classSelection;
+    @Nullable
+    private final InstrumentedClassCache cache;
 
     public ClassModification() {
-        modifiedClasses = new HashSet<>();
+        modifiedClasses = ConcurrentHashMap.newKeySet();
         protectionDomainsWithUniqueLocations = new ArrayList<>();
         classSelection = new ClassSelection();
+        cache = InstrumentedClassCache.createIfEnabled();
     }
 
     public boolean shouldConsiderClassesNotLoaded() {
@@ -56,17 +59,55 @@ public final class ClassModification {
     }
 
     @Nonnull
-    private static byte[] modifyClassForCoverage(@Nonnull String className, @Nonnull byte[] classBytecode) {
+    private byte[] modifyClassForCoverage(@Nonnull String className, @Nonnull byte[] classBytecode) {
         byte[] modifiedBytecode = CoverageModifier.recoverModifiedByteCodeIfAvailable(className);
 
         if (modifiedBytecode != null) {
             return modifiedBytecode;
         }
 
+        if (cache == null) {
+            return modifyClassForCoverage(classBytecode).toByteArray();
+        }
+
+        return modifyClassForCoverageUsingCache(cache, className, classBytecode);
+    }
+
+    @Nonnull
+    private static CoverageModifier modifyClassForCoverage(@Nonnull byte[] classBytecode) {
         ClassReader cr = new ClassReader(classBytecode);
         CoverageModifier modifier = new CoverageModifier(cr);
         cr.accept(modifier);
-        return modifier.toByteArray();
+        return modifier;
+    }
+
+    @Nonnull
+    private static byte[] modifyClassForCoverageUsingCache(@Nonnull InstrumentedClassCache cache,
+            @Nonnull String className, @Nonnull byte[] classBytecode) {
+        byte[] modifiedBytecode = cache.recoverModifiedInnerClass(className);
+
+        if (modifiedBytecode != null) {
+            return modifiedBytecode;
+        }
+
+        String key = cache.getKey(className, classBytecode);
+
+        if (key != null) {
+            modifiedBytecode = cache.getModifiedClass(key, className);
+
+            if (modifiedBytecode != null) {
+                return modifiedBytecode;
+            }
+        }
+
+        CoverageModifier modifier = modifyClassForCoverage(classBytecode);
+        modifiedBytecode = modifier.toByteArray();
+
+        if (key != null) {
+            cache.addModifiedClass(key, className, modifier, modifiedBytecode);
+        }
+
+        return modifiedBytecode;
     }
 
     private void registerModifiedClass(@Nonnull String className, @Nonnull ProtectionDomain pd) {
@@ -80,6 +121,12 @@ public final class ClassModification {
     private void addProtectionDomainIfHasUniqueNewPath(@Nonnull ProtectionDomain newPD) {
         String newPath = newPD.getCodeSource().getLocation().getPath();
 
+        synchronized (protectionDomainsWithUniqueLocations) {
+            addProtectionDomainIfHasUniqueNewPath(newPD, newPath);
+        }
+    }
+
+    private void addProtectionDomainIfHasUniqueNewPath(@Nonnull ProtectionDomain newPD, @Nonnull String newPath) {
         for (int i = protectionDomainsWithUniqueLocations.size() - 1; i >= 0; i--) {
             ProtectionDomain previousPD = protectionDomainsWithUniqueLocations.get(i);
             String previousPath = previousPD.getCodeSource().getLocation().getPath();
@@ -11,7 +11,6 @@ import static mockit.internal.util.GeneratedClasses.isExternallyGeneratedSubclas
 import java.net.URL;
 import java.security.CodeSource;
 import java.security.ProtectionDomain;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
@@ -27,21 +26,16 @@ final class ClassSelection {
     private static final Pattern STAR = compile("\\*");
     private static final Pattern TEST_CLASS_NAME = compile(".+Test(\\$.+)?");
 
+    // Classes can be selected by multiple class loading threads at the same time, so only immutable patterns are kept.
     boolean loadedOnly;
     @Nullable
-    private Matcher classesToInclude;
+    private Pattern classesToInclude;
     @Nullable
-    private Matcher classesToExclude;
-    @Nonnull
-    private final Matcher testCode;
-    private boolean configurationRead;
-
-    ClassSelection() {
-        testCode = TEST_CLASS_NAME.matcher("");
-    }
+    private Pattern classesToExclude;
+    private volatile boolean configurationRead;
 
     @Nullable
-    private static Matcher newMatcherForClassSelection(@Nonnull String specification) {
+    private static Pattern newPatternForClassSelection(@Nonnull String specification) {
         if (specification.isEmpty()) {
             return null;
         }
@@ -68,7 +62,7 @@ final class ClassSelection {
         }
 
         String finalRegex = finalRegexBuilder.toString();
-        return finalRegex.isEmpty() ? null : compile(finalRegex).matcher("");
+        return finalRegex.isEmpty() ? null : compile(finalRegex);
     }
 
     boolean isSelected(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain) {
@@ -94,7 +88,7 @@ final class ClassSelection {
         }
 
         if (classesToInclude != null) {
-            return classesToInclude.reset(className).matches();
+            return classesToInclude.matcher(className).matches();
         }
 
         return !isClassFromExternalLibrary(location);
@@ -139,8 +133,8 @@ final class ClassSelection {
     }
 
     private boolean isClassExcludedFromCoverage(@Nonnull String className) {
-        return classesToExclude != null && classesToExclude.reset(className).matches()
-                || testCode.reset(className).matches();
+        return classesToExclude != null && classesToExclude.matcher(className).matches()
+                || TEST_CLASS_NAME.matcher(className).matches();
     }
 
     private static boolean isClassFromExternalLibrary(@Nonnull URL location) {
@@ -152,13 +146,17 @@ final class ClassSelection {
         return path.endsWith(".jar") || path.endsWith("/.cp/") || path.endsWith("/test-classes/");
     }
 
-    private void readConfiguration() {
+    private synchronized void readConfiguration() {
+        if (configurationRead) {
+            return;
+        }
+
         String classes = Configuration.getProperty("classes", "");
         loadedOnly = "loaded".equals(classes);
-        classesToInclude = loadedOnly ? null : newMatcherForClassSelection(classes);
+        classesToInclude = loadedOnly ? null : newPatternForClassSelection(classes);
 
         String excludes = Configuration.getProperty("excludes", "");
-        classesToExclude = newMatcherForClassSelection(excludes);
+        classesToExclude = newPatternForClassSelection(excludes);
 
         configurationRead = true;
     }
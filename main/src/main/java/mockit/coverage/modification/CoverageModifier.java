@@ -13,8 +13,9 @@ import static mockit.asm.jvmConstants.Access.STATIC;
 import static mockit.asm.jvmConstants.Access.SUPER;
 import static mockit.asm.jvmConstants.Access.SYNTHETIC;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -26,18 +27,33 @@ import mockit.asm.classes.WrappingClassVisitor;
 import mockit.asm.fields.FieldVisitor;
 import mockit.asm.methods.MethodVisitor;
 import mockit.asm.methods.MethodWriter;
+import mockit.coverage.ClassProbes;
 import mockit.coverage.data.CoverageData;
 import mockit.coverage.data.FileCoverageData;
 import mockit.internal.ClassFile;
 
 final class CoverageModifier extends WrappingClassVisitor {
-    private static final Map<String, CoverageModifier> INNER_CLASS_MODIFIERS = new HashMap<>();
+    private static final Map<String, CoverageModifier> INNER_CLASS_MODIFIERS = new ConcurrentHashMap<>();
     private static final int FIELD_MODIFIERS_TO_IGNORE = FINAL + SYNTHETIC;
 
     @Nullable
     static byte[] recoverModifiedByteCodeIfAvailable(@Nonnull String innerClassName) {
         CoverageModifier modifier = INNER_CLASS_MODIFIERS.remove(innerClassName);
-        return modifier == null ? null : modifier.toByteArray();
+        return modifier == null ? null : modifier.getModifiedClassfile();
+    }
+
+    static boolean isInnerClassModifierRegistered(@Nonnull String innerClassName) {
+        return INNER_CLASS_MODIFIERS.containsKey(innerClassName);
+    }
+
+    /**
+     * Same as {@link #recoverModifiedByteCodeIfAvailable(String)}, but without consuming the modified bytecode, which
+     * remains available for when the inner class gets loaded.
+     */
+    @Nullable
+    static byte[] getModifiedByteCodeIfAvailable(@Nonnull String innerClassName) {
+        CoverageModifier modifier = INNER_CLASS_MODIFIERS.get(innerClassName);
+        return modifier == null ? null : modifier.getModifiedClassfile();
     }
 
     @Nullable
@@ -52,6 +68,13 @@ final class CoverageModifier extends WrappingClassVisitor {
     private boolean forEnumClass;
     @Nullable
     private String kindOfTopLevelType;
+    @Nullable
+    private ClassProbes classProbes;
+    private boolean firstClassInSourceFile;
+    @Nonnull
+    private final Map<String, byte[]> originalInnerClassfiles;
+    @Nullable
+    private byte[] modifiedClassfile;
 
     CoverageModifier(@Nonnull ClassReader cr) {
         this(cr, false);
@@ -61,6 +84,7 @@ final class CoverageModifier extends WrappingClassVisitor {
         super(new ClassWriter(cr));
         sourceFileName = "";
         this.forInnerClass = forInnerClass;
+        originalInnerClassfiles = new LinkedHashMap<>();
     }
 
     private CoverageModifier(@Nonnull ClassReader cr, @Nonnull CoverageModifier other,
@@ -102,6 +126,10 @@ final class CoverageModifier extends WrappingClassVisitor {
             createFileData(sourceFileDebugName);
         }
 
+        if (fileData != null && ClassProbes.isToBeUsed()) {
+            classProbes = ClassProbes.create(fileData);
+        }
+
         cw.visit(version, access, name, additionalInfo);
     }
 
@@ -158,6 +186,52 @@ final class CoverageModifier extends WrappingClassVisitor {
     private void createFileData(@Nonnull String sourceFileDebugName) {
         sourceFileName += sourceFileDebugName;
         fileData = CoverageData.instance().getOrAddFile(sourceFileName, kindOfTopLevelType);
+        firstClassInSourceFile = fileData.lineCoverageInfo.getLineCount() == 0
+                && !fileData.dataCoverageInfo.hasFields();
+    }
+
+    // The class writer can only produce the modified classfile once.
+    @Nonnull
+    private synchronized byte[] getModifiedClassfile() {
+        byte[] classfile = modifiedClassfile;
+
+        if (classfile == null) {
+            classfile = toByteArray();
+            modifiedClassfile = classfile;
+        }
+
+        return classfile;
+    }
+
+    @Nonnull
+    String getSourceFileName() {
+        return sourceFileName;
+    }
+
+    @Nullable
+    FileCoverageData getFileData() {
+        return fileData;
+    }
+
+    @Nullable
+    String getKindOfTopLevelType() {
+        return kindOfTopLevelType;
+    }
+
+    /**
+     * Whether no other class from the same source file had lines or fields registered before this one, so that all of
+     * the static coverage data for the file comes from this class and the inner classes modified along with it.
+     */
+    boolean isFirstClassInSourceFile() {
+        return firstClassInSourceFile;
+    }
+
+    /**
+     * The original classfiles of the inner classes modified along with this class, by class name.
+     */
+    @Nonnull
+    Map<String, byte[]> getOriginalInnerClassfiles() {
+        return originalInnerClassfiles;
     }
 
     @Override
@@ -175,12 +249,14 @@ final class CoverageModifier extends WrappingClassVisitor {
             return;
         }
 
-        ClassReader innerCR = ClassFile.createClassReader(CoverageModifier.class.getClassLoader(), name);
+        byte[] innerClassfile = ClassFile.readClassFile(CoverageModifier.class.getClassLoader(), name);
 
-        if (innerCR != null) {
+        if (innerClassfile != null) {
+            ClassReader innerCR = new ClassReader(innerClassfile);
             CoverageModifier innerClassModifier = new CoverageModifier(innerCR, this, innerName);
             innerCR.accept(innerClassModifier);
             INNER_CLASS_MODIFIERS.put(innerClassName, innerClassModifier);
+            originalInnerClassfiles.put(innerClassName, innerClassfile);
         }
     }
 
@@ -215,6 +291,13 @@ final class CoverageModifier extends WrappingClassVisitor {
             return mw;
         }
 
-        return new MethodModifier(mw, sourceFileName, fileData);
+        return new MethodModifier(mw, sourceFileName, fileData, classProbes);
+    }
+
+    @Override
+    public void visitEnd() {
+        if (classProbes != null) {
+            classProbes.createProbes();
+        }
     }
 }
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import mockit.coverage.ClassProbes;
+import mockit.coverage.Configuration;
+import mockit.coverage.data.CoverageData;
+import mockit.coverage.data.CoverageDataInput;
+import mockit.coverage.data.CoverageDataOutput;
+import mockit.coverage.data.FileCoverageData;
+import mockit.internal.ClassFile;
+import mockit.internal.util.Utilities;
+
+/**
+ * An on-disk cache of classes modified for coverage, enabled through the "<code>coverage-cacheDir</code>" system
+ * property and shared by all JVMs using the same directory, so that classes already modified in a previous test run (or
+ * in another JVM of the same run) get loaded without being parsed and modified again.
+ * <p>
+ * Each entry is keyed by a digest of the original classfile together with the identity of the JMockit jar, and holds
+ * the modified classfile, those of the inner classes modified along with it, and the line, branch, and field metadata
+ * registered for the source file while modifying them. Since modified code refers to source files by index, file
+ * indexes are assigned by a {@link SourceFileIndexes} registry kept in the same directory.
+ * <p>
+ * Only top-level classes which are the first class from their source file to be modified get cached, so that the
+ * metadata in an entry is all there is for the file. The cache is not used in "probes" recording mode, where modified
+ * code refers to an index assigned to each class as it gets modified.
+ */
+final class InstrumentedClassCache {
+    private static final String ENTRY_SUFFIX = ".cov";
+
+    @Nonnull
+    private final Path cacheDir;
+    @Nonnull
+    private final byte[] jmockitIdentity;
+    @Nonnull
+    private final Map<String, byte[]> cachedInnerClasses;
+
+    @Nullable
+    static InstrumentedClassCache createIfEnabled() {
+        String cacheDirPath = Configuration.getProperty("cacheDir");
+
+        if (cacheDirPath == null || cacheDirPath.isEmpty() || ClassProbes.isToBeUsed()) {
+            return null;
+        }
+
+        try {
+            Path cacheDir = Files.createDirectories(Paths.get(cacheDirPath));
+            SourceFileIndexes fileIndexes = new SourceFileIndexes(cacheDir.resolve("sourceFiles.txt"));
+            CoverageData.instance().setFileIndexAssignment(fileIndexes);
+            return new InstrumentedClassCache(cacheDir);
+        } catch (IOException e) {
+            System.out.println("JMockit: Instrumented class cache not used: " + e);
+            return null;
+        }
+    }
+
+    private InstrumentedClassCache(@Nonnull Path cacheDir) {
+        this.cacheDir = cacheDir;
+        jmockitIdentity = Utilities.getIdentityOfJMockitJar().getBytes(UTF_8);
+        cachedInnerClasses = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Computes the key for the entry of the given class, if it can be cached.
+     *
+     * @return the key, or <code>null</code> for a nested class
+     */
+    @Nullable
+    String getKey(@Nonnull String className, @Nonnull byte[] originalClassfile) {
+        if (className.indexOf('$') > 0) {
+            return null;
+        }
+
+        MessageDigest digest = newDigest();
+        digest.update(jmockitIdentity);
+        digest.update(className.getBytes(UTF_8));
+        digest.update((byte) 0);
+        return toHex(digest.digest(originalClassfile));
+    }
+
+    @Nonnull
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Nonnull
+    private static String toHex(@Nonnull byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+
+        for (byte b : bytes) {
+            hex.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * Recovers an inner class modified along with a cached class previously {@linkplain #getModifiedClass loaded} from
+     * the cache.
+     */
+    @Nullable
+    byte[] recoverModifiedInnerClass(@Nonnull String innerClassName) {
+        return cachedInnerClasses.remove(innerClassName);
+    }
+
+    /**
+     * Gets the modified classfile for a class from the cache, if available, also registering the coverage metadata for
+     * its source file, and making its modified inner classes {@linkplain #recoverModifiedInnerClass recoverable}.
+     *
+     * @return the modified classfile, or <code>null</code> if not available, in which case the class is to be modified
+     *         and then {@linkplain #addModifiedClass added}
+     */
+    @Nullable
+    byte[] getModifiedClass(@Nonnull String key, @Nonnull String className) {
+        ByteBuffer entry;
+
+        try {
+            entry = ByteBuffer.wrap(Files.readAllBytes(cacheDir.resolve(key + ENTRY_SUFFIX)));
+        } catch (IOException ignore) {
+            // Not cached yet, or not readable.
+            return null;
+        }
+
+        if (!CoverageDataInput.isInCompactFormat(entry)) {
+            return null;
+        }
+
+        try {
+            return readEntry(new CoverageDataInput(entry), className);
+        } catch (IOException | RuntimeException ignore) {
+            // An entry written by a different version, or a corrupted one, gets replaced.
+            return null;
+        }
+    }
+
+    @Nullable
+    private byte[] readEntry(@Nonnull CoverageDataInput input, @Nonnull String className) {
+        if (!className.equals(input.readString())) {
+            return null;
+        }
+
+        String sourceFile = input.readString();
+        String kindOfTopLevelType = input.readNullableString();
+        int fileIndex = input.readInt();
+        Map<String, byte[]> modifiedInnerClasses = readModifiedInnerClassesIfUnchanged(input);
+
+        if (modifiedInnerClasses == null) {
+            return null;
+        }
+
+        byte[] modifiedClassfile = input.readBytes();
+        FileCoverageData fileData = CoverageData.instance().getOrAddFile(sourceFile, kindOfTopLevelType);
+
+        if (fileData.index != fileIndex) {
+            return null;
+        }
+
+        synchronized (fileData) {
+            if (fileData.lineCoverageInfo.getLineCount() > 0 || fileData.dataCoverageInfo.hasFields()) {
+                return null;
+            }
+
+            fileData.lineCoverageInfo.readFrom(input);
+            fileData.dataCoverageInfo.readFieldNamesFrom(input);
+        }
+
+        cachedInnerClasses.putAll(modifiedInnerClasses);
+        return modifiedClassfile;
+    }
+
+    @Nullable
+    private static Map<String, byte[]> readModifiedInnerClassesIfUnchanged(@Nonnull CoverageDataInput input) {
+        int innerClassCount = input.readInt();
+        Map<String, byte[]> modifiedInnerClasses = new HashMap<>(innerClassCount);
+
+        for (int i = 0; i < innerClassCount; i++) {
+            String innerClassName = input.readString();
+            byte[] originalDigest = input.readBytes();
+            byte[] modifiedInnerClass = input.readBytes();
+
+            if (!isInnerClassUnchanged(innerClassName, originalDigest)) {
+                return null;
+            }
+
+            modifiedInnerClasses.put(innerClassName, modifiedInnerClass);
+        }
+
+        return modifiedInnerClasses;
+    }
+
+    private static boolean isInnerClassUnchanged(@Nonnull String innerClassName, @Nonnull byte[] originalDigest) {
+        if (CoverageModifier.isInnerClassModifierRegistered(innerClassName)) {
+            return false;
+        }
+
+        String internalName = innerClassName.replace('.', '/');
+        byte[] innerClassfile = ClassFile.readClassFile(CoverageModifier.class.getClassLoader(), internalName);
+
+        return innerClassfile != null && MessageDigest.isEqual(newDigest().digest(innerClassfile), originalDigest);
+    }
+
+    /**
+     * Adds a newly modified class to the cache, provided it was the first class from its source file to be modified.
+     * Failures to write the entry are ignored, since the class will simply be modified again next time.
+     */
+    void addModifiedClass(@Nonnull String key, @Nonnull String className, @Nonnull CoverageModifier modifier,
+            @Nonnull byte[] modifiedClassfile) {
+        FileCoverageData fileData = modifier.getFileData();
+
+        if (fileData == null || !modifier.isFirstClassInSourceFile()) {
+            return;
+        }
+
+        CoverageDataOutput output = new CoverageDataOutput(2 * modifiedClassfile.length + 1024);
+        output.writeString(className);
+        output.writeString(modifier.getSourceFileName());
+        output.writeNullableString(modifier.getKindOfTopLevelType());
+        output.writeInt(fileData.index);
+
+        if (!writeModifiedInnerClasses(output, modifier.getOriginalInnerClassfiles())) {
+            return;
+        }
+
+        output.writeBytes(modifiedClassfile);
+
+        synchronized (fileData) {
+            fileData.lineCoverageInfo.writeTo(output);
+            fileData.dataCoverageInfo.writeFieldNamesTo(output);
+        }
+
+        writeEntry(key, output);
+    }
+
+    private static boolean writeModifiedInnerClasses(@Nonnull CoverageDataOutput output,
+            @Nonnull Map<String, byte[]> originalInnerClassfiles) {
+        output.writeInt(originalInnerClassfiles.size());
+
+        for (Entry<String, byte[]> innerClassAndOriginalClassfile : originalInnerClassfiles.entrySet()) {
+            String innerClassName = innerClassAndOriginalClassfile.getKey();
+            byte[] modifiedInnerClass = CoverageModifier.getModifiedByteCodeIfAvailable(innerClassName);
+
+            // The inner class may already have been loaded by another thread.
+            if (modifiedInnerClass == null) {
+                return false;
+            }
+
+            output.writeString(innerClassName);
+            output.writeBytes(newDigest().digest(innerClassAndOriginalClassfile.getValue()));
+            output.writeBytes(modifiedInnerClass);
+        }
+
+        return true;
+    }
+
+    private void writeEntry(@Nonnull String key, @Nonnull CoverageDataOutput output) {
+        Path tempFile = null;
+
+        try {
+            // Written to a separate file first, so that other JVMs never read a partially written entry.
+            tempFile = Files.createTempFile(cacheDir, key, ".tmp");
+
+            try (FileChannel channel = FileChannel.open(tempFile, WRITE)) {
+                output.writeTo(channel);
+            }
+
+            Files.move(tempFile, cacheDir.resolve(key + ENTRY_SUFFIX), ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException ignore) {
+            deleteIfExists(tempFile);
+        }
+    }
+
+    private static void deleteIfExists(@Nullable Path tempFile) {
+        if (tempFile != null) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignore) {
+                // Left behind, to be overwritten or deleted along with the cache.
+            }
+        }
+    }
+}
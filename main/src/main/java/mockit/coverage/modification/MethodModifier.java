@@ -4,7 +4,9 @@
  */
 package mockit.coverage.modification;
 
+import static mockit.asm.jvmConstants.Opcodes.AALOAD;
 import static mockit.asm.jvmConstants.Opcodes.ACONST_NULL;
+import static mockit.asm.jvmConstants.Opcodes.BASTORE;
 import static mockit.asm.jvmConstants.Opcodes.DCONST_0;
 import static mockit.asm.jvmConstants.Opcodes.DUP;
 import static mockit.asm.jvmConstants.Opcodes.DUP2_X1;
@@ -15,6 +17,7 @@ import static mockit.asm.jvmConstants.Opcodes.GETFIELD;
 import static mockit.asm.jvmConstants.Opcodes.GETSTATIC;
 import static mockit.asm.jvmConstants.Opcodes.GOTO;
 import static mockit.asm.jvmConstants.Opcodes.ICONST_0;
+import static mockit.asm.jvmConstants.Opcodes.ICONST_1;
 import static mockit.asm.jvmConstants.Opcodes.INVOKESPECIAL;
 import static mockit.asm.jvmConstants.Opcodes.INVOKESTATIC;
 import static mockit.asm.jvmConstants.Opcodes.INVOKEVIRTUAL;
@@ -34,11 +37,13 @@ import mockit.asm.annotations.AnnotationVisitor;
 import mockit.asm.controlFlow.Label;
 import mockit.asm.methods.MethodWriter;
 import mockit.asm.methods.WrappingMethodVisitor;
+import mockit.coverage.ClassProbes;
 import mockit.coverage.data.FileCoverageData;
 import mockit.coverage.lines.PerFileLineCoverage;
 
 final class MethodModifier extends WrappingMethodVisitor {
     private static final String DATA_RECORDING_CLASS = "mockit/coverage/TestRun";
+    private static final String PROBES_CLASS = "mockit/coverage/ClassProbes";
 
     @Nonnull
     private final String sourceFileName;
@@ -48,16 +53,20 @@ final class MethodModifier extends WrappingMethodVisitor {
     private final PerFileLineCoverage lineCoverageInfo;
     @Nonnull
     private final CFGTracking cfgTracking;
+    @Nullable
+    private final ClassProbes classProbes;
     private boolean foundInterestingInstruction;
     @Nonnegative
     int currentLine;
 
-    MethodModifier(@Nonnull MethodWriter mw, @Nonnull String sourceFileName, @Nonnull FileCoverageData fileData) {
+    MethodModifier(@Nonnull MethodWriter mw, @Nonnull String sourceFileName, @Nonnull FileCoverageData fileData,
+            @Nullable ClassProbes classProbes) {
         super(mw);
         this.sourceFileName = sourceFileName;
         this.fileData = fileData;
         lineCoverageInfo = fileData.getLineCoverageData();
         cfgTracking = new CFGTracking(lineCoverageInfo);
+        this.classProbes = classProbes;
     }
 
     @Override
@@ -81,19 +90,38 @@ final class MethodModifier extends WrappingMethodVisitor {
     }
 
     private void generateCallToRegisterLineExecution() {
-        mw.visitIntInsn(SIPUSH, fileData.index);
+        if (classProbes != null) {
+            generateProbe(classProbes.addLineProbe(currentLine));
+            return;
+        }
+
+        pushIntOnTheStack(fileData.index);
         pushCurrentLineOnTheStack();
         mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, "lineExecuted", "(II)V", false);
     }
 
     private void pushCurrentLineOnTheStack() {
-        if (currentLine <= Short.MAX_VALUE) {
-            mw.visitIntInsn(SIPUSH, currentLine);
+        pushIntOnTheStack(currentLine);
+    }
+
+    private void pushIntOnTheStack(@Nonnegative int value) {
+        if (value <= Short.MAX_VALUE) {
+            mw.visitIntInsn(SIPUSH, value);
         } else {
-            mw.visitLdcInsn(currentLine);
+            mw.visitLdcInsn(value);
         }
     }
 
+    private void generateProbe(@Nonnegative int probeIndex) {
+        assert classProbes != null;
+        mw.visitFieldInsn(GETSTATIC, PROBES_CLASS, "probesByClass", "[[Z");
+        pushIntOnTheStack(classProbes.index);
+        mw.visitInsn(AALOAD);
+        pushIntOnTheStack(probeIndex);
+        mw.visitInsn(ICONST_1);
+        mw.visitInsn(BASTORE);
+    }
+
     @Override
     public void visitLabel(@Nonnull Label label) {
         mw.visitLabel(label);
@@ -119,9 +147,14 @@ final class MethodModifier extends WrappingMethodVisitor {
     }
 
     void generateCallToRegisterBranchTargetExecution(@Nonnegative int branchIndex) {
-        mw.visitIntInsn(SIPUSH, fileData.index);
+        if (classProbes != null) {
+            generateProbe(classProbes.addBranchProbe(currentLine, branchIndex));
+            return;
+        }
+
+        pushIntOnTheStack(fileData.index);
         pushCurrentLineOnTheStack();
-        mw.visitIntInsn(SIPUSH, branchIndex);
+        pushIntOnTheStack(branchIndex);
         mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, "branchExecuted", "(III)V", false);
     }
 
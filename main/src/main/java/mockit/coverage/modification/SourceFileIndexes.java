@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * A registry of source file indexes kept in a file shared by all JVMs using the same
+ * {@linkplain InstrumentedClassCache instrumented class cache}, so that a given source file gets the same index in all
+ * of them, as required for reusing instrumented code which refers to source files by index.
+ * <p>
+ * The file has one source file name per line, the index being the line number starting at zero; new names are only
+ * appended while holding a lock on the file. Indexes already known are found without locking, so only the first
+ * registration of a file in each JVM waits for the file lock.
+ * <p>
+ * The registry never shrinks, so indexes keep growing with the source files modified by all test runs using the
+ * cache, and so do the arrays indexed by them, at one reference per index for each array; deleting the cache directory
+ * starts over from zero.
+ */
+final class SourceFileIndexes implements ToIntFunction<String> {
+    // File locks are held on behalf of the whole JVM, so they don't keep threads of the same JVM from trying to lock
+    // the same file at the same time, which would fail instead of waiting.
+    @Nonnull
+    private static final Object FILE_LOCKING = new Object();
+
+    @Nonnull
+    private final Path registryFile;
+    @Nonnull
+    private final Map<String, Integer> fileIndexes;
+    @Nonnegative
+    private int fileCount;
+    @Nonnegative
+    private long bytesRead;
+
+    SourceFileIndexes(@Nonnull Path registryFile) throws IOException {
+        this.registryFile = registryFile;
+        fileIndexes = new ConcurrentHashMap<>();
+
+        synchronized (FILE_LOCKING) {
+            try (FileChannel channel = FileChannel.open(registryFile, READ, WRITE, CREATE);
+                    FileLock ignore = channel.lock()) {
+                readNewFileNames(channel);
+            }
+        }
+    }
+
+    @Override
+    public int applyAsInt(@Nonnull String sourceFile) {
+        Integer fileIndex = fileIndexes.get(sourceFile);
+
+        if (fileIndex == null) {
+            try {
+                fileIndex = registerFile(sourceFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to register source file " + sourceFile, e);
+            }
+        }
+
+        return fileIndex;
+    }
+
+    @Nonnegative
+    private int registerFile(@Nonnull String sourceFile) throws IOException {
+        synchronized (FILE_LOCKING) {
+            return registerFileWhileLocked(sourceFile);
+        }
+    }
+
+    @Nonnegative
+    private int registerFileWhileLocked(@Nonnull String sourceFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(registryFile, READ, WRITE); FileLock ignore = channel.lock()) {
+            // Another thread or JVM may have registered the same file in the meantime.
+            readNewFileNames(channel);
+            Integer fileIndex = fileIndexes.get(sourceFile);
+
+            if (fileIndex != null) {
+                return fileIndex;
+            }
+
+            ByteBuffer line = ByteBuffer.wrap((sourceFile + '\n').getBytes(UTF_8));
+            channel.position(bytesRead);
+
+            while (line.hasRemaining()) {
+                bytesRead += channel.write(line);
+            }
+
+            int newIndex = fileCount++;
+            fileIndexes.put(sourceFile, newIndex);
+            return newIndex;
+        }
+    }
+
+    private void readNewFileNames(@Nonnull FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+
+        if (fileSize <= bytesRead) {
+            return;
+        }
+
+        ByteBuffer newBytes = ByteBuffer.allocate((int) (fileSize - bytesRead));
+
+        while (newBytes.hasRemaining()) {
+            if (channel.read(newBytes, bytesRead + newBytes.position()) < 0) {
+                break;
+            }
+        }
+
+        byte[] newLines = newBytes.array();
+        int lineStart = 0;
+
+        for (int i = 0; i < newLines.length; i++) {
+            if (newLines[i] == '\n') {
+                String sourceFile = new String(newLines, lineStart, i - lineStart, UTF_8);
+                fileIndexes.putIfAbsent(sourceFile, fileCount);
+                fileCount++;
+                lineStart = i + 1;
+            }
+        }
+
+        // Any incomplete last line, which can't happen when all writers hold the lock, is read again next time.
+        bytesRead += lineStart;
+    }
+}
@@ -13,6 +13,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -37,6 +41,8 @@ public final class CoverageReport {
     private final boolean withCallPoints;
     @Nullable
     private final Collection<String> sourceFilesNotFound;
+    @Nullable
+    private final PageFingerprints pageFingerprints;
 
     public CoverageReport(@Nonnull String outputDir, boolean outputDirCreated, @Nullable String[] srcDirs,
             @Nonnull CoverageData coverageData, boolean withCallPoints) {
@@ -47,6 +53,8 @@ public final class CoverageReport {
         packageToFiles = new HashMap<>();
         this.withCallPoints = withCallPoints;
         sourceFilesNotFound = srcDirs == null ? null : new ArrayList<>();
+        pageFingerprints = srcDirs != null && "true".equals(Configuration.getProperty("incremental"))
+                ? new PageFingerprints(this.outputDir) : null;
     }
 
     public void generate() throws IOException {
@@ -66,6 +74,12 @@ public final class CoverageReport {
 
         generateFileCoverageReportsWhileBuildingPackageLists();
 
+        if (pageFingerprints != null) {
+            pageFingerprints.save();
+        } else if (withSourceFilePages) {
+            PageFingerprints.deleteIfExists(outputDir);
+        }
+
         new StaticFiles(outputDir).copyToOutputDir(withSourceFilePages);
         new IndexPage(outputFile, sourceDirs, sourceFilesNotFound, packageToFiles, fileToFileData).generate();
 
@@ -93,30 +107,99 @@ public final class CoverageReport {
     }
 
     private void generateFileCoverageReportsWhileBuildingPackageLists() throws IOException {
+        Set<String> sourceFiles = fileToFileData.keySet();
+
+        if (sourceDirs == null) {
+            for (String sourceFile : sourceFiles) {
+                addFileToPackageFileList(sourceFile);
+            }
+
+            return;
+        }
+
+        List<Future<Boolean>> sourceFilesFound = generateFileCoverageReportsInParallel();
+        int i = 0;
+
+        // Package lists are built in the order of the source files rather than in order of completion, so that the
+        // index page is always the same for the same coverage data.
+        for (String sourceFile : sourceFiles) {
+            boolean sourceFileFound = waitForFileCoverageReport(sourceFilesFound.get(i++));
+
+            if (!sourceFileFound && sourceFilesNotFound != null) {
+                sourceFilesNotFound.add(sourceFile);
+            }
+
+            addFileToPackageFileList(sourceFile);
+        }
+    }
+
+    @Nonnull
+    private List<Future<Boolean>> generateFileCoverageReportsInParallel() {
         Set<Entry<String, FileCoverageData>> files = fileToFileData.entrySet();
+        int workerCount = Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, task -> {
+            Thread worker = new Thread(task, "JMockit coverage report");
+            worker.setDaemon(true);
+            return worker;
+        });
+        List<Future<Boolean>> sourceFilesFound = new ArrayList<>(files.size());
+
+        try {
+            for (Entry<String, FileCoverageData> fileAndFileData : files) {
+                String sourceFile = fileAndFileData.getKey();
+                FileCoverageData fileData = fileAndFileData.getValue();
+                sourceFilesFound.add(workers.submit(() -> generateFileCoverageReport(sourceFile, fileData)));
+            }
+        } finally {
+            workers.shutdown();
+        }
+
+        return sourceFilesFound;
+    }
 
-        for (Entry<String, FileCoverageData> fileAndFileData : files) {
-            generateFileCoverageReport(fileAndFileData.getKey(), fileAndFileData.getValue());
+    private static boolean waitForFileCoverageReport(@Nonnull Future<Boolean> sourceFileFound) throws IOException {
+        try {
+            return sourceFileFound.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable failure = e.getCause();
+
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+
+            throw new RuntimeException(failure);
         }
     }
 
-    private void generateFileCoverageReport(@Nonnull String sourceFile, @Nonnull FileCoverageData fileData)
+    private boolean generateFileCoverageReport(@Nonnull String sourceFile, @Nonnull FileCoverageData fileData)
             throws IOException {
-        if (sourceDirs != null) {
-            InputFile inputFile = InputFile.createIfFileExists(sourceDirs, sourceFile);
+        InputFile inputFile = InputFile.createIfFileExists(sourceDirs, sourceFile);
 
-            if (inputFile != null) {
-                new FileCoverageReport(outputDir, inputFile, fileData, withCallPoints).generate();
-            } else {
-                deleteOutdatedHTMLFileIfExists(sourceFile);
+        if (inputFile == null) {
+            deleteOutdatedHTMLFileIfExists(sourceFile);
 
-                if (sourceFilesNotFound != null) {
-                    sourceFilesNotFound.add(sourceFile);
-                }
+            if (pageFingerprints != null) {
+                pageFingerprints.remove(sourceFile);
             }
+
+            return false;
+        }
+
+        if (pageFingerprints != null
+                && pageFingerprints.updateAndCheckIfPageIsUpToDate(sourceFile, fileData, inputFile, withCallPoints)) {
+            inputFile.close();
+            return true;
         }
 
-        addFileToPackageFileList(sourceFile);
+        new FileCoverageReport(outputDir, inputFile, fileData, withCallPoints).generate();
+        return true;
     }
 
     private void addFileToPackageFileList(@Nonnull String file) {
@@ -37,7 +37,8 @@ public final class OutputFile extends PrintWriter {
         File parentDir = outputFile.getParentFile();
 
         if (!parentDir.exists()) {
-            boolean outputDirCreated = parentDir.mkdirs();
+            // The dir may also have been created meanwhile by another thread, generating a file in the same package.
+            boolean outputDirCreated = parentDir.mkdirs() || parentDir.isDirectory();
             assert outputDirCreated : "Failed to create output dir: " + outputDir;
         }
 
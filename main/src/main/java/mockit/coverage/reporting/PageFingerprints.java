@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.reporting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import javax.annotation.Nonnull;
+
+import mockit.coverage.data.FileCoverageData;
+import mockit.coverage.reporting.sourceFiles.InputFile;
+
+/**
+ * The fingerprints of the source file pages in a report generated in incremental mode, each one combining a digest of
+ * the coverage data for the file with the last modification time of the source file.
+ * <p>
+ * A page whose fingerprint is the same as in the previous report doesn't need to be generated again.
+ */
+final class PageFingerprints {
+    private static final String FILE_NAME = "fingerprints.properties";
+
+    @Nonnull
+    private final String outputDir;
+    @Nonnull
+    private final File fingerprintsFile;
+    @Nonnull
+    private final Properties fingerprints;
+
+    PageFingerprints(@Nonnull String outputDir) {
+        this.outputDir = outputDir;
+        fingerprintsFile = new File(outputDir, FILE_NAME);
+        fingerprints = new Properties();
+        loadPreviousFingerprintsIfAny();
+    }
+
+    private void loadPreviousFingerprintsIfAny() {
+        if (fingerprintsFile.exists()) {
+            try (InputStream input = new BufferedInputStream(new FileInputStream(fingerprintsFile))) {
+                fingerprints.load(input);
+            } catch (IOException | IllegalArgumentException ignore) {
+                // All pages will be generated again.
+                fingerprints.clear();
+            }
+        }
+    }
+
+    /**
+     * Deletes the fingerprints left by a previous report generated in incremental mode, which would no longer match the
+     * pages in a report generated in full.
+     */
+    static void deleteIfExists(@Nonnull String outputDir) {
+        File fingerprintsFile = new File(outputDir, FILE_NAME);
+        // noinspection ResultOfMethodCallIgnored
+        fingerprintsFile.delete();
+    }
+
+    /**
+     * Records the fingerprint of the page for the given source file, checking whether the page generated previously is
+     * still up-to-date.
+     */
+    boolean updateAndCheckIfPageIsUpToDate(@Nonnull String sourceFile, @Nonnull FileCoverageData fileData,
+            @Nonnull InputFile inputFile, boolean withCallPoints) {
+        String fingerprint = computeFingerprint(fileData, inputFile, withCallPoints);
+        Object previousFingerprint = fingerprints.setProperty(sourceFile, fingerprint);
+
+        return fingerprint.equals(previousFingerprint) && OutputFile.getOutputFile(outputDir, sourceFile).exists();
+    }
+
+    @Nonnull
+    private static String computeFingerprint(@Nonnull FileCoverageData fileData, @Nonnull InputFile inputFile,
+            boolean withCallPoints) {
+        StringBuilder fingerprint = new StringBuilder(80);
+        fingerprint.append(withCallPoints ? "cp:" : "").append(inputFile.getLastModified()).append(':');
+
+        for (byte b : fileData.computeDigest()) {
+            fingerprint.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return fingerprint.toString();
+    }
+
+    void remove(@Nonnull String sourceFile) {
+        fingerprints.remove(sourceFile);
+    }
+
+    void save() throws IOException {
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(fingerprintsFile))) {
+            fingerprints.store(output, "JMockit coverage report page fingerprints");
+        }
+    }
+}
@@ -28,7 +28,13 @@ public final class InputFile {
     @Nullable
     public static InputFile createIfFileExists(@Nonnull List<File> sourceDirs, @Nonnull String filePath)
             throws FileNotFoundException, IOException {
-        File sourceFile = findSourceFile(sourceDirs, filePath);
+        File sourceFile;
+
+        // The list of source dirs gets reordered and extended as files are found, by each thread generating a report.
+        synchronized (sourceDirs) {
+            sourceFile = findSourceFile(sourceDirs, filePath);
+        }
+
         return sourceFile == null ? null : new InputFile(filePath, sourceFile);
     }
 
@@ -118,12 +124,16 @@ public final class InputFile {
         return path.startsWith("..") ? path.substring(3) : path;
     }
 
+    public long getLastModified() {
+        return sourceFile.lastModified();
+    }
+
     @Nullable
     String nextLine() throws IOException {
         return input.readLine();
     }
 
-    void close() throws IOException {
+    public void close() throws IOException {
         input.close();
     }
 }
@@ -16,6 +16,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import mockit.coverage.Configuration;
+import mockit.coverage.TestRun;
 
 public final class TestCoverage {
     @Nullable
@@ -34,22 +35,32 @@ public final class TestCoverage {
     }
 
     public void setCurrentTestMethod(@Nullable Method testMethod) {
-        if (testMethod != null) {
-            testsToItemsCovered.put(testMethod, 0);
-        }
+        // Executions still buffered by recording threads belong to the previous test, if any.
+        TestRun.flushBufferedExecutions();
+
+        synchronized (this) {
+            if (testMethod != null) {
+                testsToItemsCovered.put(testMethod, 0);
+            }
 
-        currentTestMethod = testMethod;
+            currentTestMethod = testMethod;
+        }
     }
 
     public void recordNewItemCoveredByTestIfApplicable(@Nonnegative int previousExecutionCount) {
-        if (previousExecutionCount == 0 && currentTestMethod != null) {
-            Integer itemsCoveredByTest = testsToItemsCovered.get(currentTestMethod);
-            testsToItemsCovered.put(currentTestMethod, itemsCoveredByTest == null ? 1 : itemsCoveredByTest + 1);
+        if (previousExecutionCount == 0) {
+            // Coverage may be recorded concurrently, but locking is only needed on the first execution of each item.
+            synchronized (this) {
+                if (currentTestMethod != null) {
+                    Integer itemsCoveredByTest = testsToItemsCovered.get(currentTestMethod);
+                    testsToItemsCovered.put(currentTestMethod, itemsCoveredByTest == null ? 1 : itemsCoveredByTest + 1);
+                }
+            }
         }
     }
 
     @Nonnull
-    public List<Method> getRedundantTests() {
+    public synchronized List<Method> getRedundantTests() {
         List<Method> redundantTests = new ArrayList<>();
 
         for (Entry<Method, Integer> testAndItemsCovered : testsToItemsCovered.entrySet()) {
@@ -13,12 +13,14 @@ import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import mockit.BoundedReplay;
 import mockit.internal.expectations.RecordAndReplayExecution;
 import mockit.internal.expectations.invocation.MissingInvocation;
 import mockit.internal.expectations.invocation.UnexpectedInvocation;
 import mockit.internal.expectations.mocking.FieldTypeRedefinitions;
 import mockit.internal.expectations.mocking.ParameterTypeRedefinitions;
 import mockit.internal.expectations.mocking.TypeRedefinitions;
+import mockit.internal.expectations.state.ExecutingTest;
 import mockit.internal.injection.InjectionProvider;
 import mockit.internal.injection.TestedClassInstantiations;
 import mockit.internal.injection.TestedParameters;
@@ -258,6 +260,28 @@ public class TestRunnerDecorator {
         return parameterValues;
     }
 
+    /**
+     * Applies the {@link BoundedReplay} annotation of the given test method, or else of its test class, to the mocks of
+     * the test. Called only on entry to the test method itself, not to setup methods, whose own annotations (if any)
+     * don't apply.
+     */
+    protected static void setBoundedReplayForTestMethod(@Nonnull Object testClassInstance, @Nonnull Method testMethod) {
+        TestRun.getExecutingTest().setBoundedReplayForTest(getBoundedReplay(testClassInstance, testMethod));
+    }
+
+    @Nullable
+    private static BoundedReplay getBoundedReplay(@Nonnull Object testClassInstance, @Nonnull Method testMethod) {
+        BoundedReplay boundedReplay = testMethod.getAnnotation(BoundedReplay.class);
+
+        if (boundedReplay != null) {
+            return ExecutingTest.verifyBoundedReplay(boundedReplay, "test method " + testMethod.getName());
+        }
+
+        Class<?> testClass = testClassInstance.getClass();
+        return ExecutingTest.verifyBoundedReplay(testClass.getAnnotation(BoundedReplay.class),
+                "test class " + testClass.getName());
+    }
+
     protected static void concludeTestMethodExecution(@Nonnull SavePoint savePoint, @Nullable Throwable thrownByTest,
             boolean thrownAsExpected) throws Throwable {
         TestRun.enterNoMockingZone();
@@ -148,6 +148,7 @@ final class JUnit4TestRunnerDecorator extends TestRunnerDecorator {
         boolean testFailureExpected = false;
 
         try {
+            setBoundedReplayForTestMethod(testInstance, testMethod);
             createInstancesForTestedFieldsFromBaseClasses(testInstance);
             Object[] annotatedParameters = createInstancesForAnnotatedParameters(testInstance, testMethod, parameters);
             createInstancesForTestedFields(testInstance);
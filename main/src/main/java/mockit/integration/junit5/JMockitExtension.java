@@ -18,6 +18,7 @@ import mockit.Injectable;
 import mockit.Mocked;
 import mockit.Tested;
 import mockit.integration.TestRunnerDecorator;
+import mockit.integration.junit5.ParallelTestExecution.SetupStep;
 import mockit.internal.expectations.RecordAndReplayExecution;
 import mockit.internal.state.SavePoint;
 import mockit.internal.state.TestRun;
@@ -26,6 +27,7 @@ import mockit.internal.util.Utilities;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
 import org.junit.jupiter.api.extension.AfterAllCallback;
 import org.junit.jupiter.api.extension.AfterEachCallback;
 import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
@@ -33,6 +35,8 @@ import org.junit.jupiter.api.extension.BeforeAllCallback;
 import org.junit.jupiter.api.extension.BeforeEachCallback;
 import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
+import org.junit.jupiter.api.extension.ExtensionContext.Store;
 import org.junit.jupiter.api.extension.ParameterContext;
 import org.junit.jupiter.api.extension.ParameterResolver;
 import org.junit.jupiter.api.extension.TestExecutionExceptionHandler;
@@ -42,29 +46,58 @@ import org.junit.jupiter.api.extension.TestInstancePostProcessor;
 public final class JMockitExtension extends TestRunnerDecorator implements BeforeAllCallback, AfterAllCallback,
         TestInstancePostProcessor, BeforeEachCallback, AfterEachCallback, BeforeTestExecutionCallback,
         AfterTestExecutionCallback, ParameterResolver, TestExecutionExceptionHandler {
-    @Nullable
-    private SavePoint savePointForTestClass;
-    @Nullable
-    private SavePoint savePointForTest;
-    @Nullable
-    private SavePoint savePointForTestMethod;
-    @Nullable
-    private Throwable thrownByTest;
-    private Object[] parameterValues;
-    private ParamValueInitContext initContext = new ParamValueInitContext(null, null, null,
+    private static final Namespace NAMESPACE = Namespace.create(JMockitExtension.class);
+
+    // Keys for the state of each test class, test, and test method, which is kept in the store of the corresponding
+    // extension context, so that tests run in parallel don't share it.
+    private static final String SAVE_POINT_FOR_TEST_CLASS = "savePointForTestClass";
+    private static final String SAVE_POINT_FOR_TEST = "savePointForTest";
+    private static final String SAVE_POINT_FOR_TEST_METHOD = "savePointForTestMethod";
+    private static final String THROWN_BY_TEST = "thrownByTest";
+    private static final String PARAMETER_VALUES = "parameterValues";
+    private static final String INIT_CONTEXT = "initContext";
+    private static final String CONCURRENT = "concurrent";
+    private static final String TEST_CLASS_EXECUTION = "testClassExecution";
+    private static final String TEST_EXECUTION = "testExecution";
+
+    private static final ParamValueInitContext NO_INIT_CONTEXT = new ParamValueInitContext(null, null, null,
             "No callbacks have been processed, preventing parameter population");
 
+    @Nonnull
+    private static Store getStore(@Nonnull ExtensionContext context) {
+        return context.getStore(NAMESPACE);
+    }
+
+    private static void setInitContext(@Nonnull ExtensionContext context, @Nonnull ParamValueInitContext initContext) {
+        getStore(context).put(INIT_CONTEXT, initContext);
+    }
+
+    private static boolean isRunningConcurrently(@Nonnull ExtensionContext context) {
+        return getStore(context).getOrDefault(CONCURRENT, Boolean.class, false);
+    }
+
     @Override
     public void beforeAll(@Nonnull ExtensionContext context) {
         if (isRegularTestClass(context)) {
             @Nullable
             Class<?> testClass = context.getTestClass().orElse(null);
-            savePointForTestClass = new SavePoint();
+            Store store = getStore(context);
+
+            if (testClass != null && ParallelTestExecution.isEnabled(context)) {
+                enterTestClassRunInParallel(context, testClass);
+            }
+
+            boolean concurrent = isRunningConcurrently(context);
+
+            if (!concurrent) {
+                store.put(SAVE_POINT_FOR_TEST_CLASS, new SavePoint());
+            }
+
             TestRun.setCurrentTestClass(testClass);
 
             if (testClass == null) {
-                initContext = new ParamValueInitContext(null, null, null,
-                        "@BeforeAll setup failed to acquire 'Class' of test");
+                setInitContext(context, new ParamValueInitContext(null, null, null,
+                        "@BeforeAll setup failed to acquire 'Class' of test"));
                 return;
             }
 
@@ -72,18 +105,29 @@ public final class JMockitExtension extends TestRunnerDecorator implements Befor
             Object testInstance = context.getTestInstance().orElse(null);
             Method beforeAllMethod = Utilities.getAnnotatedDeclaredMethod(testClass, BeforeAll.class);
             if (testInstance == null) {
-                initContext = new ParamValueInitContext(null, testClass, beforeAllMethod,
-                        "@BeforeAll setup failed to acquire instance of test class");
+                setInitContext(context, new ParamValueInitContext(null, testClass, beforeAllMethod,
+                        "@BeforeAll setup failed to acquire instance of test class"));
                 return;
             }
 
             if (beforeAllMethod != null) {
-                initContext = new ParamValueInitContext(testInstance, testClass, beforeAllMethod, null);
-                parameterValues = createInstancesForAnnotatedParameters(testInstance, beforeAllMethod, null);
+                setInitContext(context, new ParamValueInitContext(testInstance, testClass, beforeAllMethod, null));
+
+                try (SetupStep ignore = ParallelTestExecution.enterSetupStep(concurrent)) {
+                    store.put(PARAMETER_VALUES,
+                            createInstancesForAnnotatedParameters(testInstance, beforeAllMethod, null));
+                }
             }
         }
     }
 
+    private static void enterTestClassRunInParallel(@Nonnull ExtensionContext context, @Nonnull Class<?> testClass) {
+        Store store = getStore(context);
+        boolean concurrent = ParallelTestExecution.canRunConcurrently(context, testClass);
+        store.put(CONCURRENT, concurrent);
+        store.put(TEST_CLASS_EXECUTION, ParallelTestExecution.enterTestClass(testClass, concurrent));
+    }
+
     private static boolean isRegularTestClass(@Nonnull ExtensionContext context) {
         Class<?> testClass = context.getTestClass().orElse(null);
         return testClass != null && !testClass.isAnnotationPresent(Nested.class);
@@ -91,17 +135,24 @@ public final class JMockitExtension extends TestRunnerDecorator implements Befor
 
     @Override
     public void postProcessTestInstance(@Nonnull Object testInstance, @Nonnull ExtensionContext context) {
-        if (isRegularTestClass(context)) {
-            TestRun.enterNoMockingZone();
+        // When run in parallel, this is done before each test instead, once it is known that no other test is sharing
+        // the state to be updated, unless the instance is for the whole test class.
+        if (isRegularTestClass(context) && (!ParallelTestExecution.isEnabled(context)
+                || context.getTestInstanceLifecycle().orElse(null) == Lifecycle.PER_CLASS)) {
+            handleMockFieldsForTestInstance(testInstance);
+        }
+    }
 
-            try {
-                handleMockFieldsForWholeTestClass(testInstance);
-            } finally {
-                TestRun.exitNoMockingZone();
-            }
+    private static void handleMockFieldsForTestInstance(@Nonnull Object testInstance) {
+        TestRun.enterNoMockingZone();
 
-            TestRun.setRunningIndividualTest(testInstance);
+        try {
+            handleMockFieldsForWholeTestClass(testInstance);
+        } finally {
+            TestRun.exitNoMockingZone();
         }
+
+        TestRun.setRunningIndividualTest(testInstance);
     }
 
     @Override
@@ -109,34 +160,58 @@ public final class JMockitExtension extends TestRunnerDecorator implements Befor
         Object testInstance = context.getTestInstance().orElse(null);
         Class<?> testClass = context.getTestClass().orElse(null);
         if (testInstance == null) {
-            initContext = new ParamValueInitContext(null, null, null,
-                    "@BeforeEach setup failed to acquire instance of test class");
+            setInitContext(context, new ParamValueInitContext(null, null, null,
+                    "@BeforeEach setup failed to acquire instance of test class"));
             return;
         }
 
+        boolean concurrent = isRunningConcurrently(context);
+
+        if (ParallelTestExecution.isEnabled(context)) {
+            enterTestRunInParallel(context, concurrent);
+        }
+
         TestRun.prepareForNextTest();
         TestRun.enterNoMockingZone();
 
-        try {
-            savePointForTest = new SavePoint();
+        try (SetupStep ignore = ParallelTestExecution.enterSetupStep(concurrent)) {
+            if (!concurrent) {
+                getStore(context).put(SAVE_POINT_FOR_TEST, new SavePoint());
+            }
+
             createInstancesForTestedFieldsBeforeSetup(testInstance);
 
             if (testClass == null) {
-                initContext = new ParamValueInitContext(null, null, null,
-                        "@BeforeEach setup failed to acquire Class<?> of test");
+                setInitContext(context, new ParamValueInitContext(null, null, null,
+                        "@BeforeEach setup failed to acquire Class<?> of test"));
                 return;
             }
 
             Method beforeEachMethod = Utilities.getAnnotatedDeclaredMethod(testClass, BeforeEach.class);
             if (beforeEachMethod != null) {
-                initContext = new ParamValueInitContext(testInstance, testClass, beforeEachMethod, null);
-                parameterValues = createInstancesForAnnotatedParameters(testInstance, beforeEachMethod, null);
+                setInitContext(context, new ParamValueInitContext(testInstance, testClass, beforeEachMethod, null));
+                getStore(context).put(PARAMETER_VALUES,
+                        createInstancesForAnnotatedParameters(testInstance, beforeEachMethod, null));
             }
         } finally {
             TestRun.exitNoMockingZone();
         }
     }
 
+    private static void enterTestRunInParallel(@Nonnull ExtensionContext context, boolean concurrent) {
+        if (concurrent) {
+            getStore(context).put(TEST_EXECUTION,
+                    ParallelTestExecution.enterConcurrentTest(context.getRequiredTestClass()));
+        }
+
+        // With @Nested test classes, the outermost instance is the one with the mock fields.
+        Object outermostInstance = context.getRequiredTestInstances().getAllInstances().get(0);
+
+        try (SetupStep ignore = ParallelTestExecution.enterSetupStep(concurrent)) {
+            handleMockFieldsForTestInstance(outermostInstance);
+        }
+    }
+
     @Override
     public void beforeTestExecution(@Nonnull ExtensionContext context) {
         Class<?> testClass = context.getTestClass().orElse(null);
@@ -144,18 +219,24 @@ public final class JMockitExtension extends TestRunnerDecorator implements Befor
         Object testInstance = context.getTestInstance().orElse(null);
 
         if (testMethod == null || testInstance == null) {
-            initContext = new ParamValueInitContext(testInstance, testClass, testMethod,
-                    "@Test failed to acquire instance of test class, or target method");
+            setInitContext(context, new ParamValueInitContext(testInstance, testClass, testMethod,
+                    "@Test failed to acquire instance of test class, or target method"));
             return;
         }
 
+        boolean concurrent = isRunningConcurrently(context);
+        Store store = getStore(context);
         TestRun.enterNoMockingZone();
 
-        try {
-            savePointForTestMethod = new SavePoint();
+        try (SetupStep ignore = ParallelTestExecution.enterSetupStep(concurrent)) {
+            if (!concurrent) {
+                store.put(SAVE_POINT_FOR_TEST_METHOD, new SavePoint());
+            }
+
+            setBoundedReplayForTestMethod(testInstance, testMethod);
             createInstancesForTestedFieldsFromBaseClasses(testInstance);
-            initContext = new ParamValueInitContext(testInstance, testClass, testMethod, null);
-            parameterValues = createInstancesForAnnotatedParameters(testInstance, testMethod, null);
+            setInitContext(context, new ParamValueInitContext(testInstance, testClass, testMethod, null));
+            store.put(PARAMETER_VALUES, createInstancesForAnnotatedParameters(testInstance, testMethod, null));
             createInstancesForTestedFields(testInstance);
         } finally {
             TestRun.exitNoMockingZone();
@@ -175,7 +256,11 @@ public final class JMockitExtension extends TestRunnerDecorator implements Befor
     public Object resolveParameter(@Nonnull ParameterContext parameterContext,
             @Nonnull ExtensionContext extensionContext) {
         int parameterIndex = parameterContext.getIndex();
+        Store store = getStore(extensionContext);
+        Object[] parameterValues = store.get(PARAMETER_VALUES, Object[].class);
         if (parameterValues == null) {
+            ParamValueInitContext initContext = store.getOrDefault(INIT_CONTEXT, ParamValueInitContext.class,
+                    NO_INIT_CONTEXT);
             String warning = initContext.warning;
             StringBuilder exceptionMessage = new StringBuilder(
                     "JMockit failed to provide parameters to JUnit 5 ParameterResolver.");
@@ -192,18 +277,25 @@ public final class JMockitExtension extends TestRunnerDecorator implements Befor
     @Override
     public void handleTestExecutionException(@Nonnull ExtensionContext context, @Nonnull Throwable throwable)
             throws Throwable {
-        thrownByTest = throwable;
+        getStore(context).put(THROWN_BY_TEST, throwable);
         throw throwable;
     }
 
     @Override
     public void afterTestExecution(@Nonnull ExtensionContext context) {
-        if (savePointForTestMethod != null) {
+        Store store = getStore(context);
+        SavePoint savePointForTestMethod = store.remove(SAVE_POINT_FOR_TEST_METHOD, SavePoint.class);
+        boolean concurrent = isRunningConcurrently(context);
+
+        if (savePointForTestMethod != null || concurrent) {
             TestRun.enterNoMockingZone();
 
-            try {
-                savePointForTestMethod.rollback();
-                savePointForTestMethod = null;
+            try (SetupStep ignore = ParallelTestExecution.enterSetupStep(concurrent)) {
+                if (savePointForTestMethod != null) {
+                    savePointForTestMethod.rollback();
+                }
+
+                Throwable thrownByTest = store.get(THROWN_BY_TEST, Throwable.class);
 
                 if (thrownByTest != null) {
                     filterStackTrace(thrownByTest);
@@ -225,20 +317,34 @@ public final class JMockitExtension extends TestRunnerDecorator implements Befor
 
     @Override
     public void afterEach(@Nonnull ExtensionContext context) {
+        SavePoint savePointForTest = getStore(context).remove(SAVE_POINT_FOR_TEST, SavePoint.class);
+
         if (savePointForTest != null) {
             savePointForTest.rollback();
-            savePointForTest = null;
+        } else if (isRunningConcurrently(context)) {
+            try (SetupStep ignore = ParallelTestExecution.enterSetupStep(true)) {
+                clearFieldTypeRedefinitions();
+            }
         }
     }
 
     @Override
     public void afterAll(@Nonnull ExtensionContext context) {
-        if (savePointForTestClass != null && isRegularTestClass(context)) {
-            savePointForTestClass.rollback();
-            savePointForTestClass = null;
+        if (isRegularTestClass(context)) {
+            SavePoint savePointForTestClass = getStore(context).remove(SAVE_POINT_FOR_TEST_CLASS, SavePoint.class);
+            boolean concurrent = isRunningConcurrently(context);
+
+            if (savePointForTestClass != null || concurrent) {
+                if (savePointForTestClass != null) {
+                    savePointForTestClass.rollback();
+                }
 
-            clearFieldTypeRedefinitions();
-            TestRun.setCurrentTestClass(null);
+                try (SetupStep ignore = ParallelTestExecution.enterSetupStep(concurrent)) {
+                    clearFieldTypeRedefinitions();
+                }
+
+                TestRun.setCurrentTestClass(null);
+            }
         }
     }
 
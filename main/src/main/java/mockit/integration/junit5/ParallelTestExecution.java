@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.integration.junit5;
+
+import static org.junit.platform.commons.support.AnnotationSupport.findRepeatableAnnotations;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import mockit.Capturing;
+import mockit.Injectable;
+import mockit.Mocked;
+import mockit.Tested;
+import mockit.internal.state.SavePoint;
+import mockit.internal.state.TestRun;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Store.CloseableResource;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.api.parallel.Resources;
+
+/**
+ * Coordinates the test classes which JUnit 5 runs in parallel, when
+ * "<code>junit.jupiter.execution.parallel.enabled</code>" is set.
+ * <p>
+ * A test class which only uses <code>@Injectable</code> and <code>@Tested</code> objects runs <em>concurrently</em>
+ * with other such classes, with each of its tests having its own {@linkplain TestRun#enterConcurrentTest(Class) test
+ * state}, since an injectable mock doesn't affect instances other than itself. Any other test class, which mocks types
+ * as a whole, has <code>@Nested</code> classes, or shares its test instance between tests, has to run
+ * <em>exclusively</em>. JUnit is left to schedule it as such, which it does when the class is annotated with
+ * <code>@Isolated</code> (or with <code>@ResourceLock(value = Resources.GLOBAL, mode = READ_WRITE)</code>): the class
+ * then runs only when no other test class is running, and its tests run one at a time. Such a class which isn't
+ * isolated is rejected, since JUnit (before 5.12) provides no way for an extension to add resource locks to a test
+ * class.
+ * <p>
+ * Classes mocked by concurrent test classes are only restored once the last of them finishes, as restoring a class
+ * earlier could affect tests still running. The setting up and tearing down of mocked and tested objects for concurrent
+ * tests is serialized as well, so that only the tests themselves run in parallel.
+ */
+final class ParallelTestExecution {
+    private static final String PARALLEL_EXECUTION_ENABLED = "junit.jupiter.execution.parallel.enabled";
+    @Nonnull
+    private static final CloseableResource EXCLUSIVE_TEST_CLASS = () -> {
+    };
+
+    @Nonnull
+    private static final Object concurrentTestClassesLock = new Object();
+    @Nonnegative
+    private static int concurrentTestClassCount;
+    @Nullable
+    private static SavePoint savePointForConcurrentTestClasses;
+
+    @Nonnull
+    private static final ReentrantLock setupLock = new ReentrantLock();
+    @Nonnull
+    private static final SetupStep NOT_SERIALIZED = () -> {
+    };
+
+    private ParallelTestExecution() {
+    }
+
+    /**
+     * A setup or tear-down step of a test, which {@linkplain #enterSetupStep(boolean) holds} the setup lock if the
+     * test runs concurrently with other tests.
+     */
+    interface SetupStep extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    static boolean isEnabled(@Nonnull ExtensionContext context) {
+        return context.getConfigurationParameter(PARALLEL_EXECUTION_ENABLED, Boolean::parseBoolean).orElse(false);
+    }
+
+    /**
+     * Finds out whether a test class can run concurrently with other test classes, which is only the case if no mock
+     * field or parameter in it applies to all instances of the mocked type, and its test instances aren't shared by
+     * different tests.
+     */
+    static boolean canRunConcurrently(@Nonnull ExtensionContext context, @Nonnull Class<?> testClass) {
+        if (testClass.isAnnotationPresent(Isolated.class)
+                || context.getTestInstanceLifecycle().orElse(Lifecycle.PER_METHOD) != Lifecycle.PER_METHOD) {
+            return false;
+        }
+
+        for (Class<?> memberClass : testClass.getDeclaredClasses()) {
+            if (memberClass.isAnnotationPresent(Nested.class)) {
+                return false;
+            }
+        }
+
+        for (Class<?> aClass = testClass; aClass != null && aClass != Object.class; aClass = aClass.getSuperclass()) {
+            if (!hasOnlyPerInstanceMocks(aClass)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean hasOnlyPerInstanceMocks(@Nonnull Class<?> testClass) {
+        for (Field field : testClass.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Mocked.class) || field.isAnnotationPresent(Capturing.class)
+                    || field.isAnnotationPresent(Tested.class) && field.isAnnotationPresent(Injectable.class)) {
+                return false;
+            }
+        }
+
+        for (Method method : testClass.getDeclaredMethods()) {
+            for (Parameter parameter : method.getParameters()) {
+                if (parameter.isAnnotationPresent(Mocked.class) || parameter.isAnnotationPresent(Capturing.class)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Makes the current thread use separate test state for the given test class if it runs concurrently, or else
+     * verifies that JUnit runs it in isolation from other test classes.
+     *
+     * @return the resource to be closed when the test class finishes
+     */
+    @Nonnull
+    static CloseableResource enterTestClass(@Nonnull Class<?> testClass, boolean concurrent) {
+        if (!concurrent) {
+            verifyIsolated(testClass);
+            return EXCLUSIVE_TEST_CLASS;
+        }
+
+        enterConcurrentTestClass();
+        TestRun.enterConcurrentTest(testClass);
+
+        return () -> {
+            TestRun.exitConcurrentTest();
+            exitConcurrentTestClass();
+        };
+    }
+
+    private static void verifyIsolated(@Nonnull Class<?> testClass) {
+        if (testClass.isAnnotationPresent(Isolated.class)) {
+            return;
+        }
+
+        for (ResourceLock resourceLock : findRepeatableAnnotations(testClass, ResourceLock.class)) {
+            if (Resources.GLOBAL.equals(resourceLock.value()) && resourceLock.mode() == ResourceAccessMode.READ_WRITE) {
+                return;
+            }
+        }
+
+        throw new IllegalStateException(testClass.getName() + " mocks types as a whole, has @Nested classes, or "
+                + "shares its test instance between tests, so it cannot run in parallel with other test classes; "
+                + "annotate it with @Isolated");
+    }
+
+    private static void enterConcurrentTestClass() {
+        synchronized (concurrentTestClassesLock) {
+            if (concurrentTestClassCount == 0) {
+                savePointForConcurrentTestClasses = new SavePoint();
+            }
+
+            concurrentTestClassCount++;
+        }
+    }
+
+    private static void exitConcurrentTestClass() {
+        synchronized (concurrentTestClassesLock) {
+            if (--concurrentTestClassCount == 0) {
+                SavePoint savePoint = savePointForConcurrentTestClasses;
+                savePointForConcurrentTestClasses = null;
+
+                if (savePoint != null) {
+                    savePoint.rollback();
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the current thread use separate test state for a test of a concurrent test class.
+     *
+     * @return the resource to be closed when the test finishes
+     */
+    @Nonnull
+    static CloseableResource enterConcurrentTest(@Nonnull Class<?> testClass) {
+        TestRun.enterConcurrentTest(testClass);
+        return TestRun::exitConcurrentTest;
+    }
+
+    @Nonnull
+    static SetupStep enterSetupStep(boolean concurrent) {
+        if (!concurrent) {
+            return NOT_SERIALIZED;
+        }
+
+        setupLock.lock();
+        return setupLock::unlock;
+    }
+}
@@ -75,6 +75,7 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator
                 clearTestedObjectsCreatedDuringSetup();
             }
 
+            setBoundedReplayForTestMethod(testInstance, method);
             createInstancesForTestedFieldsFromBaseClasses(testInstance);
             createInstancesForTestedFields(testInstance);
         } finally {
@@ -23,6 +23,9 @@ import static mockit.asm.jvmConstants.Opcodes.NEWARRAY;
 import static mockit.asm.jvmConstants.Opcodes.RETURN;
 import static mockit.asm.jvmConstants.Opcodes.SIPUSH;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -43,13 +46,20 @@ import mockit.asm.types.JavaType;
 import mockit.asm.types.ObjectType;
 import mockit.asm.types.PrimitiveType;
 import mockit.asm.types.ReferenceType;
+import mockit.asm.util.MethodHandle;
 import mockit.internal.expectations.ExecutionMode;
+import mockit.internal.expectations.MockedCallSites;
+import mockit.internal.expectations.MockedMethod;
 import mockit.internal.util.ClassLoad;
 import mockit.internal.util.TypeConversionBytecode;
 
 public class BaseClassModifier extends WrappingClassVisitor {
     private static final int METHOD_ACCESS_MASK = 0xFFFF - Access.ABSTRACT - Access.NATIVE;
     protected static final JavaType VOID_TYPE = ObjectType.create("java/lang/Void");
+    private static final MethodHandle MOCKED_CALL_SITE_BOOTSTRAP = new MethodHandle(MethodHandle.Tag.TAG_INVOKESTATIC,
+            "mockit/internal/expectations/MockedCallSites", "bootstrap",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;I)"
+                    + "Ljava/lang/invoke/CallSite;");
 
     @Nonnull
     protected final MethodVisitor methodAnnotationsVisitor = new MethodVisitor() {
@@ -61,14 +71,18 @@ public class BaseClassModifier extends WrappingClassVisitor {
 
     protected MethodWriter mw;
     protected boolean useClassLoadingBridge;
+    protected boolean useInvokeDynamic;
     protected String superClassName;
     protected String classDesc;
     protected int methodAccess;
     protected String methodName;
     protected String methodDesc;
+    @Nonnull
+    private final Set<Integer> mockedMethodIds;
 
     protected BaseClassModifier(@Nonnull ClassReader classReader) {
         super(new ClassWriter(classReader));
+        mockedMethodIds = new HashSet<>();
     }
 
     protected final void setUseClassLoadingBridge(@Nullable ClassLoader classLoader) {
@@ -87,6 +101,9 @@ public class BaseClassModifier extends WrappingClassVisitor {
             modifiedVersion = ClassVersion.V5;
         }
 
+        // Invokedynamic call sites are only valid in class files of version 51 (Java 7) or newer.
+        useInvokeDynamic = MockedCallSites.ENABLED && originalVersion >= ClassVersion.V7;
+
         cw.visit(modifiedVersion, access, name, additionalInfo);
         superClassName = additionalInfo.superName;
         classDesc = name;
@@ -109,6 +126,15 @@ public class BaseClassModifier extends WrappingClassVisitor {
         return methodName != null;
     }
 
+    /**
+     * Gets the ids of the {@linkplain MockedMethod mocked methods} registered while generating calls to the mocking
+     * handler, which appear as integer constants in the modified class.
+     */
+    @Nonnull
+    public final Set<Integer> getMockedMethodIds() {
+        return mockedMethodIds;
+    }
+
     protected final void generateDirectCallToHandler(@Nonnull String className, int access, @Nonnull String name,
             @Nonnull String desc, @Nullable String genericSignature) {
         generateDirectCallToHandler(className, access, name, desc, genericSignature, ExecutionMode.Regular);
@@ -119,42 +145,34 @@ public class BaseClassModifier extends WrappingClassVisitor {
         // First argument: the mock instance, if any.
         boolean isStatic = generateCodeToPassThisOrNullIfStaticMethod(access);
 
-        // Second argument: method access flags.
-        mw.visitLdcInsn(access);
-
-        // Third argument: class name.
-        mw.visitLdcInsn(className);
-
-        // Fourth argument: method signature.
-        mw.visitLdcInsn(name + desc);
-
-        // Fifth argument: generic signature, or null if none.
-        generateInstructionToLoadNullableString(genericSignature);
+        // Second argument: the id of the mocked method, which identifies its access flags, class name, method and
+        // generic signatures, and regular or special mode of execution. With an invokedynamic call site, it's instead
+        // passed to the bootstrap method, and the call site gets bound to the mocked method.
+        int mockedMethodId = MockedMethod.register(access, className, name + desc, genericSignature, executionMode);
+        mockedMethodIds.add(mockedMethodId);
 
-        // Sixth argument: indicate regular or special modes of execution.
-        mw.visitLdcInsn(executionMode.ordinal());
+        if (!useInvokeDynamic) {
+            mw.visitLdcInsn(mockedMethodId);
+        }
 
-        // Seventh argument: array with invocation arguments.
+        // Third argument: array with invocation arguments.
         JavaType[] argTypes = JavaType.getArgumentTypes(desc);
         int argCount = argTypes.length;
 
-        if (argCount == 0) {
-            mw.visitInsn(ACONST_NULL);
-        } else {
+        if (argCount > 0) {
             generateCodeToCreateArrayOfObject(argCount);
             generateCodeToFillArrayWithParameterValues(argTypes, 0, isStatic ? 0 : 1);
+        } else if (!useInvokeDynamic) {
+            mw.visitInsn(ACONST_NULL);
         }
 
-        mw.visitMethodInsn(INVOKESTATIC, "mockit/internal/expectations/RecordAndReplayExecution", "recordOrReplay",
-                "(Ljava/lang/Object;ILjava/lang/String;Ljava/lang/String;Ljava/lang/String;I[Ljava/lang/Object;)Ljava/lang/Object;",
-                false);
-    }
-
-    private void generateInstructionToLoadNullableString(@Nullable String text) {
-        if (text == null) {
-            mw.visitInsn(ACONST_NULL);
+        if (useInvokeDynamic) {
+            String callSiteDesc = argCount == 0 ? "(Ljava/lang/Object;)Ljava/lang/Object;"
+                    : "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+            mw.visitInvokeDynamicInsn("recordOrReplay", callSiteDesc, MOCKED_CALL_SITE_BOOTSTRAP, mockedMethodId);
         } else {
-            mw.visitLdcInsn(text);
+            mw.visitMethodInsn(INVOKESTATIC, "mockit/internal/expectations/RecordAndReplayExecution",
+                    "recordOrReplay", "(Ljava/lang/Object;I[Ljava/lang/Object;)Ljava/lang/Object;", false);
         }
     }
 
@@ -214,7 +232,14 @@ public class BaseClassModifier extends WrappingClassVisitor {
         if (value == null) {
             mw.visitInsn(ACONST_NULL);
         } else if (value instanceof Integer) {
-            mw.visitIntInsn(SIPUSH, (Integer) value);
+            int intValue = (Integer) value;
+
+            if (intValue >= Short.MIN_VALUE && intValue <= Short.MAX_VALUE) {
+                mw.visitIntInsn(SIPUSH, intValue);
+            } else {
+                mw.visitLdcInsn(intValue);
+            }
+
             mw.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
         } else {
             mw.visitLdcInsn(value);
@@ -38,13 +38,18 @@ public final class ClassFile {
 
     @Nullable
     public static ClassReader createClassReader(@Nonnull ClassLoader cl, @Nonnull String internalClassName) {
+        byte[] bytecode = readClassFile(cl, internalClassName);
+        return bytecode == null ? null : new ClassReader(bytecode);
+    }
+
+    @Nullable
+    public static byte[] readClassFile(@Nonnull ClassLoader cl, @Nonnull String internalClassName) {
         String classFileName = internalClassName + ".class";
         InputStream classFile = cl.getResourceAsStream(classFileName);
 
         if (classFile != null) { // ignore the class if the ".class" file wasn't located
             try {
-                byte[] bytecode = readClass(classFile);
-                return new ClassReader(bytecode);
+                return readClass(classFile);
             } catch (IOException ignore) {
             }
         }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.capturing;
+
+import static mockit.internal.capturing.CapturedType.isNotToBeCaptured;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import mockit.internal.startup.Startup;
+
+/**
+ * The single <code>ClassFileTransformer</code> for all active captures of implementation classes, which finds the
+ * supertypes of each class being loaded through a shared {@link SuperTypeIndex}, and then lets each capture whose base
+ * type is among them modify the class, in the order the captures were created.
+ */
+final class ActiveCaptures implements ClassFileTransformer {
+    @Nonnull
+    private static final ActiveCaptures INSTANCE = new ActiveCaptures();
+
+    @Nonnull
+    private final List<CaptureTransformer<?>> captureTransformers;
+    @Nonnull
+    private final SuperTypeIndex superTypeIndex;
+    private boolean installed;
+
+    private ActiveCaptures() {
+        captureTransformers = new CopyOnWriteArrayList<>();
+        superTypeIndex = new SuperTypeIndex();
+    }
+
+    static void add(@Nonnull CaptureTransformer<?> captureTransformer) {
+        INSTANCE.addCaptureTransformer(captureTransformer);
+    }
+
+    static void remove(@Nonnull CaptureTransformer<?> captureTransformer) {
+        INSTANCE.captureTransformers.remove(captureTransformer);
+    }
+
+    private synchronized void addCaptureTransformer(@Nonnull CaptureTransformer<?> captureTransformer) {
+        if (!installed) {
+            Startup.instrumentation().addTransformer(this, true);
+            installed = true;
+        }
+
+        captureTransformers.add(captureTransformer);
+    }
+
+    @Nullable
+    @Override
+    public byte[] transform(@Nullable ClassLoader loader, @Nonnull String classDesc,
+            @Nullable Class<?> classBeingRedefined, @Nullable ProtectionDomain protectionDomain,
+            @Nonnull byte[] classfileBuffer) {
+        if (classBeingRedefined != null || captureTransformers.isEmpty()
+                || isNotToBeCaptured(protectionDomain, classDesc)) {
+            return null;
+        }
+
+        Set<String> superTypes = superTypeIndex.getSuperTypes(loader, classDesc, classfileBuffer);
+        byte[] classfile = classfileBuffer;
+        boolean modified = false;
+
+        for (CaptureTransformer<?> captureTransformer : captureTransformers) {
+            byte[] modifiedClassfile = captureTransformer.transform(loader, classDesc, superTypes, classfile);
+
+            if (modifiedClassfile != null) {
+                classfile = modifiedClassfile;
+                modified = true;
+            }
+        }
+
+        return modified ? classfile : null;
+    }
+}
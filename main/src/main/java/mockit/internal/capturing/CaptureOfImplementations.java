@@ -10,7 +10,7 @@ import javax.annotation.Nullable;
 import mockit.asm.classes.ClassReader;
 import mockit.internal.BaseClassModifier;
 import mockit.internal.ClassFile;
-import mockit.internal.startup.Startup;
+import mockit.internal.state.LoadedClasses;
 import mockit.internal.state.TestRun;
 
 public abstract class CaptureOfImplementations<M> {
@@ -26,9 +26,7 @@ public abstract class CaptureOfImplementations<M> {
 
     private void redefineClassesAlreadyLoaded(@Nonnull CapturedType captureMetadata, @Nonnull Class<?> baseType,
             @Nullable M typeMetadata) {
-        Class<?>[] classesLoaded = Startup.instrumentation().getAllLoadedClasses();
-
-        for (Class<?> aClass : classesLoaded) {
+        for (Class<?> aClass : LoadedClasses.getLoadedSubtypes(baseType)) {
             if (captureMetadata.isToBeCaptured(aClass)) {
                 redefineClass(aClass, baseType, typeMetadata);
             }
@@ -69,7 +67,7 @@ public abstract class CaptureOfImplementations<M> {
             @Nullable M typeMetadata) {
         CaptureTransformer<M> transformer = new CaptureTransformer<>(captureMetadata, this, registerCapturedClasses,
                 typeMetadata);
-        Startup.instrumentation().addTransformer(transformer, true);
+        ActiveCaptures.add(transformer);
         TestRun.mockFixture().addCaptureTransformer(transformer);
     }
 }
@@ -4,27 +4,27 @@
  */
 package mockit.internal.capturing;
 
-import static mockit.internal.capturing.CapturedType.isNotToBeCaptured;
-
-import java.lang.instrument.ClassFileTransformer;
-import java.security.ProtectionDomain;
+import java.lang.instrument.ClassDefinition;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import mockit.asm.classes.ClassReader;
 import mockit.asm.classes.ClassVisitor;
-import mockit.asm.metadata.ClassMetadataReader;
 import mockit.asm.types.JavaType;
-import mockit.internal.ClassFile;
 import mockit.internal.ClassIdentification;
 import mockit.internal.startup.Startup;
 import mockit.internal.state.TestRun;
 
-public final class CaptureTransformer<M> implements ClassFileTransformer {
+/**
+ * A capture of the implementation classes of a base type, which modifies them as they get loaded. Classes being loaded
+ * are passed to each active capture by {@link ActiveCaptures}.
+ */
+public final class CaptureTransformer<M> {
     @Nonnull
     private final CapturedType capturedType;
     @Nonnull
@@ -33,8 +33,6 @@ public final class CaptureTransformer<M> implements ClassFileTransformer {
     private final CaptureOfImplementations<M> captureOfImplementations;
     @Nonnull
     private final Map<ClassIdentification, byte[]> transformedClasses;
-    @Nonnull
-    private final Map<String, Boolean> superTypesSearched;
     @Nullable
     private final M typeMetadata;
     private boolean inactive;
@@ -47,98 +45,51 @@ public final class CaptureTransformer<M> implements ClassFileTransformer {
         this.captureOfImplementations = captureOfImplementations;
         transformedClasses = registerTransformedClasses ? new HashMap<>(2)
                 : Collections.<ClassIdentification, byte[]>emptyMap();
-        superTypesSearched = new HashMap<>();
         this.typeMetadata = typeMetadata;
     }
 
     public void deactivate() {
         inactive = true;
+        ActiveCaptures.remove(this);
 
         if (!transformedClasses.isEmpty()) {
+            ClassDefinition[] originalDefinitions = new ClassDefinition[transformedClasses.size()];
+            int i = 0;
+
             for (Map.Entry<ClassIdentification, byte[]> classNameAndOriginalBytecode : transformedClasses.entrySet()) {
-                ClassIdentification classId = classNameAndOriginalBytecode.getKey();
+                Class<?> transformedClass = classNameAndOriginalBytecode.getKey().getLoadedClass();
                 byte[] originalBytecode = classNameAndOriginalBytecode.getValue();
 
-                Startup.redefineMethods(classId, originalBytecode);
+                originalDefinitions[i] = new ClassDefinition(transformedClass, originalBytecode);
+                i++;
             }
 
-            transformedClasses.clear();
+            try {
+                Startup.restoreClasses(originalDefinitions);
+            } finally {
+                transformedClasses.clear();
+            }
         }
     }
 
+    /**
+     * Modifies a class being loaded if it's a subtype of the captured type.
+     *
+     * @param superTypes
+     *            the internal names of all supertypes of the class
+     *
+     * @return the modified classfile, or <code>null</code> if not to be modified
+     */
     @Nullable
-    @Override
-    public byte[] transform(@Nullable ClassLoader loader, @Nonnull String classDesc,
-            @Nullable Class<?> classBeingRedefined, @Nullable ProtectionDomain protectionDomain,
+    byte[] transform(@Nullable ClassLoader loader, @Nonnull String classDesc, @Nonnull Set<String> superTypes,
             @Nonnull byte[] classfileBuffer) {
-        if (classBeingRedefined != null || inactive || isNotToBeCaptured(protectionDomain, classDesc)) {
+        if (inactive || !superTypes.contains(capturedTypeDesc)) {
             return null;
         }
 
-        if (isClassToBeCaptured(loader, classfileBuffer)) {
-            String className = classDesc.replace('/', '.');
-            ClassReader cr = new ClassReader(classfileBuffer);
-            return modifyAndRegisterClass(loader, className, cr);
-        }
-
-        return null;
-    }
-
-    private boolean isClassToBeCaptured(@Nullable ClassLoader loader, @Nonnull byte[] classfileBuffer) {
-        ClassMetadataReader cmr = new ClassMetadataReader(classfileBuffer);
-        String superName = cmr.getSuperClass();
-
-        if (capturedTypeDesc.equals(superName)) {
-            return true;
-        }
-
-        String[] interfaces = cmr.getInterfaces();
-
-        if (interfaces != null && isClassWhichImplementsACapturingInterface(interfaces)) {
-            return true;
-        }
-
-        return superName != null && searchSuperTypes(loader, superName, interfaces);
-    }
-
-    private boolean isClassWhichImplementsACapturingInterface(@Nonnull String[] interfaces) {
-        for (String implementedInterface : interfaces) {
-            if (capturedTypeDesc.equals(implementedInterface)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private boolean searchSuperTypes(@Nullable ClassLoader loader, @Nonnull String superName,
-            @Nullable String[] interfaces) {
-        if (!"java/lang/Object".equals(superName) && !superName.startsWith("mockit/")
-                && searchSuperType(loader, superName)) {
-            return true;
-        }
-
-        if (interfaces != null && interfaces.length > 0) {
-            for (String itf : interfaces) {
-                if (!itf.startsWith("java/") && !itf.startsWith("javax/") && searchSuperType(loader, itf)) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
-    }
-
-    private boolean searchSuperType(@Nullable ClassLoader loader, @Nonnull String superName) {
-        Boolean extendsCapturedType = superTypesSearched.get(superName);
-
-        if (extendsCapturedType == null) {
-            byte[] classfileBytes = ClassFile.getClassFile(loader, superName);
-            extendsCapturedType = isClassToBeCaptured(loader, classfileBytes);
-            superTypesSearched.put(superName, extendsCapturedType);
-        }
-
-        return extendsCapturedType;
+        String className = classDesc.replace('/', '.');
+        ClassReader cr = new ClassReader(classfileBuffer);
+        return modifyAndRegisterClass(loader, className, cr);
     }
 
     @Nonnull
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.capturing;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import mockit.asm.metadata.ClassMetadataReader;
+import mockit.internal.ClassFile;
+
+/**
+ * Maps the internal names of classes seen by {@link ActiveCaptures} to those of all their supertypes, for each class
+ * loader, so that the header of each class or ancestor type only gets parsed once, no matter how many captured types are
+ * active or how many of its subclasses get loaded.
+ * <p>
+ * As when searching for a captured type in the supertypes of a class, the supertypes of <code>java.lang.Object</code>,
+ * of JMockit classes, and of standard Java interfaces are not searched for; such types are included in the supertypes
+ * of their direct subtypes, though.
+ */
+final class SuperTypeIndex {
+    @Nonnull
+    private final Map<ClassLoader, Map<String, Set<String>>> superTypesByClassLoader;
+
+    SuperTypeIndex() {
+        superTypesByClassLoader = new WeakHashMap<>(2);
+    }
+
+    @Nonnull
+    private synchronized Map<String, Set<String>> getSuperTypesForClassLoader(@Nullable ClassLoader loader) {
+        return superTypesByClassLoader.computeIfAbsent(loader, cl -> new ConcurrentHashMap<>(500));
+    }
+
+    /**
+     * Gets the internal names of all supertypes of a class being loaded, indexing them if not done yet.
+     */
+    @Nonnull
+    Set<String> getSuperTypes(@Nullable ClassLoader loader, @Nonnull String classDesc, @Nonnull byte[] classfile) {
+        Map<String, Set<String>> classDescToSuperTypes = getSuperTypesForClassLoader(loader);
+        Set<String> superTypes = classDescToSuperTypes.get(classDesc);
+
+        if (superTypes == null) {
+            superTypes = findSuperTypes(loader, classDescToSuperTypes, classfile);
+            classDescToSuperTypes.put(classDesc, superTypes);
+        }
+
+        return superTypes;
+    }
+
+    @Nonnull
+    private Set<String> getSuperTypesOfAncestor(@Nullable ClassLoader loader,
+            @Nonnull Map<String, Set<String>> classDescToSuperTypes, @Nonnull String ancestorDesc) {
+        Set<String> superTypes = classDescToSuperTypes.get(ancestorDesc);
+
+        if (superTypes == null) {
+            byte[] classfile;
+
+            try {
+                classfile = ClassFile.getClassFile(loader, ancestorDesc);
+            } catch (ClassFile.NotFoundException ignore) {
+                return Collections.emptySet();
+            }
+
+            superTypes = findSuperTypes(loader, classDescToSuperTypes, classfile);
+            classDescToSuperTypes.put(ancestorDesc, superTypes);
+        }
+
+        return superTypes;
+    }
+
+    @Nonnull
+    private Set<String> findSuperTypes(@Nullable ClassLoader loader,
+            @Nonnull Map<String, Set<String>> classDescToSuperTypes, @Nonnull byte[] classfile) {
+        ClassMetadataReader cmr = new ClassMetadataReader(classfile);
+        String superName = cmr.getSuperClass();
+        String[] interfaces = cmr.getInterfaces();
+        Set<String> superTypes = new HashSet<>();
+
+        if (superName != null) {
+            superTypes.add(superName);
+
+            if (!"java/lang/Object".equals(superName) && !superName.startsWith("mockit/")) {
+                superTypes.addAll(getSuperTypesOfAncestor(loader, classDescToSuperTypes, superName));
+            }
+        }
+
+        if (interfaces != null) {
+            for (String itf : interfaces) {
+                superTypes.add(itf);
+
+                if (!itf.startsWith("java/") && !itf.startsWith("javax/")) {
+                    superTypes.addAll(getSuperTypesOfAncestor(loader, classDescToSuperTypes, itf));
+                }
+            }
+        }
+
+        return superTypes;
+    }
+}
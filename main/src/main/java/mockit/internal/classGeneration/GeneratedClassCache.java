@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.classGeneration;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import mockit.asm.classes.ClassVisitor;
+import mockit.internal.BaseClassModifier;
+import mockit.internal.ClassFile;
+import mockit.internal.expectations.ExecutionMode;
+import mockit.internal.expectations.MockedCallSites;
+import mockit.internal.expectations.MockedMethod;
+import mockit.internal.util.Utilities;
+
+/**
+ * An on-disk cache of the implementation classes generated for mocked interfaces and abstract classes, enabled through
+ * the "<code>generatedClassCacheDir</code>" system property and shared by all JVMs using the same directory, so that a
+ * class already generated in a previous test run (or in another JVM of the same run) gets defined without running its
+ * generator again.
+ * <p>
+ * Each entry is keyed by a digest of the JMockit jar identity, the JVM version, the generator, the generated class
+ * name, the mocked type with its type arguments, and the classfiles of the source type and of all its non-JDK
+ * ancestors, since generators also implement the methods inherited from those.
+ * <p>
+ * Generated code refers to each mocked method by an id which is only valid in the JVM which registered it, as an
+ * integer constant in the constant pool of the class. So, entries also hold the position and the attributes of each
+ * such constant, with the methods getting registered again and the constants rewritten with the new ids when the class
+ * is loaded from the cache. Classes having other integer constants are not cached, as those can't be told apart.
+ */
+final class GeneratedClassCache {
+    private static final String ENTRY_SUFFIX = ".class";
+
+    @Nullable
+    static final GeneratedClassCache INSTANCE = createIfEnabled();
+
+    @Nonnull
+    private final Path cacheDir;
+    @Nonnull
+    private final byte[] environmentIdentity;
+
+    @Nullable
+    private static GeneratedClassCache createIfEnabled() {
+        String cacheDirPath = System.getProperty("generatedClassCacheDir");
+
+        if (cacheDirPath == null || cacheDirPath.isEmpty()) {
+            return null;
+        }
+
+        try {
+            Path cacheDir = Files.createDirectories(Paths.get(cacheDirPath));
+            return new GeneratedClassCache(cacheDir);
+        } catch (IOException e) {
+            System.out.println("JMockit: Generated class cache not used: " + e);
+            return null;
+        }
+    }
+
+    GeneratedClassCache(@Nonnull Path cacheDir) {
+        this.cacheDir = cacheDir;
+        String identity = Utilities.getIdentityOfJMockitJar() + ':' + System.getProperty("java.vm.version") + ':'
+                + MockedCallSites.ENABLED;
+        environmentIdentity = identity.getBytes(UTF_8);
+    }
+
+    /**
+     * Computes the key for the entry of a class to be generated.
+     *
+     * @return the key, or <code>null</code> if the classfile of an ancestor type is not available
+     */
+    @Nullable
+    String getKey(@Nonnull Class<?> generatorClass, @Nonnull String generatedClassName, @Nonnull Type mockedType,
+            @Nonnull Class<?> sourceClass, @Nonnull byte[] sourceClassfile) {
+        MessageDigest digest = newDigest();
+        digest.update(environmentIdentity);
+        updateWithString(digest, generatorClass.getName());
+        updateWithString(digest, generatedClassName);
+        updateWithString(digest, mockedType.getTypeName());
+        digest.update(newDigest().digest(sourceClassfile));
+
+        for (Class<?> ancestor : getNonJDKAncestors(sourceClass)) {
+            byte[] ancestorClassfile;
+
+            try {
+                ancestorClassfile = ClassFile.getClassFile(ancestor.getName().replace('.', '/'));
+            } catch (ClassFile.NotFoundException ignore) {
+                return null;
+            }
+
+            updateWithString(digest, ancestor.getName());
+            digest.update(newDigest().digest(ancestorClassfile));
+        }
+
+        return toHex(digest.digest());
+    }
+
+    private static void updateWithString(@Nonnull MessageDigest digest, @Nonnull String value) {
+        digest.update(value.getBytes(UTF_8));
+        digest.update((byte) 0);
+    }
+
+    @Nonnull
+    private static Set<Class<?>> getNonJDKAncestors(@Nonnull Class<?> sourceClass) {
+        Set<Class<?>> ancestors = new LinkedHashSet<>();
+        Deque<Class<?>> typesToVisit = new ArrayDeque<>();
+        typesToVisit.add(sourceClass);
+        Class<?> type;
+
+        while ((type = typesToVisit.poll()) != null) {
+            Class<?> superclass = type.getSuperclass();
+
+            if (superclass != null) {
+                addIfNonJDK(ancestors, typesToVisit, superclass);
+            }
+
+            for (Class<?> implementedInterface : type.getInterfaces()) {
+                addIfNonJDK(ancestors, typesToVisit, implementedInterface);
+            }
+        }
+
+        return ancestors;
+    }
+
+    private static void addIfNonJDK(@Nonnull Set<Class<?>> ancestors, @Nonnull Deque<Class<?>> typesToVisit,
+            @Nonnull Class<?> ancestor) {
+        String name = ancestor.getName();
+
+        if (!name.startsWith("java.") && !name.startsWith("javax.") && !name.startsWith("jdk.")
+                && !name.startsWith("sun.") && ancestors.add(ancestor)) {
+            typesToVisit.add(ancestor);
+        }
+    }
+
+    @Nonnull
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Nonnull
+    private static String toHex(@Nonnull byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+
+        for (byte b : bytes) {
+            hex.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * Gets a generated classfile from the cache, if available, registering its mocked methods and rewriting their ids.
+     *
+     * @return the classfile, or <code>null</code> if not available, in which case the class is to be generated and
+     *         then {@linkplain #addGeneratedClass added}
+     */
+    @Nullable
+    byte[] getGeneratedClass(@Nonnull String key, @Nonnull String generatedClassName) {
+        byte[] entry;
+
+        try {
+            entry = Files.readAllBytes(cacheDir.resolve(key + ENTRY_SUFFIX));
+        } catch (IOException ignore) {
+            // Not cached yet, or not readable.
+            return null;
+        }
+
+        try {
+            return readEntry(new DataInputStream(new ByteArrayInputStream(entry)), generatedClassName);
+        } catch (IOException | RuntimeException ignore) {
+            // A corrupted entry, which gets replaced.
+            return null;
+        }
+    }
+
+    @Nullable
+    private static byte[] readEntry(@Nonnull DataInputStream input, @Nonnull String generatedClassName)
+            throws IOException {
+        if (!generatedClassName.equals(input.readUTF())) {
+            return null;
+        }
+
+        int mockedMethodCount = input.readInt();
+        int[] offsets = new int[mockedMethodCount];
+        int[] ids = new int[mockedMethodCount];
+        ExecutionMode[] executionModes = ExecutionMode.values();
+
+        for (int i = 0; i < mockedMethodCount; i++) {
+            offsets[i] = input.readInt();
+            int access = input.readInt();
+            String classDesc = input.readUTF();
+            String nameAndDesc = input.readUTF();
+            String genericSignature = input.readBoolean() ? input.readUTF() : null;
+            ExecutionMode executionMode = executionModes[input.readInt()];
+            ids[i] = MockedMethod.register(access, classDesc, nameAndDesc, genericSignature, executionMode);
+        }
+
+        byte[] classfile = new byte[input.readInt()];
+        input.readFully(classfile);
+
+        ByteBuffer classfileBuffer = ByteBuffer.wrap(classfile);
+
+        for (int i = 0; i < mockedMethodCount; i++) {
+            classfileBuffer.putInt(offsets[i], ids[i]);
+        }
+
+        return classfile;
+    }
+
+    /**
+     * Adds a newly generated class to the cache, provided the only integer constants in it are mocked method ids.
+     * Since the generated class starts from the constant pool of its source class, the latter must not have integer
+     * constants equal to any of the ids either. Failures to write the entry are ignored, since the class will simply be
+     * generated again next time.
+     */
+    void addGeneratedClass(@Nonnull String key, @Nonnull String generatedClassName, @Nonnull byte[] sourceClassfile,
+            @Nonnull ClassVisitor generator, @Nonnull byte[] generatedClassfile) {
+        if (!(generator instanceof BaseClassModifier)) {
+            return;
+        }
+
+        Set<Integer> mockedMethodIds = ((BaseClassModifier) generator).getMockedMethodIds();
+        Map<Integer, Integer> integerConstants = findIntegerConstants(generatedClassfile);
+        Map<Integer, Integer> sourceIntegerConstants = findIntegerConstants(sourceClassfile);
+
+        if (integerConstants == null || sourceIntegerConstants == null
+                || integerConstants.size() != mockedMethodIds.size()
+                || !mockedMethodIds.containsAll(integerConstants.values())
+                || !Collections.disjoint(mockedMethodIds, sourceIntegerConstants.values())) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(generatedClassfile.length + 1024);
+
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeUTF(generatedClassName);
+            output.writeInt(integerConstants.size());
+
+            for (Entry<Integer, Integer> offsetAndId : integerConstants.entrySet()) {
+                MockedMethod mockedMethod = MockedMethod.get(offsetAndId.getValue());
+                output.writeInt(offsetAndId.getKey());
+                output.writeInt(mockedMethod.access);
+                output.writeUTF(mockedMethod.classDesc);
+                output.writeUTF(mockedMethod.nameAndDesc);
+                output.writeBoolean(mockedMethod.genericSignature != null);
+
+                if (mockedMethod.genericSignature != null) {
+                    output.writeUTF(mockedMethod.genericSignature);
+                }
+
+                output.writeInt(mockedMethod.executionMode.ordinal());
+            }
+
+            output.writeInt(generatedClassfile.length);
+            output.write(generatedClassfile);
+        } catch (IOException | RuntimeException ignore) {
+            // Not cacheable, for example with a signature too long to be written.
+            return;
+        }
+
+        writeEntry(key, bytes.toByteArray());
+    }
+
+    /**
+     * Finds the integer constants in the constant pool of a classfile.
+     *
+     * @return the values of the constants by their offset in the classfile, or <code>null</code> if the constant pool
+     *         has an unknown kind of entry
+     */
+    @Nullable
+    private static Map<Integer, Integer> findIntegerConstants(@Nonnull byte[] classfile) {
+        ByteBuffer buffer = ByteBuffer.wrap(classfile);
+        int constantCount = buffer.getShort(8) & 0xFFFF;
+        Map<Integer, Integer> integerConstants = new LinkedHashMap<>();
+        buffer.position(10);
+
+        for (int i = 1; i < constantCount; i++) {
+            int tag = buffer.get();
+
+            switch (tag) {
+                case 1: // Utf8
+                    buffer.position(buffer.position() + 2 + (buffer.getShort() & 0xFFFF));
+                    break;
+                case 3: // Integer
+                    integerConstants.put(buffer.position(), buffer.getInt());
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    buffer.position(buffer.position() + 8);
+                    i++;
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    buffer.position(buffer.position() + 2);
+                    break;
+                case 15: // MethodHandle
+                    buffer.position(buffer.position() + 3);
+                    break;
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    buffer.position(buffer.position() + 4);
+                    break;
+                default:
+                    return null;
+            }
+        }
+
+        return integerConstants;
+    }
+
+    private void writeEntry(@Nonnull String key, @Nonnull byte[] entry) {
+        Path tempFile = null;
+
+        try {
+            // Written to a separate file first, so that other JVMs never read a partially written entry.
+            tempFile = Files.createTempFile(cacheDir, key, ".tmp");
+            Files.write(tempFile, entry);
+            Files.move(tempFile, cacheDir.resolve(key + ENTRY_SUFFIX), ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException ignore) {
+            deleteIfExists(tempFile);
+        }
+    }
+
+    private static void deleteIfExists(@Nullable Path tempFile) {
+        if (tempFile != null) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignore) {
+                // Left behind, to be overwritten or deleted along with the cache.
+            }
+        }
+    }
+}
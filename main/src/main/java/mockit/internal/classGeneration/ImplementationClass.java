@@ -17,43 +17,66 @@ import mockit.internal.util.Utilities;
 
 /**
  * Allows the creation of new implementation classes for interfaces and abstract classes.
+ * <p>
+ * When the {@link GeneratedClassCache} is enabled, a class generated in a previous test run or in another JVM gets
+ * defined directly from the cache, without its {@linkplain #createMethodBodyGenerator generator} being used.
  */
 public abstract class ImplementationClass<T> {
     @Nonnull
     protected final Class<?> sourceClass;
     @Nonnull
+    private final Type mockedType;
+    @Nonnull
     protected String generatedClassName;
 
     protected ImplementationClass(@Nonnull Type mockedType) {
-        this(Utilities.getClassType(mockedType));
+        this(Utilities.getClassType(mockedType), mockedType);
     }
 
-    protected ImplementationClass(@Nonnull Class<?> mockedClass) {
-        this(mockedClass, GeneratedClasses.getNameForGeneratedClass(mockedClass, null));
+    protected ImplementationClass(@Nonnull Class<?> mockedClass, @Nonnull Type mockedType) {
+        this(mockedClass, GeneratedClasses.getNameForGeneratedClass(mockedClass, null), mockedType);
     }
 
-    protected ImplementationClass(@Nonnull Class<?> sourceClass, @Nonnull String desiredClassName) {
+    protected ImplementationClass(@Nonnull Class<?> sourceClass, @Nonnull String desiredClassName,
+            @Nonnull Type mockedType) {
         this.sourceClass = sourceClass;
+        this.mockedType = mockedType;
         generatedClassName = desiredClassName;
     }
 
     @Nonnull
     public final Class<T> generateClass() {
         ClassReader classReader = ClassFile.createReaderOrGetFromCache(sourceClass);
+        GeneratedClassCache cache = GeneratedClassCache.INSTANCE;
+        String cacheKey = null;
+
+        if (cache != null) {
+            cacheKey = cache.getKey(getClass(), generatedClassName, mockedType, sourceClass, classReader.getBytecode());
+            byte[] cachedClassfile = cacheKey == null ? null : cache.getGeneratedClass(cacheKey, generatedClassName);
+
+            if (cachedClassfile != null) {
+                return defineNewClass(cachedClassfile);
+            }
+        }
 
         ClassVisitor modifier = createMethodBodyGenerator(classReader);
         classReader.accept(modifier);
+        byte[] generatedClassfile = modifier.toByteArray();
+
+        if (cacheKey != null) {
+            cache.addGeneratedClass(cacheKey, generatedClassName, classReader.getBytecode(), modifier,
+                    generatedClassfile);
+        }
 
-        return defineNewClass(modifier);
+        return defineNewClass(generatedClassfile);
     }
 
     @Nonnull
     protected abstract ClassVisitor createMethodBodyGenerator(@Nonnull ClassReader cr);
 
     @Nonnull
-    private Class<T> defineNewClass(@Nonnull ClassVisitor modifier) {
+    private Class<T> defineNewClass(@Nonnull final byte[] generatedClassfile) {
         final ClassLoader parentLoader = ClassLoad.getClassLoaderWithAccess(sourceClass);
-        final byte[] modifiedClassfile = modifier.toByteArray();
 
         try {
             return (Class<T>) new ClassLoader(parentLoader) {
@@ -63,7 +86,7 @@ public abstract class ImplementationClass<T> {
                         return parentLoader.loadClass(name);
                     }
 
-                    return defineClass(name, modifiedClassfile, 0, modifiedClassfile.length);
+                    return defineClass(name, generatedClassfile, 0, generatedClassfile.length);
                 }
             }.findClass(generatedClassName);
         } catch (ClassNotFoundException e) {
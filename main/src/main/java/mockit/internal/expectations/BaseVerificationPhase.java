@@ -6,7 +6,6 @@ package mockit.internal.expectations;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -23,7 +22,6 @@ public abstract class BaseVerificationPhase extends TestOnlyPhase {
     private final List<VerifiedExpectation> currentVerifiedExpectations;
     @Nullable
     Expectation currentVerification;
-    int replayIndex;
     @Nullable
     Error pendingError;
     @Nullable
@@ -80,38 +78,44 @@ public abstract class BaseVerificationPhase extends TestOnlyPhase {
     final boolean matches(@Nullable Object mock, @Nonnull String mockClassDesc, @Nonnull String mockNameAndDesc,
             @Nonnull Object[] args, @Nonnull Expectation replayExpectation, @Nullable Object replayInstance,
             @Nonnull Object[] replayArgs) {
-        ExpectedInvocation invocation = replayExpectation.invocation;
-        boolean constructor = invocation.isConstructor();
-        Map<Object, Object> replacementMap = getReplacementMap();
         matchingInvocationWithDifferentArgs = null;
 
-        if (invocation.isMatch(mock, mockClassDesc, mockNameAndDesc, replacementMap)) {
-            boolean matching;
+        if (isMatchingMethodAndInstance(mock, mockClassDesc, mockNameAndDesc, replayExpectation)) {
+            ExpectedInvocation invocation = replayExpectation.invocation;
+            matchingInvocationWithDifferentArgs = invocation;
+
+            InvocationArguments invocationArguments = invocation.arguments;
+            List<ArgumentMatcher<?>> originalMatchers = invocationArguments.getMatchers();
+            Object[] originalArgs = invocationArguments.prepareForVerification(args, argMatchers);
+            boolean argumentsMatch = invocationArguments.isMatch(replayArgs, getInstanceMap());
+            invocationArguments.setValuesAndMatchers(originalArgs, originalMatchers);
 
-            if (mock == null || invocation.instance == null || constructor && !matchInstance) {
-                matching = true;
-            } else {
-                matching = executionState.equivalentInstances.areMatchingInstances(matchInstance, invocation.instance,
-                        mock);
+            if (argumentsMatch) {
+                addVerifiedExpectation(replayExpectation, replayArgs);
+                return true;
             }
+        }
+
+        return false;
+    }
 
-            if (matching) {
-                matchingInvocationWithDifferentArgs = invocation;
+    /**
+     * Checks whether the verified invocation is for the same mocked method and instance as a replayed expectation,
+     * regardless of arguments.
+     */
+    final boolean isMatchingMethodAndInstance(@Nullable Object mock, @Nonnull String mockClassDesc,
+            @Nonnull String mockNameAndDesc, @Nonnull Expectation replayExpectation) {
+        ExpectedInvocation invocation = replayExpectation.invocation;
 
-                InvocationArguments invocationArguments = invocation.arguments;
-                List<ArgumentMatcher<?>> originalMatchers = invocationArguments.getMatchers();
-                Object[] originalArgs = invocationArguments.prepareForVerification(args, argMatchers);
-                boolean argumentsMatch = invocationArguments.isMatch(replayArgs, getInstanceMap());
-                invocationArguments.setValuesAndMatchers(originalArgs, originalMatchers);
+        if (!invocation.isMatch(mock, mockClassDesc, mockNameAndDesc, getReplacementMap())) {
+            return false;
+        }
 
-                if (argumentsMatch) {
-                    addVerifiedExpectation(replayExpectation, replayArgs);
-                    return true;
-                }
-            }
+        if (mock == null || invocation.instance == null || invocation.isConstructor() && !matchInstance) {
+            return true;
         }
 
-        return false;
+        return executionState.equivalentInstances.areMatchingInstances(matchInstance, invocation.instance, mock);
     }
 
     abstract void addVerifiedExpectation(@Nonnull Expectation expectation, @Nonnull Object[] args);
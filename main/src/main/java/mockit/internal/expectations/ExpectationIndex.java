@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import mockit.internal.expectations.invocation.ExpectedInvocation;
+import mockit.internal.state.TestRun;
+
+/**
+ * Indexes the expectations of a test by mocked method name and mocked class, so that only those which can match a
+ * given invocation need to be checked against it, rather than all expectations recorded or created during replay.
+ * <p>
+ * An invocation can only match an expectation for a method or constructor of the same name and, unless the invoked
+ * instance is of a captured type, in the same mocked class. The full method descriptor can't be used in the key, since
+ * a recorded method can still match when its return type is a subtype of the invoked one, or when it is a generic
+ * method invoked through a subclass with different parameter types.
+ * <p>
+ * Within each bucket expectations are kept in the order they were added, so that iterating over a bucket finds the
+ * same expectation first as iterating over the full list of expectations.
+ */
+final class ExpectationIndex {
+    @Nonnull
+    private final Map<String, SameNameExpectations> methodNameToExpectations;
+
+    ExpectationIndex() {
+        methodNameToExpectations = new HashMap<>();
+    }
+
+    private static final class SameNameExpectations {
+        @Nonnull
+        final List<Expectation> inAnyClass = new ArrayList<>();
+        @Nonnull
+        final Map<String, List<Expectation>> classDescToExpectations = new HashMap<>(2);
+    }
+
+    @Nonnull
+    private static String getMethodName(@Nonnull String methodNameAndDesc) {
+        int p = methodNameAndDesc.indexOf('(');
+        return p < 0 ? methodNameAndDesc : methodNameAndDesc.substring(0, p);
+    }
+
+    void add(@Nonnull Expectation expectation) {
+        ExpectedInvocation invocation = expectation.invocation;
+        String methodName = getMethodName(invocation.getMethodNameAndDescription());
+        SameNameExpectations sameName = methodNameToExpectations.computeIfAbsent(methodName,
+                name -> new SameNameExpectations());
+
+        sameName.inAnyClass.add(expectation);
+        sameName.classDescToExpectations.computeIfAbsent(invocation.getClassDesc(), desc -> new ArrayList<>())
+                .add(expectation);
+    }
+
+    void remove(@Nonnull Expectation expectation) {
+        ExpectedInvocation invocation = expectation.invocation;
+        SameNameExpectations sameName = methodNameToExpectations
+                .get(getMethodName(invocation.getMethodNameAndDescription()));
+
+        if (sameName != null) {
+            sameName.inAnyClass.remove(expectation);
+            List<Expectation> sameClass = sameName.classDescToExpectations.get(invocation.getClassDesc());
+
+            if (sameClass != null) {
+                sameClass.remove(expectation);
+            }
+        }
+    }
+
+    /**
+     * Gets the expectations that an invocation of the given mocked method could match, in the order they were added.
+     */
+    @Nonnull
+    List<Expectation> getCandidates(@Nullable Object mock, @Nonnull String mockClassDesc,
+            @Nonnull String mockNameAndDesc) {
+        SameNameExpectations sameName = methodNameToExpectations.get(getMethodName(mockNameAndDesc));
+
+        if (sameName == null) {
+            return Collections.emptyList();
+        }
+
+        if (mock != null && TestRun.mockFixture().isCaptured(mock)) {
+            return sameName.inAnyClass;
+        }
+
+        List<Expectation> sameClass = sameName.classDescToExpectations.get(mockClassDesc);
+        return sameClass == null ? Collections.emptyList() : sameClass;
+    }
+}
@@ -5,12 +5,15 @@
 package mockit.internal.expectations;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
-import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import mockit.internal.expectations.ReplayLog.BoundedInvocations;
+import mockit.internal.expectations.ReplayLog.DiscardedInvocations;
 import mockit.internal.expectations.invocation.ExpectedInvocation;
 import mockit.internal.expectations.invocation.InvocationArguments;
 import mockit.internal.util.ClassLoad;
@@ -31,21 +34,27 @@ final class FullVerificationPhase extends UnorderedVerificationPhase {
             return pendingError;
         }
 
-        List<Expectation> expectationsInReplayOrder = replayPhase.invocations;
+        ReplayLog replayLog = replayPhase.log;
+        Map<Expectation, List<VerifiedExpectation>> verificationsByExpectation = groupVerificationsByExpectation();
         List<Expectation> notVerified = new ArrayList<>();
 
-        for (int i = 0, n = expectationsInReplayOrder.size(); i < n; i++) {
-            Expectation replayExpectation = expectationsInReplayOrder.get(i);
+        for (int i = 0, n = replayLog.size(); i < n; i++) {
+            Expectation replayExpectation = replayLog.getExpectation(i);
 
             if (replayExpectation != null && isEligibleForFullVerification(replayExpectation)) {
-                Object[] replayArgs = replayPhase.invocationArguments.get(i);
+                Object[] replayArgs = replayLog.getArguments(i);
+                List<VerifiedExpectation> verifications = verificationsByExpectation.get(replayExpectation);
 
-                if (!wasVerified(replayExpectation, replayArgs, i)) {
+                if (!wasVerified(replayExpectation, replayArgs, i, verifications)) {
                     notVerified.add(replayExpectation);
                 }
             }
         }
 
+        for (BoundedInvocations bounded : replayLog.getBoundedInvocations()) {
+            addBoundedInvocationsNotVerified(bounded, verificationsByExpectation, notVerified);
+        }
+
         if (!notVerified.isEmpty()) {
             if (mockedTypesAndInstancesToVerify.length == 0) {
                 Expectation firstUnexpected = notVerified.get(0);
@@ -58,17 +67,64 @@ final class FullVerificationPhase extends UnorderedVerificationPhase {
         return null;
     }
 
+    /**
+     * Groups the verified expectations by the replayed expectation they matched, keeping them in the order of
+     * verification, so that checking whether an invocation was verified doesn't need to go through all of them.
+     */
+    @Nonnull
+    private Map<Expectation, List<VerifiedExpectation>> groupVerificationsByExpectation() {
+        Map<Expectation, List<VerifiedExpectation>> verificationsByExpectation = new IdentityHashMap<>();
+
+        for (VerifiedExpectation verified : executionState.verifiedExpectations) {
+            verificationsByExpectation.computeIfAbsent(verified.expectation, e -> new ArrayList<>(2)).add(verified);
+        }
+
+        return verificationsByExpectation;
+    }
+
+    /**
+     * Adds the expectations for invocations in bounded replay mode which were not verified, where those with discarded
+     * arguments were verified only if matched as a whole by some verification.
+     */
+    private void addBoundedInvocationsNotVerified(@Nonnull BoundedInvocations bounded,
+            @Nonnull Map<Expectation, List<VerifiedExpectation>> verificationsByExpectation,
+            @Nonnull List<Expectation> notVerified) {
+        for (DiscardedInvocations discarded : bounded.getDiscarded()) {
+            Expectation replayExpectation = discarded.expectation;
+
+            if (!discarded.verified && isEligibleForFullVerification(replayExpectation)) {
+                notVerified.add(replayExpectation);
+            }
+        }
+
+        for (int i = 0, n = bounded.recentCount(); i < n; i++) {
+            Expectation replayExpectation = bounded.getRecentExpectation(i);
+
+            if (isEligibleForFullVerification(replayExpectation)) {
+                Object[] replayArgs = bounded.getRecentArguments(i);
+                List<VerifiedExpectation> verifications = verificationsByExpectation.get(replayExpectation);
+
+                if (!wasVerified(replayExpectation, replayArgs, -1, verifications)) {
+                    notVerified.add(replayExpectation);
+                }
+            }
+        }
+    }
+
     private static boolean isEligibleForFullVerification(@Nonnull Expectation replayExpectation) {
         return !replayExpectation.executedRealImplementation && replayExpectation.constraints.minInvocations <= 0;
     }
 
+    /**
+     * Checks whether a replayed invocation was verified, given its position in the replay log, or <code>-1</code> for
+     * an invocation in bounded replay mode.
+     */
     private boolean wasVerified(@Nonnull Expectation replayExpectation, @Nonnull Object[] replayArgs,
-            @Nonnegative int expectationIndex) {
+            int expectationIndex, @Nullable List<VerifiedExpectation> verifications) {
         InvocationArguments invokedArgs = replayExpectation.invocation.arguments;
-        List<VerifiedExpectation> verifiedExpectations = executionState.verifiedExpectations;
 
-        for (VerifiedExpectation verified : verifiedExpectations) {
-            if (verified.expectation == replayExpectation) {
+        if (verifications != null) {
+            for (VerifiedExpectation verified : verifications) {
                 Object[] storedArgs = invokedArgs.prepareForVerification(verified.arguments, verified.argMatchers);
                 boolean argumentsMatch = invokedArgs.isMatch(replayArgs, getInstanceMap());
                 invokedArgs.setValuesWithNoMatchers(storedArgs);
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import static mockit.internal.util.Utilities.NO_ARGS;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.invoke.SwitchPoint;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * Links the <code>invokedynamic</code> call sites which mocked classes use instead of calling
+ * {@link RecordAndReplayExecution#recordOrReplay(Object, int, Object[])} directly, when the "<code>indyCallSites</code>"
+ * system property is set to <code>true</code>.
+ * <p>
+ * Each mocked method of a class gets a {@link MutableCallSite} bound to its {@link MockedMethod}, and all call sites of
+ * a class are guarded by a {@link SwitchPoint}. When the class is no longer mocked, the switch point is invalidated so
+ * that the call sites proceed into the real implementation, instead of the class being redefined back to its original
+ * definition. If the class later gets mocked again with the same modified classfile, its call sites are relinked
+ * instead of the class being redefined once more.
+ * <p>
+ * This is only possible for classes whose modified definition behaves as the original one when every call site proceeds
+ * into the real implementation, which the modifier indicates by {@linkplain #addRelinkableClassfile registering} the
+ * modified classfile.
+ * <p>
+ * An unlinked class keeps the modified bytecode for the rest of the test run, or until redefined again. So, any agent
+ * retransforming it, such as a coverage or profiling tool, gets that bytecode rather than the original classfile as the
+ * starting point, and the unlinked call sites get carried over into the retransformed class.
+ */
+public final class MockedCallSites {
+    public static final boolean ENABLED = Boolean.getBoolean("indyCallSites");
+
+    @Nonnull
+    private static final MethodHandle RECORD_OR_REPLAY;
+    @Nonnull
+    private static final MethodHandle PROCEED_INTO_REAL_IMPLEMENTATION;
+
+    static {
+        try {
+            RECORD_OR_REPLAY = MethodHandles.lookup().findStatic(RecordAndReplayExecution.class, "recordOrReplay",
+                    methodType(Object.class, Object.class, MockedMethod.class, Object[].class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+
+        PROCEED_INTO_REAL_IMPLEMENTATION = MethodHandles.constant(Object.class, Void.class);
+    }
+
+    @Nonnull
+    private static final ClassValue<ClassCallSites> CALL_SITES = new ClassValue<ClassCallSites>() {
+        @Override
+        protected ClassCallSites computeValue(Class<?> type) {
+            return new ClassCallSites();
+        }
+    };
+
+    /**
+     * Modified classfiles which can be left in place when their class is no longer mocked, compared by identity.
+     */
+    @Nonnull
+    private static final Map<byte[], Boolean> RELINKABLE_CLASSFILES = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    private MockedCallSites() {
+    }
+
+    private static final class MockedMethodCallSite extends MutableCallSite {
+        @Nonnull
+        final MockedMethod mockedMethod;
+
+        MockedMethodCallSite(@Nonnull MockedMethod mockedMethod, @Nonnull MethodType type) {
+            super(type);
+            this.mockedMethod = mockedMethod;
+        }
+    }
+
+    private static final class ClassCallSites {
+        @Nonnull
+        private final Map<Integer, MockedMethodCallSite> callSites = new HashMap<>();
+        @Nonnull
+        private SwitchPoint mocked = new SwitchPoint();
+
+        @Nonnull
+        synchronized CallSite getCallSite(@Nonnull MockedMethod mockedMethod, @Nonnull MethodType type) {
+            MockedMethodCallSite callSite = callSites.get(mockedMethod.id);
+
+            if (callSite == null) {
+                callSite = new MockedMethodCallSite(mockedMethod, type);
+                link(callSite);
+                callSites.put(mockedMethod.id, callSite);
+            }
+
+            return callSite;
+        }
+
+        private void link(@Nonnull MockedMethodCallSite callSite) {
+            MethodType type = callSite.type();
+            MethodHandle recordOrReplay = MethodHandles.insertArguments(RECORD_OR_REPLAY, 1, callSite.mockedMethod);
+
+            if (type.parameterCount() == 1) {
+                recordOrReplay = MethodHandles.insertArguments(recordOrReplay, 1, (Object) NO_ARGS);
+            }
+
+            MethodHandle proceed = MethodHandles.dropArguments(PROCEED_INTO_REAL_IMPLEMENTATION, 0,
+                    type.parameterList());
+            callSite.setTarget(mocked.guardWithTest(recordOrReplay, proceed));
+        }
+
+        synchronized void unlink() {
+            SwitchPoint.invalidateAll(new SwitchPoint[] { mocked });
+        }
+
+        synchronized void relink() {
+            if (mocked.hasBeenInvalidated()) {
+                mocked = new SwitchPoint();
+
+                for (MockedMethodCallSite callSite : callSites.values()) {
+                    link(callSite);
+                }
+
+                MutableCallSite.syncAll(callSites.values().toArray(new MutableCallSite[0]));
+            }
+        }
+    }
+
+    /**
+     * The bootstrap method for all call sites in mocked classes, whose type is
+     * <code>(Object mock, Object[] args)Object</code>, or <code>(Object mock)Object</code> for methods without
+     * parameters.
+     */
+    @Nonnull
+    public static CallSite bootstrap(@Nonnull Lookup caller, @Nonnull String name, @Nonnull MethodType type,
+            @Nonnegative int mockedMethodId) {
+        MockedMethod mockedMethod = MockedMethod.get(mockedMethodId);
+        return CALL_SITES.get(caller.lookupClass()).getCallSite(mockedMethod, type);
+    }
+
+    public static void addRelinkableClassfile(@Nonnull byte[] modifiedClassfile) {
+        RELINKABLE_CLASSFILES.put(modifiedClassfile, Boolean.TRUE);
+    }
+
+    public static boolean isRelinkable(@Nonnull byte[] modifiedClassfile) {
+        return RELINKABLE_CLASSFILES.containsKey(modifiedClassfile);
+    }
+
+    /**
+     * Makes all call sites in the given class proceed into the real implementation, including any not linked yet.
+     */
+    public static void unlink(@Nonnull Class<?> mockedClass) {
+        CALL_SITES.get(mockedClass).unlink();
+    }
+
+    /**
+     * Links all call sites in the given class back to the handling of mocked invocations, if previously
+     * {@linkplain #unlink(Class) unlinked}.
+     */
+    public static void relink(@Nonnull Class<?> mockedClass) {
+        CALL_SITES.get(mockedClass).relink();
+    }
+}
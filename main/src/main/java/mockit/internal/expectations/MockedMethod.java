@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The static information about a mocked method or constructor which is needed when handling its invocations.
+ * <p>
+ * Each distinct mocked method gets registered once, when its class is modified, so that the modified code only needs
+ * to pass the {@linkplain #id id} of the method along with the invocation arguments, rather than the method name and
+ * descriptors. The same id is reused when the same method is modified again, for example when its class gets mocked in
+ * another test.
+ */
+public final class MockedMethod {
+    @Nonnull
+    private static final Map<String, MockedMethod> REGISTERED_METHODS = new HashMap<>();
+    @Nonnull
+    private static volatile MockedMethod[] methodsById = new MockedMethod[256];
+
+    @Nonnegative
+    public final int id;
+    public final int access;
+    @Nonnull
+    public final String classDesc;
+    @Nonnull
+    public final String nameAndDesc;
+    @Nullable
+    public final String genericSignature;
+    @Nonnull
+    public final ExecutionMode executionMode;
+
+    private MockedMethod(@Nonnegative int id, int access, @Nonnull String classDesc, @Nonnull String nameAndDesc,
+            @Nullable String genericSignature, @Nonnull ExecutionMode executionMode) {
+        this.id = id;
+        this.access = access;
+        this.classDesc = classDesc;
+        this.nameAndDesc = nameAndDesc;
+        this.genericSignature = genericSignature;
+        this.executionMode = executionMode;
+    }
+
+    /**
+     * Registers a mocked method, unless already registered.
+     *
+     * @return the id of the mocked method, to be passed from modified code
+     */
+    @Nonnegative
+    public static synchronized int register(int access, @Nonnull String classDesc, @Nonnull String nameAndDesc,
+            @Nullable String genericSignature, @Nonnull ExecutionMode executionMode) {
+        String key = access + ":" + executionMode.ordinal() + ':' + classDesc + ':' + nameAndDesc + ':'
+                + genericSignature;
+        MockedMethod mockedMethod = REGISTERED_METHODS.get(key);
+
+        if (mockedMethod == null) {
+            int id = REGISTERED_METHODS.size();
+            mockedMethod = new MockedMethod(id, access, classDesc, nameAndDesc, genericSignature, executionMode);
+            REGISTERED_METHODS.put(key, mockedMethod);
+            publish(mockedMethod);
+        }
+
+        return mockedMethod.id;
+    }
+
+    private static void publish(@Nonnull MockedMethod mockedMethod) {
+        MockedMethod[] methods = methodsById;
+        int id = mockedMethod.id;
+
+        if (id >= methods.length) {
+            methods = Arrays.copyOf(methods, 2 * methods.length);
+        }
+
+        methods[id] = mockedMethod;
+
+        // Written back even if not replaced, so that the new element is visible to threads reading the array.
+        methodsById = methods;
+    }
+
+    @Nonnull
+    public static MockedMethod get(@Nonnegative int id) {
+        return methodsById[id];
+    }
+}
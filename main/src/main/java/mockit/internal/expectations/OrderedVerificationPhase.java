@@ -13,27 +13,28 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import mockit.internal.expectations.ReplayLog.BoundedInvocations;
+import mockit.internal.expectations.ReplayLog.DiscardedInvocations;
 import mockit.internal.expectations.invocation.ExpectedInvocation;
 
 final class OrderedVerificationPhase extends BaseVerificationPhase {
     @Nonnegative
     private final int expectationCount;
     @Nonnegative
-    private int indexIncrement;
+    private int replayIndex;
 
     OrderedVerificationPhase(@Nonnull ReplayPhase replayPhase) {
         super(replayPhase);
-        discardExpectationsAndArgumentsAlreadyVerified(replayPhase.invocations);
-        expectationCount = replayPhase.invocations.size();
-        indexIncrement = 1;
+        discardExpectationsAndArgumentsAlreadyVerified(replayPhase.log);
+        expectationCount = replayPhase.log.size();
     }
 
-    private void discardExpectationsAndArgumentsAlreadyVerified(List<Expectation> expectationsInReplayOrder) {
+    private void discardExpectationsAndArgumentsAlreadyVerified(@Nonnull ReplayLog replayLog) {
         for (VerifiedExpectation verified : executionState.verifiedExpectations) {
-            int i = expectationsInReplayOrder.indexOf(verified.expectation);
+            int i = replayLog.indexOf(verified.expectation);
 
             if (i >= 0) {
-                expectationsInReplayOrder.set(i, null);
+                replayLog.discard(i);
             }
         }
     }
@@ -43,14 +44,20 @@ final class OrderedVerificationPhase extends BaseVerificationPhase {
     List<ExpectedInvocation> findExpectation(@Nullable Object mock, @Nonnull String mockClassDesc,
             @Nonnull String mockNameAndDesc, @Nonnull Object[] args) {
         Expectation expectation = currentVerification;
-        int i = replayIndex;
+        ReplayLog replayLog = replayPhase.log;
+        verifyNoMatchingInvocationsInBoundedReplayMode(replayLog, mock, mockClassDesc, mockNameAndDesc);
 
-        while (i >= 0 && i < expectationCount) {
-            Expectation replayExpectation = replayPhase.invocations.get(i);
-            Object replayInstance = replayPhase.invocationInstances.get(i);
-            Object[] replayArgs = replayPhase.invocationArguments.get(i);
+        // Only the invocations which can match the verified one are visited, starting from the current position.
+        ReplayLog.Positions candidates = replayLog.getCandidatePositions(mock, mockClassDesc, mockNameAndDesc);
 
-            i += indexIncrement;
+        for (int c = candidates.indexOfFirstAtOrAfter(replayIndex), n = candidates.size(); c < n; c++) {
+            int i = candidates.get(c);
+
+            if (i >= expectationCount) {
+                break;
+            }
+
+            Expectation replayExpectation = replayLog.getExpectation(i);
 
             if (replayExpectation == null) {
                 continue;
@@ -60,11 +67,12 @@ final class OrderedVerificationPhase extends BaseVerificationPhase {
                 matchInstance = true;
             }
 
+            Object replayInstance = replayLog.getInstance(i);
+            Object[] replayArgs = replayLog.getArguments(i);
+
             if (matches(mock, mockClassDesc, mockNameAndDesc, args, replayExpectation, replayInstance, replayArgs)) {
                 currentExpectation = replayExpectation;
-                i += 1 - indexIncrement;
-                indexIncrement = 1;
-                replayIndex = i;
+                replayIndex = i + 1;
 
                 if (expectation != null) {
                     expectation.constraints.invocationCount++;
@@ -77,6 +85,46 @@ final class OrderedVerificationPhase extends BaseVerificationPhase {
         return emptyList();
     }
 
+    /**
+     * Verifies that no invocation in bounded replay mode can match the verified one, since such invocations have no
+     * position in the replay log.
+     *
+     * @throws IllegalStateException if some invocation in bounded replay mode is to the same method and instance
+     */
+    private void verifyNoMatchingInvocationsInBoundedReplayMode(@Nonnull ReplayLog replayLog, @Nullable Object mock,
+            @Nonnull String mockClassDesc, @Nonnull String mockNameAndDesc) {
+        List<BoundedInvocations> boundedCandidates = replayLog.getBoundedCandidates(mock, mockClassDesc,
+                mockNameAndDesc);
+
+        if (boundedCandidates.isEmpty()) {
+            return;
+        }
+
+        if (!matchInstance && executionState.isToBeMatchedOnInstance(mock, mockNameAndDesc)) {
+            matchInstance = true;
+        }
+
+        for (BoundedInvocations bounded : boundedCandidates) {
+            for (DiscardedInvocations discarded : bounded.getDiscarded()) {
+                verifyNotMatchingInvocationInBoundedReplayMode(mock, mockClassDesc, mockNameAndDesc,
+                        discarded.expectation);
+            }
+
+            for (int i = 0, n = bounded.recentCount(); i < n; i++) {
+                verifyNotMatchingInvocationInBoundedReplayMode(mock, mockClassDesc, mockNameAndDesc,
+                        bounded.getRecentExpectation(i));
+            }
+        }
+    }
+
+    private void verifyNotMatchingInvocationInBoundedReplayMode(@Nullable Object mock, @Nonnull String mockClassDesc,
+            @Nonnull String mockNameAndDesc, @Nonnull Expectation replayExpectation) {
+        if (isMatchingMethodAndInstance(mock, mockClassDesc, mockNameAndDesc, replayExpectation)) {
+            throw new IllegalStateException("Invocations to " + replayExpectation.invocation
+                    + " were replayed in bounded replay mode, so they can't be verified in order");
+        }
+    }
+
     @Override
     void addVerifiedExpectation(@Nonnull Expectation expectation, @Nonnull Object[] args) {
         VerifiedExpectation verifiedExpectation = new VerifiedExpectation(expectation, args, argMatchers, replayIndex);
@@ -102,9 +150,22 @@ final class OrderedVerificationPhase extends BaseVerificationPhase {
         ExpectedInvocation invocation = verifying.invocation;
         argMatchers = invocation.arguments.getMatchers();
         int invocationCount = 1;
+        ReplayLog replayLog = replayPhase.log;
+        ReplayLog.Positions candidates = replayLog.getCandidatePositions(invocation.instance,
+                invocation.getClassDesc(), invocation.getMethodNameAndDescription());
 
         while (replayIndex < expectationCount) {
-            Expectation replayExpectation = replayPhase.invocations.get(replayIndex);
+            if (invocationCount < minInvocations) {
+                // Invocations which can't match are skipped over, since only matching ones are counted.
+                int nextCandidate = candidates.getFirstAtOrAfter(replayIndex);
+                replayIndex = nextCandidate < 0 ? expectationCount : Math.min(nextCandidate, expectationCount);
+
+                if (replayIndex == expectationCount) {
+                    break;
+                }
+            }
+
+            Expectation replayExpectation = replayLog.getExpectation(replayIndex);
 
             if (replayExpectation != null && matchesCurrentVerification(invocation, replayExpectation)) {
                 invocationCount++;
@@ -147,8 +208,8 @@ final class OrderedVerificationPhase extends BaseVerificationPhase {
             matchInstance = true;
         }
 
-        Object replayInstance = replayPhase.invocationInstances.get(replayIndex);
-        Object[] replayArgs = replayPhase.invocationArguments.get(replayIndex);
+        Object replayInstance = replayPhase.log.getInstance(replayIndex);
+        Object[] replayArgs = replayPhase.log.getArguments(replayIndex);
 
         return matches(mock, mockClassDesc, mockNameAndDesc, args, replayExpectation, replayInstance, replayArgs);
     }
@@ -158,7 +219,7 @@ final class OrderedVerificationPhase extends BaseVerificationPhase {
             int n = verifying.constraints.invocationCount - maxInvocations;
 
             if (n > 0) {
-                Object[] replayArgs = replayPhase.invocationArguments.get(replayIndex - 1);
+                Object[] replayArgs = replayPhase.log.getArguments(replayIndex - 1);
                 throw verifying.invocation.errorForUnexpectedInvocations(replayArgs, n);
             }
         }
@@ -19,6 +19,8 @@ final class PhasedExecutionState {
     @Nonnull
     final List<Expectation> expectations;
     @Nonnull
+    private final ExpectationIndex expectationIndex;
+    @Nonnull
     final List<VerifiedExpectation> verifiedExpectations;
     @Nonnull
     final EquivalentInstances equivalentInstances;
@@ -29,6 +31,7 @@ final class PhasedExecutionState {
 
     PhasedExecutionState() {
         expectations = new ArrayList<>();
+        expectationIndex = new ExpectationIndex();
         verifiedExpectations = new ArrayList<>();
         equivalentInstances = new EquivalentInstances();
         instanceBasedMatching = new InstanceBasedMatching();
@@ -39,6 +42,7 @@ final class PhasedExecutionState {
         forceMatchingOnMockInstanceIfRequired(invocation);
         removeMatchingExpectationsCreatedBefore(invocation);
         expectations.add(expectation);
+        expectationIndex.add(expectation);
     }
 
     private void forceMatchingOnMockInstanceIfRequired(@Nonnull ExpectedInvocation invocation) {
@@ -66,15 +70,14 @@ final class PhasedExecutionState {
 
         if (previousExpectation != null) {
             expectations.remove(previousExpectation);
+            expectationIndex.remove(previousExpectation);
             invocation.copyDefaultReturnValue(previousExpectation.invocation);
         }
     }
 
     @Nullable
     private Expectation findPreviousExpectation(@Nonnull ExpectedInvocation newInvocation) {
-        int n = expectations.size();
-
-        if (n == 0) {
+        if (expectations.isEmpty()) {
             return null;
         }
 
@@ -85,7 +88,7 @@ final class PhasedExecutionState {
         String mockNameAndDesc = newInvocation.getMethodNameAndDescription();
         boolean isConstructor = newInvocation.isConstructor();
 
-        for (Expectation previous : expectations) {
+        for (Expectation previous : expectationIndex.getCandidates(mock, mockClassDesc, mockNameAndDesc)) {
             if (isMatchingInvocation(mock, matchInstance, mockClassDesc, mockNameAndDesc, isConstructor, previous)
                     && isWithMatchingArguments(newInvocation, previous.invocation)) {
                 return previous;
@@ -137,9 +140,8 @@ final class PhasedExecutionState {
         boolean isConstructor = mockNameAndDesc.charAt(0) == '<';
         Expectation replayExpectationFound = null;
 
-        // Note: new expectations might get added to the list, so a regular loop would cause a CME:
-        // noinspection ForLoopReplaceableByForEach
-        for (Expectation expectation : expectations) {
+        // Only the expectations for the invoked method are checked, in the order they were added.
+        for (Expectation expectation : expectationIndex.getCandidates(mock, mockClassDesc, mockNameAndDesc)) {
             if (replayExpectationFound != null && expectation.recordPhase == null) {
                 continue;
             }
@@ -162,6 +164,25 @@ final class PhasedExecutionState {
         return replayExpectationFound;
     }
 
+    /**
+     * Finds an expectation created during replay for the same mocked method and instance as an invocation, regardless
+     * of its arguments.
+     */
+    @Nullable
+    Expectation findReplayExpectationIgnoringArguments(@Nullable Object mock, @Nonnull String mockClassDesc,
+            @Nonnull String mockNameAndDesc) {
+        boolean isConstructor = mockNameAndDesc.charAt(0) == '<';
+
+        for (Expectation expectation : expectationIndex.getCandidates(mock, mockClassDesc, mockNameAndDesc)) {
+            if (expectation.recordPhase == null
+                    && isMatchingInvocation(mock, null, mockClassDesc, mockNameAndDesc, isConstructor, expectation)) {
+                return expectation;
+            }
+        }
+
+        return null;
+    }
+
     private boolean isMatchingInstance(@Nonnull Object invokedInstance, @Nullable Boolean matchInstance,
             @Nonnull Expectation expectation) {
         ExpectedInvocation invocation = expectation.invocation;
@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -26,9 +27,6 @@ import mockit.internal.util.DefaultValues;
 import mockit.internal.util.ObjectMethods;
 
 public final class RecordAndReplayExecution {
-    public static final ReentrantLock RECORD_OR_REPLAY_LOCK = new ReentrantLock();
-    public static final ReentrantLock TEST_ONLY_PHASE_LOCK = new ReentrantLock();
-
     @Nullable
     private final PartialMocking partialMocking;
     @Nonnull
@@ -68,7 +66,7 @@ public final class RecordAndReplayExecution {
             discoverMockedTypesAndInstancesForMatchingOnInstance();
 
             // noinspection LockAcquiredButNotSafelyReleased
-            TEST_ONLY_PHASE_LOCK.lock();
+            executingTest.testOnlyPhaseLock.lock();
         } catch (RuntimeException e) {
             executingTest.setRecordAndReplay(null);
             throw e;
@@ -105,6 +103,7 @@ public final class RecordAndReplayExecution {
             return null;
         }
 
+        TestRun.verifyNotRunningConcurrently("Partial mocking");
         PartialMocking mocking = new PartialMocking();
         mocking.redefineTypes(instances);
         return mocking;
@@ -116,25 +115,52 @@ public final class RecordAndReplayExecution {
     }
 
     /**
-     * Only to be called from generated bytecode or from the Mocking Bridge.
+     * Only to be called from generated bytecode.
+     *
+     * @param mockedMethodId
+     *            the id of the {@linkplain MockedMethod mocked method} being invoked
      */
     @Nullable
-    public static Object recordOrReplay(@Nullable Object mock, int mockAccess, @Nonnull String classDesc,
-            @Nonnull String mockDesc, @Nullable String genericSignature, int executionModeOrdinal,
+    public static Object recordOrReplay(@Nullable Object mock, @Nonnegative int mockedMethodId,
             @Nullable Object[] args) throws Throwable {
-        @Nonnull
-        Object[] mockArgs = args == null ? NO_ARGS : args;
-        ExecutionMode executionMode = ExecutionMode.values()[executionModeOrdinal];
+        return recordOrReplay(mock, MockedMethod.get(mockedMethodId), args == null ? NO_ARGS : args);
+    }
 
-        if (notToBeMocked(mock, classDesc)) {
+    /**
+     * Only to be called from generated bytecode or from the Mocking Bridge.
+     */
+    @Nullable
+    public static Object recordOrReplay(@Nullable Object mock, @Nonnull MockedMethod mockedMethod,
+            @Nonnull Object[] mockArgs) throws Throwable {
+        if (!TestRun.enterTestOwningMock(mock)) {
+            return recordOrReplayInCurrentTest(mock, mockedMethod, mockArgs);
+        }
+
+        try {
+            return recordOrReplayInCurrentTest(mock, mockedMethod, mockArgs);
+        } finally {
+            TestRun.exitTestOwningMock();
+        }
+    }
+
+    @Nullable
+    private static Object recordOrReplayInCurrentTest(@Nullable Object mock, @Nonnull MockedMethod mockedMethod,
+            @Nonnull Object[] mockArgs) throws Throwable {
+        int mockAccess = mockedMethod.access;
+        String classDesc = mockedMethod.classDesc;
+        String mockDesc = mockedMethod.nameAndDesc;
+        String genericSignature = mockedMethod.genericSignature;
+        ExecutionMode executionMode = mockedMethod.executionMode;
+
+        ExecutingTest executingTest = TestRun.getExecutingTest();
+
+        if (notToBeMocked(executingTest, mock, classDesc)) {
             // This occurs if called from a custom argument matching method, in a call to an overridden Object method
             // (equals, hashCode,
             // toString), from a different thread during recording/verification, or during replay but between tests.
             return defaultReturnValue(mock, classDesc, mockDesc, genericSignature, executionMode, mockArgs);
         }
 
-        ExecutingTest executingTest = TestRun.getExecutingTest();
-
         if (executingTest.isShouldIgnoreMockingCallbacks()) {
             // This occurs when called from a reentrant delegate method, or during static initialization of a mocked
             // class.
@@ -148,7 +174,8 @@ public final class RecordAndReplayExecution {
         }
 
         boolean isConstructor = mock != null && mockDesc.startsWith("<init>");
-        RECORD_OR_REPLAY_LOCK.lock();
+        ReentrantLock recordOrReplayLock = executingTest.recordOrReplayLock;
+        recordOrReplayLock.lock();
 
         try {
             RecordAndReplayExecution instance = executingTest.getOrCreateRecordAndReplay();
@@ -159,13 +186,15 @@ public final class RecordAndReplayExecution {
 
             return instance.getResult(mock, mockAccess, classDesc, mockDesc, genericSignature, executionMode, mockArgs);
         } finally {
-            RECORD_OR_REPLAY_LOCK.unlock();
+            recordOrReplayLock.unlock();
         }
     }
 
-    private static boolean notToBeMocked(@Nullable Object mock, @Nonnull String classDesc) {
-        return RECORD_OR_REPLAY_LOCK.isHeldByCurrentThread()
-                || TEST_ONLY_PHASE_LOCK.isLocked() && !TEST_ONLY_PHASE_LOCK.isHeldByCurrentThread()
+    private static boolean notToBeMocked(@Nonnull ExecutingTest executingTest, @Nullable Object mock,
+            @Nonnull String classDesc) {
+        ReentrantLock testOnlyPhaseLock = executingTest.testOnlyPhaseLock;
+        return executingTest.recordOrReplayLock.isHeldByCurrentThread()
+                || testOnlyPhaseLock.isLocked() && !testOnlyPhaseLock.isHeldByCurrentThread()
                 || !TestRun.mockFixture().isStillMocked(mock, classDesc);
     }
 
@@ -323,8 +352,10 @@ public final class RecordAndReplayExecution {
 
     @Nullable
     private Error endExecution() {
-        if (TEST_ONLY_PHASE_LOCK.isLocked()) {
-            TEST_ONLY_PHASE_LOCK.unlock();
+        ReentrantLock testOnlyPhaseLock = TestRun.getExecutingTest().testOnlyPhaseLock;
+
+        if (testOnlyPhaseLock.isLocked()) {
+            testOnlyPhaseLock.unlock();
         }
 
         ReplayPhase replay = switchFromRecordToReplayIfNotYet();
@@ -358,7 +389,7 @@ public final class RecordAndReplayExecution {
     }
 
     void endInvocations() {
-        TEST_ONLY_PHASE_LOCK.unlock();
+        TestRun.getExecutingTest().testOnlyPhaseLock.unlock();
 
         if (verificationPhase == null) {
             switchFromRecordToReplayIfNotYet();
@@ -0,0 +1,444 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import mockit.BoundedReplay;
+import mockit.internal.expectations.invocation.ExpectedInvocation;
+import mockit.internal.state.TestRun;
+
+/**
+ * The invocations to mocked types made during replay, in the order they occurred, each one with the expectation it
+ * matched or created, the invoked instance, and the invocation arguments.
+ * <p>
+ * Besides being kept in parallel arrays, the positions of invocations are also indexed by the name and class of the
+ * mocked method in the expectation, so that verifications only need to look at the invocations which can match a
+ * verified one, as done for expectations by {@link ExpectationIndex}.
+ * <p>
+ * Invocations to mocks in {@linkplain BoundedReplay bounded replay} mode are kept apart, with only the most recent
+ * ones for each mocked method and annotation being retained in full, while older ones are reduced to a count for each
+ * expectation. Such invocations have no position in the log, so they can't be verified in order.
+ */
+final class ReplayLog {
+    private static final Positions NO_POSITIONS = new Positions();
+
+    @Nonnull
+    private Expectation[] expectations;
+    @Nonnull
+    private Object[] instances;
+    @Nonnull
+    private Object[][] arguments;
+    @Nonnegative
+    private int size;
+    @Nonnull
+    private final Map<String, SameNamePositions> methodNameToPositions;
+    @Nonnull
+    private final List<BoundedInvocations> boundedInvocations;
+
+    ReplayLog() {
+        expectations = new Expectation[16];
+        instances = new Object[16];
+        arguments = new Object[16][];
+        methodNameToPositions = new HashMap<>();
+        boundedInvocations = new ArrayList<>();
+    }
+
+    /**
+     * An ascending list of positions in the log.
+     */
+    static final class Positions {
+        @Nonnull
+        private int[] values = new int[4];
+        @Nonnegative
+        private int count;
+
+        private void add(@Nonnegative int position) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
+
+            values[count++] = position;
+        }
+
+        @Nonnegative
+        int size() {
+            return count;
+        }
+
+        @Nonnegative
+        int get(@Nonnegative int i) {
+            return values[i];
+        }
+
+        /**
+         * Finds the index of the first position which is not less than the given one.
+         *
+         * @return the index, or {@link #size()} if all positions are less than the given one
+         */
+        @Nonnegative
+        int indexOfFirstAtOrAfter(@Nonnegative int position) {
+            int low = 0;
+            int high = count;
+
+            while (low < high) {
+                int middle = low + high >>> 1;
+
+                if (values[middle] < position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        /**
+         * Finds the first position which is not less than the given one.
+         *
+         * @return the position, or <code>-1</code> if none
+         */
+        int getFirstAtOrAfter(@Nonnegative int position) {
+            int i = indexOfFirstAtOrAfter(position);
+            return i < count ? values[i] : -1;
+        }
+    }
+
+    /**
+     * The invocations in bounded replay mode to a given method, under a given annotation: a ring buffer with the most
+     * recent invocations, sized by the annotation, and the number of older invocations for each expectation.
+     */
+    static final class BoundedInvocations {
+        @Nonnull
+        private final String methodNameAndDesc;
+        @Nonnull
+        private final BoundedReplay boundedReplay;
+        @Nonnull
+        private final Expectation[] recentExpectations;
+        @Nonnull
+        private final Object[] recentInstances;
+        @Nonnull
+        private final Object[][] recentArguments;
+        @Nonnegative
+        private int next;
+        @Nonnegative
+        private int recentCount;
+
+        // Keyed by identity, since expectations don't override "equals". Older invocations don't keep the instances
+        // they were made on alive, as matching them on instance only needs the one held by the expectation.
+        @Nonnull
+        private final Map<Expectation, DiscardedInvocations> discarded;
+
+        private BoundedInvocations(@Nonnull String methodNameAndDesc, @Nonnull BoundedReplay boundedReplay) {
+            this.methodNameAndDesc = methodNameAndDesc;
+            this.boundedReplay = boundedReplay;
+            int capacity = boundedReplay.recentInvocations();
+            recentExpectations = new Expectation[capacity];
+            recentInstances = new Object[capacity];
+            recentArguments = new Object[capacity][];
+            discarded = new LinkedHashMap<>(2);
+        }
+
+        private boolean isFor(@Nonnull String nameAndDesc, @Nonnull BoundedReplay annotation) {
+            return boundedReplay == annotation && methodNameAndDesc.equals(nameAndDesc);
+        }
+
+        private void add(@Nonnull Expectation expectation, @Nullable Object instance, @Nonnull Object[] args) {
+            int capacity = recentExpectations.length;
+
+            if (capacity == 0) {
+                addDiscarded(expectation);
+                return;
+            }
+
+            if (recentCount == capacity) {
+                addDiscarded(recentExpectations[next]);
+            } else {
+                recentCount++;
+            }
+
+            recentExpectations[next] = expectation;
+            recentInstances[next] = instance;
+            recentArguments[next] = args;
+            next = (next + 1) % capacity;
+        }
+
+        private void addDiscarded(@Nonnull Expectation expectation) {
+            DiscardedInvocations invocations = discarded.get(expectation);
+
+            if (invocations == null) {
+                discarded.put(expectation, new DiscardedInvocations(expectation));
+            } else {
+                invocations.count++;
+            }
+        }
+
+        /**
+         * Gets the invocations whose arguments were discarded, for each expectation in the order it was first
+         * discarded.
+         */
+        @Nonnull
+        Collection<DiscardedInvocations> getDiscarded() {
+            return discarded.values();
+        }
+
+        /**
+         * Gets the number of recent invocations retained in full, which are then accessed by an index from
+         * <code>0</code> for the oldest to <code>recentCount() - 1</code> for the newest.
+         */
+        @Nonnegative
+        int recentCount() {
+            return recentCount;
+        }
+
+        @Nonnegative
+        private int toRingIndex(@Nonnegative int i) {
+            int capacity = recentExpectations.length;
+            return recentCount < capacity ? i : (next + i) % capacity;
+        }
+
+        @Nonnull
+        Expectation getRecentExpectation(@Nonnegative int i) {
+            return recentExpectations[toRingIndex(i)];
+        }
+
+        @Nullable
+        Object getRecentInstance(@Nonnegative int i) {
+            return recentInstances[toRingIndex(i)];
+        }
+
+        @Nonnull
+        Object[] getRecentArguments(@Nonnegative int i) {
+            return recentArguments[toRingIndex(i)];
+        }
+    }
+
+    /**
+     * The number of invocations in bounded replay mode for a given expectation whose arguments were discarded, and
+     * whether they were all matched by some verification.
+     */
+    static final class DiscardedInvocations {
+        @Nonnull
+        final Expectation expectation;
+        @Nonnegative
+        int count;
+        boolean verified;
+
+        private DiscardedInvocations(@Nonnull Expectation expectation) {
+            this.expectation = expectation;
+            count = 1;
+        }
+    }
+
+    private static final class SameNamePositions {
+        @Nonnull
+        final Positions inAnyClass = new Positions();
+        @Nonnull
+        final Map<String, Positions> classDescToPositions = new HashMap<>(2);
+        // For each class, one element per overloaded method and annotation, so there are only a few.
+        @Nullable
+        Map<String, List<BoundedInvocations>> classDescToBoundedInvocations;
+    }
+
+    @Nonnull
+    private static String getMethodName(@Nonnull String methodNameAndDesc) {
+        int p = methodNameAndDesc.indexOf('(');
+        return p < 0 ? methodNameAndDesc : methodNameAndDesc.substring(0, p);
+    }
+
+    void add(@Nonnull Expectation expectation, @Nullable Object instance, @Nonnull Object[] args) {
+        if (size == expectations.length) {
+            int newCapacity = 2 * size;
+            expectations = Arrays.copyOf(expectations, newCapacity);
+            instances = Arrays.copyOf(instances, newCapacity);
+            arguments = Arrays.copyOf(arguments, newCapacity);
+        }
+
+        int position = size;
+        expectations[position] = expectation;
+        instances[position] = instance;
+        arguments[position] = args;
+        size++;
+
+        ExpectedInvocation invocation = expectation.invocation;
+        SameNamePositions sameName = getSameNamePositions(invocation);
+
+        sameName.inAnyClass.add(position);
+        sameName.classDescToPositions.computeIfAbsent(invocation.getClassDesc(), desc -> new Positions())
+                .add(position);
+    }
+
+    @Nonnull
+    private SameNamePositions getSameNamePositions(@Nonnull ExpectedInvocation invocation) {
+        String methodName = getMethodName(invocation.getMethodNameAndDescription());
+        return methodNameToPositions.computeIfAbsent(methodName, name -> new SameNamePositions());
+    }
+
+    /**
+     * Adds an invocation in bounded replay mode, retaining its arguments only until there are as many more recent
+     * invocations to the same method under the same annotation as the annotation specifies.
+     */
+    void addBounded(@Nonnull Expectation expectation, @Nullable Object instance, @Nonnull Object[] args,
+            @Nonnull BoundedReplay boundedReplay) {
+        ExpectedInvocation invocation = expectation.invocation;
+        SameNamePositions sameName = getSameNamePositions(invocation);
+        Map<String, List<BoundedInvocations>> classDescToBoundedInvocations = sameName.classDescToBoundedInvocations;
+
+        if (classDescToBoundedInvocations == null) {
+            sameName.classDescToBoundedInvocations = classDescToBoundedInvocations = new HashMap<>(2);
+        }
+
+        List<BoundedInvocations> sameClass = classDescToBoundedInvocations.computeIfAbsent(invocation.getClassDesc(),
+                desc -> new ArrayList<>(2));
+        String methodNameAndDesc = invocation.getMethodNameAndDescription();
+        BoundedInvocations bounded = null;
+
+        for (BoundedInvocations sameMethod : sameClass) {
+            if (sameMethod.isFor(methodNameAndDesc, boundedReplay)) {
+                bounded = sameMethod;
+                break;
+            }
+        }
+
+        if (bounded == null) {
+            bounded = new BoundedInvocations(methodNameAndDesc, boundedReplay);
+            sameClass.add(bounded);
+            boundedInvocations.add(bounded);
+        }
+
+        bounded.add(expectation, instance, args);
+    }
+
+    @Nonnegative
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the expectation for the invocation at the given position, or <code>null</code> if {@linkplain #discard
+     * discarded}.
+     */
+    @Nullable
+    Expectation getExpectation(@Nonnegative int position) {
+        return expectations[position];
+    }
+
+    @Nullable
+    Object getInstance(@Nonnegative int position) {
+        return instances[position];
+    }
+
+    @Nonnull
+    Object[] getArguments(@Nonnegative int position) {
+        return arguments[position];
+    }
+
+    /**
+     * Discards the expectation at the given position, so that it no longer gets verified in order.
+     */
+    void discard(@Nonnegative int position) {
+        expectations[position] = null;
+    }
+
+    /**
+     * Finds the first position holding the given expectation.
+     *
+     * @return the position, or <code>-1</code> if not found
+     */
+    int indexOf(@Nonnull Expectation expectation) {
+        ExpectedInvocation invocation = expectation.invocation;
+        SameNamePositions sameName = methodNameToPositions
+                .get(getMethodName(invocation.getMethodNameAndDescription()));
+
+        if (sameName != null) {
+            Positions sameClass = sameName.classDescToPositions.get(invocation.getClassDesc());
+
+            if (sameClass != null) {
+                for (int i = 0, n = sameClass.size(); i < n; i++) {
+                    int position = sameClass.get(i);
+
+                    if (expectations[position] == expectation) {
+                        return position;
+                    }
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets the positions of the invocations whose expectations are for a mocked method which an invocation of the given
+     * one could match, in ascending order. Positions of discarded expectations are included.
+     */
+    @Nonnull
+    Positions getCandidatePositions(@Nullable Object mock, @Nonnull String mockClassDesc,
+            @Nonnull String mockNameAndDesc) {
+        SameNamePositions sameName = methodNameToPositions.get(getMethodName(mockNameAndDesc));
+
+        if (sameName == null) {
+            return NO_POSITIONS;
+        }
+
+        if (mock != null && TestRun.mockFixture().isCaptured(mock)) {
+            return sameName.inAnyClass;
+        }
+
+        Positions sameClass = sameName.classDescToPositions.get(mockClassDesc);
+        return sameClass == null ? NO_POSITIONS : sameClass;
+    }
+
+    /**
+     * Gets the invocations in bounded replay mode to methods which an invocation of the given one could match.
+     */
+    @Nonnull
+    List<BoundedInvocations> getBoundedCandidates(@Nullable Object mock, @Nonnull String mockClassDesc,
+            @Nonnull String mockNameAndDesc) {
+        if (boundedInvocations.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        SameNamePositions sameName = methodNameToPositions.get(getMethodName(mockNameAndDesc));
+        Map<String, List<BoundedInvocations>> classDescToBoundedInvocations = sameName == null ? null
+                : sameName.classDescToBoundedInvocations;
+
+        if (classDescToBoundedInvocations == null) {
+            return Collections.emptyList();
+        }
+
+        if (mock != null && TestRun.mockFixture().isCaptured(mock)) {
+            List<BoundedInvocations> inAnyClass = new ArrayList<>();
+
+            for (List<BoundedInvocations> sameClass : classDescToBoundedInvocations.values()) {
+                inAnyClass.addAll(sameClass);
+            }
+
+            return inAnyClass;
+        }
+
+        List<BoundedInvocations> sameClass = classDescToBoundedInvocations.get(mockClassDesc);
+        return sameClass == null ? Collections.emptyList() : sameClass;
+    }
+
+    /**
+     * Gets all invocations in bounded replay mode, grouped by method and annotation.
+     */
+    @Nonnull
+    List<BoundedInvocations> getBoundedInvocations() {
+        return boundedInvocations;
+    }
+}
@@ -11,26 +11,24 @@ import java.util.Map;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import mockit.BoundedReplay;
+import mockit.internal.expectations.ReplayLog.BoundedInvocations;
+import mockit.internal.expectations.ReplayLog.DiscardedInvocations;
 import mockit.internal.expectations.invocation.ExpectedInvocation;
 import mockit.internal.expectations.invocation.InvocationConstraints;
 import mockit.internal.expectations.invocation.UnexpectedInvocation;
+import mockit.internal.state.TestRun;
 
 final class ReplayPhase extends Phase {
     @Nonnull
     final FailureState failureState;
     @Nonnull
-    final List<Expectation> invocations;
-    @Nonnull
-    final List<Object> invocationInstances;
-    @Nonnull
-    final List<Object[]> invocationArguments;
+    final ReplayLog log;
 
     ReplayPhase(@Nonnull PhasedExecutionState executionState, @Nonnull FailureState failureState) {
         super(executionState);
         this.failureState = failureState;
-        invocations = new ArrayList<>();
-        invocationInstances = new ArrayList<>();
-        invocationArguments = new ArrayList<>();
+        log = new ReplayLog();
     }
 
     @Override
@@ -38,20 +36,34 @@ final class ReplayPhase extends Phase {
     Object handleInvocation(@Nullable Object mock, int mockAccess, @Nonnull String mockClassDesc,
             @Nonnull String mockNameAndDesc, @Nullable String genericSignature, boolean withRealImpl,
             @Nonnull Object[] args) throws Throwable {
+        BoundedReplay boundedReplay = TestRun.getExecutingTest().getBoundedReplay(mock);
         Expectation expectation = executionState.findExpectation(mock, mockClassDesc, mockNameAndDesc, args);
         Object replacementInstance = mock == null ? null
                 : executionState.equivalentInstances.getReplacementInstanceForMethodInvocation(mock, mockNameAndDesc);
 
         if (expectation == null) {
-            expectation = createExpectation(replacementInstance == null ? mock : replacementInstance, mockAccess,
-                    mockClassDesc, mockNameAndDesc, genericSignature, args);
+            Object instance = replacementInstance == null ? mock : replacementInstance;
+
+            if (boundedReplay != null && mockNameAndDesc.charAt(0) != '<') {
+                // A single expectation is shared by invocations with different arguments, to keep memory bounded.
+                expectation = executionState.findReplayExpectationIgnoringArguments(instance, mockClassDesc,
+                        mockNameAndDesc);
+            }
+
+            if (expectation == null) {
+                expectation = createExpectation(instance, mockAccess, mockClassDesc, mockNameAndDesc,
+                        genericSignature, args);
+            }
         } else if (expectation.recordPhase != null) {
             registerNewInstanceAsEquivalentToOneFromRecordedConstructorInvocation(mock, expectation.invocation);
         }
 
-        invocations.add(expectation);
-        invocationInstances.add(mock);
-        invocationArguments.add(args);
+        if (boundedReplay == null) {
+            log.add(expectation, mock, args);
+        } else {
+            log.addBounded(expectation, mock, args, boundedReplay);
+        }
+
         expectation.constraints.incrementInvocationCount();
 
         return produceResult(expectation, mock, withRealImpl, args);
@@ -118,17 +130,34 @@ final class ReplayPhase extends Phase {
 
     @Nonnull
     private List<ExpectedInvocation> getNonMatchingInvocations(@Nonnull Expectation unsatisfiedExpectation) {
-        ExpectedInvocation unsatisfiedInvocation = unsatisfiedExpectation.invocation;
         List<ExpectedInvocation> nonMatchingInvocations = new ArrayList<>();
 
-        for (Expectation replayedExpectation : invocations) {
-            ExpectedInvocation replayedInvocation = replayedExpectation.invocation;
+        for (int i = 0, n = log.size(); i < n; i++) {
+            Expectation replayedExpectation = log.getExpectation(i);
 
-            if (replayedExpectation != unsatisfiedExpectation && replayedInvocation.isMatch(unsatisfiedInvocation)) {
-                nonMatchingInvocations.add(replayedInvocation);
+            if (replayedExpectation != null) {
+                addIfNonMatching(nonMatchingInvocations, unsatisfiedExpectation, replayedExpectation);
+            }
+        }
+
+        for (BoundedInvocations bounded : log.getBoundedInvocations()) {
+            for (DiscardedInvocations discarded : bounded.getDiscarded()) {
+                addIfNonMatching(nonMatchingInvocations, unsatisfiedExpectation, discarded.expectation);
+            }
+
+            for (int i = 0, n = bounded.recentCount(); i < n; i++) {
+                addIfNonMatching(nonMatchingInvocations, unsatisfiedExpectation, bounded.getRecentExpectation(i));
             }
         }
 
         return nonMatchingInvocations;
     }
+
+    private static void addIfNonMatching(@Nonnull List<ExpectedInvocation> nonMatchingInvocations,
+            @Nonnull Expectation unsatisfiedExpectation, @Nonnull Expectation replayedExpectation) {
+        if (replayedExpectation != unsatisfiedExpectation
+                && replayedExpectation.invocation.isMatch(unsatisfiedExpectation.invocation)) {
+            nonMatchingInvocations.add(replayedExpectation.invocation);
+        }
+    }
 }
@@ -10,11 +10,17 @@ import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import mockit.internal.expectations.ReplayLog.BoundedInvocations;
+import mockit.internal.expectations.ReplayLog.DiscardedInvocations;
 import mockit.internal.expectations.invocation.ExpectedInvocation;
 
 class UnorderedVerificationPhase extends BaseVerificationPhase {
     @Nonnull
     private final List<VerifiedExpectation> verifiedExpectations;
+    @Nullable
+    private Expectation lastMatchedExpectation;
+    @Nullable
+    private Object[] lastMatchedArguments;
 
     UnorderedVerificationPhase(@Nonnull ReplayPhase replayPhase) {
         super(replayPhase);
@@ -29,41 +35,104 @@ class UnorderedVerificationPhase extends BaseVerificationPhase {
             matchInstance = true;
         }
 
-        replayIndex = -1;
-        List<Expectation> expectationsInReplayOrder = replayPhase.invocations;
-        Expectation verification = currentVerification;
+        lastMatchedExpectation = null;
+        lastMatchedArguments = null;
+        ReplayLog replayLog = replayPhase.log;
+        ReplayLog.Positions candidates = replayLog.getCandidatePositions(mock, mockClassDesc, mockNameAndDesc);
         List<ExpectedInvocation> matchingInvocationsWithDifferentArgs = new ArrayList<>();
 
-        for (int i = 0, n = expectationsInReplayOrder.size(); i < n; i++) {
-            Expectation replayExpectation = expectationsInReplayOrder.get(i);
-            Object replayInstance = replayPhase.invocationInstances.get(i);
-            Object[] replayArgs = replayPhase.invocationArguments.get(i);
+        for (int c = 0, n = candidates.size(); c < n; c++) {
+            int i = candidates.get(c);
+            Expectation replayExpectation = replayLog.getExpectation(i);
 
-            if (matches(mock, mockClassDesc, mockNameAndDesc, args, replayExpectation, replayInstance, replayArgs)) {
-                replayIndex = i;
+            if (replayExpectation != null) {
+                Object replayInstance = replayLog.getInstance(i);
+                Object[] replayArgs = replayLog.getArguments(i);
+                findExpectation(mock, mockClassDesc, mockNameAndDesc, args, replayExpectation, replayInstance,
+                        replayArgs, matchingInvocationsWithDifferentArgs);
+            }
+        }
 
-                if (verification != null) {
-                    verification.constraints.invocationCount++;
-                }
+        for (BoundedInvocations bounded : replayLog.getBoundedCandidates(mock, mockClassDesc, mockNameAndDesc)) {
+            for (DiscardedInvocations discarded : bounded.getDiscarded()) {
+                countDiscardedInvocations(mock, mockClassDesc, mockNameAndDesc, discarded);
+            }
 
-                currentExpectation = replayExpectation;
-            } else if (matchingInvocationWithDifferentArgs != null) {
-                matchingInvocationsWithDifferentArgs.add(matchingInvocationWithDifferentArgs);
+            for (int i = 0, n = bounded.recentCount(); i < n; i++) {
+                Expectation replayExpectation = bounded.getRecentExpectation(i);
+                Object replayInstance = bounded.getRecentInstance(i);
+                Object[] replayArgs = bounded.getRecentArguments(i);
+                findExpectation(mock, mockClassDesc, mockNameAndDesc, args, replayExpectation, replayInstance,
+                        replayArgs, matchingInvocationsWithDifferentArgs);
             }
         }
 
-        if (verification != null && replayIndex >= 0) {
+        Expectation verification = currentVerification;
+
+        if (verification != null && lastMatchedExpectation != null) {
             pendingError = verifyConstraints(verification);
         }
 
         return matchingInvocationsWithDifferentArgs;
     }
 
+    private void findExpectation(@Nullable Object mock, @Nonnull String mockClassDesc,
+            @Nonnull String mockNameAndDesc, @Nonnull Object[] args, @Nonnull Expectation replayExpectation,
+            @Nullable Object replayInstance, @Nonnull Object[] replayArgs,
+            @Nonnull List<ExpectedInvocation> matchingInvocationsWithDifferentArgs) {
+        if (matches(mock, mockClassDesc, mockNameAndDesc, args, replayExpectation, replayInstance, replayArgs)) {
+            lastMatchedExpectation = replayExpectation;
+            lastMatchedArguments = replayArgs;
+
+            if (currentVerification != null) {
+                currentVerification.constraints.invocationCount++;
+            }
+
+            currentExpectation = replayExpectation;
+        } else if (matchingInvocationWithDifferentArgs != null) {
+            matchingInvocationsWithDifferentArgs.add(matchingInvocationWithDifferentArgs);
+        }
+    }
+
+    /**
+     * Counts the invocations in bounded replay mode whose arguments were discarded as matching the verified one, if it
+     * would match any arguments.
+     *
+     * @throws IllegalStateException if the verified invocation is for the same method and instance, but depends on the
+     *         arguments
+     */
+    private void countDiscardedInvocations(@Nullable Object mock, @Nonnull String mockClassDesc,
+            @Nonnull String mockNameAndDesc, @Nonnull DiscardedInvocations discarded) {
+        Expectation replayExpectation = discarded.expectation;
+
+        if (!isMatchingMethodAndInstance(mock, mockClassDesc, mockNameAndDesc, replayExpectation)) {
+            return;
+        }
+
+        Expectation verification = currentVerification;
+        assert verification != null;
+        ExpectedInvocation verifiedInvocation = verification.invocation;
+
+        if (!verifiedInvocation.arguments.isMatchForAnyArguments()) {
+            throw new IllegalStateException("Arguments of " + discarded.count + " invocation(s) to " + verifiedInvocation
+                    + " were discarded in bounded replay mode, so they can only be verified with \"any\" matchers");
+        }
+
+        Object[] replayArgs = replayExpectation.invocation.getArgumentValues();
+        addVerifiedExpectation(replayExpectation, replayArgs);
+        discarded.verified = true;
+        lastMatchedExpectation = replayExpectation;
+        lastMatchedArguments = replayArgs;
+        verification.constraints.invocationCount += discarded.count;
+        currentExpectation = replayExpectation;
+    }
+
     @Nullable
     private Error verifyConstraints(@Nonnull Expectation verification) {
-        ExpectedInvocation lastInvocation = replayPhase.invocations.get(replayIndex).invocation;
-        Object[] lastArgs = replayPhase.invocationArguments.get(replayIndex);
-        return verification.verifyConstraints(lastInvocation, lastArgs, 1, -1);
+        Expectation lastExpectation = lastMatchedExpectation;
+        Object[] lastArguments = lastMatchedArguments;
+        assert lastExpectation != null && lastArguments != null;
+        return verification.verifyConstraints(lastExpectation.invocation, lastArguments, 1, -1);
     }
 
     @Override
@@ -84,11 +153,12 @@ class UnorderedVerificationPhase extends BaseVerificationPhase {
         }
 
         Error errorThrown;
+        Expectation lastExpectation = lastMatchedExpectation;
+        Object[] lastArguments = lastMatchedArguments;
 
-        if (replayIndex >= 0) {
-            ExpectedInvocation replayInvocation = replayPhase.invocations.get(replayIndex).invocation;
-            Object[] replayArgs = replayPhase.invocationArguments.get(replayIndex);
-            errorThrown = verifying.verifyConstraints(replayInvocation, replayArgs, minInvocations, maxInvocations);
+        if (lastExpectation != null && lastArguments != null) {
+            errorThrown = verifying.verifyConstraints(lastExpectation.invocation, lastArguments, minInvocations,
+                    maxInvocations);
         } else {
             errorThrown = verifying.verifyConstraints(minInvocations);
         }
@@ -6,7 +6,6 @@ package mockit.internal.expectations;
 
 import java.util.List;
 
-import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -29,7 +28,7 @@ final class VerifiedExpectation {
         this.replayIndex = replayIndex;
     }
 
-    boolean matchesReplayIndex(@Nonnegative int expectationIndex) {
+    boolean matchesReplayIndex(int expectationIndex) {
         return replayIndex < 0 || replayIndex == expectationIndex;
     }
 
@@ -64,6 +64,25 @@ abstract class ArgumentValuesAndMatchers {
 
     abstract boolean isMatch(@Nonnull Object[] replayArgs, @Nonnull Map<Object, Object> instanceMap);
 
+    /**
+     * Gets the current values and matchers {@linkplain CompiledArguments compiled} for matching invocation arguments,
+     * if they can be.
+     */
+    @Nullable
+    CompiledArguments getCompiledArguments(@Nonnull Map<Object, Object> instanceMap) {
+        return null;
+    }
+
+    final boolean isMatchForAnyArguments() {
+        for (int i = 0; i < values.length; i++) {
+            if (!(getArgumentMatcher(i) instanceof AlwaysTrueMatcher)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     static boolean areEqual(@Nonnull Object[] expectedValues, @Nonnull Object[] actualValues, @Nonnegative int count,
             @Nonnull Map<Object, Object> instanceMap) {
         for (int i = 0; i < count; i++) {
@@ -7,40 +7,34 @@ package mockit.internal.expectations.invocation;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
-import mockit.internal.expectations.argumentMatching.ArgumentMatcher;
 import mockit.internal.expectations.argumentMatching.EqualityMatcher;
-import mockit.internal.expectations.argumentMatching.LenientEqualityMatcher;
 
 final class ArgumentValuesAndMatchersWithoutVarargs extends ArgumentValuesAndMatchers {
+    @Nullable
+    private CompiledArguments compiledArguments;
+
     ArgumentValuesAndMatchersWithoutVarargs(@Nonnull InvocationArguments signature, @Nonnull Object[] values) {
         super(signature, values);
     }
 
     @Override
     boolean isMatch(@Nonnull Object[] replayArgs, @Nonnull Map<Object, Object> instanceMap) {
-        if (matchers == null) {
-            return areEqual(values, replayArgs, replayArgs.length, instanceMap);
-        }
-
-        for (int i = 0; i < replayArgs.length; i++) {
-            Object actual = replayArgs[i];
-            ArgumentMatcher<?> expected = getArgumentMatcher(i);
+        return getCompiledArguments(instanceMap).isMatch(replayArgs);
+    }
 
-            if (expected == null) {
-                Object arg = values[i];
-                if (arg == null) {
-                    continue;
-                }
-                expected = new LenientEqualityMatcher(arg, instanceMap);
-            }
+    @Nonnull
+    @Override
+    CompiledArguments getCompiledArguments(@Nonnull Map<Object, Object> instanceMap) {
+        CompiledArguments compiledArgs = compiledArguments;
 
-            if (!expected.matches(actual)) {
-                return false;
-            }
+        if (compiledArgs == null || !compiledArgs.isCompiledFrom(this, instanceMap)) {
+            compiledArgs = new CompiledArguments(this, instanceMap);
+            compiledArguments = compiledArgs;
         }
 
-        return true;
+        return compiledArgs;
     }
 
     @Override
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations.invocation;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import mockit.internal.expectations.argumentMatching.AlwaysTrueMatcher;
+import mockit.internal.expectations.argumentMatching.ArgumentMatcher;
+import mockit.internal.expectations.argumentMatching.EqualityMatcher;
+
+/**
+ * The argument values and matchers of an expectation for a method without varargs, compiled once into the check needed
+ * for each parameter, so that matching the arguments of an invocation creates no objects.
+ * <p>
+ * Values of a JDK value type (a <code>String</code> or a primitive wrapper) are compared directly to invocation
+ * arguments of the same type: wrapped numbers by their primitive values, and strings after a fast rejection through
+ * their precomputed hash codes. Such comparisons, as well as those for "any" matchers, never execute code from the test
+ * or from the code under test, so when only they are needed to decide a match, it doesn't have to be made inside a
+ * no-mocking zone.
+ */
+final class CompiledArguments {
+    static final int NO_MATCH = 0;
+    static final int MATCH = 1;
+    static final int UNDECIDED = 2;
+
+    private static final byte ANY = 0;
+    private static final byte NULL = 1;
+    private static final byte INTEGRAL = 2;
+    private static final byte FLOATING_POINT = 3;
+    private static final byte STRING = 4;
+    private static final byte OTHER_VALUE = 5;
+    private static final byte EQUAL = 6;
+    private static final byte MATCHER = 7;
+
+    @Nonnull
+    private final Object[] values;
+    @Nullable
+    private final List<ArgumentMatcher<?>> matcherList;
+    @Nonnull
+    private final Map<Object, Object> instanceMap;
+    @Nonnull
+    private final byte[] checks;
+    @Nonnull
+    private final ArgumentMatcher<?>[] matchers;
+    @Nonnull
+    private final Class<?>[] valueTypes;
+    @Nonnull
+    private final long[] valueBits;
+    private final boolean decidableWithoutUserCode;
+
+    CompiledArguments(@Nonnull ArgumentValuesAndMatchers valuesAndMatchers, @Nonnull Map<Object, Object> instanceMap) {
+        values = valuesAndMatchers.values;
+        matcherList = valuesAndMatchers.matchers;
+        this.instanceMap = instanceMap;
+
+        int parameterCount = values.length;
+        checks = new byte[parameterCount];
+        matchers = new ArgumentMatcher<?>[parameterCount];
+        valueTypes = new Class<?>[parameterCount];
+        valueBits = new long[parameterCount];
+        boolean withoutUserCode = true;
+
+        for (int i = 0; i < parameterCount; i++) {
+            ArgumentMatcher<?> matcher = valuesAndMatchers.getArgumentMatcher(i);
+            byte check;
+
+            if (matcher instanceof AlwaysTrueMatcher) {
+                matchers[i] = matcher;
+                check = ANY;
+            } else if (matcher != null) {
+                matchers[i] = matcher;
+                check = MATCHER;
+            } else {
+                Object value = values[i];
+                check = value == null ? NULL : compileValue(i, value);
+            }
+
+            checks[i] = check;
+            withoutUserCode &= check < EQUAL;
+        }
+
+        decidableWithoutUserCode = withoutUserCode;
+    }
+
+    private byte compileValue(@Nonnegative int parameterIndex, @Nonnull Object value) {
+        Class<?> valueType = value.getClass();
+        valueTypes[parameterIndex] = valueType;
+
+        if (valueType == Integer.class || valueType == Long.class || valueType == Short.class
+                || valueType == Byte.class) {
+            valueBits[parameterIndex] = ((Number) value).longValue();
+            return INTEGRAL;
+        }
+
+        if (valueType == Double.class || valueType == Float.class) {
+            valueBits[parameterIndex] = Double.doubleToLongBits(((Number) value).doubleValue());
+            return FLOATING_POINT;
+        }
+
+        if (valueType == String.class) {
+            valueBits[parameterIndex] = value.hashCode();
+            return STRING;
+        }
+
+        if (valueType == Character.class || valueType == Boolean.class) {
+            return OTHER_VALUE;
+        }
+
+        valueTypes[parameterIndex] = null;
+        return EQUAL;
+    }
+
+    private static boolean isValueType(@Nonnull Class<?> type) {
+        return type == String.class || type == Integer.class || type == Long.class || type == Short.class
+                || type == Byte.class || type == Double.class || type == Float.class || type == Character.class
+                || type == Boolean.class;
+    }
+
+    boolean isCompiledFrom(@Nonnull ArgumentValuesAndMatchers valuesAndMatchers,
+            @Nonnull Map<Object, Object> instanceMap) {
+        return values == valuesAndMatchers.values && matcherList == valuesAndMatchers.matchers
+                && this.instanceMap == instanceMap;
+    }
+
+    /**
+     * Matches the given invocation arguments as far as possible without executing any code from the test or from the
+     * code under test, stopping at the first parameter with a matcher other than an "any" one.
+     *
+     * @return {@link #MATCH} or {@link #NO_MATCH} if the match was decided, or {@link #UNDECIDED} if it has to be made
+     *         by {@link #isMatch}
+     */
+    int matchWithoutUserCode(@Nonnull Object[] replayArgs) {
+        boolean decided = decidableWithoutUserCode;
+
+        for (int i = 0; i < replayArgs.length; i++) {
+            Object actual = replayArgs[i];
+
+            switch (checks[i]) {
+                case ANY:
+                    if (!((AlwaysTrueMatcher) matchers[i]).matches(actual)) {
+                        return NO_MATCH;
+                    }
+                    break;
+                case NULL:
+                    if (actual != null) {
+                        return NO_MATCH;
+                    }
+                    break;
+                case EQUAL:
+                    break;
+                case MATCHER:
+                    return UNDECIDED;
+                default:
+                    if (actual == null) {
+                        return NO_MATCH;
+                    }
+
+                    Class<?> actualType = actual.getClass();
+
+                    if (actualType == valueTypes[i]) {
+                        if (!isEqualValue(i, actual)) {
+                            return NO_MATCH;
+                        }
+                    } else if (isValueType(actualType)) {
+                        return NO_MATCH;
+                    } else {
+                        decided = false;
+                    }
+            }
+        }
+
+        return decided ? MATCH : UNDECIDED;
+    }
+
+    private boolean isEqualValue(@Nonnegative int parameterIndex, @Nonnull Object actual) {
+        switch (checks[parameterIndex]) {
+            case INTEGRAL:
+                return ((Number) actual).longValue() == valueBits[parameterIndex];
+            case FLOATING_POINT:
+                return Double.doubleToLongBits(((Number) actual).doubleValue()) == valueBits[parameterIndex];
+            case STRING:
+                return actual.hashCode() == (int) valueBits[parameterIndex] && actual.equals(values[parameterIndex]);
+            default:
+                return actual.equals(values[parameterIndex]);
+        }
+    }
+
+    /**
+     * Matches the given invocation arguments, which may execute code from the test or from the code under test, and so
+     * has to be done inside a no-mocking zone.
+     */
+    boolean isMatch(@Nonnull Object[] replayArgs) {
+        for (int i = 0; i < replayArgs.length; i++) {
+            Object actual = replayArgs[i];
+
+            switch (checks[i]) {
+                case ANY:
+                    if (!((AlwaysTrueMatcher) matchers[i]).matches(actual)) {
+                        return false;
+                    }
+                    break;
+                case NULL:
+                    if (actual != null) {
+                        return false;
+                    }
+                    break;
+                case MATCHER:
+                    if (!matchers[i].matches(actual)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    if (!isLenientlyEqualValue(i, actual)) {
+                        return false;
+                    }
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isLenientlyEqualValue(@Nonnegative int parameterIndex, @Nullable Object actual) {
+        if (actual == null) {
+            return false;
+        }
+
+        if (actual.getClass() == valueTypes[parameterIndex]) {
+            return isEqualValue(parameterIndex, actual);
+        }
+
+        Object expected = values[parameterIndex];
+        return actual == expected || instanceMap.get(actual) == expected
+                || EqualityMatcher.areEqualWhenNonNull(actual, expected);
+    }
+}
@@ -17,7 +17,6 @@ import javax.annotation.Nullable;
 import mockit.Delegate;
 import mockit.Invocation;
 import mockit.asm.types.JavaType;
-import mockit.internal.expectations.RecordAndReplayExecution;
 import mockit.internal.reflection.ParameterReflection;
 import mockit.internal.state.TestRun;
 import mockit.internal.util.MethodFormatter;
@@ -78,7 +77,7 @@ final class DelegatedResult extends InvocationResult {
 
     @Nullable
     private Object executeMethodToInvoke(@Nonnull Object[] args) {
-        ReentrantLock reentrantLock = RecordAndReplayExecution.RECORD_OR_REPLAY_LOCK;
+        ReentrantLock reentrantLock = TestRun.getExecutingTest().recordOrReplayLock;
 
         if (!reentrantLock.isHeldByCurrentThread()) {
             return executeTargetMethod(args);
@@ -81,6 +81,16 @@ public final class InvocationArguments {
     }
 
     public boolean isMatch(@Nonnull Object[] replayArgs, @Nonnull Map<Object, Object> instanceMap) {
+        CompiledArguments compiledArgs = valuesAndMatchers.getCompiledArguments(instanceMap);
+
+        if (compiledArgs != null) {
+            int match = compiledArgs.matchWithoutUserCode(replayArgs);
+
+            if (match != CompiledArguments.UNDECIDED) {
+                return match == CompiledArguments.MATCH;
+            }
+        }
+
         TestRun.enterNoMockingZone();
         ExecutingTest executingTest = TestRun.getExecutingTest();
         boolean previousFlag = executingTest.setShouldIgnoreMockingCallbacks(true);
@@ -93,6 +103,13 @@ public final class InvocationArguments {
         }
     }
 
+    /**
+     * Whether these arguments match any arguments, as happens when there are none or all of them are "any" matchers.
+     */
+    public boolean isMatchForAnyArguments() {
+        return valuesAndMatchers.isMatchForAnyArguments();
+    }
+
     @Override
     public String toString() {
         MethodFormatter methodFormatter = new MethodFormatter(classDesc, methodNameAndDesc, false);
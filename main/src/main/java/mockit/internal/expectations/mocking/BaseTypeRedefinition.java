@@ -29,6 +29,7 @@ import mockit.asm.classes.ClassVisitor;
 import mockit.asm.jvmConstants.ClassVersion;
 import mockit.internal.ClassFile;
 import mockit.internal.classGeneration.ImplementationClass;
+import mockit.internal.expectations.MockedCallSites;
 import mockit.internal.expectations.mocking.InstanceFactory.ClassInstanceFactory;
 import mockit.internal.expectations.mocking.InstanceFactory.InterfaceInstanceFactory;
 import mockit.internal.reflection.ConstructorReflection;
@@ -137,13 +138,17 @@ class BaseTypeRedefinition {
 
     @Nonnull
     private Object createMockInterfaceImplementationDirectly(@Nonnull Type interfaceToMock) {
-        Class<?> previousMockImplementationClass = mockImplementations.get(interfaceToMock);
-
-        if (previousMockImplementationClass == null) {
-            generateNewMockImplementationClassForInterface(interfaceToMock);
-            mockImplementations.put(interfaceToMock, targetClass);
-        } else {
-            targetClass = previousMockImplementationClass;
+        // Tests running concurrently can mock the same interface, which must not get two implementation classes of the
+        // same name.
+        synchronized (mockImplementations) {
+            Class<?> previousMockImplementationClass = mockImplementations.get(interfaceToMock);
+
+            if (previousMockImplementationClass == null) {
+                generateNewMockImplementationClassForInterface(interfaceToMock);
+                mockImplementations.put(interfaceToMock, targetClass);
+            } else {
+                targetClass = previousMockImplementationClass;
+            }
         }
 
         return ConstructorReflection.newInstanceUsingDefaultConstructor(targetClass);
@@ -226,6 +231,11 @@ class BaseTypeRedefinition {
 
         if (modifier.wasModified()) {
             byte[] modifiedClass = modifier.toByteArray();
+
+            if (modifier.isRelinkable()) {
+                MockedCallSites.addRelinkableClassfile(modifiedClass);
+            }
+
             applyClassRedefinition(realClass, modifiedClass);
         }
     }
@@ -256,17 +266,20 @@ class BaseTypeRedefinition {
     }
 
     private void redefineTargetClassAndCreateInstanceFactory(@Nonnull Type typeToMock) {
-        Integer mockedClassId = redefineClassesFromCache();
+        // Serialized for tests running concurrently, which would otherwise generate the same concrete subclass twice.
+        synchronized (mockedClasses) {
+            Integer mockedClassId = redefineClassesFromCache();
 
-        if (mockedClassId == null) {
-            return;
-        }
+            if (mockedClassId == null) {
+                return;
+            }
 
-        boolean redefined = redefineMethodsAndConstructorsInTargetType();
-        instanceFactory = createInstanceFactory(typeToMock);
+            boolean redefined = redefineMethodsAndConstructorsInTargetType();
+            instanceFactory = createInstanceFactory(typeToMock);
 
-        if (redefined) {
-            storeRedefinedClassesInCache(mockedClassId);
+            if (redefined) {
+                storeRedefinedClassesInCache(mockedClassId);
+            }
         }
     }
 
@@ -309,7 +322,7 @@ class BaseTypeRedefinition {
     private Class<?> generateConcreteSubclassForAbstractType(@Nonnull final Type typeToMock) {
         final String subclassName = getNameForConcreteSubclassToCreate();
 
-        return new ImplementationClass<>(targetClass, subclassName) {
+        return new ImplementationClass<>(targetClass, subclassName, typeToMock) {
             @Nonnull
             @Override
             protected ClassVisitor createMethodBodyGenerator(@Nonnull ClassReader cr) {
@@ -4,7 +4,6 @@
  */
 package mockit.internal.expectations.mocking;
 
-import static mockit.internal.expectations.RecordAndReplayExecution.RECORD_OR_REPLAY_LOCK;
 import static mockit.internal.expectations.RecordAndReplayExecution.recordOrReplay;
 
 import java.lang.reflect.Method;
@@ -14,6 +13,7 @@ import javax.annotation.Nullable;
 
 import mockit.internal.ClassLoadingBridge;
 import mockit.internal.expectations.ExecutionMode;
+import mockit.internal.expectations.MockedMethod;
 import mockit.internal.state.TestRun;
 import mockit.internal.util.ObjectMethods;
 
@@ -28,24 +28,19 @@ public final class MockedBridge extends ClassLoadingBridge {
     @Nullable
     @Override
     public Object invoke(@Nullable Object mocked, Method method, @Nonnull Object[] args) throws Throwable {
-        String mockedClassDesc = (String) args[1];
+        MockedMethod mockedMethod = MockedMethod.get((Integer) args[0]);
 
-        if (notToBeMocked(mocked, mockedClassDesc)) {
+        if (notToBeMocked(mocked, mockedMethod.classDesc)) {
             return Void.class;
         }
 
-        String mockName = (String) args[2];
-        String mockDesc = (String) args[3];
-        String mockNameAndDesc = mockName + mockDesc;
-        Integer executionMode = (Integer) args[5];
-        Object[] mockArgs = extractArguments(6, args);
-
-        boolean regularExecutionWithRecordReplayLock = executionMode == ExecutionMode.Regular.ordinal()
-                && RECORD_OR_REPLAY_LOCK.isHeldByCurrentThread();
+        Object[] mockArgs = extractArguments(1, args);
+        boolean regularExecutionWithRecordReplayLock = mockedMethod.executionMode == ExecutionMode.Regular
+                && TestRun.getExecutingTest().recordOrReplayLock.isHeldByCurrentThread();
         Object rv;
 
         if (regularExecutionWithRecordReplayLock && mocked != null) {
-            rv = ObjectMethods.evaluateOverride(mocked, mockNameAndDesc, args);
+            rv = ObjectMethods.evaluateOverride(mocked, mockedMethod.nameAndDesc, mockArgs);
 
             if (rv != null) {
                 return rv;
@@ -60,10 +55,7 @@ public final class MockedBridge extends ClassLoadingBridge {
         TestRun.enterNoMockingZone();
 
         try {
-            int mockAccess = (Integer) args[0];
-            String genericSignature = (String) args[4];
-            rv = recordOrReplay(mocked, mockAccess, mockedClassDesc, mockNameAndDesc, genericSignature, executionMode,
-                    mockArgs);
+            rv = recordOrReplay(mocked, mockedMethod, mockArgs);
         } finally {
             TestRun.exitNoMockingZone();
         }
@@ -37,6 +37,7 @@ import mockit.asm.methods.MethodVisitor;
 import mockit.asm.types.JavaType;
 import mockit.internal.BaseClassModifier;
 import mockit.internal.expectations.ExecutionMode;
+import mockit.internal.expectations.MockedMethod;
 
 final class MockedClassModifier extends BaseClassModifier {
     private static final int METHOD_ACCESS_MASK = PRIVATE + SYNTHETIC + ABSTRACT;
@@ -64,6 +65,7 @@ final class MockedClassModifier extends BaseClassModifier {
     private String defaultFilters;
     @Nullable
     List<String> enumSubclasses;
+    private boolean withStubbedOutMethods;
 
     MockedClassModifier(@Nullable ClassLoader classLoader, @Nonnull ClassReader classReader,
             @Nullable MockedType typeMetadata) {
@@ -165,6 +167,7 @@ final class MockedClassModifier extends BaseClassModifier {
         startModifiedMethodVersion(access, name, desc, signature, exceptions);
 
         if (isNative(methodAccess)) {
+            withStubbedOutMethods = true;
             generateEmptyImplementation(methodDesc);
             return methodAnnotationsVisitor;
         }
@@ -198,8 +201,18 @@ final class MockedClassModifier extends BaseClassModifier {
                         || "annotationType".equals(name) && "()Ljava/lang/Class;".equals(desc));
     }
 
+    /**
+     * Whether the modified class can be left in place after the class is no longer mocked, with its
+     * {@linkplain mockit.internal.expectations.MockedCallSites call sites} unlinked, since it then behaves as the
+     * original class.
+     */
+    boolean isRelinkable() {
+        return useInvokeDynamic && !useClassLoadingBridge && !withStubbedOutMethods;
+    }
+
     private boolean stubOutFinalizeMethod(int access, @Nonnull String name, @Nonnull String desc) {
         if ("finalize".equals(name) && "()V".equals(desc)) {
+            withStubbedOutMethods = true;
             startModifiedMethodVersion(access, name, desc, null, null);
             generateEmptyImplementation();
             return true;
@@ -232,25 +245,14 @@ final class MockedClassModifier extends BaseClassModifier {
         boolean isStatic = generateCodeToPassThisOrNullIfStaticMethod();
         mw.visitInsn(ACONST_NULL);
 
-        // Create array for call arguments (third "invoke" argument):
+        // Create array for call arguments (third "invoke" argument), starting with the id of the mocked method:
         JavaType[] argTypes = JavaType.getArgumentTypes(methodDesc);
-        generateCodeToCreateArrayOfObject(6 + argTypes.length);
-
-        int i = 0;
-        generateCodeToFillArrayElement(i, methodAccess);
-        i++;
-        generateCodeToFillArrayElement(i, className);
-        i++;
-        generateCodeToFillArrayElement(i, methodName);
-        i++;
-        generateCodeToFillArrayElement(i, methodDesc);
-        i++;
-        generateCodeToFillArrayElement(i, methodSignature);
-        i++;
-        generateCodeToFillArrayElement(i, executionMode.ordinal());
-        i++;
-
-        generateCodeToFillArrayWithParameterValues(argTypes, i, isStatic ? 0 : 1);
+        generateCodeToCreateArrayOfObject(1 + argTypes.length);
+
+        int mockedMethodId = MockedMethod.register(methodAccess, className, methodName + methodDesc, methodSignature,
+                executionMode);
+        generateCodeToFillArrayElement(0, mockedMethodId);
+        generateCodeToFillArrayWithParameterValues(argTypes, 1, isStatic ? 0 : 1);
         generateCallToInvocationHandler();
     }
 
@@ -16,6 +16,7 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import mockit.BoundedReplay;
 import mockit.Capturing;
 import mockit.Injectable;
 import mockit.Mocked;
@@ -60,6 +61,8 @@ public final class MockedType extends InjectionProvider {
     private final Capturing capturing;
     @Nullable
     private final Class<?> parameterImplementationClass;
+    @Nullable
+    private final BoundedReplay boundedReplay;
     public final boolean injectable;
     @Nullable
     Object providedValue;
@@ -72,6 +75,8 @@ public final class MockedType extends InjectionProvider {
         mocked = field.getAnnotation(Mocked.class);
         capturing = field.getAnnotation(Capturing.class);
         parameterImplementationClass = null;
+        boundedReplay = ExecutingTest.verifyBoundedReplay(field.getAnnotation(BoundedReplay.class),
+                "mock field \"" + field.getName() + '"');
         Injectable injectableAnnotation = field.getAnnotation(Injectable.class);
         injectable = injectableAnnotation != null;
         providedValue = getProvidedInjectableValue(injectableAnnotation);
@@ -116,6 +121,8 @@ public final class MockedType extends InjectionProvider {
         mocked = getAnnotation(annotationsOnParameter, Mocked.class);
         capturing = getAnnotation(annotationsOnParameter, Capturing.class);
         this.parameterImplementationClass = parameterImplementationClass;
+        boundedReplay = ExecutingTest.verifyBoundedReplay(getAnnotation(annotationsOnParameter, BoundedReplay.class),
+                "mock parameter \"" + name + '"');
         Injectable injectableAnnotation = getAnnotation(annotationsOnParameter, Injectable.class);
         injectable = injectableAnnotation != null;
         providedValue = getProvidedInjectableValue(injectableAnnotation);
@@ -153,6 +160,7 @@ public final class MockedType extends InjectionProvider {
         capturing = null;
         injectable = true;
         parameterImplementationClass = null;
+        boundedReplay = null;
     }
 
     @Nonnull
@@ -225,6 +233,11 @@ public final class MockedType extends InjectionProvider {
         return capturing != null;
     }
 
+    @Nullable
+    public BoundedReplay getBoundedReplay() {
+        return boundedReplay;
+    }
+
     @Nullable
     @Override
     public Object getValue(@Nullable Object owner) {
@@ -8,17 +8,38 @@ import static mockit.internal.util.Utilities.containsReference;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import mockit.BoundedReplay;
 import mockit.internal.BaseInvocation;
 import mockit.internal.expectations.RecordAndReplayExecution;
 import mockit.internal.expectations.mocking.MockedType;
 import mockit.internal.expectations.mocking.ParameterTypeRedefinitions;
+import mockit.internal.state.TestRun;
 
 public final class ExecutingTest {
+    /**
+     * Held by the thread running the test while inside a recording or verification block, so that invocations to
+     * mocks from other threads meanwhile are not taken as part of the block.
+     */
+    @Nonnull
+    public final ReentrantLock testOnlyPhaseLock;
+
+    /**
+     * Serializes the handling of invocations to the mocks of the test, which can come from any thread the test starts,
+     * since mocked types and instances can be created while handling them.
+     */
+    @Nonnull
+    public final ReentrantLock recordOrReplayLock;
+
     @Nullable
     private RecordAndReplayExecution currentRecordAndReplay;
     @Nullable
@@ -40,7 +61,16 @@ public final class ExecutingTest {
     @Nonnull
     private final CascadingTypes cascadingTypes;
 
+    @Nullable
+    private BoundedReplay boundedReplayForTest;
+    @Nonnull
+    private final Map<Object, BoundedReplay> boundedReplayMocks;
+    @Nonnull
+    private final Map<Class<?>, BoundedReplay> boundedReplayMockedClasses;
+
     public ExecutingTest() {
+        testOnlyPhaseLock = new ReentrantLock();
+        recordOrReplayLock = new ReentrantLock();
         shouldIgnoreMockingCallbacks = new ThreadLocal<>() {
             @Override
             protected Boolean initialValue() {
@@ -51,6 +81,8 @@ public final class ExecutingTest {
         regularMocks = new ArrayList<>();
         injectableMocks = new ArrayList<>();
         cascadingTypes = new CascadingTypes();
+        boundedReplayMocks = new IdentityHashMap<>(2);
+        boundedReplayMockedClasses = new HashMap<>(2);
     }
 
     @Nonnull
@@ -141,7 +173,7 @@ public final class ExecutingTest {
         }
 
         // noinspection LockAcquiredButNotSafelyReleased
-        RecordAndReplayExecution.TEST_ONLY_PHASE_LOCK.lock();
+        testOnlyPhaseLock.lock();
 
         return currentRecordAndReplay;
     }
@@ -158,11 +190,14 @@ public final class ExecutingTest {
     public void clearRegularAndInjectableMocks() {
         regularMocks.clear();
         injectableMocks.clear();
+        boundedReplayMocks.clear();
+        boundedReplayMockedClasses.clear();
     }
 
     void addInjectableMock(@Nonnull Object mock) {
         if (!isInjectableMock(mock)) {
             injectableMocks.add(mock);
+            TestRun.addMockOfConcurrentTest(mock);
         }
     }
 
@@ -190,6 +225,67 @@ public final class ExecutingTest {
 
         Type declaredType = mockedType.getDeclaredType();
         cascadingTypes.addInstance(declaredType, mock);
+
+        BoundedReplay boundedReplay = mockedType.getBoundedReplay();
+
+        if (boundedReplay != null) {
+            boundedReplayMocks.put(mock, boundedReplay);
+
+            if (!mockedType.injectable) {
+                boundedReplayMockedClasses.put(mockedType.getClassType(), boundedReplay);
+            }
+        }
+    }
+
+    /**
+     * Verifies that a {@link BoundedReplay} annotation read from a mock field or parameter, or from a test method or
+     * class, has a valid number of recent invocations.
+     *
+     * @param annotatedElement a description of the element the annotation was read from, for the error message
+     *
+     * @return the same annotation, if any
+     *
+     * @throws IllegalArgumentException if the number of recent invocations is negative
+     */
+    @Nullable
+    public static BoundedReplay verifyBoundedReplay(@Nullable BoundedReplay boundedReplay,
+            @Nonnull String annotatedElement) {
+        if (boundedReplay != null && boundedReplay.recentInvocations() < 0) {
+            throw new IllegalArgumentException("Invalid @BoundedReplay(recentInvocations = "
+                    + boundedReplay.recentInvocations() + ") on " + annotatedElement
+                    + "; the number of recent invocations can't be negative");
+        }
+
+        return boundedReplay;
+    }
+
+    public void setBoundedReplayForTest(@Nullable BoundedReplay boundedReplay) {
+        boundedReplayForTest = boundedReplay;
+    }
+
+    /**
+     * Gets the bounded replay mode which applies to invocations on a given mocked instance, from the mock field or
+     * parameter it was obtained from, or else from the test.
+     *
+     * @return the bounded replay mode, or <code>null</code> if invocations are to be replayed in full
+     */
+    @Nullable
+    public BoundedReplay getBoundedReplay(@Nullable Object mock) {
+        if (mock != null && !boundedReplayMocks.isEmpty()) {
+            BoundedReplay boundedReplay = boundedReplayMocks.get(mock);
+
+            if (boundedReplay != null) {
+                return boundedReplay;
+            }
+
+            for (Entry<Class<?>, BoundedReplay> mockedClassAndBoundedReplay : boundedReplayMockedClasses.entrySet()) {
+                if (mockedClassAndBoundedReplay.getKey().isInstance(mock)) {
+                    return mockedClassAndBoundedReplay.getValue();
+                }
+            }
+        }
+
+        return boundedReplayForTest;
     }
 
     @Nonnull
@@ -207,5 +303,6 @@ public final class ExecutingTest {
         }
 
         cascadingTypes.clearNonSharedCascadingTypes();
+        boundedReplayForTest = null;
     }
 }
@@ -40,6 +40,11 @@ public final class FakeClassSetup {
         realClass = classToFake;
         this.fake = fake;
         forStartupFake = Startup.initializing;
+
+        if (!forStartupFake) {
+            TestRun.verifyNotRunningConcurrently("Fakes");
+        }
+
         fakeMethods = new FakeMethods(classToFake, fakedType);
         collectFakeMethods();
         registerFakeClassAndItsStates();
@@ -4,19 +4,46 @@
  */
 package mockit.internal.faking;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import mockit.Invocation;
 import mockit.internal.ClassLoadingBridge;
 import mockit.internal.reflection.MethodReflection;
-import mockit.internal.reflection.ParameterReflection;
 import mockit.internal.state.TestRun;
 import mockit.internal.util.TypeDescriptor;
+import mockit.internal.util.Utilities;
 
 public final class FakeMethodBridge extends ClassLoadingBridge {
+    /**
+     * The index of the first argument for the fake method in the array of arguments passed to the bridge, after the
+     * fake class, faked class, access flags, name, descriptor, and fake state index.
+     */
+    static final int FIRST_FAKE_ARGUMENT = 6;
+    static final List<Class<?>> LEADING_BRIDGE_ARGUMENTS = Collections.nCopies(FIRST_FAKE_ARGUMENT, Object.class);
+
+    /**
+     * The method handles of fake methods without fake state, for each fake class, keyed by fake method name and
+     * descriptor. Each handle is created on the first call to its fake method, and takes the fake instance along with
+     * the array of arguments received by the bridge.
+     */
+    @Nonnull
+    private static final ClassValue<Map<String, MethodHandle>> SIMPLE_FAKE_METHOD_HANDLES = new ClassValue<>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     @Nonnull
     public static final ClassLoadingBridge MB = new FakeMethodBridge();
 
@@ -29,7 +56,6 @@ public final class FakeMethodBridge extends ClassLoadingBridge {
     public Object invoke(@Nullable Object fakedInstance, Method method, @Nonnull Object[] args) throws Throwable {
         String fakeClassDesc = (String) args[0];
         String fakedClassDesc = (String) args[1];
-        String fakeDesc = (String) args[4];
 
         Object fake = TestRun.getFake(fakeClassDesc);
 
@@ -37,80 +63,117 @@ public final class FakeMethodBridge extends ClassLoadingBridge {
             return Void.class;
         }
 
-        String fakeName = (String) args[3];
+        String fakeOrFakedName = (String) args[3];
+        String fakeOrFakedDesc = (String) args[4];
         int fakeStateIndex = (Integer) args[5];
-        Object[] fakeArgs = extractArguments(6, args);
-
-        return callFake(fakedInstance, fake, fakedClassDesc, fakeName, fakeDesc, fakeStateIndex, fakeArgs);
-    }
-
-    @Nullable
-    private static Object callFake(@Nullable Object fakedInstance, @Nonnull Object fake, @Nonnull String fakedClassDesc,
-            @Nonnull String fakeOrFakedName, @Nonnull String fakeOrFakedDesc, int fakeStateIndex,
-            @Nonnull Object[] fakeArgs) throws Throwable {
-        Class<?> fakeClass = fake.getClass();
 
         if (fakeStateIndex < 0) {
-            return executeSimpleFakeMethod(fakeClass, fake, fakeOrFakedName, fakeOrFakedDesc, fakeArgs);
+            return executeSimpleFakeMethod(fake, fakeOrFakedName, fakeOrFakedDesc, args);
         }
 
         FakeState fakeState = TestRun.getFakeStates().getFakeState(fake, fakeStateIndex);
+        MethodHandle fakeMethodHandle = fakeState.getFakeMethodHandle(fake);
 
         if (!fakeState.fakeMethod.hasInvocationParameter()) {
-            return executeFakeMethodWithoutInvocationArgument(fakeState, fakeClass, fake, fakeOrFakedDesc, fakeArgs);
+            try {
+                return (Object) fakeMethodHandle.invokeExact((Object) null, args);
+            } catch (ClassCastException | NullPointerException e) {
+                fakeState.verifyArgumentsForFakeMethod(args);
+                throw e;
+            }
         }
 
         if (fakeState.shouldProceedIntoRealImplementation(fakedInstance, fakedClassDesc)) {
             return Void.class;
         }
 
-        return executeFakeMethodWithInvocationArgument(fakeState, fakeClass, fake, fakedInstance, fakedClassDesc,
-                fakeOrFakedName, fakeOrFakedDesc, fakeArgs);
+        return executeFakeMethodWithInvocationArgument(fakeState, fakeMethodHandle, fakedInstance, fakedClassDesc,
+                fakeOrFakedName, fakeOrFakedDesc, args);
     }
 
+    /**
+     * Executes a fake method which has no fake state, as happens when the faked method belongs to a class other than
+     * the real class, with a class loader which has no direct access to JMockit classes, or when the fake method or
+     * its class is not public.
+     */
     @Nullable
-    private static Object executeSimpleFakeMethod(@Nonnull Class<?> fakeClass, @Nullable Object fake,
-            @Nonnull String fakeOrFakedName, @Nonnull String fakeOrFakedDesc, @Nonnull Object[] fakeArgs)
-            throws Throwable {
-        Class<?>[] paramClasses = TypeDescriptor.getParameterTypes(fakeOrFakedDesc);
-        return MethodReflection.invokeWithCheckedThrows(fakeClass, fake, fakeOrFakedName, paramClasses, fakeArgs);
+    private static Object executeSimpleFakeMethod(@Nonnull Object fake, @Nonnull String fakeName,
+            @Nonnull String fakeDesc, @Nonnull Object[] args) throws Throwable {
+        Class<?> fakeClass = fake.getClass();
+        Map<String, MethodHandle> fakeMethodHandles = SIMPLE_FAKE_METHOD_HANDLES.get(fakeClass);
+        String fakeNameAndDesc = fakeName + fakeDesc;
+        MethodHandle fakeMethodHandle = fakeMethodHandles.get(fakeNameAndDesc);
+
+        if (fakeMethodHandle == null) {
+            fakeMethodHandle = createSimpleFakeMethodHandle(fakeClass, fakeName, fakeDesc);
+            fakeMethodHandles.put(fakeNameAndDesc, fakeMethodHandle);
+        }
+
+        try {
+            return (Object) fakeMethodHandle.invokeExact(fake, args);
+        } catch (ClassCastException | NullPointerException e) {
+            Method fakeMethod = findSimpleFakeMethod(fakeClass, fakeName, fakeDesc);
+            FakeState.verifyArgumentsForFakeMethod(fakeMethod, 0, args);
+            throw e;
+        }
     }
 
-    @Nullable
-    private static Object executeFakeMethodWithoutInvocationArgument(@Nonnull FakeState fakeState,
-            @Nonnull Class<?> fakeClass, @Nullable Object fake, @Nonnull String fakeOrFakedDesc,
-            @Nonnull Object[] fakeArgs) throws Throwable {
-        Class<?>[] paramClasses = TypeDescriptor.getParameterTypes(fakeOrFakedDesc);
-        Method fakeMethod = fakeState.getFakeMethod(fakeClass, paramClasses);
-        return MethodReflection.invokeWithCheckedThrows(fake, fakeMethod, fakeArgs);
+    @Nonnull
+    private static Method findSimpleFakeMethod(@Nonnull Class<?> fakeClass, @Nonnull String fakeName,
+            @Nonnull String fakeDesc) {
+        Class<?>[] parameterTypes = TypeDescriptor.getParameterTypes(fakeDesc);
+        return MethodReflection.findCompatibleMethod(fakeClass, fakeName, parameterTypes);
+    }
+
+    /**
+     * Creates a method handle of the <code>(Object, Object[])Object</code> type for the given fake method, taking the
+     * fake instance (ignored if the method is static) and the array of arguments received by the bridge.
+     */
+    @Nonnull
+    private static MethodHandle createSimpleFakeMethodHandle(@Nonnull Class<?> fakeClass, @Nonnull String fakeName,
+            @Nonnull String fakeDesc) {
+        Method method = findSimpleFakeMethod(fakeClass, fakeName, fakeDesc);
+        Utilities.ensureThatMemberIsAccessible(method);
+        MethodHandle handle;
+
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+
+        int fakeArgumentCount = method.getParameterCount();
+        handle = handle.asType(MethodType.genericMethodType(1 + fakeArgumentCount));
+        handle = MethodHandles.dropArguments(handle, 1, LEADING_BRIDGE_ARGUMENTS);
+        return handle.asSpreader(Object[].class, FIRST_FAKE_ARGUMENT + fakeArgumentCount);
     }
 
     @Nullable
     private static Object executeFakeMethodWithInvocationArgument(@Nonnull FakeState fakeState,
-            @Nonnull Class<?> fakeClass, @Nullable Object fake, @Nullable Object fakedInstance,
-            @Nonnull String fakedClassDesc, @Nonnull String fakedName, @Nonnull String fakedDesc,
-            @Nonnull Object[] fakeArgs) throws Throwable {
-        Class<?>[] paramClasses;
-        Method fakeMethod;
-        FakeInvocation invocation;
-        Object[] executionArgs;
-
-        if (fakeState.fakeMethod.hasInvocationParameterOnly()) {
-            paramClasses = new Class[] { Invocation.class };
-            fakeMethod = fakeState.getFakeMethod(fakeClass, paramClasses);
-            invocation = new FakeInvocation(fakedInstance, fakeArgs, fakeState, fakedClassDesc, fakedName, fakedDesc);
-            executionArgs = new Object[] { invocation };
-        } else {
-            paramClasses = TypeDescriptor.getParameterTypes(fakedDesc);
-            fakeMethod = fakeState.getFakeMethod(fakeClass, paramClasses);
+            @Nonnull MethodHandle fakeMethodHandle, @Nullable Object fakedInstance, @Nonnull String fakedClassDesc,
+            @Nonnull String fakedName, @Nonnull String fakedDesc, @Nonnull Object[] args) throws Throwable {
+        Object[] fakeArgs = extractArguments(FIRST_FAKE_ARGUMENT, args);
 
+        if (!fakeState.fakeMethod.hasInvocationParameterOnly()) {
             // noinspection AssignmentToMethodParameter
             fakedDesc = fakeState.fakeMethod.fakeDescWithoutInvocationParameter;
-            invocation = new FakeInvocation(fakedInstance, fakeArgs, fakeState, fakedClassDesc, fakedName, fakedDesc);
-            executionArgs = ParameterReflection.argumentsWithExtraFirstValue(fakeArgs, invocation);
         }
 
-        Object result = MethodReflection.invokeWithCheckedThrows(fake, fakeMethod, executionArgs);
+        FakeInvocation invocation = new FakeInvocation(fakedInstance, fakeArgs, fakeState, fakedClassDesc, fakedName,
+                fakedDesc);
+        Object result;
+
+        try {
+            result = (Object) fakeMethodHandle.invokeExact((Object) invocation, args);
+        } catch (ClassCastException | NullPointerException e) {
+            fakeState.verifyArgumentsForFakeMethod(args);
+            throw e;
+        }
+
         return invocation.shouldProceedIntoConstructor() ? Void.class : result;
     }
 }
@@ -4,6 +4,9 @@
  */
 package mockit.internal.faking;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 
@@ -13,7 +16,11 @@ import javax.annotation.Nullable;
 import mockit.internal.faking.FakeMethods.FakeMethod;
 import mockit.internal.reflection.MethodReflection;
 import mockit.internal.reflection.RealMethodOrConstructor;
+import mockit.internal.util.AutoBoxing;
 import mockit.internal.util.ClassLoad;
+import mockit.internal.util.StackTrace;
+import mockit.internal.util.TypeDescriptor;
+import mockit.internal.util.Utilities;
 
 final class FakeState {
     private static final ClassLoader THIS_CL = FakeState.class.getClassLoader();
@@ -21,7 +28,9 @@ final class FakeState {
     @Nonnull
     final FakeMethod fakeMethod;
     @Nullable
-    private Method actualFakeMethod;
+    private Method fakeMethodToInvoke;
+    @Nullable
+    private MethodHandle fakeMethodHandle;
     @Nullable
     private Member realMethodOrConstructor;
     @Nullable
@@ -153,12 +162,93 @@ final class FakeState {
         proceedingInvocation.set(previousInvocation);
     }
 
+    /**
+     * Gets the method handle through which the {@link FakeMethodBridge} calls the fake method on the given fake
+     * instance, creating it on first use.
+     * <p>
+     * The handle has the <code>(Object, Object[])Object</code> type, taking the <code>Invocation</code> object (ignored
+     * if the fake method has no such parameter) and the array of arguments received by the bridge, from which the
+     * arguments for the fake method are spread.
+     */
+    @Nonnull
+    MethodHandle getFakeMethodHandle(@Nonnull Object fake) {
+        MethodHandle handle = fakeMethodHandle;
+
+        if (handle == null) {
+            handle = createFakeMethodHandle(fake);
+            fakeMethodHandle = handle;
+        }
+
+        return handle;
+    }
+
     @Nonnull
-    Method getFakeMethod(@Nonnull Class<?> fakeClass, @Nonnull Class<?>[] parameterTypes) {
-        if (actualFakeMethod == null) {
-            actualFakeMethod = MethodReflection.findCompatibleMethod(fakeClass, fakeMethod.name, parameterTypes);
+    private MethodHandle createFakeMethodHandle(@Nonnull Object fake) {
+        Class<?>[] parameterTypes = TypeDescriptor.getParameterTypes(fakeMethod.desc);
+        Method method = MethodReflection.findCompatibleMethod(fake.getClass(), fakeMethod.name, parameterTypes);
+        Utilities.ensureThatMemberIsAccessible(method);
+        fakeMethodToInvoke = method;
+        MethodHandle handle;
+
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (!fakeMethod.isStatic()) {
+            handle = handle.bindTo(fake);
+        }
+
+        handle = handle.asType(MethodType.genericMethodType(parameterTypes.length));
+
+        if (!fakeMethod.hasInvocationParameter()) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
         }
 
-        return actualFakeMethod;
+        if (fakeMethod.hasInvocationParameterOnly()) {
+            return MethodHandles.dropArguments(handle, 1, Object[].class);
+        }
+
+        int fakeArgumentCount = handle.type().parameterCount() - 1;
+        handle = MethodHandles.dropArguments(handle, 1, FakeMethodBridge.LEADING_BRIDGE_ARGUMENTS);
+        return handle.asSpreader(Object[].class, FakeMethodBridge.FIRST_FAKE_ARGUMENT + fakeArgumentCount);
+    }
+
+    /**
+     * Verifies that the arguments passed to the bridge can be passed to the fake method, so that a failure to convert
+     * them when invoking the {@linkplain #getFakeMethodHandle fake method handle} gets reported as it would be through
+     * reflection, rather than as if thrown from the fake method.
+     *
+     * @throws IllegalArgumentException if some argument cannot be passed to the corresponding fake method parameter
+     */
+    void verifyArgumentsForFakeMethod(@Nonnull Object[] bridgeArgs) {
+        Method method = fakeMethodToInvoke;
+        assert method != null;
+        int firstParameter = fakeMethod.hasInvocationParameter() ? 1 : 0;
+        verifyArgumentsForFakeMethod(method, firstParameter, bridgeArgs);
+    }
+
+    static void verifyArgumentsForFakeMethod(@Nonnull Method method, int firstParameter,
+            @Nonnull Object[] bridgeArgs) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+
+        for (int i = firstParameter; i < parameterTypes.length; i++) {
+            Class<?> parameterType = parameterTypes[i];
+            Object arg = bridgeArgs[FakeMethodBridge.FIRST_FAKE_ARGUMENT + i - firstParameter];
+
+            boolean assignable = parameterType.isPrimitive() ? AutoBoxing.getWrapperType(parameterType).isInstance(arg)
+                    : arg == null || parameterType.isInstance(arg);
+
+            if (!assignable) {
+                String argType = arg == null ? "null" : arg.getClass().getName();
+                ClassCastException cause = new ClassCastException(
+                        "Cannot pass " + argType + " as " + parameterType.getName());
+                IllegalArgumentException failure = new IllegalArgumentException("Failure to invoke method: " + method,
+                        cause);
+                StackTrace.filterStackTrace(failure);
+                throw failure;
+            }
+        }
     }
 }
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.injection;
+
+import static java.lang.reflect.Modifier.isFinal;
+import static java.lang.reflect.Modifier.isStatic;
+import static java.lang.reflect.Modifier.isVolatile;
+
+import static mockit.internal.injection.InjectionPoint.PERSISTENCE_UNIT_CLASS;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.persistence.Entity;
+
+import mockit.asm.types.JavaType;
+import mockit.internal.injection.InjectionPoint.KindOfInjectionPoint;
+import mockit.internal.reflection.ConstructorReflection;
+import mockit.internal.reflection.FieldReflection;
+
+/**
+ * The reflection metadata of a class which is needed to instantiate it and to inject into its instances: its fields
+ * with their kinds of injection point and qualified names, its constructors with their parameters, and its lifecycle
+ * methods.
+ * <p>
+ * The metadata is obtained once per class, and is only referenced from the class itself, so that it doesn't outlive
+ * it. This way, the same tested and dependency classes get instantiated and injected in many tests without their
+ * members and annotations being looked up again. Likewise, constructors are invoked and fields are read and assigned
+ * through method handles created on first use, rather than through reflection.
+ */
+public final class InjectionPlan {
+    private static final int CONSTRUCTOR_ACCESS = Modifier.PUBLIC + Modifier.PROTECTED + Modifier.PRIVATE;
+
+    @Nonnull
+    private static final ClassValue<InjectionPlan> PLANS = new ClassValue<InjectionPlan>() {
+        @Override
+        protected InjectionPlan computeValue(Class<?> type) {
+            return new InjectionPlan(type);
+        }
+    };
+
+    @Nonnull
+    private final Class<?> planClass;
+    @Nonnull
+    private final Field[] fields;
+    @Nonnull
+    private final Map<Field, Integer> fieldIndexes;
+    @Nonnull
+    private final KindOfInjectionPoint[] fieldKinds;
+    @Nonnull
+    private final String[] fieldQualifiedNames;
+    @Nullable
+    private volatile InjectionPoint[] fieldInjectionPoints;
+    @Nonnull
+    private final List<Field> fieldsEligibleForInjection;
+    @Nonnull
+    private final MethodHandle[] fieldGetters;
+    @Nonnull
+    private final MethodHandle[] fieldSetters;
+    @Nullable
+    private volatile List<InjectionConstructor> constructors;
+    @Nullable
+    private volatile List<InjectionConstructor> constructorsByAccessibility;
+    @Nullable
+    private volatile Method[] lifecycleMethods;
+    @Nullable
+    private volatile Method[] servletLifecycleMethods;
+
+    private InjectionPlan(@Nonnull Class<?> planClass) {
+        this.planClass = planClass;
+        fields = planClass.getDeclaredFields();
+
+        int fieldCount = fields.length;
+        fieldKinds = new KindOfInjectionPoint[fieldCount];
+        fieldQualifiedNames = new String[fieldCount];
+        fieldGetters = new MethodHandle[fieldCount];
+        fieldSetters = new MethodHandle[fieldCount];
+        fieldIndexes = new HashMap<>(2 * fieldCount);
+        List<Field> eligibleFields = new ArrayList<>(fieldCount);
+
+        for (int i = 0; i < fieldCount; i++) {
+            Field field = fields[i];
+            fieldIndexes.put(field, i);
+            Annotation[] annotations = field.getDeclaredAnnotations();
+            KindOfInjectionPoint kind = InjectionPoint.kindOfInjectionPoint(field);
+            fieldKinds[i] = kind;
+            fieldQualifiedNames[i] = InjectionPoint.getQualifiedName(annotations);
+
+            if (isEligibleForInjection(field, kind)) {
+                eligibleFields.add(field);
+            }
+        }
+
+        fieldsEligibleForInjection = Collections.unmodifiableList(eligibleFields);
+    }
+
+    private static boolean isEligibleForInjection(@Nonnull Field field, @Nonnull KindOfInjectionPoint kind) {
+        int modifiers = field.getModifiers();
+
+        if (isFinal(modifiers)) {
+            return false;
+        }
+
+        if (kind != KindOfInjectionPoint.NotAnnotated) {
+            return true;
+        }
+
+        // noinspection SimplifiableIfStatement
+        if (PERSISTENCE_UNIT_CLASS != null && field.getType().isAnnotationPresent(Entity.class)) {
+            return false;
+        }
+
+        return !isStatic(modifiers) && !isVolatile(modifiers);
+    }
+
+    @Nonnull
+    public static InjectionPlan forClass(@Nonnull Class<?> aClass) {
+        return PLANS.get(aClass);
+    }
+
+    /**
+     * Gets the fields declared in the class, in declaration order, which are eligible for injection.
+     */
+    @Nonnull
+    public List<Field> getFieldsEligibleForInjection() {
+        return fieldsEligibleForInjection;
+    }
+
+    @Nonnegative
+    private int indexOfField(@Nonnull Field field) {
+        Integer index = fieldIndexes.get(field);
+
+        if (index != null) {
+            return index;
+        }
+
+        throw new IllegalArgumentException("Field not declared in " + planClass + ": " + field);
+    }
+
+    @Nonnull
+    public static KindOfInjectionPoint kindOfInjectionPoint(@Nonnull Field field) {
+        InjectionPlan plan = forClass(field.getDeclaringClass());
+        return plan.fieldKinds[plan.indexOfField(field)];
+    }
+
+    @Nullable
+    public static String getQualifiedName(@Nonnull Field field) {
+        InjectionPlan plan = forClass(field.getDeclaringClass());
+        return plan.fieldQualifiedNames[plan.indexOfField(field)];
+    }
+
+    /**
+     * Reads a field declared in the class of the given object or in a superclass, through a method handle created for
+     * the field on first use.
+     */
+    @Nullable
+    public static Object getFieldValue(@Nonnull Field field, @Nonnull Object targetObject) {
+        Class<?> declaringClass = field.getDeclaringClass();
+
+        if (!declaringClass.isInstance(targetObject)) {
+            return FieldReflection.getFieldValue(field, targetObject);
+        }
+
+        InjectionPlan plan = forClass(declaringClass);
+        int i = plan.indexOfField(field);
+        MethodHandle getter = plan.fieldGetters[i];
+
+        if (getter == null) {
+            getter = FieldReflection.createGetter(plan.fields[i]);
+            plan.fieldGetters[i] = getter;
+        }
+
+        return FieldReflection.getFieldValue(getter, targetObject);
+    }
+
+    /**
+     * Assigns a field declared in the class of the given object or in a superclass, through a method handle created for
+     * the field on first use.
+     */
+    public static void setFieldValue(@Nonnull Field field, @Nonnull Object targetObject, @Nullable Object value) {
+        Class<?> declaringClass = field.getDeclaringClass();
+
+        if (!declaringClass.isInstance(targetObject)) {
+            FieldReflection.setFieldValue(field, targetObject, value);
+            return;
+        }
+
+        InjectionPlan plan = forClass(declaringClass);
+        int i = plan.indexOfField(field);
+        MethodHandle setter = plan.fieldSetters[i];
+
+        if (setter == null) {
+            setter = FieldReflection.createSetter(plan.fields[i]);
+            plan.fieldSetters[i] = setter;
+        }
+
+        FieldReflection.setFieldValue(setter, field, targetObject, value);
+    }
+
+    /**
+     * Finds the first field declared in the class whose type and name, or qualified name, match the given injection
+     * point.
+     */
+    @Nullable
+    Field findFieldForInjectionPoint(@Nonnull InjectionPoint injectionPoint) {
+        InjectionPoint[] injectionPoints = fieldInjectionPoints;
+
+        if (injectionPoints == null) {
+            injectionPoints = new InjectionPoint[fields.length];
+
+            for (int i = 0; i < fields.length; i++) {
+                Field field = fields[i];
+                String qualifiedName = fieldQualifiedNames[i];
+                boolean qualified = qualifiedName != null;
+                String name = qualified ? qualifiedName : field.getName();
+                injectionPoints[i] = new InjectionPoint(field.getGenericType(), name, qualified);
+            }
+
+            fieldInjectionPoints = injectionPoints;
+        }
+
+        for (int i = 0; i < fields.length; i++) {
+            if (injectionPoints[i].equals(injectionPoint)) {
+                return fields[i];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * A constructor of the class, with the metadata needed for selecting it and for obtaining values for its
+     * parameters.
+     */
+    public static final class InjectionConstructor {
+        @Nonnull
+        public final Constructor<?> constructor;
+        @Nonnull
+        public final KindOfInjectionPoint kind;
+        @Nonnull
+        public final String desc;
+        @Nonnull
+        private final Type[] parameterTypes;
+        @Nonnull
+        private final Annotation[][] parameterAnnotations;
+        @Nonnull
+        private final String[] parameterQualifiedNames;
+        @Nullable
+        private MethodHandle instantiator;
+
+        private InjectionConstructor(@Nonnull Constructor<?> constructor) {
+            this.constructor = constructor;
+            kind = InjectionPoint.kindOfInjectionPoint(constructor);
+            desc = "<init>" + JavaType.getConstructorDescriptor(constructor);
+            parameterTypes = constructor.getGenericParameterTypes();
+            parameterAnnotations = constructor.getParameterAnnotations();
+            parameterQualifiedNames = new String[parameterTypes.length];
+
+            for (int i = 0, n = Math.min(parameterTypes.length, parameterAnnotations.length); i < n; i++) {
+                parameterQualifiedNames[i] = InjectionPoint.getQualifiedName(parameterAnnotations[i]);
+            }
+        }
+
+        @Nonnegative
+        public int getParameterCount() {
+            return parameterTypes.length;
+        }
+
+        @Nonnull
+        public Type getParameterType(@Nonnegative int parameterIndex) {
+            return parameterTypes[parameterIndex];
+        }
+
+        @Nonnull
+        public Annotation[] getParameterAnnotations(@Nonnegative int parameterIndex) {
+            return parameterAnnotations[parameterIndex];
+        }
+
+        @Nullable
+        public String getParameterQualifiedName(@Nonnegative int parameterIndex) {
+            return parameterQualifiedNames[parameterIndex];
+        }
+
+        /**
+         * Invokes the constructor through a method handle created on first use, so that the same class gets
+         * instantiated again without the overhead of reflection.
+         */
+        @Nonnull
+        public Object newInstance(@Nonnull Object[] arguments) {
+            MethodHandle handle = instantiator;
+
+            if (handle == null) {
+                handle = ConstructorReflection.createInstantiator(constructor);
+                instantiator = handle;
+            }
+
+            return ConstructorReflection.invokeInstantiator(handle, arguments);
+        }
+    }
+
+    /**
+     * Gets the constructors declared in the class, in the order given by reflection.
+     */
+    @Nonnull
+    public List<InjectionConstructor> getConstructors() {
+        List<InjectionConstructor> injectionConstructors = constructors;
+
+        if (injectionConstructors == null) {
+            Constructor<?>[] declaredConstructors = planClass.getDeclaredConstructors();
+            injectionConstructors = new ArrayList<>(declaredConstructors.length);
+
+            for (Constructor<?> declaredConstructor : declaredConstructors) {
+                injectionConstructors.add(new InjectionConstructor(declaredConstructor));
+            }
+
+            injectionConstructors = Collections.unmodifiableList(injectionConstructors);
+            constructors = injectionConstructors;
+        }
+
+        return injectionConstructors;
+    }
+
+    /**
+     * Gets the constructors declared in the class with the most accessible ones first, and otherwise in the order
+     * given by reflection.
+     */
+    @Nonnull
+    public List<InjectionConstructor> getConstructorsByAccessibility() {
+        List<InjectionConstructor> sortedConstructors = constructorsByAccessibility;
+
+        if (sortedConstructors == null) {
+            InjectionConstructor[] constructorArray = getConstructors().toArray(new InjectionConstructor[0]);
+            Arrays.sort(constructorArray, Comparator.comparing(c -> c.constructor, InjectionPlan::compareAccessibility));
+            sortedConstructors = Collections.unmodifiableList(Arrays.asList(constructorArray));
+            constructorsByAccessibility = sortedConstructors;
+        }
+
+        return sortedConstructors;
+    }
+
+    public static int compareAccessibility(@Nonnull Constructor<?> c1, @Nonnull Constructor<?> c2) {
+        int m1 = getAccessModifiers(c1);
+        int m2 = getAccessModifiers(c2);
+        if (m1 == m2) {
+            return 0;
+        }
+        if (m1 == Modifier.PUBLIC) {
+            return -1;
+        }
+        if (m2 == Modifier.PUBLIC) {
+            return 1;
+        }
+        if (m1 == Modifier.PROTECTED) {
+            return -1;
+        }
+        if (m2 == Modifier.PROTECTED) {
+            return 1;
+        }
+        if (m2 == Modifier.PRIVATE) {
+            return -1;
+        }
+        return 1;
+    }
+
+    public static int getAccessModifiers(@Nonnull Constructor<?> c) {
+        return CONSTRUCTOR_ACCESS & c.getModifiers();
+    }
+
+    @Nonnull
+    public InjectionConstructor getConstructor(@Nonnull Constructor<?> constructor) {
+        for (InjectionConstructor injectionConstructor : getConstructors()) {
+            if (injectionConstructor.constructor.equals(constructor)) {
+                return injectionConstructor;
+            }
+        }
+
+        throw new IllegalArgumentException("Constructor not declared in " + planClass + ": " + constructor);
+    }
+
+    /**
+     * Gets the initialization and termination methods declared in the class, as previously
+     * {@linkplain #setLifecycleMethods found}.
+     *
+     * @return a two-element array with the initialization method and the termination method, either of which can be
+     *         <code>null</code>; or <code>null</code> if not found yet
+     */
+    @Nullable
+    Method[] getLifecycleMethods(boolean isServlet) {
+        return isServlet ? servletLifecycleMethods : lifecycleMethods;
+    }
+
+    void setLifecycleMethods(boolean isServlet, @Nonnull Method[] initializationAndTerminationMethods) {
+        if (isServlet) {
+            servletLifecycleMethods = initializationAndTerminationMethods;
+        } else {
+            lifecycleMethods = initializationAndTerminationMethods;
+        }
+    }
+}
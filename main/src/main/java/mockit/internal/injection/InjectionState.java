@@ -4,8 +4,6 @@
  */
 package mockit.internal.injection;
 
-import static mockit.internal.injection.InjectionPoint.getQualifiedName;
-
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 import java.util.LinkedHashMap;
@@ -17,7 +15,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import mockit.internal.reflection.FieldReflection;
 import mockit.internal.reflection.GenericTypeReflection;
 
 /**
@@ -124,19 +121,8 @@ public final class InjectionState {
     @Nullable
     private static Object getValueFromFieldOfEquivalentTypeAndName(@Nonnull InjectionPoint injectionPoint,
             @Nonnull Object testedObject) {
-        for (Field internalField : testedObject.getClass().getDeclaredFields()) {
-            Type fieldType = internalField.getGenericType();
-            String qualifiedName = getQualifiedName(internalField.getDeclaredAnnotations());
-            boolean qualified = qualifiedName != null;
-            String fieldName = qualified ? qualifiedName : internalField.getName();
-            InjectionPoint internalInjectionPoint = new InjectionPoint(fieldType, fieldName, qualified);
-
-            if (internalInjectionPoint.equals(injectionPoint)) {
-                return FieldReflection.getFieldValue(internalField, testedObject);
-            }
-        }
-
-        return null;
+        Field internalField = InjectionPlan.forClass(testedObject.getClass()).findFieldForInjectionPoint(injectionPoint);
+        return internalField == null ? null : InjectionPlan.getFieldValue(internalField, testedObject);
     }
 
     @Nullable
@@ -4,16 +4,10 @@
  */
 package mockit.internal.injection;
 
-import static java.lang.reflect.Modifier.isFinal;
-import static java.lang.reflect.Modifier.isStatic;
-import static java.lang.reflect.Modifier.isVolatile;
 import static java.util.regex.Pattern.compile;
 
-import static mockit.internal.injection.InjectionPoint.PERSISTENCE_UNIT_CLASS;
 import static mockit.internal.injection.InjectionPoint.convertToLegalJavaIdentifierIfNeeded;
-import static mockit.internal.injection.InjectionPoint.getQualifiedName;
 import static mockit.internal.injection.InjectionPoint.isServlet;
-import static mockit.internal.injection.InjectionPoint.kindOfInjectionPoint;
 import static mockit.internal.injection.InjectionPoint.wrapInProviderIfNeeded;
 import static mockit.internal.injection.InjectionProvider.NULL;
 
@@ -26,12 +20,10 @@ import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import javax.persistence.Entity;
 
 import mockit.internal.injection.InjectionPoint.KindOfInjectionPoint;
 import mockit.internal.injection.field.FieldToInject;
 import mockit.internal.injection.full.FullInjection;
-import mockit.internal.reflection.FieldReflection;
 import mockit.internal.util.DefaultValues;
 
 public class Injector {
@@ -54,42 +46,13 @@ public class Injector {
         Class<?> classWithFields = actualTestedClass;
 
         do {
-            addEligibleFields(targetFields, classWithFields);
+            targetFields.addAll(InjectionPlan.forClass(classWithFields).getFieldsEligibleForInjection());
             classWithFields = classWithFields.getSuperclass();
         } while (testedClass.isClassFromSameModuleOrSystemAsTestedClass(classWithFields) || isServlet(classWithFields));
 
         return targetFields;
     }
 
-    private static void addEligibleFields(@Nonnull List<Field> targetFields, @Nonnull Class<?> classWithFields) {
-        Field[] fields = classWithFields.getDeclaredFields();
-
-        for (Field field : fields) {
-            if (isEligibleForInjection(field)) {
-                targetFields.add(field);
-            }
-        }
-    }
-
-    private static boolean isEligibleForInjection(@Nonnull Field field) {
-        int modifiers = field.getModifiers();
-
-        if (isFinal(modifiers)) {
-            return false;
-        }
-
-        if (kindOfInjectionPoint(field) != KindOfInjectionPoint.NotAnnotated) {
-            return true;
-        }
-
-        // noinspection SimplifiableIfStatement
-        if (PERSISTENCE_UNIT_CLASS != null && field.getType().isAnnotationPresent(Entity.class)) {
-            return false;
-        }
-
-        return !isStatic(modifiers) && !isVolatile(modifiers);
-    }
-
     public final void fillOutDependenciesRecursively(@Nonnull Object dependency, @Nonnull TestedClass testedClass) {
         Class<?> dependencyClass = dependency.getClass();
         List<Field> targetFields = findAllTargetInstanceFieldsInTestedClassHierarchy(dependencyClass, testedClass);
@@ -110,7 +73,7 @@ public class Injector {
 
                 if (injectableValue != null && injectableValue != NULL) {
                     injectableValue = wrapInProviderIfNeeded(field.getGenericType(), injectableValue);
-                    FieldReflection.setFieldValue(field, testedObject, injectableValue);
+                    InjectionPlan.setFieldValue(field, testedObject, injectableValue);
                 }
             }
         }
@@ -118,11 +81,11 @@ public class Injector {
 
     private static boolean targetFieldWasNotAssignedByConstructor(@Nonnull Object testedObject,
             @Nonnull Field targetField) {
-        if (kindOfInjectionPoint(targetField) != KindOfInjectionPoint.NotAnnotated) {
+        if (InjectionPlan.kindOfInjectionPoint(targetField) != KindOfInjectionPoint.NotAnnotated) {
             return true;
         }
 
-        Object fieldValue = FieldReflection.getFieldValue(targetField, testedObject);
+        Object fieldValue = InjectionPlan.getFieldValue(targetField, testedObject);
 
         if (fieldValue == null) {
             return true;
@@ -143,7 +106,7 @@ public class Injector {
     private Object getValueForFieldIfAvailable(@Nonnull List<Field> targetFields, @Nonnull TestedClass testedClass,
             @Nonnull Field targetField) {
         @Nullable
-        String qualifiedFieldName = getQualifiedName(targetField.getDeclaredAnnotations());
+        String qualifiedFieldName = InjectionPlan.getQualifiedName(targetField);
         InjectionProvider injectable = findAvailableInjectableIfAny(targetFields, qualifiedFieldName, testedClass,
                 targetField);
 
@@ -171,7 +134,7 @@ public class Injector {
             }
         }
 
-        KindOfInjectionPoint kindOfInjectionPoint = kindOfInjectionPoint(targetField);
+        KindOfInjectionPoint kindOfInjectionPoint = InjectionPlan.kindOfInjectionPoint(targetField);
         throwExceptionIfUnableToInjectRequiredTargetField(kindOfInjectionPoint, targetField, qualifiedFieldName);
         return null;
     }
@@ -179,7 +142,7 @@ public class Injector {
     @Nullable
     private InjectionProvider findAvailableInjectableIfAny(@Nonnull List<Field> targetFields,
             @Nullable String qualifiedTargetFieldName, @Nonnull TestedClass testedClass, @Nonnull Field targetField) {
-        KindOfInjectionPoint kindOfInjectionPoint = kindOfInjectionPoint(targetField);
+        KindOfInjectionPoint kindOfInjectionPoint = InjectionPlan.kindOfInjectionPoint(targetField);
         InjectionProviders injectionProviders = injectionState.injectionProviders;
         injectionProviders.setTypeOfInjectionPoint(targetField.getGenericType(), kindOfInjectionPoint);
 
@@ -62,6 +62,29 @@ public final class LifecycleMethods {
     }
 
     private void findLifecycleMethodsInSingleClass(boolean isServlet, @Nonnull Class<?> classWithLifecycleMethods) {
+        InjectionPlan plan = InjectionPlan.forClass(classWithLifecycleMethods);
+        Method[] lifecycleMethods = plan.getLifecycleMethods(isServlet);
+
+        if (lifecycleMethods == null) {
+            lifecycleMethods = findLifecycleMethodsInSingleClass(classWithLifecycleMethods, isServlet);
+            plan.setLifecycleMethods(isServlet, lifecycleMethods);
+        }
+
+        Method initializationMethod = lifecycleMethods[0];
+        Method terminationMethod = lifecycleMethods[1];
+
+        if (initializationMethod != null) {
+            initializationMethods.put(classWithLifecycleMethods, initializationMethod);
+        }
+
+        if (terminationMethod != null) {
+            terminationMethods.put(classWithLifecycleMethods, terminationMethod);
+        }
+    }
+
+    @Nonnull
+    private static Method[] findLifecycleMethodsInSingleClass(@Nonnull Class<?> classWithLifecycleMethods,
+            boolean isServlet) {
         Method initializationMethod = null;
         Method terminationMethod = null;
         int methodsFoundInSameClass = 0;
@@ -72,11 +95,9 @@ public final class LifecycleMethods {
             }
 
             if (initializationMethod == null && isInitializationMethod(method, isServlet)) {
-                initializationMethods.put(classWithLifecycleMethods, method);
                 initializationMethod = method;
                 methodsFoundInSameClass++;
             } else if (terminationMethod == null && isTerminationMethod(method, isServlet)) {
-                terminationMethods.put(classWithLifecycleMethods, method);
                 terminationMethod = method;
                 methodsFoundInSameClass++;
             }
@@ -85,6 +106,8 @@ public final class LifecycleMethods {
                 break;
             }
         }
+
+        return new Method[] { initializationMethod, terminationMethod };
     }
 
     private static boolean isInitializationMethod(@Nonnull Method method, boolean isServlet) {
@@ -4,12 +4,9 @@
  */
 package mockit.internal.injection.constructor;
 
-import static mockit.internal.injection.InjectionPoint.getQualifiedName;
 import static mockit.internal.injection.InjectionPoint.getTypeOfInjectionPointFromVarargsParameter;
-import static mockit.internal.injection.InjectionPoint.kindOfInjectionPoint;
 import static mockit.internal.injection.InjectionPoint.wrapInProviderIfNeeded;
 import static mockit.internal.injection.InjectionProvider.NULL;
-import static mockit.internal.reflection.ConstructorReflection.invokeAccessible;
 import static mockit.internal.util.Utilities.NO_ARGS;
 import static mockit.internal.util.Utilities.ensureThatMemberIsAccessible;
 import static mockit.internal.util.Utilities.getClassType;
@@ -24,6 +21,8 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import mockit.asm.types.JavaType;
+import mockit.internal.injection.InjectionPlan;
+import mockit.internal.injection.InjectionPlan.InjectionConstructor;
 import mockit.internal.injection.InjectionPoint.KindOfInjectionPoint;
 import mockit.internal.injection.InjectionProvider;
 import mockit.internal.injection.InjectionProviders;
@@ -39,19 +38,21 @@ import mockit.internal.util.StackTrace;
 public final class ConstructorInjection extends Injector {
     @Nonnull
     private final Constructor<?> constructor;
+    @Nonnull
+    private final InjectionConstructor injectionConstructor;
 
     public ConstructorInjection(@Nonnull InjectionState injectionState, @Nullable FullInjection fullInjection,
             @Nonnull Constructor<?> constructor) {
         super(injectionState, fullInjection);
         ensureThatMemberIsAccessible(constructor);
         this.constructor = constructor;
+        injectionConstructor = InjectionPlan.forClass(constructor.getDeclaringClass()).getConstructor(constructor);
     }
 
     @Nullable
     public Object instantiate(@Nonnull List<InjectionProvider> parameterProviders, @Nonnull TestedClass testedClass,
             boolean required, boolean needToConstruct) {
-        Type[] parameterTypes = constructor.getGenericParameterTypes();
-        int n = parameterTypes.length;
+        int n = injectionConstructor.getParameterCount();
         List<InjectionProvider> consumedInjectables = n == 0 ? null
                 : injectionState.injectionProviders.saveConsumedInjectionProviders();
         Object[] arguments = n == 0 ? NO_ARGS : new Object[n];
@@ -77,13 +78,13 @@ public final class ConstructorInjection extends Injector {
             }
 
             if (value != NULL) {
-                Type parameterType = parameterTypes[i];
+                Type parameterType = injectionConstructor.getParameterType(i);
                 arguments[i] = wrapInProviderIfNeeded(parameterType, value);
             }
         }
 
         if (varArgs) {
-            Type parameterType = parameterTypes[n];
+            Type parameterType = injectionConstructor.getParameterType(n);
             arguments[n] = obtainInjectedVarargsArray(parameterType, testedClass);
         }
 
@@ -109,9 +110,9 @@ public final class ConstructorInjection extends Injector {
 
         if (FullInjection.isInstantiableType(parameterClass)) {
             Type parameterType = constructorParameter.getDeclaredType();
-            KindOfInjectionPoint kindOfInjectionPoint = kindOfInjectionPoint(constructor);
+            KindOfInjectionPoint kindOfInjectionPoint = injectionConstructor.kind;
             injectionState.injectionProviders.setTypeOfInjectionPoint(parameterType, kindOfInjectionPoint);
-            String qualifiedName = getQualifiedName(constructorParameter.getAnnotations());
+            String qualifiedName = constructorParameter.qualifiedName;
             TestedClass nextTestedClass = new TestedClass(parameterType, parameterClass);
 
             newOrReusedValue = fullInjection.createOrReuseInstance(nextTestedClass, this, constructorParameter,
@@ -159,13 +160,13 @@ public final class ConstructorInjection extends Injector {
 
     @Nonnull
     private String getConstructorDesc() {
-        return "<init>" + JavaType.getConstructorDescriptor(constructor);
+        return injectionConstructor.desc;
     }
 
     @Nonnull
     private Object obtainInjectedVarargsArray(@Nonnull Type parameterType, @Nonnull TestedClass testedClass) {
         Type varargsElementType = getTypeOfInjectionPointFromVarargsParameter(parameterType);
-        KindOfInjectionPoint kindOfInjectionPoint = kindOfInjectionPoint(constructor);
+        KindOfInjectionPoint kindOfInjectionPoint = injectionConstructor.kind;
         InjectionProviders injectionProviders = injectionState.injectionProviders;
         injectionProviders.setTypeOfInjectionPoint(varargsElementType, kindOfInjectionPoint);
 
@@ -214,7 +215,7 @@ public final class ConstructorInjection extends Injector {
         TestRun.exitNoMockingZone();
 
         try {
-            return invokeAccessible(constructor, arguments);
+            return injectionConstructor.newInstance(arguments);
         } finally {
             TestRun.enterNoMockingZone();
         }
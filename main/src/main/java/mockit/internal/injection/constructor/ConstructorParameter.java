@@ -20,13 +20,16 @@ final class ConstructorParameter extends InjectionProvider {
     @Nonnull
     private final Annotation[] annotations;
     @Nullable
+    final String qualifiedName;
+    @Nullable
     private final Object value;
 
-    ConstructorParameter(@Nonnull Type declaredType, @Nonnull Annotation[] annotations, @Nonnull String name,
-            @Nullable Object value) {
+    ConstructorParameter(@Nonnull Type declaredType, @Nonnull Annotation[] annotations,
+            @Nullable String qualifiedName, @Nonnull String name, @Nullable Object value) {
         super(declaredType, name);
         classOfDeclaredType = getClassType(declaredType);
         this.annotations = annotations;
+        this.qualifiedName = qualifiedName;
         this.value = value;
     }
 
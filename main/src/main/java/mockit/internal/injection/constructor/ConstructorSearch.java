@@ -4,26 +4,20 @@
  */
 package mockit.internal.injection.constructor;
 
-import static java.lang.reflect.Modifier.PRIVATE;
-import static java.lang.reflect.Modifier.PROTECTED;
-import static java.lang.reflect.Modifier.PUBLIC;
-
-import static mockit.internal.injection.InjectionPoint.getQualifiedName;
+import static mockit.internal.injection.InjectionPlan.getAccessModifiers;
 import static mockit.internal.injection.InjectionPoint.getTypeOfInjectionPointFromVarargsParameter;
-import static mockit.internal.injection.InjectionPoint.kindOfInjectionPoint;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import mockit.asm.types.JavaType;
+import mockit.internal.injection.InjectionPlan;
+import mockit.internal.injection.InjectionPlan.InjectionConstructor;
 import mockit.internal.injection.InjectionPoint;
 import mockit.internal.injection.InjectionPoint.KindOfInjectionPoint;
 import mockit.internal.injection.InjectionProvider;
@@ -34,8 +28,6 @@ import mockit.internal.state.ParameterNames;
 import mockit.internal.util.ParameterNameExtractor;
 
 public final class ConstructorSearch {
-    private static final int CONSTRUCTOR_ACCESS = PUBLIC + PROTECTED + PRIVATE;
-
     @Nonnull
     private final InjectionState injectionState;
     @Nonnull
@@ -64,23 +56,23 @@ public final class ConstructorSearch {
     public Constructor<?> findConstructorToUse() {
         constructor = null;
         Class<?> declaredClass = testedClass.targetClass;
-        Constructor<?>[] constructors = declaredClass.getDeclaredConstructors();
+        InjectionPlan injectionPlan = InjectionPlan.forClass(declaredClass);
 
-        if (!findSingleAnnotatedConstructor(constructors)) {
-            findSatisfiedConstructorWithMostParameters(constructors);
+        if (!findSingleAnnotatedConstructor(injectionPlan.getConstructors())) {
+            findSatisfiedConstructorWithMostParameters(injectionPlan.getConstructorsByAccessibility());
         }
 
         return constructor;
     }
 
-    private boolean findSingleAnnotatedConstructor(@Nonnull Constructor<?>[] constructors) {
-        for (Constructor<?> c : constructors) {
-            if (kindOfInjectionPoint(c) != KindOfInjectionPoint.NotAnnotated) {
+    private boolean findSingleAnnotatedConstructor(@Nonnull List<InjectionConstructor> constructors) {
+        for (InjectionConstructor c : constructors) {
+            if (c.kind != KindOfInjectionPoint.NotAnnotated) {
                 List<InjectionProvider> providersFound = findParameterProvidersForConstructor(c);
 
                 if (providersFound != null) {
                     parameterProviders = providersFound;
-                    constructor = c;
+                    constructor = c.constructor;
                 }
 
                 return true;
@@ -90,14 +82,13 @@ public final class ConstructorSearch {
         return false;
     }
 
-    private void findSatisfiedConstructorWithMostParameters(@Nonnull Constructor<?>[] constructors) {
-        sortConstructorsWithMostAccessibleFirst(constructors);
-
+    private void findSatisfiedConstructorWithMostParameters(@Nonnull List<InjectionConstructor> constructors) {
         Constructor<?> unresolvedConstructor = null;
         List<InjectionProvider> incompleteProviders = null;
 
-        for (Constructor<?> candidateConstructor : constructors) {
-            List<InjectionProvider> providersFound = findParameterProvidersForConstructor(candidateConstructor);
+        for (InjectionConstructor candidate : constructors) {
+            Constructor<?> candidateConstructor = candidate.constructor;
+            List<InjectionProvider> providersFound = findParameterProvidersForConstructor(candidate);
 
             if (providersFound != null) {
                 if (withFullInjection && containsUnresolvedProvider(providersFound)) {
@@ -117,38 +108,6 @@ public final class ConstructorSearch {
         selectConstructorWithUnresolvedParameterIfMoreAccessible(unresolvedConstructor, incompleteProviders);
     }
 
-    private static void sortConstructorsWithMostAccessibleFirst(@Nonnull Constructor<?>[] constructors) {
-        if (constructors.length > 1) {
-            Arrays.sort(constructors, CONSTRUCTOR_COMPARATOR);
-        }
-    }
-
-    private static final Comparator<Constructor<?>> CONSTRUCTOR_COMPARATOR = ConstructorSearch::compareAccessibility;
-
-    private static int compareAccessibility(@Nonnull Constructor<?> c1, @Nonnull Constructor<?> c2) {
-        int m1 = getModifiers(c1);
-        int m2 = getModifiers(c2);
-        if (m1 == m2) {
-            return 0;
-        }
-        if (m1 == PUBLIC) {
-            return -1;
-        }
-        if (m2 == PUBLIC) {
-            return 1;
-        }
-        if (m1 == PROTECTED) {
-            return -1;
-        }
-        if (m2 == PROTECTED) {
-            return 1;
-        }
-        if (m2 == PRIVATE) {
-            return -1;
-        }
-        return 1;
-    }
-
     private static boolean containsUnresolvedProvider(@Nonnull List<InjectionProvider> providersFound) {
         for (InjectionProvider provider : providersFound) {
             if (provider instanceof ConstructorParameter && provider.getValue(null) == null) {
@@ -162,40 +121,33 @@ public final class ConstructorSearch {
     private static boolean isLargerConstructor(@Nonnull Constructor<?> candidateConstructor,
             @Nonnull List<InjectionProvider> providersFound, @Nonnull Constructor<?> previousSatisfiableConstructor,
             @Nonnull List<InjectionProvider> previousProviders) {
-        return getModifiers(candidateConstructor) == getModifiers(previousSatisfiableConstructor)
+        return getAccessModifiers(candidateConstructor) == getAccessModifiers(previousSatisfiableConstructor)
                 && providersFound.size() >= previousProviders.size();
     }
 
-    private static int getModifiers(@Nonnull Constructor<?> c) {
-        return CONSTRUCTOR_ACCESS & c.getModifiers();
-    }
-
     @Nullable
-    private List<InjectionProvider> findParameterProvidersForConstructor(@Nonnull Constructor<?> candidate) {
-        Type[] parameterTypes = candidate.getGenericParameterTypes();
-        Annotation[][] parameterAnnotations = candidate.getParameterAnnotations();
-        int n = parameterTypes.length;
+    private List<InjectionProvider> findParameterProvidersForConstructor(@Nonnull InjectionConstructor candidate) {
+        Constructor<?> candidateConstructor = candidate.constructor;
+        int n = candidate.getParameterCount();
         List<InjectionProvider> providersFound = new ArrayList<>(n);
-        boolean varArgs = candidate.isVarArgs();
+        boolean varArgs = candidateConstructor.isVarArgs();
 
         if (varArgs) {
             n--;
         }
 
-        printCandidateConstructorNameIfRequested(candidate);
+        printCandidateConstructorNameIfRequested(candidateConstructor);
 
-        String constructorDesc = "<init>" + JavaType.getConstructorDescriptor(candidate);
         InjectionProviders injectionProviders = injectionState.injectionProviders;
-        KindOfInjectionPoint kindOfInjectionPoint = kindOfInjectionPoint(candidate);
+        KindOfInjectionPoint kindOfInjectionPoint = candidate.kind;
 
         for (int i = 0; i < n; i++) {
-            Type parameterType = parameterTypes[i];
+            Type parameterType = candidate.getParameterType(i);
             injectionProviders.setTypeOfInjectionPoint(parameterType, kindOfInjectionPoint);
 
-            String parameterName = ParameterNames.getName(testedClassDesc, constructorDesc, i);
-            Annotation[] appliedAnnotations = parameterAnnotations[i];
+            String parameterName = ParameterNames.getName(testedClassDesc, candidate.desc, i);
             InjectionProvider provider = findOrCreateInjectionProvider(parameterType, parameterName,
-                    appliedAnnotations);
+                    candidate.getParameterAnnotations(i), candidate.getParameterQualifiedName(i));
 
             if (provider == null || providersFound.contains(provider)) {
                 printParameterOfCandidateConstructorIfRequested(parameterName, provider);
@@ -206,7 +158,7 @@ public final class ConstructorSearch {
         }
 
         if (varArgs) {
-            Type parameterType = parameterTypes[n];
+            Type parameterType = candidate.getParameterType(n);
             InjectionProvider injectable = hasInjectedValuesForVarargsParameter(parameterType, kindOfInjectionPoint,
                     injectionProviders);
 
@@ -220,9 +172,7 @@ public final class ConstructorSearch {
 
     @Nullable
     private InjectionProvider findOrCreateInjectionProvider(@Nonnull Type parameterType, @Nullable String parameterName,
-            @Nonnull Annotation[] parameterAnnotations) {
-        String qualifiedName = getQualifiedName(parameterAnnotations);
-
+            @Nonnull Annotation[] parameterAnnotations, @Nullable String qualifiedName) {
         if (parameterName == null && qualifiedName == null) {
             return null;
         }
@@ -243,7 +193,8 @@ public final class ConstructorSearch {
             return null;
         }
 
-        return new ConstructorParameter(parameterType, parameterAnnotations, targetName, valueForParameter);
+        return new ConstructorParameter(parameterType, parameterAnnotations, qualifiedName, targetName,
+                valueForParameter);
     }
 
     @Nullable
@@ -257,7 +208,7 @@ public final class ConstructorSearch {
     private void selectConstructorWithUnresolvedParameterIfMoreAccessible(
             @Nullable Constructor<?> unresolvedConstructor, List<InjectionProvider> incompleteProviders) {
         if (unresolvedConstructor != null
-                && (constructor == null || compareAccessibility(unresolvedConstructor, constructor) < 0)) {
+                && (constructor == null || InjectionPlan.compareAccessibility(unresolvedConstructor, constructor) < 0)) {
             constructor = unresolvedConstructor;
             parameterProviders = incompleteProviders;
         }
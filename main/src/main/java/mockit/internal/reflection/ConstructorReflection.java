@@ -9,6 +9,9 @@ import static mockit.internal.reflection.ParameterReflection.indexOfFirstRealPar
 import static mockit.internal.reflection.ParameterReflection.matchesParameterTypes;
 import static mockit.internal.util.Utilities.ensureThatMemberIsAccessible;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
@@ -58,6 +61,38 @@ public final class ConstructorReflection {
         }
     }
 
+    /**
+     * Creates a method handle of type <code>(Object[])Object</code> which invokes the given constructor with the
+     * arguments in the array, for classes which get instantiated many times.
+     */
+    @Nonnull
+    public static MethodHandle createInstantiator(@Nonnull Constructor<?> constructor) {
+        ensureThatMemberIsAccessible(constructor);
+        MethodHandle handle;
+
+        try {
+            handle = MethodHandles.lookup().unreflectConstructor(constructor);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+
+        int parameterCount = constructor.getParameterCount();
+        return handle.asFixedArity().asSpreader(Object[].class, parameterCount)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+    }
+
+    @Nonnull
+    public static Object invokeInstantiator(@Nonnull MethodHandle instantiator, @Nonnull Object[] initArgs) {
+        try {
+            return (Object) instantiator.invokeExact(initArgs);
+        } catch (Error | RuntimeException e) {
+            throw e;
+        } catch (Throwable t) {
+            ThrowOfCheckedException.doThrow((Exception) t);
+            throw new IllegalStateException("Should never get here", t);
+        }
+    }
+
     public static void newInstanceUsingCompatibleConstructor(@Nonnull Class<?> aClass, @Nonnull String argument)
             throws ReflectiveOperationException {
         Constructor<?> constructor = aClass.getDeclaredConstructor(String.class);
@@ -4,8 +4,13 @@
  */
 package mockit.internal.reflection;
 
+import static java.lang.reflect.Modifier.isStatic;
+
 import static mockit.internal.util.Utilities.ensureThatMemberIsAccessible;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 
 import javax.annotation.Nonnull;
@@ -46,4 +51,93 @@ public final class FieldReflection {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Creates a method handle of type <code>(Object)Object</code> which reads the given field from the target object,
+     * ignored if the field is <code>static</code>.
+     */
+    @Nonnull
+    public static MethodHandle createGetter(@Nonnull Field field) {
+        ensureThatMemberIsAccessible(field);
+        MethodHandle getter;
+
+        try {
+            getter = MethodHandles.lookup().unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (isStatic(field.getModifiers())) {
+            getter = MethodHandles.dropArguments(getter, 0, Object.class);
+        }
+
+        return getter.asType(MethodType.methodType(Object.class, Object.class));
+    }
+
+    /**
+     * Creates a method handle of type <code>(Object, Object)void</code> which assigns the given field on the target
+     * object, ignored if the field is <code>static</code>.
+     */
+    @Nonnull
+    public static MethodHandle createSetter(@Nonnull Field field) {
+        ensureThatMemberIsAccessible(field);
+        MethodHandle setter;
+
+        try {
+            setter = MethodHandles.lookup().unreflectSetter(field);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (isStatic(field.getModifiers())) {
+            setter = MethodHandles.dropArguments(setter, 0, Object.class);
+        }
+
+        return setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+    }
+
+    @Nullable
+    public static Object getFieldValue(@Nonnull MethodHandle getter, @Nonnull Object targetObject) {
+        try {
+            return (Object) getter.invokeExact(targetObject);
+        } catch (Error | RuntimeException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Assigns a field through a setter created by {@link #createSetter(Field)}, failing with the same
+     * <code>IllegalArgumentException</code> as {@link Field#set(Object, Object)} if the value can't be assigned to the
+     * field.
+     */
+    public static void setFieldValue(@Nonnull MethodHandle setter, @Nonnull Field field, @Nonnull Object targetObject,
+            @Nullable Object value) {
+        try {
+            setter.invokeExact(targetObject, value);
+        } catch (ClassCastException e) {
+            throw newIllegalFieldAssignment(field, value, e);
+        } catch (NullPointerException e) {
+            if (value == null && field.getType().isPrimitive()) {
+                throw newIllegalFieldAssignment(field, null, e);
+            }
+
+            throw e;
+        } catch (Error | RuntimeException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Nonnull
+    private static IllegalArgumentException newIllegalFieldAssignment(@Nonnull Field field, @Nullable Object value,
+            @Nonnull RuntimeException cause) {
+        String valueDescription = value == null ? "null value" : value.getClass().getName();
+        String message = "Can not set " + (isStatic(field.getModifiers()) ? "static " : "")
+                + field.getType().getName() + " field " + field.getDeclaringClass().getName() + '.' + field.getName()
+                + " to " + valueDescription;
+        return new IllegalArgumentException(message, cause);
+    }
 }
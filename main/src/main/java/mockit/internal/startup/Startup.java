@@ -16,6 +16,7 @@ import javax.annotation.Nullable;
 import mockit.internal.ClassIdentification;
 import mockit.internal.expectations.transformation.ExpectationsTransformer;
 import mockit.internal.state.CachedClassfiles;
+import mockit.internal.state.LoadedClasses;
 
 /**
  * This is the "agent class" that initializes the JMockit "Java agent", provided the JVM is initialized with
@@ -48,6 +49,7 @@ public final class Startup {
 
         instrumentation = inst;
         inst.addTransformer(CachedClassfiles.INSTANCE, true);
+        inst.addTransformer(LoadedClasses.INSTANCE);
 
         initializing = true;
         try {
@@ -108,6 +110,45 @@ public final class Startup {
         }
     }
 
+    /**
+     * Redefines the given classes back to previous definitions, all at once if possible. Since a redefinition either
+     * applies to all classes or to none, a failure for any of them, even one otherwise ignored, is followed by a
+     * redefinition of each class separately, so that the other classes still get restored; the first failure is then
+     * rethrown.
+     */
+    public static void restoreClasses(@Nonnull ClassDefinition... classDefs) {
+        if (classDefs.length > 1) {
+            try {
+                // noinspection ConstantConditions
+                instrumentation.redefineClasses(classDefs);
+                return;
+            } catch (ClassNotFoundException | UnmodifiableClassException | RuntimeException | LinkageError
+                    | InternalError ignore) {
+                // Retried below, one class at a time.
+            }
+        }
+
+        Throwable firstFailure = null;
+
+        for (ClassDefinition classDef : classDefs) {
+            try {
+                redefineMethods(classDef);
+            } catch (RuntimeException | Error e) {
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+            }
+        }
+
+        if (firstFailure instanceof RuntimeException) {
+            throw (RuntimeException) firstFailure;
+        }
+
+        if (firstFailure != null) {
+            throw (Error) firstFailure;
+        }
+    }
+
     private static void detectMissingDependenciesIfAny(@Nonnull Class<?> mockedClass) {
         try {
             Class.forName(mockedClass.getName(), false, mockedClass.getClassLoader());
@@ -121,15 +162,6 @@ public final class Startup {
     @Nullable
     public static Class<?> getClassIfLoaded(@Nonnull String classDescOrName) {
         String className = classDescOrName.replace('/', '.');
-        @SuppressWarnings("ConstantConditions")
-        Class<?>[] loadedClasses = instrumentation.getAllLoadedClasses();
-
-        for (Class<?> aClass : loadedClasses) {
-            if (aClass.getName().equals(className)) {
-                return aClass;
-            }
-        }
-
-        return null;
+        return LoadedClasses.getClassIfLoaded(className);
     }
 }
@@ -5,11 +5,24 @@
 package mockit.internal.state;
 
 import java.lang.instrument.ClassFileTransformer;
+import java.lang.ref.WeakReference;
 import java.security.ProtectionDomain;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -24,18 +37,181 @@ import mockit.internal.startup.Startup;
  * <p>
  * This bytecode cache allows classes to be mocked and un-mocked correctly, even in the presence of other bytecode
  * modification agents such as the AspectJ load-time weaver.
+ * <p>
+ * The cache is unbounded by default. Setting the "<code>classfileCacheSize</code>" system property to a number of
+ * megabytes keeps the total size of the cached classfiles within that size: when exceeded, the least recently used
+ * classfiles are discarded, or first compressed if the "<code>compressClassfileCache</code>" system property is
+ * <code>true</code>. A discarded classfile is obtained again by retransforming its class, as when first
+ * cached, so classfiles of classes which currently have a modified definition are never discarded.
  */
 public final class CachedClassfiles implements ClassFileTransformer {
     @Nonnull
     public static final CachedClassfiles INSTANCE = new CachedClassfiles();
 
     @Nonnull
-    private final Map<ClassLoader, Map<String, byte[]>> classLoadersAndClassfiles;
-    @Nullable
-    private Class<?> classBeingCached;
+    private final Map<ClassLoader, Map<String, CachedClassfile>> classLoadersAndClassfiles;
+    @Nonnull
+    private final Set<Class<?>> classesBeingCached;
+    @Nonnull
+    private final AtomicLong cachedBytes;
+    @Nonnull
+    private final AtomicLong accessCount;
+    @Nonnull
+    private final ReentrantLock evictionLock;
+    @Nonnegative
+    private final long maxCachedBytes;
+    private final boolean compressColdClassfiles;
 
     private CachedClassfiles() {
+        this(Long.getLong("classfileCacheSize", 0L) * 1024 * 1024, Boolean.getBoolean("compressClassfileCache"));
+    }
+
+    /**
+     * Creates a cache kept within the given size, or unbounded if 0.
+     */
+    CachedClassfiles(@Nonnegative long maxCachedBytes, boolean compressColdClassfiles) {
+        this.maxCachedBytes = maxCachedBytes;
+        this.compressColdClassfiles = compressColdClassfiles;
         classLoadersAndClassfiles = new WeakHashMap<>(2);
+        classesBeingCached = ConcurrentHashMap.newKeySet();
+        cachedBytes = new AtomicLong();
+        accessCount = new AtomicLong();
+        evictionLock = new ReentrantLock();
+    }
+
+    private static final class CachedClassfile {
+        @Nonnull
+        final Map<String, CachedClassfile> classfiles;
+        @Nonnull
+        final String classDesc;
+        @Nonnull
+        final WeakReference<Class<?>> cachedClass;
+        @Nonnegative
+        final int length;
+        @Nonnull
+        private byte[] bytes;
+        private boolean compressed;
+        private boolean discarded;
+        volatile long lastAccess;
+
+        CachedClassfile(@Nonnull Map<String, CachedClassfile> classfiles, @Nonnull String classDesc,
+                @Nonnull Class<?> cachedClass, @Nonnull byte[] classfile) {
+            this.classfiles = classfiles;
+            this.classDesc = classDesc;
+            this.cachedClass = new WeakReference<>(cachedClass);
+            length = classfile.length;
+            bytes = classfile;
+        }
+
+        @Nonnegative
+        synchronized int getStoredLength() {
+            return bytes.length;
+        }
+
+        /**
+         * Gets the classfile, decompressing it if needed, in which case the size of the cache is updated.
+         */
+        @Nonnull
+        synchronized byte[] getClassfile(@Nonnull AtomicLong cachedBytes) {
+            if (compressed) {
+                byte[] classfile = decompress(bytes, length);
+
+                if (!discarded) {
+                    cachedBytes.addAndGet(length - bytes.length);
+                }
+
+                bytes = classfile;
+                compressed = false;
+            }
+
+            return bytes;
+        }
+
+        /**
+         * Compresses the classfile, unless already compressed.
+         *
+         * @return the number of bytes saved
+         */
+        @Nonnegative
+        synchronized int compress() {
+            if (compressed || discarded) {
+                return 0;
+            }
+
+            byte[] compressedClassfile = CachedClassfiles.compress(bytes);
+            int bytesSaved = bytes.length - compressedClassfile.length;
+
+            if (bytesSaved <= 0) {
+                return 0;
+            }
+
+            bytes = compressedClassfile;
+            compressed = true;
+            return bytesSaved;
+        }
+
+        /**
+         * Marks the classfile as no longer in the cache, after being removed or replaced.
+         *
+         * @return the number of bytes released
+         */
+        @Nonnegative
+        synchronized int discard() {
+            if (discarded) {
+                return 0;
+            }
+
+            discarded = true;
+            return bytes.length;
+        }
+
+        @Nonnegative
+        int remove() {
+            return classfiles.remove(classDesc, this) ? discard() : 0;
+        }
+    }
+
+    @Nonnull
+    private static byte[] compress(@Nonnull byte[] classfile) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try {
+            deflater.setInput(classfile);
+            deflater.finish();
+
+            byte[] buffer = new byte[classfile.length];
+            int compressedLength = 0;
+
+            while (!deflater.finished() && compressedLength < buffer.length) {
+                compressedLength += deflater.deflate(buffer, compressedLength, buffer.length - compressedLength);
+            }
+
+            // Not worth keeping compressed if it didn't get smaller.
+            return deflater.finished() ? Arrays.copyOf(buffer, compressedLength) : classfile;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Nonnull
+    private static byte[] decompress(@Nonnull byte[] compressedClassfile, @Nonnegative int length) {
+        Inflater inflater = new Inflater();
+
+        try {
+            inflater.setInput(compressedClassfile);
+            byte[] classfile = new byte[length];
+            int decompressedLength = 0;
+
+            while (decompressedLength < length && !inflater.finished()) {
+                decompressedLength += inflater.inflate(classfile, decompressedLength, length - decompressedLength);
+            }
+
+            return classfile;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException(e); // should never happen, since compressed by this class
+        } finally {
+            inflater.end();
+        }
     }
 
     @Nullable
@@ -45,29 +221,46 @@ public final class CachedClassfiles implements ClassFileTransformer {
             @Nonnull byte[] classfileBuffer) {
         // can be null for Java 8 lambdas
         if (classDesc != null && classBeingRedefinedOrRetransformed != null
-                && classBeingRedefinedOrRetransformed == classBeingCached) {
-            addClassfile(loader, classDesc, classfileBuffer);
-            classBeingCached = null;
+                && classesBeingCached.remove(classBeingRedefinedOrRetransformed)) {
+            addClassfile(loader, classDesc, classBeingRedefinedOrRetransformed, classfileBuffer);
         }
 
         return null;
     }
 
-    private void addClassfile(@Nullable ClassLoader loader, @Nonnull String classDesc, @Nonnull byte[] classfile) {
-        Map<String, byte[]> classfiles = getClassfiles(loader);
-        classfiles.put(classDesc, classfile);
+    void addClassfile(@Nullable ClassLoader loader, @Nonnull String classDesc, @Nonnull Class<?> aClass,
+            @Nonnull byte[] classfile) {
+        Map<String, CachedClassfile> classfiles = getClassfiles(loader);
+        CachedClassfile cachedClassfile = new CachedClassfile(classfiles, classDesc, aClass, classfile);
+        cachedClassfile.lastAccess = accessCount.incrementAndGet();
+        CachedClassfile previousClassfile = classfiles.put(classDesc, cachedClassfile);
+        long bytesAdded = classfile.length;
+
+        if (previousClassfile != null) {
+            bytesAdded -= previousClassfile.discard();
+        }
+
+        cachedBytes.addAndGet(bytesAdded);
+        keepWithinMaximumSize();
     }
 
     @Nonnull
-    private Map<String, byte[]> getClassfiles(@Nullable ClassLoader loader) {
-        Map<String, byte[]> classfiles = classLoadersAndClassfiles.get(loader);
+    private Map<String, CachedClassfile> getClassfiles(@Nullable ClassLoader loader) {
+        synchronized (classLoadersAndClassfiles) {
+            return classLoadersAndClassfiles.computeIfAbsent(loader, cl -> new ConcurrentHashMap<>(100));
+        }
+    }
 
-        if (classfiles == null) {
-            classfiles = new HashMap<>(100);
-            classLoadersAndClassfiles.put(loader, classfiles);
+    @Nullable
+    private byte[] getClassfile(@Nullable CachedClassfile cachedClassfile) {
+        if (cachedClassfile == null) {
+            return null;
         }
 
-        return classfiles;
+        cachedClassfile.lastAccess = accessCount.incrementAndGet();
+        byte[] classfile = cachedClassfile.getClassfile(cachedBytes);
+        keepWithinMaximumSize();
+        return classfile;
     }
 
     @Nullable
@@ -80,21 +273,25 @@ public final class CachedClassfiles implements ClassFileTransformer {
             className = className.substring(0, p);
         }
 
-        Map<String, byte[]> classfiles = getClassfiles(aClass.getClassLoader());
-        return classfiles.get(className.replace('.', '/'));
+        Map<String, CachedClassfile> classfiles = getClassfiles(aClass.getClassLoader());
+        return getClassfile(classfiles.get(className.replace('.', '/')));
     }
 
     @Nullable
-    public static synchronized byte[] getClassfile(@Nonnull String classDesc) {
+    public static byte[] getClassfile(@Nonnull String classDesc) {
         return INSTANCE.findClassfile(classDesc);
     }
 
     @Nullable
     private byte[] findClassfile(@Nonnull String classDesc) {
-        byte[] classfile = null;
+        List<Map<String, CachedClassfile>> allClassfiles;
+
+        synchronized (classLoadersAndClassfiles) {
+            allClassfiles = new ArrayList<>(classLoadersAndClassfiles.values());
+        }
 
-        for (Map<String, byte[]> classfiles : classLoadersAndClassfiles.values()) {
-            classfile = classfiles.get(classDesc);
+        for (Map<String, CachedClassfile> classfiles : allClassfiles) {
+            byte[] classfile = getClassfile(classfiles.get(classDesc));
 
             if (classfile != null) {
                 return classfile;
@@ -104,30 +301,37 @@ public final class CachedClassfiles implements ClassFileTransformer {
         Class<?> desiredClass = Startup.getClassIfLoaded(classDesc);
 
         if (desiredClass != null) {
-            classBeingCached = desiredClass;
-            Startup.retransformClass(desiredClass);
-            ClassLoader classLoader = desiredClass.getClassLoader();
-            classfile = INSTANCE.findClassfile(classLoader, classDesc);
+            cacheByRetransforming(desiredClass);
+            return findClassfile(desiredClass.getClassLoader(), classDesc);
         }
 
-        return classfile;
+        return null;
+    }
+
+    private void cacheByRetransforming(@Nonnull Class<?> aClass) {
+        classesBeingCached.add(aClass);
+
+        try {
+            Startup.retransformClass(aClass);
+        } finally {
+            classesBeingCached.remove(aClass);
+        }
     }
 
     @Nullable
-    private synchronized byte[] findClassfile(@Nullable ClassLoader loader, @Nonnull String classDesc) {
-        Map<String, byte[]> classfiles = getClassfiles(loader);
-        return classfiles.get(classDesc);
+    byte[] findClassfile(@Nullable ClassLoader loader, @Nonnull String classDesc) {
+        Map<String, CachedClassfile> classfiles = getClassfiles(loader);
+        return getClassfile(classfiles.get(classDesc));
     }
 
     @Nullable
-    public static synchronized byte[] getClassfile(@Nonnull Class<?> aClass) {
+    public static byte[] getClassfile(@Nonnull Class<?> aClass) {
         byte[] cached = INSTANCE.findClassfile(aClass);
         if (cached != null) {
             return cached;
         }
 
-        INSTANCE.classBeingCached = aClass;
-        Startup.retransformClass(aClass);
+        INSTANCE.cacheByRetransforming(aClass);
         return INSTANCE.findClassfile(aClass);
     }
 
@@ -137,6 +341,72 @@ public final class CachedClassfiles implements ClassFileTransformer {
     }
 
     public static void addClassfile(@Nonnull Class<?> aClass, @Nonnull byte[] classfile) {
-        INSTANCE.addClassfile(aClass.getClassLoader(), aClass.getName().replace('.', '/'), classfile);
+        INSTANCE.addClassfile(aClass.getClassLoader(), aClass.getName().replace('.', '/'), aClass, classfile);
+    }
+
+    private void keepWithinMaximumSize() {
+        if (maxCachedBytes > 0 && cachedBytes.get() > maxCachedBytes && evictionLock.tryLock()) {
+            try {
+                reduceToThreeQuartersOfMaximumSize();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void reduceToThreeQuartersOfMaximumSize() {
+        long cachedBytesBefore = cachedBytes.get();
+        List<CachedClassfile> cachedClassfiles = getCachedClassfilesFromLeastRecentlyUsed();
+        long liveBytes = 0;
+
+        for (CachedClassfile cachedClassfile : cachedClassfiles) {
+            liveBytes += cachedClassfile.getStoredLength();
+        }
+
+        // Accounts for classfiles no longer reachable because their class loaders were garbage collected.
+        cachedBytes.addAndGet(liveBytes - cachedBytesBefore);
+
+        long targetSize = maxCachedBytes / 4 * 3;
+
+        if (compressColdClassfiles) {
+            for (int i = 0, n = cachedClassfiles.size(); i < n && cachedBytes.get() > targetSize; i++) {
+                cachedBytes.addAndGet(-cachedClassfiles.get(i).compress());
+            }
+        }
+
+        MockFixture mockFixture = TestRun.mockFixture();
+
+        for (int i = 0, n = cachedClassfiles.size(); i < n && cachedBytes.get() > targetSize; i++) {
+            CachedClassfile cachedClassfile = cachedClassfiles.get(i);
+            Class<?> cachedClass = cachedClassfile.cachedClass.get();
+
+            // Retransforming a class with a modified definition would give the modified classfile.
+            if (cachedClass == null || !mockFixture.hasModifiedDefinition(cachedClass)) {
+                cachedBytes.addAndGet(-cachedClassfile.remove());
+            }
+        }
+    }
+
+    @Nonnull
+    private List<CachedClassfile> getCachedClassfilesFromLeastRecentlyUsed() {
+        List<Map<String, CachedClassfile>> allClassfiles;
+
+        synchronized (classLoadersAndClassfiles) {
+            allClassfiles = new ArrayList<>(classLoadersAndClassfiles.values());
+        }
+
+        List<CachedClassfile> cachedClassfiles = new ArrayList<>();
+        Map<CachedClassfile, Long> accessTimes = new IdentityHashMap<>();
+
+        for (Map<String, CachedClassfile> classfiles : allClassfiles) {
+            for (CachedClassfile cachedClassfile : classfiles.values()) {
+                cachedClassfiles.add(cachedClassfile);
+                accessTimes.put(cachedClassfile, cachedClassfile.lastAccess);
+            }
+        }
+
+        // Sorts by the access times read above, since they can still change while sorting.
+        cachedClassfiles.sort(Comparator.comparing(accessTimes::get));
+        return cachedClassfiles;
     }
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.state;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.WeakReference;
+import java.security.ProtectionDomain;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import mockit.internal.startup.Startup;
+
+/**
+ * An index of the classes loaded by the JVM, by name and by direct supertype, so that a loaded class or the loaded
+ * subtypes of a given type can be found without going through all loaded classes.
+ * <p>
+ * The index is built from {@link Instrumentation#getAllLoadedClasses()} the first time it's needed. After that, it's
+ * kept up to date from the names and loaders of the classes which this <code>ClassFileTransformer</code> sees getting
+ * loaded, with each such class being looked up by name through its loader only when the index is next used. Classes
+ * are held through weak references, so that indexing them doesn't prevent their unloading.
+ */
+public final class LoadedClasses implements ClassFileTransformer {
+    @Nonnull
+    public static final LoadedClasses INSTANCE = new LoadedClasses();
+    private static final String TRANSFORMER_MANAGER = "sun.instrument.TransformerManager";
+
+    @Nonnull
+    private final Map<String, List<WeakReference<Class<?>>>> classesByName;
+    @Nonnull
+    private final Map<Class<?>, List<WeakReference<Class<?>>>> directSubtypes;
+    @Nonnull
+    private List<LoadedClass> classesLoadedSinceLastUpdate;
+    private boolean indexed;
+
+    private LoadedClasses() {
+        classesByName = new HashMap<>(1000);
+        directSubtypes = new WeakHashMap<>(1000);
+        classesLoadedSinceLastUpdate = new ArrayList<>();
+    }
+
+    private static final class LoadedClass {
+        @Nullable
+        final WeakReference<ClassLoader> loader;
+        @Nonnull
+        final String className;
+        boolean lookedFor;
+
+        LoadedClass(@Nullable ClassLoader loader, @Nonnull String className) {
+            this.loader = loader == null ? null : new WeakReference<>(loader);
+            this.className = className;
+        }
+    }
+
+    @Nullable
+    @Override
+    public byte[] transform(@Nullable ClassLoader loader, @Nullable String classDesc,
+            @Nullable Class<?> classBeingRedefined, @Nullable ProtectionDomain protectionDomain,
+            @Nonnull byte[] classfileBuffer) {
+        // The class isn't defined yet at this point, so it gets looked up by name through its loader when the index is
+        // next used.
+        if (classBeingRedefined == null && classDesc != null) {
+            LoadedClass loadedClass = new LoadedClass(loader, classDesc.replace('/', '.'));
+
+            synchronized (this) {
+                classesLoadedSinceLastUpdate.add(loadedClass);
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    public static Class<?> getClassIfLoaded(@Nonnull String className) {
+        return INSTANCE.findClass(className);
+    }
+
+    /**
+     * Gets all loaded classes and interfaces which are assignable to the given type, except the type itself.
+     */
+    @Nonnull
+    public static List<Class<?>> getLoadedSubtypes(@Nonnull Class<?> baseType) {
+        return INSTANCE.findSubtypes(baseType);
+    }
+
+    @Nullable
+    private Class<?> findClass(@Nonnull String className) {
+        updateIndex();
+
+        synchronized (this) {
+            List<WeakReference<Class<?>>> sameName = classesByName.get(className);
+
+            if (sameName != null) {
+                for (WeakReference<Class<?>> classRef : sameName) {
+                    Class<?> aClass = classRef.get();
+
+                    if (aClass != null) {
+                        return aClass;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Nonnull
+    private List<Class<?>> findSubtypes(@Nonnull Class<?> baseType) {
+        updateIndex();
+
+        List<Class<?>> subtypes = new ArrayList<>();
+        Set<Class<?>> typesVisited = Collections.newSetFromMap(new HashMap<>());
+        Deque<Class<?>> typesToVisit = new ArrayDeque<>();
+        typesToVisit.add(baseType);
+
+        synchronized (this) {
+            Class<?> type;
+
+            while ((type = typesToVisit.poll()) != null) {
+                List<WeakReference<Class<?>>> subtypeRefs = directSubtypes.get(type);
+
+                if (subtypeRefs != null) {
+                    for (Iterator<WeakReference<Class<?>>> itr = subtypeRefs.iterator(); itr.hasNext();) {
+                        Class<?> subtype = itr.next().get();
+
+                        if (subtype == null) {
+                            itr.remove();
+                        } else if (typesVisited.add(subtype)) {
+                            subtypes.add(subtype);
+                            typesToVisit.add(subtype);
+                        }
+                    }
+                }
+            }
+        }
+
+        return subtypes;
+    }
+
+    private void updateIndex() {
+        List<LoadedClass> classesToIndex;
+
+        synchronized (this) {
+            if (!indexed) {
+                buildIndex();
+            }
+
+            if (classesLoadedSinceLastUpdate.isEmpty()) {
+                return;
+            }
+
+            classesToIndex = classesLoadedSinceLastUpdate;
+            classesLoadedSinceLastUpdate = new ArrayList<>();
+        }
+
+        // Done without holding the lock, since looking up a class may have to wait for a class loader which in turn may
+        // be waiting to notify this transformer of another class being loaded.
+        boolean insideClassFileTransformer = isInsideClassFileTransformer();
+        List<Class<?>> newClasses = new ArrayList<>(classesToIndex.size());
+        List<LoadedClass> classesStillPending = new ArrayList<>();
+
+        for (LoadedClass loadedClass : classesToIndex) {
+            ClassLoader loader = loadedClass.loader == null ? null : loadedClass.loader.get();
+
+            if (loadedClass.loader != null && loader == null) {
+                continue;
+            }
+
+            // A class getting loaded by the current thread may still be waiting for its definition, which a lookup
+            // would then attempt again, so the lookup is left for the next update made outside of any transformer.
+            if (insideClassFileTransformer) {
+                classesStillPending.add(loadedClass);
+                continue;
+            }
+
+            Class<?> aClass = findLoadedClass(loader, loadedClass.className);
+
+            if (aClass == null) {
+                continue;
+            }
+
+            newClasses.add(aClass);
+
+            // The loader delegated the lookup to another one, probably because it's still defining the class in another
+            // thread, so the class is looked up once more in the next update.
+            if (aClass.getClassLoader() != loader && !loadedClass.lookedFor) {
+                loadedClass.lookedFor = true;
+                classesStillPending.add(loadedClass);
+            }
+        }
+
+        synchronized (this) {
+            for (Class<?> newClass : newClasses) {
+                addToIndex(newClass);
+            }
+
+            classesLoadedSinceLastUpdate.addAll(classesStillPending);
+        }
+    }
+
+    private static boolean isInsideClassFileTransformer() {
+        return StackWalker.getInstance()
+                .walk(frames -> frames.anyMatch(frame -> TRANSFORMER_MANAGER.equals(frame.getClassName())));
+    }
+
+    /**
+     * Looks up a class by name through the loader which defined it, without initializing it. Since the loader is the
+     * initiating loader of the classes it defined, these are found without the loader getting asked to load them.
+     */
+    @Nullable
+    private static Class<?> findLoadedClass(@Nullable ClassLoader loader, @Nonnull String className) {
+        try {
+            return Class.forName(className, false, loader);
+        } catch (ClassNotFoundException | LinkageError ignore) {
+            // The class failed to get defined.
+            return null;
+        }
+    }
+
+    private void buildIndex() {
+        Class<?>[] loadedClasses = Startup.instrumentation().getAllLoadedClasses();
+
+        for (Class<?> loadedClass : loadedClasses) {
+            addToIndex(loadedClass);
+        }
+
+        // Only classes which were still being loaded when getting all loaded classes remain to be looked up.
+        classesLoadedSinceLastUpdate.removeIf(loadedClass -> classesByName.containsKey(loadedClass.className));
+        indexed = true;
+    }
+
+    private void addToIndex(@Nonnull Class<?> aClass) {
+        String className = aClass.getName();
+
+        // Hidden classes have a '/' in their names, and can neither be found by name nor redefined.
+        if (aClass.isArray() || aClass.isPrimitive() || className.indexOf('/') >= 0) {
+            return;
+        }
+
+        List<WeakReference<Class<?>>> sameName = classesByName.computeIfAbsent(className, name -> new ArrayList<>(1));
+
+        for (WeakReference<Class<?>> classRef : sameName) {
+            if (classRef.get() == aClass) {
+                return;
+            }
+        }
+
+        WeakReference<Class<?>> classRef = new WeakReference<>(aClass);
+        sameName.removeIf(ref -> ref.get() == null);
+        sameName.add(classRef);
+
+        Class<?> superclass = aClass.getSuperclass();
+
+        if (superclass != null) {
+            addDirectSubtype(superclass, classRef);
+        }
+
+        for (Class<?> implementedInterface : aClass.getInterfaces()) {
+            addDirectSubtype(implementedInterface, classRef);
+        }
+    }
+
+    private void addDirectSubtype(@Nonnull Class<?> supertype, @Nonnull WeakReference<Class<?>> subtype) {
+        directSubtypes.computeIfAbsent(supertype, type -> new ArrayList<>(2)).add(subtype);
+    }
+}
@@ -14,16 +14,19 @@ import static mockit.internal.util.Utilities.getClassType;
 import java.lang.instrument.ClassDefinition;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -31,6 +34,7 @@ import javax.annotation.Nullable;
 import mockit.internal.ClassFile;
 import mockit.internal.ClassIdentification;
 import mockit.internal.capturing.CaptureTransformer;
+import mockit.internal.expectations.MockedCallSites;
 import mockit.internal.expectations.mocking.CaptureOfNewInstances;
 import mockit.internal.expectations.mocking.InstanceFactory;
 import mockit.internal.startup.Startup;
@@ -38,6 +42,9 @@ import mockit.internal.util.ClassLoad;
 
 /**
  * Holds data about redefined/transformed classes, with methods to add/remove and query such data.
+ * <p>
+ * The collections of mocked classes and types can be updated by tests running concurrently, which only mock individual
+ * instances, and so are safe for concurrent access.
  */
 public final class MockFixture {
     /**
@@ -46,7 +53,7 @@ public final class MockFixture {
      *
      * @see #addTransformedClass(ClassIdentification, byte[])
      * @see #getTransformedClasses()
-     * @see #restoreTransformedClasses(Set)
+     * @see #restoreClasses(Set, Map)
      */
     @Nonnull
     private final Map<ClassIdentification, byte[]> transformedClasses;
@@ -64,11 +71,27 @@ public final class MockFixture {
      * @see #getRedefinedClasses()
      * @see #getRedefinedClassfile(Class)
      * @see #containsRedefinedClass(Class)
-     * @see #restoreRedefinedClasses(Map)
+     * @see #restoreClasses(Set, Map)
      */
     @Nonnull
     private final Map<Class<?>, byte[]> redefinedClasses;
 
+    /**
+     * Real classes no longer mocked but left with their modified bytecode, which is kept here, as the class was mocked
+     * with {@linkplain MockedCallSites#isRelinkable(byte[]) relinkable} call sites which now proceed into the real
+     * implementation.
+     * <p>
+     * If the same class later gets redefined with the same bytecode, its call sites are relinked instead.
+     * <p>
+     * Since the JVM still holds the modified bytecode for these classes, it is what any other agent retransforming them
+     * gets as the classfile to be transformed.
+     *
+     * @see #redefineClasses(ClassDefinition...)
+     * @see #restoreClasses(Set, Map)
+     */
+    @Nonnull
+    private final Map<Class<?>, byte[]> unlinkedClasses;
+
     /**
      * Maps redefined real classes to the internal name of the corresponding fake classes, when it's the case.
      * <p>
@@ -90,7 +113,7 @@ public final class MockFixture {
      * @see #removeMockedClasses(List)
      */
     @Nonnull
-    private final List<Class<?>> mockedClasses;
+    private final CopyOnWriteArrayList<Class<?>> mockedClasses;
 
     /**
      * A map of mocked types to their corresponding {@linkplain InstanceFactory mocked instance factories}.
@@ -118,9 +141,10 @@ public final class MockFixture {
     MockFixture() {
         transformedClasses = new HashMap<>(2);
         redefinedClasses = new ConcurrentHashMap<>(8);
+        unlinkedClasses = new ConcurrentHashMap<>(8);
         realClassesToFakeClasses = new IdentityHashMap<>(8);
-        mockedClasses = new ArrayList<>();
-        mockedTypesAndInstances = new IdentityHashMap<>();
+        mockedClasses = new CopyOnWriteArrayList<>();
+        mockedTypesAndInstances = Collections.synchronizedMap(new IdentityHashMap<>());
         captureTransformers = new ArrayList<>();
     }
 
@@ -133,26 +157,64 @@ public final class MockFixture {
     // Methods used by both the Mocking and Faking APIs.
 
     public void addRedefinedClass(@Nonnull ClassDefinition newClassDefinition) {
-        redefinedClasses.put(newClassDefinition.getDefinitionClass(), newClassDefinition.getDefinitionClassFile());
+        Class<?> redefinedClass = newClassDefinition.getDefinitionClass();
+
+        if (unlinkedClasses.remove(redefinedClass) != null) {
+            MockedCallSites.relink(redefinedClass);
+        }
+
+        redefinedClasses.put(redefinedClass, newClassDefinition.getDefinitionClassFile());
     }
 
     public void registerMockedClass(@Nonnull Class<?> mockedType) {
         if (!mockedClasses.contains(mockedType)) {
             mockedType = getMockedClassOrInterfaceType(mockedType);
-            mockedClasses.add(mockedType);
+            mockedClasses.addIfAbsent(mockedType);
         }
     }
 
     // Methods used by the Mocking API.
 
     public void redefineClasses(@Nonnull ClassDefinition... definitions) {
-        Startup.redefineMethods(definitions);
+        ClassDefinition[] definitionsToApply = discardUnchangedDefinitions(definitions);
+
+        if (definitionsToApply.length > 0) {
+            Startup.redefineMethods(definitionsToApply);
+        }
 
         for (ClassDefinition def : definitions) {
             addRedefinedClass(def);
         }
     }
 
+    /**
+     * Discards the new definitions which are identical to the current definition of their class, either as a currently
+     * redefined class or as an {@linkplain #unlinkedClasses unlinked} one, which then only needs to be relinked.
+     */
+    @Nonnull
+    private ClassDefinition[] discardUnchangedDefinitions(@Nonnull ClassDefinition[] definitions) {
+        if (redefinedClasses.isEmpty() && unlinkedClasses.isEmpty()) {
+            return definitions;
+        }
+
+        List<ClassDefinition> definitionsToApply = new ArrayList<>(definitions.length);
+
+        for (ClassDefinition def : definitions) {
+            Class<?> classToRedefine = def.getDefinitionClass();
+            byte[] currentDefinition = redefinedClasses.get(classToRedefine);
+
+            if (currentDefinition == null) {
+                currentDefinition = unlinkedClasses.get(classToRedefine);
+            }
+
+            if (currentDefinition == null || !Arrays.equals(currentDefinition, def.getDefinitionClassFile())) {
+                definitionsToApply.add(def);
+            }
+        }
+
+        return definitionsToApply.toArray(new ClassDefinition[0]);
+    }
+
     public void redefineMethods(@Nonnull Map<Class<?>, byte[]> modifiedClassfiles) {
         ClassDefinition[] classDefs = new ClassDefinition[modifiedClassfiles.size()];
         int i = 0;
@@ -161,14 +223,11 @@ public final class MockFixture {
             Class<?> modifiedClass = classAndBytecode.getKey();
             byte[] modifiedClassfile = classAndBytecode.getValue();
 
-            ClassDefinition classDef = new ClassDefinition(modifiedClass, modifiedClassfile);
-            classDefs[i] = classDef;
+            classDefs[i] = new ClassDefinition(modifiedClass, modifiedClassfile);
             i++;
-
-            addRedefinedClass(classDef);
         }
 
-        Startup.redefineMethods(classDefs);
+        redefineClasses(classDefs);
     }
 
     public boolean isStillMocked(@Nullable Object instance, @Nonnull String classDesc) {
@@ -228,17 +287,19 @@ public final class MockFixture {
 
         boolean abstractType = mockedClass.isInterface() || isAbstract(mockedClass.getModifiers());
 
-        for (Entry<Type, InstanceFactory> entry : mockedTypesAndInstances.entrySet()) {
-            Type registeredMockedType = entry.getKey();
-            Class<?> registeredMockedClass = getClassType(registeredMockedType);
+        synchronized (mockedTypesAndInstances) {
+            for (Entry<Type, InstanceFactory> entry : mockedTypesAndInstances.entrySet()) {
+                Type registeredMockedType = entry.getKey();
+                Class<?> registeredMockedClass = getClassType(registeredMockedType);
 
-            if (abstractType) {
-                registeredMockedClass = getMockedClassOrInterfaceType(registeredMockedClass);
-            }
+                if (abstractType) {
+                    registeredMockedClass = getMockedClassOrInterfaceType(registeredMockedClass);
+                }
 
-            if (mockedClass.isAssignableFrom(registeredMockedClass)) {
-                instanceFactory = entry.getValue();
-                break;
+                if (mockedClass.isAssignableFrom(registeredMockedClass)) {
+                    instanceFactory = entry.getValue();
+                    break;
+                }
             }
         }
 
@@ -261,7 +322,24 @@ public final class MockFixture {
 
     // Methods used by test save-points ////////////////////////////////////////////////////////////////////////////////
 
-    void restoreTransformedClasses(@Nonnull Set<ClassIdentification> previousTransformedClasses) {
+    /**
+     * Restores the transformed and redefined classes to their definitions at the time the given previous state was
+     * saved, with a single redefinition of all the classes which actually need to be changed.
+     */
+    void restoreClasses(@Nonnull Set<ClassIdentification> previousTransformedClasses,
+            @Nonnull Map<?, byte[]> previousDefinitions) {
+        // Keyed by class, so that a class both transformed and redefined only gets its last restored definition.
+        Map<Class<?>, ClassDefinition> definitionsToRestore = new LinkedHashMap<>();
+        restoreTransformedClasses(previousTransformedClasses, definitionsToRestore);
+        restoreRedefinedClasses(previousDefinitions, definitionsToRestore);
+
+        if (!definitionsToRestore.isEmpty()) {
+            Startup.restoreClasses(definitionsToRestore.values().toArray(new ClassDefinition[0]));
+        }
+    }
+
+    private void restoreTransformedClasses(@Nonnull Set<ClassIdentification> previousTransformedClasses,
+            @Nonnull Map<Class<?>, ClassDefinition> definitionsToRestore) {
         if (!transformedClasses.isEmpty()) {
             Set<ClassIdentification> classesToRestore;
 
@@ -273,7 +351,7 @@ public final class MockFixture {
             }
 
             if (!classesToRestore.isEmpty()) {
-                restoreAndRemoveTransformedClasses(classesToRestore);
+                restoreAndRemoveTransformedClasses(classesToRestore, definitionsToRestore);
             }
         }
     }
@@ -289,16 +367,19 @@ public final class MockFixture {
         return redefinedClasses.isEmpty() ? Collections.<Class<?>, byte[]>emptyMap() : new HashMap<>(redefinedClasses);
     }
 
-    private void restoreAndRemoveTransformedClasses(@Nonnull Set<ClassIdentification> classesToRestore) {
+    private void restoreAndRemoveTransformedClasses(@Nonnull Set<ClassIdentification> classesToRestore,
+            @Nonnull Map<Class<?>, ClassDefinition> definitionsToRestore) {
         for (ClassIdentification transformedClassId : classesToRestore) {
+            Class<?> transformedClass = transformedClassId.getLoadedClass();
             byte[] definitionToRestore = transformedClasses.get(transformedClassId);
-            Startup.redefineMethods(transformedClassId, definitionToRestore);
+            definitionsToRestore.put(transformedClass, new ClassDefinition(transformedClass, definitionToRestore));
         }
 
         transformedClasses.keySet().removeAll(classesToRestore);
     }
 
-    void restoreRedefinedClasses(@Nonnull Map<?, byte[]> previousDefinitions) {
+    private void restoreRedefinedClasses(@Nonnull Map<?, byte[]> previousDefinitions,
+            @Nonnull Map<Class<?>, ClassDefinition> definitionsToRestore) {
         if (redefinedClasses.isEmpty()) {
             return;
         }
@@ -312,19 +393,30 @@ public final class MockFixture {
             byte[] previousDefinition = previousDefinitions.get(redefinedClass);
 
             if (previousDefinition == null) {
-                restoreDefinition(redefinedClass);
+                restoreDefinition(redefinedClass, currentDefinition, definitionsToRestore);
                 itr.remove();
             } else if (currentDefinition != previousDefinition) {
-                Startup.redefineMethods(redefinedClass, previousDefinition);
+                // A class redefined again in the same way, which is common for classes mocked both for the whole test
+                // class and in a test, is left as is.
+                if (!Arrays.equals(currentDefinition, previousDefinition)) {
+                    definitionsToRestore.put(redefinedClass, new ClassDefinition(redefinedClass, previousDefinition));
+                }
+
                 entry.setValue(previousDefinition);
             }
         }
     }
 
-    private void restoreDefinition(@Nonnull Class<?> redefinedClass) {
+    private void restoreDefinition(@Nonnull Class<?> redefinedClass, @Nonnull byte[] currentDefinition,
+            @Nonnull Map<Class<?>, ClassDefinition> definitionsToRestore) {
         if (!isGeneratedImplementationClass(redefinedClass)) {
-            byte[] previousDefinition = ClassFile.getClassFile(redefinedClass);
-            Startup.redefineMethods(redefinedClass, previousDefinition);
+            if (MockedCallSites.isRelinkable(currentDefinition)) {
+                MockedCallSites.unlink(redefinedClass);
+                unlinkedClasses.put(redefinedClass, currentDefinition);
+            } else {
+                byte[] originalDefinition = ClassFile.getClassFile(redefinedClass);
+                definitionsToRestore.put(redefinedClass, new ClassDefinition(redefinedClass, originalDefinition));
+            }
         }
 
         removeMockedClass(redefinedClass);
@@ -368,6 +460,14 @@ public final class MockFixture {
         return redefinedClasses.containsKey(redefinedClass);
     }
 
+    /**
+     * Finds out whether the given class currently has a modified definition, either as a redefined class or as an
+     * {@linkplain #unlinkedClasses unlinked} one.
+     */
+    boolean hasModifiedDefinition(@Nonnull Class<?> aClass) {
+        return redefinedClasses.containsKey(aClass) || unlinkedClasses.containsKey(aClass);
+    }
+
     @Nonnull
     public List<Class<?>> getMockedClasses() {
         return mockedClasses.isEmpty() ? Collections.<Class<?>>emptyList() : new ArrayList<>(mockedClasses);
@@ -391,7 +491,6 @@ public final class MockFixture {
         for (int i = currentTransformerCount - 1; i >= previousTransformerCount; i--) {
             CaptureTransformer<?> transformer = captureTransformers.get(i);
             transformer.deactivate();
-            Startup.instrumentation().removeTransformer(transformer);
             captureTransformers.remove(i);
         }
     }
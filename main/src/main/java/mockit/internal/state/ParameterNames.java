@@ -4,8 +4,8 @@
  */
 package mockit.internal.state;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -14,7 +14,7 @@ import javax.annotation.Nullable;
 import mockit.internal.util.TestMethod;
 
 public final class ParameterNames {
-    private static final Map<String, Map<String, String[]>> classesToMethodsToParameters = new HashMap<>();
+    private static final Map<String, Map<String, String[]>> classesToMethodsToParameters = new ConcurrentHashMap<>();
 
     private ParameterNames() {
     }
@@ -25,12 +25,8 @@ public final class ParameterNames {
 
     public static void register(@Nonnull String classDesc, @Nonnull String memberName, @Nonnull String memberDesc,
             @Nonnull String[] names) {
-        Map<String, String[]> methodsToParameters = classesToMethodsToParameters.get(classDesc);
-
-        if (methodsToParameters == null) {
-            methodsToParameters = new HashMap<>();
-            classesToMethodsToParameters.put(classDesc, methodsToParameters);
-        }
+        Map<String, String[]> methodsToParameters = classesToMethodsToParameters.computeIfAbsent(classDesc,
+                desc -> new ConcurrentHashMap<>());
 
         String methodKey = memberName + memberDesc;
         methodsToParameters.put(methodKey, names);
@@ -4,11 +4,10 @@
  */
 package mockit.internal.state;
 
-import static mockit.internal.expectations.RecordAndReplayExecution.RECORD_OR_REPLAY_LOCK;
-
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.Nonnull;
 
@@ -36,17 +35,21 @@ public final class SavePoint {
     }
 
     public synchronized void rollback() {
-        RECORD_OR_REPLAY_LOCK.lock();
+        ReentrantLock recordOrReplayLock = TestRun.getExecutingTest().recordOrReplayLock;
+        recordOrReplayLock.lock();
 
         try {
             MockFixture mockFixture = TestRun.mockFixture();
             mockFixture.removeCaptureTransformers(previousCaptureTransformerCount);
-            mockFixture.restoreTransformedClasses(previousTransformedClasses);
-            mockFixture.restoreRedefinedClasses(previousRedefinedClasses);
-            mockFixture.removeMockedClasses(previousMockedClasses);
-            previousFakeClasses.rollback();
+
+            try {
+                mockFixture.restoreClasses(previousTransformedClasses, previousRedefinedClasses);
+            } finally {
+                mockFixture.removeMockedClasses(previousMockedClasses);
+                previousFakeClasses.rollback();
+            }
         } finally {
-            RECORD_OR_REPLAY_LOCK.unlock();
+            recordOrReplayLock.unlock();
         }
     }
 }
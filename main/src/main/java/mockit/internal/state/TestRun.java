@@ -4,6 +4,11 @@
  */
 package mockit.internal.state;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -18,6 +23,13 @@ import mockit.internal.util.StackTrace;
 /**
  * A singleton which stores several data structures which in turn hold global state for individual test methods, test
  * classes, and for the test run as a whole.
+ * <p>
+ * A test which runs concurrently with other tests (as allowed by JUnit 5 parallel execution) gets its own instance
+ * instead, holding the state of its test class and test method, which is {@linkplain #enterConcurrentTest(Class)
+ * entered} by the thread running the test. The mock fixture and the fake classes are always shared, since class
+ * definitions are global to the JVM. Since such a test can hand its injectable mocks over to other threads, an
+ * invocation on one of those mocks from a thread not running a test itself is processed with the state of the test
+ * {@linkplain #enterTestOwningMock(Object) owning} it, which is recorded when the mock gets created.
  */
 public final class TestRun {
     private static final TestRun INSTANCE = new TestRun();
@@ -40,8 +52,27 @@ public final class TestRun {
         }
     };
 
+    @Nonnull
+    private static final ThreadLocal<TestRun> concurrentTest = new ThreadLocal<>();
+
+    /**
+     * The injectable mocks of concurrent tests, each mapped to the state of the test owning it; compared by identity,
+     * since calling <code>hashCode</code> or <code>equals</code> on a mock would itself be an invocation to process.
+     * The map is replaced on each change, so that it can be read without locking.
+     */
+    @Nonnull
+    private static volatile Map<Object, TestRun> concurrentTestsByMock = Collections.emptyMap();
+    @Nonnull
+    private static final Object concurrentTestsByMockLock = new Object();
+
+    @Nonnull
+    private static final MockFixture mockFixture = new MockFixture();
+    @Nonnull
+    private static final FakeClasses fakeClasses = new FakeClasses();
+
     // Used only by the Coverage tool:
-    private int testId;
+    @Nonnull
+    private final AtomicInteger testId = new AtomicInteger();
 
     @Nullable
     private Class<?> currentTestClass;
@@ -51,14 +82,17 @@ public final class TestRun {
     private FieldTypeRedefinitions fieldTypeRedefinitions;
     @Nullable
     private TestedClassInstantiations testedClassInstantiations;
-
-    @Nonnull
-    private final MockFixture mockFixture = new MockFixture();
+    @Nullable
+    private TestRun enclosingState;
 
     @Nonnull
     private final ExecutingTest executingTest = new ExecutingTest();
+
     @Nonnull
-    private final FakeClasses fakeClasses = new FakeClasses();
+    private static TestRun current() {
+        TestRun testState = concurrentTest.get();
+        return testState == null ? INSTANCE : testState;
+    }
 
     // Static "getters" for global state
     // ///////////////////////////////////////////////////////////////////////////////////////////////////
@@ -67,75 +101,79 @@ public final class TestRun {
         return noMockingCount.get() > 0;
     }
 
+    public static boolean isRunningConcurrentTest() {
+        return concurrentTest.get() != null;
+    }
+
     @Nullable
     public static Class<?> getCurrentTestClass() {
-        return INSTANCE.currentTestClass;
+        return current().currentTestClass;
     }
 
     @Nullable
     public static Object getCurrentTestInstance() {
-        return INSTANCE.currentTestInstance;
+        return current().currentTestInstance;
     }
 
     public static int getTestId() {
-        return INSTANCE.testId;
+        return INSTANCE.testId.get();
     }
 
     @Nullable
     public static FieldTypeRedefinitions getFieldTypeRedefinitions() {
-        return INSTANCE.fieldTypeRedefinitions;
+        return current().fieldTypeRedefinitions;
     }
 
     @Nullable
     public static TestedClassInstantiations getTestedClassInstantiations() {
-        return INSTANCE.testedClassInstantiations;
+        return current().testedClassInstantiations;
     }
 
     @Nonnull
     public static MockFixture mockFixture() {
-        return INSTANCE.mockFixture;
+        return mockFixture;
     }
 
     @Nonnull
     public static ExecutingTest getExecutingTest() {
-        return INSTANCE.executingTest;
+        return current().executingTest;
     }
 
     @Nullable
     public static RecordAndReplayExecution getRecordAndReplayForRunningTest() {
-        return INSTANCE.executingTest.getCurrentRecordAndReplay();
+        return getExecutingTest().getCurrentRecordAndReplay();
     }
 
     @Nonnull
     public static RecordAndReplayExecution getOrCreateRecordAndReplayForRunningTest() {
-        return INSTANCE.executingTest.getOrCreateRecordAndReplay();
+        return getExecutingTest().getOrCreateRecordAndReplay();
     }
 
     @Nonnull
     public static RecordAndReplayExecution getRecordAndReplayForVerifications() {
-        return INSTANCE.executingTest.getRecordAndReplayForVerifications();
+        return getExecutingTest().getRecordAndReplayForVerifications();
     }
 
     @Nonnull
     public static FakeClasses getFakeClasses() {
-        return INSTANCE.fakeClasses;
+        return fakeClasses;
     }
 
     @Nonnull
     public static FakeStates getFakeStates() {
-        return INSTANCE.fakeClasses.fakeStates;
+        return fakeClasses.fakeStates;
     }
 
     // Static "mutators" for global state
     // //////////////////////////////////////////////////////////////////////////////////////////////////
 
     public static void setCurrentTestClass(@Nullable Class<?> testClass) {
-        INSTANCE.currentTestClass = testClass;
+        current().currentTestClass = testClass;
     }
 
     public static void prepareForNextTest() {
-        INSTANCE.testId++;
-        INSTANCE.executingTest.setRecordAndReplay(null);
+        INSTANCE.testId.incrementAndGet();
+        getExecutingTest().setRecordAndReplay(null);
     }
 
     public static void enterNoMockingZone() {
@@ -151,23 +189,124 @@ public final class TestRun {
     }
 
     public static void clearCurrentTestInstance() {
-        INSTANCE.currentTestInstance = null;
+        current().currentTestInstance = null;
     }
 
     public static void setRunningIndividualTest(@Nonnull Object testInstance) {
-        INSTANCE.currentTestInstance = testInstance;
+        current().currentTestInstance = testInstance;
     }
 
     public static void setFieldTypeRedefinitions(@Nullable FieldTypeRedefinitions redefinitions) {
-        INSTANCE.fieldTypeRedefinitions = redefinitions;
+        current().fieldTypeRedefinitions = redefinitions;
     }
 
     public static void setTestedClassInstantiations(@Nullable TestedClassInstantiations testedClassInstantiations) {
-        INSTANCE.testedClassInstantiations = testedClassInstantiations;
+        current().testedClassInstantiations = testedClassInstantiations;
     }
 
     public static void finishCurrentTestExecution() {
-        INSTANCE.executingTest.finishExecution();
+        getExecutingTest().finishExecution();
+    }
+
+    /**
+     * Makes the current thread use new state for the given test class, separate from that of any other test, until
+     * {@linkplain #exitConcurrentTest() exited}.
+     */
+    public static void enterConcurrentTest(@Nonnull Class<?> testClass) {
+        TestRun testState = new TestRun();
+        testState.currentTestClass = testClass;
+        testState.enclosingState = concurrentTest.get();
+        concurrentTest.set(testState);
+    }
+
+    /**
+     * Makes the current thread go back to the state it used before the last {@linkplain #enterConcurrentTest(Class)
+     * entered} state.
+     */
+    public static void exitConcurrentTest() {
+        TestRun testState = concurrentTest.get();
+
+        if (testState != null) {
+            removeMocksOwnedBy(testState);
+        }
+
+        if (testState != null && testState.enclosingState != null) {
+            concurrentTest.set(testState.enclosingState);
+        } else {
+            concurrentTest.remove();
+        }
+    }
+
+    private static void removeMocksOwnedBy(@Nonnull TestRun testState) {
+        synchronized (concurrentTestsByMockLock) {
+            if (concurrentTestsByMock.containsValue(testState)) {
+                Map<Object, TestRun> testsByMock = new IdentityHashMap<>(concurrentTestsByMock);
+                testsByMock.values().removeIf(owner -> owner == testState);
+                concurrentTestsByMock = testsByMock;
+            }
+        }
+    }
+
+    /**
+     * Records the given injectable mock as owned by the concurrent test which the current thread is running, if any.
+     */
+    public static void addMockOfConcurrentTest(@Nonnull Object mock) {
+        TestRun testState = concurrentTest.get();
+
+        if (testState != null) {
+            synchronized (concurrentTestsByMockLock) {
+                Map<Object, TestRun> testsByMock = new IdentityHashMap<>(concurrentTestsByMock);
+                testsByMock.put(mock, testState);
+                concurrentTestsByMock = testsByMock;
+            }
+        }
+    }
+
+    /**
+     * Makes the current thread use the state of the concurrent test owning the given injectable mock, if the thread
+     * isn't running a test itself; for example, when the mock is invoked from a thread started by the test.
+     *
+     * @return whether the state of the owning test was entered, to be {@linkplain #exitTestOwningMock() exited}
+     *         afterwards
+     */
+    public static boolean enterTestOwningMock(@Nullable Object mock) {
+        if (mock == null || concurrentTest.get() != null) {
+            return false;
+        }
+
+        Map<Object, TestRun> testsByMock = concurrentTestsByMock;
+
+        if (testsByMock.isEmpty()) {
+            return false;
+        }
+
+        TestRun owner = testsByMock.get(mock);
+
+        if (owner == null) {
+            return false;
+        }
+
+        concurrentTest.set(owner);
+        return true;
+    }
+
+    /**
+     * Makes the current thread go back to the shared state, after {@linkplain #enterTestOwningMock(Object) entering}
+     * the state of the test owning a mock.
+     */
+    public static void exitTestOwningMock() {
+        concurrentTest.remove();
+    }
+
+    /**
+     * Verifies that the current thread is not running a test concurrently with other tests, before applying mocking or
+     * faking which would affect those other tests as well.
+     */
+    public static void verifyNotRunningConcurrently(@Nonnull String whatIsApplied) {
+        if (isRunningConcurrentTest()) {
+            throw new IllegalStateException(whatIsApplied + " cannot be applied in a test running in parallel with "
+                    + "other tests; the test class needs to run in isolation (for example, annotated with @Isolated)");
+        }
     }
 
     // Methods to be called only from generated bytecode or from the ClassLoadingBridge
@@ -186,13 +325,14 @@ public final class TestRun {
 
     @Nonnull
     public static Object getFake(@Nonnull String fakeClassDesc) {
-        return INSTANCE.fakeClasses.getFake(fakeClassDesc);
+        return fakeClasses.getFake(fakeClassDesc);
     }
 
     // Other methods ///////////////////////////////////////////////////////////////////////////////////////////////////
 
     public static void ensureThatClassIsInitialized(@Nonnull Class<?> aClass) {
-        boolean previousFlag = INSTANCE.executingTest.setShouldIgnoreMockingCallbacks(true);
+        ExecutingTest executingTest = getExecutingTest();
+        boolean previousFlag = executingTest.setShouldIgnoreMockingCallbacks(true);
 
         try {
             Class.forName(aClass.getName(), true, aClass.getClassLoader());
@@ -201,7 +341,7 @@ public final class TestRun {
             StackTrace.filterStackTrace(e);
             e.printStackTrace();
         } finally {
-            INSTANCE.executingTest.setShouldIgnoreMockingCallbacks(previousFlag);
+            executingTest.setShouldIgnoreMockingCallbacks(previousFlag);
         }
     }
 }
@@ -4,6 +4,7 @@
  */
 package mockit.internal.util;
 
+import java.io.File;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.GenericArrayType;
@@ -115,4 +116,21 @@ public final class Utilities {
         String locationPath = codeSource.getLocation().getPath();
         return URLDecoder.decode(locationPath, StandardCharsets.UTF_8);
     }
+
+    /**
+     * Gets a string which identifies the JMockit jar in use through its path, size, and last modification time, or an
+     * empty string if not loaded from a known location.
+     */
+    @Nonnull
+    public static String getIdentityOfJMockitJar() {
+        CodeSource codeSource = Utilities.class.getProtectionDomain().getCodeSource();
+
+        if (codeSource == null) {
+            return "";
+        }
+
+        String pathToThisJar = getClassFileLocationPath(codeSource);
+        File jarFile = new File(pathToThisJar);
+        return pathToThisJar + ':' + jarFile.length() + ':' + jarFile.lastModified();
+    }
 }
@@ -0,0 +1,362 @@
+package mockit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mockit.internal.expectations.invocation.UnexpectedInvocation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * The Class BoundedReplayTest.
+ */
+public final class BoundedReplayTest {
+
+    /** The thrown. */
+    @Rule
+    public final ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * The Class Dependency.
+     */
+    public static class Dependency {
+
+        /**
+         * Sets the something.
+         *
+         * @param value
+         *            the new something
+         */
+        public void setSomething(@SuppressWarnings("unused") int value) {
+        }
+
+        /**
+         * Sets the something else.
+         *
+         * @param value
+         *            the new something else
+         */
+        public void setSomethingElse(@SuppressWarnings("unused") String value) {
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @param key
+         *            the key
+         *
+         * @return the value
+         */
+        public int getValue(@SuppressWarnings("unused") int key) {
+            return -1;
+        }
+
+        /**
+         * Process.
+         *
+         * @param value
+         *            the value
+         */
+        public void process(@SuppressWarnings("unused") int value) {
+        }
+
+        /**
+         * Process.
+         *
+         * @param value
+         *            the value
+         */
+        public void process(@SuppressWarnings("unused") String value) {
+        }
+
+        /**
+         * Save.
+         */
+        public void save() {
+        }
+    }
+
+    /** The mock. */
+    @Injectable
+    @BoundedReplay(recentInvocations = 10)
+    Dependency mock;
+
+    /** The other mock, replayed in full. */
+    @Injectable
+    Dependency otherMock;
+
+    /** The mock retaining more recent invocations. */
+    @Injectable
+    @BoundedReplay(recentInvocations = 50)
+    Dependency mockWithMoreRecentInvocations;
+
+    /**
+     * Exercise code under test.
+     *
+     * @param dependency
+     *            the dependency
+     * @param invocations
+     *            the invocations
+     */
+    static void exerciseCodeUnderTest(Dependency dependency, int invocations) {
+        for (int i = 0; i < invocations; i++) {
+            dependency.setSomething(i);
+        }
+
+        dependency.save();
+    }
+
+    /**
+     * Verify all invocations with discarded arguments using any matcher.
+     */
+    @Test
+    public void verifyAllInvocationsWithDiscardedArgumentsUsingAnyMatcher() {
+        exerciseCodeUnderTest(mock, 1000);
+
+        new Verifications() {
+            {
+                mock.setSomething(anyInt);
+                times = 1000;
+                mock.save();
+                times = 1;
+            }
+        };
+    }
+
+    /**
+     * Verify too many invocations with discarded arguments.
+     */
+    @Test
+    public void verifyTooManyInvocationsWithDiscardedArguments() {
+        thrown.expect(UnexpectedInvocation.class);
+
+        exerciseCodeUnderTest(mock, 1000);
+
+        new Verifications() {
+            {
+                mock.setSomething(anyInt);
+                maxTimes = 999;
+            }
+        };
+    }
+
+    /**
+     * Verify recent invocations with specific arguments.
+     */
+    @Test
+    public void verifyRecentInvocationsWithSpecificArguments() {
+        exerciseCodeUnderTest(mock, 5);
+
+        new Verifications() {
+            {
+                mock.setSomething(3);
+                times = 1;
+
+                List<Integer> values = new ArrayList<>();
+                mock.setSomething(withCapture(values));
+                assertEquals(5, values.size());
+            }
+        };
+    }
+
+    /**
+     * Verify invocations with discarded arguments using specific argument.
+     */
+    @Test
+    public void verifyInvocationsWithDiscardedArgumentsUsingSpecificArgument() {
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("discarded in bounded replay mode");
+
+        exerciseCodeUnderTest(mock, 20);
+
+        new Verifications() {
+            {
+                mock.setSomething(2);
+            }
+        };
+    }
+
+    /**
+     * Invocations to other mock are replayed in full.
+     */
+    @Test
+    public void invocationsToOtherMockAreReplayedInFull() {
+        exerciseCodeUnderTest(mock, 20);
+        exerciseCodeUnderTest(otherMock, 20);
+
+        new Verifications() {
+            {
+                otherMock.setSomething(2);
+                times = 1;
+                mock.setSomething(anyInt);
+                times = 20;
+            }
+        };
+    }
+
+    /**
+     * Record expectation matched by invocations with discarded arguments.
+     */
+    @Test
+    public void recordExpectationMatchedByInvocationsWithDiscardedArguments() {
+        new Expectations() {
+            {
+                mock.getValue(anyInt);
+                result = 123;
+                times = 50;
+            }
+        };
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(123, mock.getValue(i));
+        }
+
+        new Verifications() {
+            {
+                mock.getValue(anyInt);
+                times = 50;
+            }
+        };
+    }
+
+    /**
+     * Fully verify invocations with discarded arguments.
+     */
+    @Test
+    public void fullyVerifyInvocationsWithDiscardedArguments() {
+        exerciseCodeUnderTest(mock, 100);
+
+        new FullVerifications() {
+            {
+                mock.setSomething(anyInt);
+                mock.save();
+            }
+        };
+    }
+
+    /**
+     * Fully verify with unverified invocations with discarded arguments.
+     */
+    @Test
+    public void fullyVerifyWithUnverifiedInvocationsWithDiscardedArguments() {
+        thrown.expect(UnexpectedInvocation.class);
+
+        exerciseCodeUnderTest(mock, 5);
+
+        for (int i = 0; i < 20; i++) {
+            mock.setSomethingElse("Value " + i);
+        }
+
+        new FullVerifications() {
+            {
+                mock.setSomething(anyInt);
+                mock.save();
+            }
+        };
+    }
+
+    /**
+     * Verify invocations in order.
+     */
+    @Test
+    public void verifyInvocationsInOrder() {
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("can't be verified in order");
+
+        exerciseCodeUnderTest(mock, 5);
+
+        new VerificationsInOrder() {
+            {
+                mock.setSomething(anyInt);
+                mock.save();
+            }
+        };
+    }
+
+    /**
+     * Replay all invocations in the test in bounded memory.
+     *
+     * @param dependency
+     *            the dependency
+     */
+    @Test
+    @BoundedReplay(recentInvocations = 0)
+    public void replayAllInvocationsInTheTestInBoundedMemory(@Mocked Dependency dependency) {
+        exerciseCodeUnderTest(dependency, 100);
+        exerciseCodeUnderTest(otherMock, 100);
+
+        new Verifications() {
+            {
+                dependency.setSomething(anyInt);
+                times = 100;
+                otherMock.setSomething(anyInt);
+                times = 100;
+            }
+        };
+    }
+
+    /**
+     * Keep recent invocations of each overloaded method apart.
+     */
+    @Test
+    public void keepRecentInvocationsOfEachOverloadedMethodApart() {
+        mock.process("first");
+
+        for (int i = 0; i < 20; i++) {
+            mock.process(i);
+        }
+
+        new Verifications() {
+            {
+                mock.process("first");
+                times = 1;
+                mock.process(anyInt);
+                times = 20;
+            }
+        };
+    }
+
+    /**
+     * Retain as many recent invocations as the annotation of each mock specifies.
+     */
+    @Test
+    public void retainAsManyRecentInvocationsAsTheAnnotationOfEachMockSpecifies() {
+        exerciseCodeUnderTest(mock, 30);
+        exerciseCodeUnderTest(mockWithMoreRecentInvocations, 30);
+
+        new Verifications() {
+            {
+                List<Integer> values = new ArrayList<>();
+                mockWithMoreRecentInvocations.setSomething(withCapture(values));
+                assertEquals(30, values.size());
+                mock.setSomething(anyInt);
+                times = 30;
+            }
+        };
+    }
+
+    /**
+     * Reject negative number of recent invocations for test method.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    @BoundedReplay(recentInvocations = -1)
+    public void rejectNegativeNumberOfRecentInvocationsForTestMethod() {
+        exerciseCodeUnderTest(mock, 1);
+    }
+
+    /**
+     * Reject negative number of recent invocations for mock parameter.
+     *
+     * @param dependency
+     *            the dependency
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectNegativeNumberOfRecentInvocationsForMockParameter(
+            @Injectable @BoundedReplay(recentInvocations = -5) Dependency dependency) {
+        exerciseCodeUnderTest(dependency, 1);
+    }
+}
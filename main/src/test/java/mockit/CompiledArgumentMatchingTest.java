@@ -0,0 +1,326 @@
+package mockit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * The Class CompiledArgumentMatchingTest.
+ */
+public final class CompiledArgumentMatchingTest {
+
+    /**
+     * The Class Collaborator.
+     */
+    public static class Collaborator {
+
+        /**
+         * Take.
+         *
+         * @param value
+         *            the value
+         *
+         * @return the int
+         */
+        public int take(Object value) {
+            return -1;
+        }
+
+        /**
+         * Take.
+         *
+         * @param number
+         *            the number
+         * @param text
+         *            the text
+         * @param other
+         *            the other
+         *
+         * @return the int
+         */
+        public int take(Number number, String text, Object other) {
+            return -1;
+        }
+
+        /**
+         * Take primitives.
+         *
+         * @param l
+         *            the l
+         * @param d
+         *            the d
+         * @param s
+         *            the s
+         * @param b
+         *            the b
+         * @param f
+         *            the f
+         * @param c
+         *            the c
+         * @param z
+         *            the z
+         *
+         * @return the int
+         */
+        public int takePrimitives(long l, double d, short s, byte b, float f, char c, boolean z) {
+            return -1;
+        }
+    }
+
+    /**
+     * Match boxed numbers only against numbers of the same type.
+     *
+     * @param mock
+     *            the mock
+     */
+    @Test
+    public void matchBoxedNumbersOnlyAgainstNumbersOfTheSameType(@Mocked final Collaborator mock) {
+        new Expectations() {
+            {
+                mock.take((Object) 1);
+                result = 1;
+                mock.take((Object) 1L);
+                result = 2;
+                mock.take((Object) 1.0);
+                result = 3;
+                mock.take((Object) 1.0F);
+                result = 4;
+                mock.take((Object) (short) 1);
+                result = 5;
+            }
+        };
+
+        assertEquals(1, mock.take(1));
+        assertEquals(2, mock.take(1L));
+        assertEquals(3, mock.take(1.0));
+        assertEquals(4, mock.take(1.0F));
+        assertEquals(5, mock.take((short) 1));
+        assertEquals(0, mock.take((byte) 1));
+        assertEquals(0, mock.take(2));
+        assertEquals(0, mock.take(1.5));
+        assertEquals(0, mock.take("1"));
+    }
+
+    /**
+     * Match boxed floating point numbers as their equals methods do.
+     *
+     * @param mock
+     *            the mock
+     */
+    @Test
+    public void matchBoxedFloatingPointNumbersAsTheirEqualsMethodsDo(@Mocked final Collaborator mock) {
+        new Expectations() {
+            {
+                mock.take((Object) Double.NaN);
+                result = 1;
+                mock.take((Object) 0.0);
+                result = 2;
+                mock.take((Object) Float.NaN);
+                result = 3;
+            }
+        };
+
+        assertEquals(1, mock.take(Double.NaN));
+        assertEquals(2, mock.take(0.0));
+        assertEquals(0, mock.take(-0.0));
+        assertEquals(3, mock.take(Float.NaN));
+        assertEquals(0, mock.take(0.0F));
+    }
+
+    /**
+     * Match arguments of primitive parameters of every type.
+     *
+     * @param mock
+     *            the mock
+     */
+    @Test
+    public void matchArgumentsOfPrimitiveParametersOfEveryType(@Mocked final Collaborator mock) {
+        new Expectations() {
+            {
+                mock.takePrimitives(Long.MAX_VALUE, -2.5, (short) 3, (byte) -4, 5.5F, 'c', true);
+                result = 1;
+            }
+        };
+
+        assertEquals(1, mock.takePrimitives(Long.MAX_VALUE, -2.5, (short) 3, (byte) -4, 5.5F, 'c', true));
+        assertEquals(0, mock.takePrimitives(Long.MIN_VALUE, -2.5, (short) 3, (byte) -4, 5.5F, 'c', true));
+        assertEquals(0, mock.takePrimitives(Long.MAX_VALUE, 2.5, (short) 3, (byte) -4, 5.5F, 'c', true));
+        assertEquals(0, mock.takePrimitives(Long.MAX_VALUE, -2.5, (short) 4, (byte) -4, 5.5F, 'c', true));
+        assertEquals(0, mock.takePrimitives(Long.MAX_VALUE, -2.5, (short) 3, (byte) 4, 5.5F, 'c', true));
+        assertEquals(0, mock.takePrimitives(Long.MAX_VALUE, -2.5, (short) 3, (byte) -4, 5.25F, 'c', true));
+        assertEquals(0, mock.takePrimitives(Long.MAX_VALUE, -2.5, (short) 3, (byte) -4, 5.5F, 'd', true));
+        assertEquals(0, mock.takePrimitives(Long.MAX_VALUE, -2.5, (short) 3, (byte) -4, 5.5F, 'c', false));
+    }
+
+    /**
+     * Match strings with equal hash codes by their contents.
+     *
+     * @param mock
+     *            the mock
+     */
+    @Test
+    public void matchStringsWithEqualHashCodesByTheirContents(@Mocked final Collaborator mock) {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        new Expectations() {
+            {
+                mock.take("Aa");
+                result = 1;
+            }
+        };
+
+        assertEquals(0, mock.take("BB"));
+        assertEquals(1, mock.take(new String("Aa")));
+        assertEquals(0, mock.take((Object) null));
+    }
+
+    /**
+     * Match null argument values only against nulls when recorded without matchers.
+     *
+     * @param mock
+     *            the mock
+     */
+    @Test
+    public void matchNullArgumentValuesOnlyAgainstNullsWhenRecordedWithoutMatchers(@Mocked final Collaborator mock) {
+        new Expectations() {
+            {
+                mock.take(7, null, null);
+                result = 1;
+            }
+        };
+
+        assertEquals(1, mock.take(7, null, null));
+        assertEquals(0, mock.take(7, "", null));
+        assertEquals(0, mock.take(7, null, new Object()));
+        assertEquals(0, mock.take(7L, null, null));
+        assertEquals(0, mock.take(null, null, null));
+    }
+
+    /**
+     * Match null argument values as any value when mixed with matchers.
+     *
+     * @param mock
+     *            the mock
+     */
+    @Test
+    public void matchNullArgumentValuesAsAnyValueWhenMixedWithMatchers(@Mocked final Collaborator mock) {
+        new Expectations() {
+            {
+                mock.take(null, anyString, withNotNull());
+                result = 1;
+            }
+        };
+
+        Object other = new Object();
+
+        assertEquals(1, mock.take(5, "a", other));
+        assertEquals(1, mock.take(null, "a", other));
+        assertEquals(1, mock.take(5.0, null, other));
+        assertEquals(0, mock.take(5, "a", null));
+    }
+
+    /**
+     * Match plain argument values mixed with matchers.
+     *
+     * @param mock
+     *            the mock
+     */
+    @Test
+    public void matchPlainArgumentValuesMixedWithMatchers(@Mocked final Collaborator mock) {
+        final Object other = new Object();
+
+        new Expectations() {
+            {
+                mock.take(withInstanceOf(Integer.class), "text", other);
+                result = 1;
+            }
+        };
+
+        assertEquals(1, mock.take(5, "text", other));
+        assertEquals(0, mock.take(5L, "text", other));
+        assertEquals(0, mock.take(5, "other", other));
+        assertEquals(0, mock.take(5, null, other));
+        assertEquals(0, mock.take(5, "text", new Object()));
+    }
+
+    /**
+     * Keep matching recorded arguments after verification with other matchers.
+     *
+     * @param mock
+     *            the mock
+     */
+    @Test
+    public void keepMatchingRecordedArgumentsAfterVerificationWithOtherMatchers(@Mocked final Collaborator mock) {
+        final Object other = new Object();
+
+        new Expectations() {
+            {
+                mock.take(1, "a", other);
+                result = 1;
+            }
+        };
+
+        assertEquals(1, mock.take(1, "a", other));
+        assertEquals(0, mock.take(2, "b", other));
+
+        new Verifications() {
+            {
+                List<Number> numbers = new ArrayList<>();
+                mock.take(withCapture(numbers), anyString, any);
+                times = 2;
+                assertEquals(1, numbers.get(0));
+                assertEquals(2, numbers.get(1));
+            }
+        };
+
+        // The expectation is matched again with its own recorded values, not with the matchers of the verification.
+        assertEquals(1, mock.take(1, "a", other));
+        assertEquals(0, mock.take(2, "b", other));
+        assertEquals(0, mock.take(3, "c", null));
+
+        new Verifications() {
+            {
+                mock.take(1, "a", other);
+                times = 2;
+                mock.take(withNotEqual(1), "b", withSameInstance(other));
+                times = 2;
+                mock.take(3, withPrefix("c"), null);
+                times = 1;
+            }
+        };
+    }
+
+    /**
+     * Match verification with plain values after verification with matchers.
+     *
+     * @param mock
+     *            the mock
+     */
+    @Test
+    public void matchVerificationWithPlainValuesAfterVerificationWithMatchers(@Mocked final Collaborator mock) {
+        mock.take(1L);
+        mock.take(1);
+        mock.take("x");
+
+        new Verifications() {
+            {
+                mock.take(withInstanceOf(Number.class));
+                times = 2;
+            }
+        };
+
+        new Verifications() {
+            {
+                mock.take((Object) 1L);
+                times = 1;
+                mock.take((Object) 1);
+                times = 1;
+                mock.take(any);
+                times = 3;
+            }
+        };
+    }
+}
@@ -0,0 +1,359 @@
+package mockit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * The Class ExpectationIndexTest.
+ */
+public final class ExpectationIndexTest {
+
+    /**
+     * The Interface Service.
+     */
+    public interface Service {
+        /**
+         * Do something.
+         *
+         * @return the int
+         */
+        int doSomething();
+
+        /**
+         * Do something.
+         *
+         * @param value
+         *            the value
+         *
+         * @return the int
+         */
+        int doSomething(int value);
+    }
+
+    /**
+     * The Class ServiceImpl1.
+     */
+    static final class ServiceImpl1 implements Service {
+        @Override
+        public int doSomething() {
+            return -1;
+        }
+
+        @Override
+        public int doSomething(int value) {
+            return -1;
+        }
+    }
+
+    /**
+     * The Class ServiceImpl2.
+     */
+    static final class ServiceImpl2 implements Service {
+        @Override
+        public int doSomething() {
+            return -2;
+        }
+
+        @Override
+        public int doSomething(int value) {
+            return -2;
+        }
+    }
+
+    /**
+     * The Class Base.
+     */
+    public static class Base {
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public int getValue() {
+            return -1;
+        }
+
+        /**
+         * Gets the name.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return "base";
+        }
+    }
+
+    /**
+     * The Class Derived.
+     */
+    public static class Derived extends Base {
+        @Override
+        public int getValue() {
+            return -2;
+        }
+    }
+
+    /**
+     * The Class Other.
+     */
+    public static class Other {
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public int getValue() {
+            return -3;
+        }
+    }
+
+    /**
+     * The Interface Generic.
+     *
+     * @param <T>
+     *            the generic type
+     */
+    public interface Generic<T> {
+        /**
+         * Transform.
+         *
+         * @param value
+         *            the value
+         *
+         * @return the t
+         */
+        T transform(T value);
+    }
+
+    /**
+     * The Class StringTransformer.
+     */
+    static final class StringTransformer implements Generic<String> {
+        @Override
+        public String transform(String value) {
+            return value;
+        }
+    }
+
+    /**
+     * Match expectation recorded on captured interface from invocations on implementation classes.
+     *
+     * @param service
+     *            the service
+     */
+    @Test
+    public void matchExpectationRecordedOnCapturedInterfaceFromInvocationsOnImplementationClasses(
+            @Capturing final Service service) {
+        new Expectations() {
+            {
+                service.doSomething();
+                result = 10;
+                service.doSomething(1);
+                result = 11;
+            }
+        };
+
+        Service impl1 = new ServiceImpl1();
+        Service impl2 = new ServiceImpl2();
+
+        assertEquals(10, impl1.doSomething());
+        assertEquals(10, impl2.doSomething());
+        assertEquals(11, impl1.doSomething(1));
+        assertEquals(11, impl2.doSomething(1));
+        assertEquals(0, impl2.doSomething(2));
+    }
+
+    /**
+     * Match expectation recorded on captured base class from invocation on overriding subclass.
+     *
+     * @param base
+     *            the base
+     */
+    @Test
+    public void matchExpectationRecordedOnCapturedBaseClassFromInvocationOnOverridingSubclass(
+            @Capturing final Base base) {
+        new Expectations() {
+            {
+                base.getValue();
+                result = 5;
+                base.getName();
+                result = "mocked";
+            }
+        };
+
+        Base derived = new Derived();
+
+        assertEquals(5, derived.getValue());
+        assertEquals("mocked", derived.getName());
+    }
+
+    /**
+     * Match expectation recorded on mocked subclass for inherited method.
+     *
+     * @param derived
+     *            the derived
+     */
+    @Test
+    public void matchExpectationRecordedOnMockedSubclassForInheritedMethod(@Mocked final Derived derived) {
+        new Expectations() {
+            {
+                derived.getName();
+                result = "mocked";
+            }
+        };
+
+        // The inherited method is mocked for instances of the mocked subclass only.
+        assertEquals("mocked", new Derived().getName());
+        assertEquals("base", new Base().getName());
+    }
+
+    /**
+     * Keep expectations for same method name in different mocked classes apart.
+     *
+     * @param base
+     *            the base
+     * @param other
+     *            the other
+     */
+    @Test
+    public void keepExpectationsForSameMethodNameInDifferentMockedClassesApart(@Mocked final Base base,
+            @Mocked final Other other) {
+        new Expectations() {
+            {
+                other.getValue();
+                result = 3;
+                base.getValue();
+                result = 1;
+            }
+        };
+
+        assertEquals(1, base.getValue());
+        assertEquals(3, other.getValue());
+        assertEquals(1, new Base().getValue());
+        assertEquals(3, new Other().getValue());
+    }
+
+    /**
+     * Match expectation recorded on captured generic interface from invocation on implementation with other
+     * parameter types.
+     *
+     * @param generic
+     *            the generic
+     */
+    @Test
+    public void matchExpectationRecordedOnCapturedGenericInterfaceFromInvocationOnImplementation(
+            @Capturing final Generic<String> generic) {
+        new Expectations() {
+            {
+                generic.transform("a");
+                result = "A";
+            }
+        };
+
+        Generic<String> transformer = new StringTransformer();
+
+        assertEquals("A", transformer.transform("a"));
+        assertNull(transformer.transform("b"));
+    }
+
+    /**
+     * Find expectation recorded again instead of the one it replaced.
+     *
+     * @param base
+     *            the base
+     */
+    @Test
+    public void findExpectationRecordedAgainInsteadOfTheOneItReplaced(@Mocked final Base base) {
+        new Expectations() {
+            {
+                base.getValue();
+                result = 1;
+                times = 1;
+                base.getName();
+                result = "first";
+            }
+        };
+
+        // Replaces the previous expectation, including its invocation count constraint.
+        new Expectations() {
+            {
+                base.getValue();
+                result = 2;
+            }
+        };
+
+        assertEquals(2, base.getValue());
+        assertEquals(2, base.getValue());
+        assertEquals("first", base.getName());
+    }
+
+    /**
+     * Find expectation recorded again on captured type instead of the one it replaced.
+     *
+     * @param service
+     *            the service
+     */
+    @Test
+    public void findExpectationRecordedAgainOnCapturedTypeInsteadOfTheOneItReplaced(
+            @Capturing final Service service) {
+        new Expectations() {
+            {
+                service.doSomething(1);
+                result = 1;
+                service.doSomething(2);
+                result = 2;
+            }
+        };
+
+        new Expectations() {
+            {
+                service.doSomething(1);
+                result = 100;
+            }
+        };
+
+        Service impl = new ServiceImpl1();
+
+        assertEquals(100, impl.doSomething(1));
+        assertEquals(2, impl.doSomething(2));
+        assertEquals(0, impl.doSomething());
+    }
+
+    /**
+     * Verify invocations matched through the index after expectation was replaced.
+     *
+     * @param base
+     *            the base
+     */
+    @Test
+    public void verifyInvocationsMatchedThroughTheIndexAfterExpectationWasReplaced(@Mocked final Base base) {
+        new Expectations() {
+            {
+                base.getValue();
+                result = 1;
+            }
+        };
+
+        new Expectations() {
+            {
+                base.getValue();
+                result = 2;
+            }
+        };
+
+        new Base().getName();
+        base.getValue();
+        base.getValue();
+
+        new Verifications() {
+            {
+                base.getValue();
+                times = 2;
+                base.getName();
+                times = 1;
+            }
+        };
+    }
+}
@@ -0,0 +1,287 @@
+package mockit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * The Class FakeMethodDispatchTest.
+ */
+public final class FakeMethodDispatchTest {
+
+    /**
+     * The Class Collaborator.
+     */
+    public static class Collaborator {
+
+        /** The value. */
+        final int value;
+
+        /**
+         * Instantiates a new collaborator.
+         *
+         * @param value
+         *            the value
+         */
+        public Collaborator(int value) {
+            this.value = value;
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * Compute.
+         *
+         * @param factor
+         *            the factor
+         * @param offset
+         *            the offset
+         * @param negate
+         *            the negate
+         *
+         * @return the double
+         */
+        public double compute(long factor, double offset, boolean negate) {
+            double result = value * factor + offset;
+            return negate ? -result : result;
+        }
+
+        /**
+         * Describe.
+         *
+         * @param prefix
+         *            the prefix
+         *
+         * @return the string
+         */
+        public String describe(String prefix) {
+            return prefix + value;
+        }
+
+        /**
+         * Parses the value.
+         *
+         * @param text
+         *            the text
+         *
+         * @return the int
+         */
+        public static int parse(String text) {
+            return Integer.parseInt(text);
+        }
+    }
+
+    /**
+     * The Class GenericCollaborator.
+     *
+     * @param <T>
+     *            the generic type
+     */
+    public static class GenericCollaborator<T> {
+        /**
+         * Convert.
+         *
+         * @param value
+         *            the value
+         *
+         * @return the string
+         */
+        public String convert(T value) {
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * A fake class which is not public, so its fake methods get called through the class loading bridge.
+     */
+    static final class NonPublicFake extends MockUp<Collaborator> {
+        @Mock
+        int getValue() {
+            return 10;
+        }
+
+        @Mock
+        double compute(long factor, double offset, boolean negate) {
+            return negate ? factor : offset;
+        }
+
+        @Mock
+        String describe(String prefix) {
+            return prefix == null ? "null prefix" : prefix + "fake";
+        }
+    }
+
+    /**
+     * A fake class whose fake methods are static.
+     */
+    static final class StaticFake extends MockUp<Collaborator> {
+        @Mock
+        static int parse(String text) {
+            return text.length();
+        }
+
+        @Mock
+        static int getValue(Invocation invocation) {
+            Collaborator collaborator = invocation.getInvokedInstance();
+            return 100 * collaborator.value;
+        }
+    }
+
+    /**
+     * Dispatch to static fake methods.
+     */
+    @Test
+    public void dispatchToStaticFakeMethods() {
+        new StaticFake();
+
+        assertEquals(3, Collaborator.parse("abc"));
+        assertEquals(500, new Collaborator(5).getValue());
+    }
+
+    /**
+     * Dispatch to fake methods of non public fake class.
+     */
+    @Test
+    public void dispatchToFakeMethodsOfNonPublicFakeClass() {
+        new NonPublicFake();
+        Collaborator collaborator = new Collaborator(1);
+
+        assertEquals(10, collaborator.getValue());
+        assertEquals(3.0, collaborator.compute(3L, 0.5, true), 0);
+        assertEquals(0.5, collaborator.compute(3L, 0.5, false), 0);
+        assertEquals("a fake", collaborator.describe("a "));
+        assertEquals("null prefix", collaborator.describe(null));
+    }
+
+    /**
+     * Dispatch to fake method with invocation parameter.
+     */
+    @Test
+    public void dispatchToFakeMethodWithInvocationParameter() {
+        final Collaborator collaborator = new Collaborator(2);
+
+        new MockUp<Collaborator>() {
+            @Mock
+            double compute(Invocation invocation, long factor, double offset, boolean negate) {
+                assertSame(collaborator, invocation.getInvokedInstance());
+                double realResult = invocation.proceed(factor, offset, false);
+                return realResult + invocation.getInvocationCount();
+            }
+        };
+
+        assertEquals(7.5 + 1, collaborator.compute(3L, 1.5, true), 0);
+        assertEquals(7.5 + 2, collaborator.compute(3L, 1.5, true), 0);
+    }
+
+    /**
+     * Dispatch to fake method for static method.
+     */
+    @Test
+    public void dispatchToFakeMethodForStaticMethod() {
+        new MockUp<Collaborator>() {
+            @Mock
+            int parse(Invocation invocation, String text) {
+                assertNull(invocation.getInvokedInstance());
+                return text.isEmpty() ? -1 : invocation.<Integer> proceed();
+            }
+        };
+
+        assertEquals(-1, Collaborator.parse(""));
+        assertEquals(12, Collaborator.parse("12"));
+    }
+
+    /**
+     * Dispatch to fake method for JRE class.
+     */
+    @Test
+    public void dispatchToFakeMethodForJREClass() {
+        new MockUp<File>() {
+            @Mock
+            boolean exists(Invocation invocation) {
+                File file = invocation.getInvokedInstance();
+                return "fake".equals(file.getName());
+            }
+        };
+
+        assertTrue(new File("dir", "fake").exists());
+        assertFalse(new File("dir", "other").exists());
+    }
+
+    /**
+     * Propagate class cast exception thrown from inside fake method.
+     */
+    @Test
+    public void propagateClassCastExceptionThrownFromInsideFakeMethod() {
+        new MockUp<Collaborator>() {
+            @Mock
+            String describe(String prefix) {
+                Object notAString = 1;
+                return (String) notAString;
+            }
+        };
+
+        try {
+            new Collaborator(3).describe("x");
+            fail();
+        } catch (ClassCastException ignore) {
+            // Thrown by the fake method itself, with arguments of the right types.
+        }
+    }
+
+    /**
+     * Report failure to invoke fake method with argument of wrong type.
+     */
+    @Test
+    public void reportFailureToInvokeFakeMethodWithArgumentOfWrongType() {
+        new MockUp<GenericCollaborator<String>>() {
+            @Mock
+            String convert(String value) {
+                return value;
+            }
+        };
+
+        try {
+            new GenericCollaborator<Integer>().convert(1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Failure to invoke method: "));
+            assertTrue(e.getCause() instanceof ClassCastException);
+            assertEquals("Cannot pass java.lang.Integer as java.lang.String", e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Report failure to invoke fake method with invocation parameter and argument of wrong type.
+     */
+    @Test
+    public void reportFailureToInvokeFakeMethodWithInvocationParameterAndArgumentOfWrongType() {
+        new MockUp<GenericCollaborator<String>>() {
+            @Mock
+            String convert(Invocation invocation, String value) {
+                return value;
+            }
+        };
+
+        try {
+            new GenericCollaborator<Long>().convert(1L);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Failure to invoke method: "));
+            assertEquals("Cannot pass java.lang.Long as java.lang.String", e.getCause().getMessage());
+        }
+    }
+}
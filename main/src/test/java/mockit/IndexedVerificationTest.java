@@ -0,0 +1,317 @@
+package mockit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mockit.internal.expectations.invocation.MissingInvocation;
+import mockit.internal.expectations.invocation.UnexpectedInvocation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * The Class IndexedVerificationTest.
+ */
+public final class IndexedVerificationTest {
+
+    /** The thrown. */
+    @Rule
+    public final ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * The Interface Service.
+     */
+    public interface Service {
+        /**
+         * Do something.
+         *
+         * @param value
+         *            the value
+         */
+        void doSomething(int value);
+    }
+
+    /**
+     * The Class ServiceImpl1.
+     */
+    static final class ServiceImpl1 implements Service {
+        @Override
+        public void doSomething(int value) {
+        }
+    }
+
+    /**
+     * The Class ServiceImpl2.
+     */
+    static final class ServiceImpl2 implements Service {
+        @Override
+        public void doSomething(int value) {
+        }
+    }
+
+    /**
+     * The Class Base.
+     */
+    public static class Base {
+        /**
+         * Do something.
+         *
+         * @param value
+         *            the value
+         */
+        public void doSomething(int value) {
+        }
+    }
+
+    /**
+     * The Class Derived.
+     */
+    public static class Derived extends Base {
+        @Override
+        public void doSomething(int value) {
+        }
+    }
+
+    /**
+     * The Class Other.
+     */
+    public static class Other {
+        /**
+         * Do something.
+         *
+         * @param value
+         *            the value
+         */
+        public void doSomething(int value) {
+        }
+
+        /**
+         * Do something else.
+         */
+        public void doSomethingElse() {
+        }
+    }
+
+    /**
+     * Verify invocations on captured interface from several implementation classes.
+     *
+     * @param service
+     *            the service
+     */
+    @Test
+    public void verifyInvocationsOnCapturedInterfaceFromSeveralImplementationClasses(
+            @Capturing final Service service) {
+        new ServiceImpl1().doSomething(1);
+        new ServiceImpl2().doSomething(2);
+        new ServiceImpl1().doSomething(3);
+
+        new Verifications() {
+            {
+                List<Integer> values = new ArrayList<>();
+                service.doSomething(withCapture(values));
+                assertEquals(3, values.size());
+                assertEquals(2, (int) values.get(1));
+
+                service.doSomething(2);
+                times = 1;
+            }
+        };
+    }
+
+    /**
+     * Verify invocations on captured base class from overriding subclass.
+     *
+     * @param base
+     *            the base
+     */
+    @Test
+    public void verifyInvocationsOnCapturedBaseClassFromOverridingSubclass(@Capturing final Base base) {
+        new Derived().doSomething(1);
+        new Base().doSomething(2);
+        new Derived().doSomething(3);
+
+        new Verifications() {
+            {
+                base.doSomething(anyInt);
+                times = 3;
+                base.doSomething(1);
+                times = 1;
+                base.doSomething(4);
+                times = 0;
+            }
+        };
+    }
+
+    /**
+     * Verify invocations in order on captured interface from several implementation classes.
+     *
+     * @param service
+     *            the service
+     */
+    @Test
+    public void verifyInvocationsInOrderOnCapturedInterfaceFromSeveralImplementationClasses(
+            @Capturing final Service service) {
+        new ServiceImpl2().doSomething(1);
+        new ServiceImpl1().doSomething(2);
+        new ServiceImpl2().doSomething(3);
+
+        new VerificationsInOrder() {
+            {
+                service.doSomething(1);
+                service.doSomething(2);
+                service.doSomething(3);
+            }
+        };
+    }
+
+    /**
+     * Verify interleaved invocations in order while skipping others.
+     *
+     * @param base
+     *            the base
+     * @param other
+     *            the other
+     */
+    @Test
+    public void verifyInterleavedInvocationsInOrderWhileSkippingOthers(@Mocked final Base base,
+            @Mocked final Other other) {
+        base.doSomething(1);
+        other.doSomethingElse();
+        base.doSomething(2);
+        other.doSomething(2);
+        other.doSomethingElse();
+        base.doSomething(3);
+
+        new VerificationsInOrder() {
+            {
+                base.doSomething(1);
+                other.doSomethingElse();
+                times = 2;
+                base.doSomething(3);
+            }
+        };
+    }
+
+    /**
+     * Verify repeated invocations in order followed by invocation of other method.
+     *
+     * @param base
+     *            the base
+     * @param other
+     *            the other
+     */
+    @Test
+    public void verifyRepeatedInvocationsInOrderFollowedByInvocationOfOtherMethod(@Mocked final Base base,
+            @Mocked final Other other) {
+        base.doSomething(1);
+        base.doSomething(2);
+        base.doSomething(3);
+        other.doSomethingElse();
+        base.doSomething(4);
+
+        new VerificationsInOrder() {
+            {
+                base.doSomething(anyInt);
+                times = 3;
+                other.doSomethingElse();
+                base.doSomething(4);
+            }
+        };
+    }
+
+    /**
+     * Fail to verify invocations in reverse order.
+     *
+     * @param base
+     *            the base
+     */
+    @Test
+    public void failToVerifyInvocationsInReverseOrder(@Mocked final Base base) {
+        base.doSomething(1);
+        base.doSomething(2);
+        thrown.expect(MissingInvocation.class);
+
+        new VerificationsInOrder() {
+            {
+                base.doSomething(2);
+                base.doSomething(1);
+            }
+        };
+    }
+
+    /**
+     * Fail to verify invocation in order after cursor passed it.
+     *
+     * @param base
+     *            the base
+     * @param other
+     *            the other
+     */
+    @Test
+    public void failToVerifyInvocationInOrderAfterCursorPassedIt(@Mocked final Base base,
+            @Mocked final Other other) {
+        other.doSomethingElse();
+        base.doSomething(1);
+        other.doSomething(1);
+        thrown.expect(MissingInvocation.class);
+
+        new VerificationsInOrder() {
+            {
+                base.doSomething(1);
+                other.doSomething(1);
+                other.doSomethingElse();
+            }
+        };
+    }
+
+    /**
+     * Verify in order only invocations not verified before.
+     *
+     * @param base
+     *            the base
+     * @param other
+     *            the other
+     */
+    @Test
+    public void verifyInOrderOnlyInvocationsNotVerifiedBefore(@Mocked final Base base, @Mocked final Other other) {
+        base.doSomething(1);
+        other.doSomethingElse();
+        base.doSomething(2);
+
+        new Verifications() {
+            {
+                other.doSomethingElse();
+            }
+        };
+
+        new VerificationsInOrder() {
+            {
+                base.doSomething(1);
+                base.doSomething(2);
+            }
+        };
+    }
+
+    /**
+     * Fail full verification of captured type with unverified invocation from other implementation class.
+     *
+     * @param service
+     *            the service
+     */
+    @Test
+    public void failFullVerificationOfCapturedTypeWithUnverifiedInvocationFromOtherImplementationClass(
+            @Capturing final Service service) {
+        new ServiceImpl1().doSomething(1);
+        new ServiceImpl2().doSomething(2);
+        thrown.expect(UnexpectedInvocation.class);
+
+        new FullVerifications() {
+            {
+                service.doSomething(1);
+            }
+        };
+    }
+}
@@ -0,0 +1,165 @@
+package mockit;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Field;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import mockit.internal.injection.InjectionPlan;
+import mockit.internal.injection.InjectionPoint.KindOfInjectionPoint;
+
+import org.junit.Test;
+
+/**
+ * The Class InjectionPlanTest.
+ */
+public final class InjectionPlanTest {
+
+    /**
+     * The Class Dependency.
+     */
+    public static class Dependency {
+    }
+
+    /**
+     * The Class TestedClass.
+     */
+    public static class TestedClass {
+
+        /** The constant. */
+        static final String CONSTANT = "constant";
+
+        /** The shared. */
+        static Dependency shared;
+
+        /** The required. */
+        @Inject
+        Dependency required;
+
+        /** The named. */
+        @Inject
+        @Named("second")
+        Dependency named;
+
+        /** The final field. */
+        final Dependency finalField = new Dependency();
+
+        /** The not annotated. */
+        Dependency notAnnotated;
+
+        /** The text. */
+        String text;
+    }
+
+    /** The tested. */
+    @Tested
+    TestedClass tested;
+
+    /** The required. */
+    @Injectable
+    Dependency required;
+
+    /** The second. */
+    @Injectable
+    Dependency second;
+
+    /**
+     * Get same plan for the same class every time.
+     */
+    @Test
+    public void getSamePlanForTheSameClassEveryTime() {
+        InjectionPlan plan = InjectionPlan.forClass(TestedClass.class);
+
+        assertSame(plan, InjectionPlan.forClass(TestedClass.class));
+        assertSame(plan.getFieldsEligibleForInjection(), InjectionPlan.forClass(TestedClass.class)
+                .getFieldsEligibleForInjection());
+        assertSame(plan.getConstructors(), plan.getConstructors());
+    }
+
+    /**
+     * Get fields eligible for injection in declaration order.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void getFieldsEligibleForInjectionInDeclarationOrder() throws Exception {
+        InjectionPlan plan = InjectionPlan.forClass(TestedClass.class);
+
+        assertEquals(asList(TestedClass.class.getDeclaredField("required"), TestedClass.class.getDeclaredField("named"),
+                TestedClass.class.getDeclaredField("notAnnotated"), TestedClass.class.getDeclaredField("text")),
+                plan.getFieldsEligibleForInjection());
+    }
+
+    /**
+     * Look up field metadata from copies of the reflected fields.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void lookUpFieldMetadataFromCopiesOfTheReflectedFields() throws Exception {
+        Field required = TestedClass.class.getDeclaredField("required");
+        Field named = TestedClass.class.getDeclaredField("named");
+        Field notAnnotated = TestedClass.class.getDeclaredField("notAnnotated");
+
+        assertEquals(KindOfInjectionPoint.Required, InjectionPlan.kindOfInjectionPoint(required));
+        assertEquals(KindOfInjectionPoint.Required, InjectionPlan.kindOfInjectionPoint(named));
+        assertEquals(KindOfInjectionPoint.NotAnnotated, InjectionPlan.kindOfInjectionPoint(notAnnotated));
+        assertNull(InjectionPlan.getQualifiedName(required));
+        assertEquals("second", InjectionPlan.getQualifiedName(named));
+        assertEquals("second", InjectionPlan.getQualifiedName(TestedClass.class.getDeclaredField("named")));
+    }
+
+    /**
+     * Look up metadata for fields of every class in the hierarchy.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void lookUpMetadataForFieldsOfEveryClassInTheHierarchy() throws Exception {
+        Field inherited = TestedClass.class.getDeclaredField("text");
+        Field declaredInSubclass = TestedSubclass.class.getDeclaredField("text");
+
+        assertEquals(KindOfInjectionPoint.NotAnnotated, InjectionPlan.kindOfInjectionPoint(inherited));
+        assertEquals(KindOfInjectionPoint.Required, InjectionPlan.kindOfInjectionPoint(declaredInSubclass));
+        assertEquals("subclassText", InjectionPlan.getQualifiedName(declaredInSubclass));
+    }
+
+    /**
+     * The Class TestedSubclass.
+     */
+    public static final class TestedSubclass extends TestedClass {
+
+        /** The text. */
+        @Inject
+        @Named("subclassText")
+        String text;
+    }
+
+    /**
+     * Inject tested object using the cached plan in every test.
+     */
+    @Test
+    public void injectTestedObjectUsingTheCachedPlanInEveryTest() {
+        assertSame(required, tested.required);
+        assertSame(second, tested.named);
+        assertNull(tested.notAnnotated);
+        assertNull(tested.text);
+    }
+
+    /**
+     * Inject tested object using the cached plan once more.
+     */
+    @Test
+    public void injectTestedObjectUsingTheCachedPlanOnceMore() {
+        injectTestedObjectUsingTheCachedPlanInEveryTest();
+    }
+}
@@ -0,0 +1,158 @@
+package mockit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+import mockit.internal.injection.InjectionPlan;
+import mockit.internal.injection.InjectionPlan.InjectionConstructor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * The Class InjectionThroughMethodHandlesTest.
+ */
+public final class InjectionThroughMethodHandlesTest {
+
+    /** The thrown. */
+    @Rule
+    public final ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * The Class ClassWithFailingConstructor.
+     */
+    static final class ClassWithFailingConstructor {
+
+        /**
+         * Instantiates a new class with failing constructor.
+         *
+         * @param fileName
+         *            the file name
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        ClassWithFailingConstructor(String fileName) throws IOException {
+            throw new IOException("Unable to open " + fileName);
+        }
+    }
+
+    /**
+     * The Class TestedClass.
+     */
+    static final class TestedClass {
+
+        /** The text. */
+        String text;
+
+        /** The count. */
+        int count;
+    }
+
+    /**
+     * The Class Outer.
+     */
+    static final class Outer {
+
+        /** The outer text. */
+        String outerText = "outer";
+
+        /**
+         * The Class Inner.
+         */
+        final class Inner {
+        }
+    }
+
+    /**
+     * Propagate checked exception thrown by constructor.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void propagateCheckedExceptionThrownByConstructor() throws Exception {
+        InjectionConstructor constructor = InjectionPlan.forClass(ClassWithFailingConstructor.class)
+                .getConstructors().get(0);
+
+        thrown.expect(IOException.class);
+        thrown.expectMessage("Unable to open test.txt");
+
+        constructor.newInstance(new Object[] { "test.txt" });
+    }
+
+    /**
+     * Read and assign field of outer instance.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void readAndAssignFieldOfOuterInstance() throws Exception {
+        Outer outer = new Outer();
+        Outer.Inner inner = outer.new Inner();
+        Field outerText = Outer.class.getDeclaredField("outerText");
+
+        assertEquals("outer", InjectionPlan.getFieldValue(outerText, inner));
+
+        InjectionPlan.setFieldValue(outerText, inner, "assigned");
+
+        assertEquals("assigned", outer.outerText);
+        assertEquals("assigned", InjectionPlan.getFieldValue(outerText, outer));
+    }
+
+    /**
+     * Assign value of the right type.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void assignValueOfTheRightType() throws Exception {
+        TestedClass tested = new TestedClass();
+        String text = "text";
+
+        InjectionPlan.setFieldValue(TestedClass.class.getDeclaredField("text"), tested, text);
+        InjectionPlan.setFieldValue(TestedClass.class.getDeclaredField("count"), tested, 5);
+
+        assertSame(text, tested.text);
+        assertEquals(5, tested.count);
+    }
+
+    /**
+     * Attempt to assign value of the wrong type.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void attemptToAssignValueOfTheWrongType() throws Exception {
+        Field field = TestedClass.class.getDeclaredField("text");
+
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Can not set java.lang.String field " + TestedClass.class.getName()
+                + ".text to java.lang.Integer");
+
+        InjectionPlan.setFieldValue(field, new TestedClass(), 123);
+    }
+
+    /**
+     * Attempt to assign null to primitive field.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void attemptToAssignNullToPrimitiveField() throws Exception {
+        Field field = TestedClass.class.getDeclaredField("count");
+
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Can not set int field " + TestedClass.class.getName() + ".count to null value");
+
+        InjectionPlan.setFieldValue(field, new TestedClass(), null);
+    }
+}
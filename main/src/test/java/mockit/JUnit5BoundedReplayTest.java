@@ -0,0 +1,96 @@
+package mockit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import mockit.integration.junit5.JMockitExtension;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * The Class JUnit5BoundedReplayTest.
+ */
+@ExtendWith(JMockitExtension.class)
+final class JUnit5BoundedReplayTest {
+
+    /**
+     * The Class Dependency.
+     */
+    public static class Dependency {
+
+        /**
+         * Sets the something.
+         *
+         * @param value
+         *            the new something
+         */
+        public void setSomething(@SuppressWarnings("unused") int value) {
+        }
+    }
+
+    /** The mock. */
+    @Injectable
+    Dependency mock;
+
+    /**
+     * Exercise mock in setup method annotated for bounded replay, which has no effect.
+     */
+    @BeforeEach
+    @BoundedReplay(recentInvocations = 1)
+    void exerciseMockInSetupMethodAnnotatedForBoundedReplay() {
+        for (int i = 0; i < 20; i++) {
+            mock.setSomething(i);
+        }
+    }
+
+    /**
+     * Verify invocations from setup method with specific arguments.
+     */
+    @Test
+    void verifyInvocationsFromSetupMethodWithSpecificArguments() {
+        new Verifications() {
+            {
+                mock.setSomething(2);
+                times = 1;
+            }
+        };
+    }
+
+    /**
+     * Verify all invocations from setup and annotated test method.
+     */
+    @Test
+    @BoundedReplay(recentInvocations = 1)
+    void verifyAllInvocationsFromSetupAndAnnotatedTestMethod() {
+        for (int i = 100; i < 120; i++) {
+            mock.setSomething(i);
+        }
+
+        new Verifications() {
+            {
+                mock.setSomething(anyInt);
+                times = 40;
+            }
+        };
+    }
+
+    /**
+     * Attempt to verify invocations with discarded arguments from annotated test method.
+     */
+    @Test
+    @BoundedReplay(recentInvocations = 1)
+    void attemptToVerifyInvocationsWithDiscardedArgumentsFromAnnotatedTestMethod() {
+        for (int i = 100; i < 120; i++) {
+            mock.setSomething(i);
+        }
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new Verifications() {
+            {
+                mock.setSomething(102);
+            }
+        });
+        assertTrue(e.getMessage().contains("discarded in bounded replay mode"));
+    }
+}
@@ -0,0 +1,270 @@
+package mockit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * The Class MockedMethodDispatchTest.
+ */
+public final class MockedMethodDispatchTest {
+
+    /**
+     * The Class Collaborator.
+     */
+    public static class Collaborator {
+
+        /** The value. */
+        final int value;
+
+        /**
+         * Instantiates a new collaborator.
+         */
+        public Collaborator() {
+            value = -1;
+        }
+
+        /**
+         * Instantiates a new collaborator.
+         *
+         * @param value
+         *            the value
+         */
+        public Collaborator(int value) {
+            this.value = value;
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @param increment
+         *            the increment
+         *
+         * @return the value
+         */
+        public int getValue(int increment) {
+            return value + increment;
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @param increment
+         *            the increment
+         * @param text
+         *            the text
+         *
+         * @return the value
+         */
+        public String getValue(long increment, String text) {
+            return text + (value + increment);
+        }
+
+        /**
+         * Parses the value.
+         *
+         * @param text
+         *            the text
+         *
+         * @return the int
+         */
+        public static int parse(String text) {
+            return Integer.parseInt(text);
+        }
+    }
+
+    /**
+     * Dispatch invocations of overloaded methods to their own expectations.
+     *
+     * @param mock
+     *            the mock
+     */
+    @Test
+    public void dispatchInvocationsOfOverloadedMethodsToTheirOwnExpectations(@Mocked final Collaborator mock) {
+        new Expectations() {
+            {
+                mock.getValue();
+                result = 1;
+                mock.getValue(anyInt);
+                result = 2;
+                mock.getValue(3L, "x");
+                result = "three";
+                Collaborator.parse(anyString);
+                result = 4;
+            }
+        };
+
+        assertEquals(1, mock.getValue());
+        assertEquals(2, mock.getValue(10));
+        assertEquals("three", mock.getValue(3L, "x"));
+        assertNull(mock.getValue(3L, "y"));
+        assertEquals(4, Collaborator.parse("abc"));
+
+        new Verifications() {
+            {
+                List<Integer> increments = new ArrayList<>();
+                mock.getValue(withCapture(increments));
+                assertEquals(10, (int) increments.get(0));
+            }
+        };
+    }
+
+    /**
+     * Dispatch invocations of overloaded constructors to their own expectations.
+     *
+     * @param anyCollaborator
+     *            the any collaborator
+     */
+    @Test
+    public void dispatchInvocationsOfOverloadedConstructorsToTheirOwnExpectations(
+            @Mocked Collaborator anyCollaborator) {
+        new Collaborator();
+        new Collaborator(5);
+        new Collaborator(6);
+
+        new Verifications() {
+            {
+                new Collaborator();
+                times = 1;
+                List<Integer> values = new ArrayList<>();
+                new Collaborator(withCapture(values));
+                assertEquals(2, values.size());
+                assertEquals(5, (int) values.get(0));
+                assertEquals(6, (int) values.get(1));
+            }
+        };
+    }
+
+    /**
+     * Dispatch invocations of partially mocked class to real implementation when not recorded.
+     */
+    @Test
+    public void dispatchInvocationsOfPartiallyMockedClassToRealImplementationWhenNotRecorded() {
+        final Collaborator collaborator = new Collaborator(7);
+
+        new Expectations(collaborator) {
+            {
+                collaborator.getValue(1);
+                result = 100;
+            }
+        };
+
+        assertEquals(100, collaborator.getValue(1));
+        assertEquals(9, collaborator.getValue(2));
+        assertEquals(7, collaborator.getValue());
+    }
+
+    /**
+     * Dispatch invocations of JRE methods through the class loading bridge.
+     *
+     * @param file
+     *            the file
+     */
+    @Test
+    public void dispatchInvocationsOfJREMethodsThroughTheClassLoadingBridge(@Mocked final File file) {
+        new Expectations() {
+            {
+                file.exists();
+                result = true;
+                file.length();
+                result = 10L;
+                file.setLastModified(anyLong);
+                result = true;
+            }
+        };
+
+        File anotherFile = new File("dir", "file");
+
+        assertTrue(anotherFile.exists());
+        assertEquals(10L, anotherFile.length());
+        assertTrue(anotherFile.setLastModified(123L));
+        assertFalse(anotherFile.setReadOnly());
+
+        new Verifications() {
+            {
+                new File("dir", "file");
+                times = 1;
+                List<Long> lastModifiedTimes = new ArrayList<>();
+                file.setLastModified(withCapture(lastModifiedTimes));
+                assertEquals(123L, (long) lastModifiedTimes.get(0));
+            }
+        };
+    }
+
+    /**
+     * Dispatch invocations of static JRE methods through the class loading bridge.
+     *
+     * @param anyFile
+     *            the any file
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void dispatchInvocationsOfStaticJREMethodsThroughTheClassLoadingBridge(@Mocked final File anyFile)
+            throws Exception {
+        new Expectations() {
+            {
+                File.createTempFile("prefix", ".tmp");
+                result = anyFile;
+            }
+        };
+
+        assertSame(anyFile, File.createTempFile("prefix", ".tmp"));
+        File.createTempFile("other", ".tmp", anyFile);
+
+        new Verifications() {
+            {
+                List<String> prefixes = new ArrayList<>();
+                File.createTempFile(withCapture(prefixes), anyString, (File) any);
+                assertEquals(1, prefixes.size());
+                assertEquals("other", prefixes.get(0));
+            }
+        };
+    }
+
+    /**
+     * Evaluate object methods of JRE mock through the class loading bridge.
+     *
+     * @param date
+     *            the date
+     */
+    @Test
+    public void evaluateObjectMethodsOfJREMockThroughTheClassLoadingBridge(@Mocked final Date date) {
+        final Date anotherDate = new Date();
+
+        new Expectations() {
+            {
+                // Evaluated while recording, from the invocation arguments only.
+                assertTrue(date.equals(date));
+                assertFalse(date.equals(anotherDate));
+                date.getTime();
+                result = 123L;
+            }
+        };
+
+        assertTrue(date.equals(date));
+        assertNotEquals(date, anotherDate);
+        assertEquals(date.hashCode(), date.hashCode());
+        assertEquals(123L, date.getTime());
+    }
+}
@@ -0,0 +1,64 @@
+package mockit;
+
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * The Class TestedFieldWithCheckedExceptionFromConstructorTest.
+ */
+public final class TestedFieldWithCheckedExceptionFromConstructorTest {
+
+    /** The thrown. */
+    @Rule
+    public final ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Configure expected exception.
+     */
+    @Before
+    public void configureExpectedException() {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("Unable to open config.txt");
+    }
+
+    /**
+     * The Class ClassWithFailingConstructor.
+     */
+    static class ClassWithFailingConstructor {
+
+        /**
+         * Instantiates a new class with failing constructor.
+         *
+         * @param fileName
+         *            the file name
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        ClassWithFailingConstructor(String fileName) throws IOException {
+            throw new IOException("Unable to open " + fileName);
+        }
+    }
+
+    /** The tested. */
+    @Tested
+    ClassWithFailingConstructor tested;
+
+    /** The file name. */
+    @Injectable
+    String fileName = "config.txt";
+
+    /**
+     * Attempt to use tested object whose constructor threw checked exception.
+     */
+    @Test
+    public void attemptToUseTestedObjectWhoseConstructorThrewCheckedException() {
+        fail("Tested object should not have been created");
+    }
+}
@@ -0,0 +1,213 @@
+package mockit;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mockit.internal.expectations.MockedCallSites;
+import mockit.internal.startup.Startup;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * The Class UnlinkedMockedClassesTest.
+ */
+@RunWith(Parameterized.class)
+public final class UnlinkedMockedClassesTest {
+
+    /** The number of times each test runs, the class getting mocked and then restored every time. */
+    static final int RUN_COUNT = 200;
+
+    /** The redefinitions of the mocked class. */
+    static final AtomicInteger redefinitions = new AtomicInteger();
+
+    /** The transformer counting redefinitions, not called for retransformations. */
+    static final ClassFileTransformer redefinitionCounter = new ClassFileTransformer() {
+        @Override
+        public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+            if (classBeingRedefined == Collaborator.class) {
+                redefinitions.incrementAndGet();
+            }
+
+            return null;
+        }
+    };
+
+    /**
+     * The Class Collaborator.
+     */
+    public static class Collaborator {
+
+        /** The value. */
+        final int value;
+
+        /**
+         * Instantiates a new collaborator.
+         *
+         * @param value
+         *            the value
+         */
+        public Collaborator(int value) {
+            this.value = value;
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @param increment
+         *            the increment
+         *
+         * @return the value
+         */
+        public int getValue(int increment) {
+            return value + increment;
+        }
+    }
+
+    /**
+     * Runs.
+     *
+     * @return the list
+     */
+    @Parameters(name = "{0}")
+    public static List<Integer> runs() {
+        List<Integer> runs = new ArrayList<>(RUN_COUNT);
+
+        for (int run = 0; run < RUN_COUNT; run++) {
+            runs.add(run);
+        }
+
+        return runs;
+    }
+
+    /**
+     * Start counting redefinitions.
+     */
+    @BeforeClass
+    public static void startCountingRedefinitions() {
+        redefinitions.set(0);
+        Startup.instrumentation().addTransformer(redefinitionCounter);
+    }
+
+    /**
+     * Check redefinitions.
+     */
+    @AfterClass
+    public static void checkRedefinitions() {
+        Startup.instrumentation().removeTransformer(redefinitionCounter);
+
+        if (MockedCallSites.ENABLED) {
+            // Mocked once, then only unlinked and relinked.
+            assertEquals(1, redefinitions.get());
+        } else {
+            // Mocked and restored every time.
+            assertEquals(2 * RUN_COUNT, redefinitions.get());
+        }
+    }
+
+    /** The run. */
+    final int run;
+
+    /**
+     * Instantiates a new unlinked mocked classes test.
+     *
+     * @param run
+     *            the run
+     */
+    public UnlinkedMockedClassesTest(int run) {
+        this.run = run;
+    }
+
+    /**
+     * Mock class partially.
+     */
+    @Test
+    public void mockClassPartially() {
+        final Collaborator collaborator = new Collaborator(run);
+
+        new Expectations(collaborator) {
+            {
+                collaborator.getValue();
+                result = -1;
+            }
+        };
+
+        assertEquals(-1, collaborator.getValue());
+        assertEquals(run + 1, collaborator.getValue(1));
+    }
+
+    /**
+     * Execute real implementation of class no longer mocked.
+     */
+    @Test
+    public void executeRealImplementationOfClassNoLongerMocked() {
+        Collaborator collaborator = new Collaborator(run);
+
+        assertEquals(run, collaborator.getValue());
+        assertEquals(run + 1, collaborator.getValue(1));
+    }
+
+    /**
+     * Retransform class no longer mocked from its modified bytecode.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void retransformClassNoLongerMockedFromItsModifiedBytecode() throws Exception {
+        assumeTrue(MockedCallSites.ENABLED && run == 1);
+        Instrumentation instrumentation = Startup.instrumentation();
+        assumeTrue(instrumentation.isRetransformClassesSupported());
+        final byte[][] retransformedClassfile = { null };
+        ClassFileTransformer otherAgent = new ClassFileTransformer() {
+            @Override
+            public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                    ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+                if (classBeingRedefined == Collaborator.class) {
+                    retransformedClassfile[0] = classfileBuffer;
+                }
+
+                return null;
+            }
+        };
+
+        instrumentation.addTransformer(otherAgent, true);
+
+        try {
+            instrumentation.retransformClasses(Collaborator.class);
+        } finally {
+            instrumentation.removeTransformer(otherAgent);
+        }
+
+        // Another agent gets the bytecode as left by the last redefinition, which still has the unlinked call sites.
+        assertNotNull(retransformedClassfile[0]);
+        String classfileContents = new String(retransformedClassfile[0], ISO_8859_1);
+        assertTrue(classfileContents.contains(MockedCallSites.class.getName().replace('.', '/')));
+        assertEquals(run, new Collaborator(run).getValue());
+    }
+}
@@ -0,0 +1,305 @@
+package mockit.coverage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import mockit.asm.controlFlow.Label;
+import mockit.coverage.data.CoverageData;
+import mockit.coverage.data.FileCoverageData;
+import mockit.coverage.dataItems.PerFileDataCoverage;
+import mockit.coverage.dataItems.StaticFieldData;
+import mockit.coverage.lines.BranchCoverageData;
+import mockit.coverage.lines.LineCoverageData;
+import mockit.coverage.lines.PerFileLineCoverage;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The Class DataFileMergingTest.
+ */
+public final class DataFileMergingTest {
+
+    /** The source files, named after existing classes for their class files to have last modified times. */
+    static final String[] SOURCE_FILES = { "mockit/coverage/DataFileMergingTest.java", "mockit/InjectionPlanTest.java",
+            "mockit/ExpectationsTest.java", "mockit/FakingTest.java" };
+
+    /** The line with branches. */
+    static final int LINE_WITH_BRANCHES = 3;
+
+    /** The temp folder. */
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /** The random. */
+    final Random random = new Random(42);
+
+    /**
+     * Merge data files from same version of the classes in parallel.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void mergeDataFilesFromSameVersionOfTheClassesInParallel() throws Exception {
+        List<String> dataFilePaths = createDataFiles(24, false);
+
+        assertSameMergedDataAsWhenMergingSequentially(dataFilePaths);
+    }
+
+    /**
+     * Merge data files from different versions of the classes in parallel.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void mergeDataFilesFromDifferentVersionsOfTheClassesInParallel() throws Exception {
+        List<String> dataFilePaths = createDataFiles(40, true);
+
+        assertSameMergedDataAsWhenMergingSequentially(dataFilePaths);
+    }
+
+    /**
+     * Merge data file from same version of the classes after one from another version.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void mergeDataFileFromSameVersionOfTheClassesAfterOneFromAnotherVersion() throws Exception {
+        List<String> dataFilePaths = createDataFiles(3, true);
+
+        assertSameMergedDataAsWhenMergingSequentially(dataFilePaths);
+    }
+
+    /**
+     * Merge single data file.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void mergeSingleDataFile() throws Exception {
+        List<String> dataFilePaths = createDataFiles(1, false);
+
+        assertSameMergedDataAsWhenMergingSequentially(dataFilePaths);
+    }
+
+    /**
+     * Ignore missing data files.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void ignoreMissingDataFiles() throws Exception {
+        List<String> dataFilePaths = createDataFiles(3, false);
+        dataFilePaths.add(1, new File(tempFolder.getRoot(), "missing.ser").getPath());
+
+        assertSameMergedDataAsWhenMergingSequentially(dataFilePaths);
+    }
+
+    /**
+     * Fail when no data file exists.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void failWhenNoDataFileExists() throws Exception {
+        String[] dataFilePaths = { new File(tempFolder.getRoot(), "missing.ser").getPath() };
+
+        new DataFileMerging(dataFilePaths).merge();
+    }
+
+    /**
+     * Creates data files with random execution counts for a random subset of the source files, every fifth of them
+     * in the serialized format of earlier versions.
+     *
+     * @param count
+     *            the count
+     * @param withOtherVersions
+     *            whether every third data file, starting from the second, is to have unknown last modified times for
+     *            the class files, as if from another version of them, rather than those of the current class files
+     *
+     * @return the paths of the data files
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    List<String> createDataFiles(int count, boolean withOtherVersions) throws IOException {
+        List<String> dataFilePaths = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            CoverageData data = createRandomCoverageData();
+
+            if (!withOtherVersions || i % 3 != 1) {
+                data.fillLastModifiedTimesForAllClassFiles();
+            }
+
+            File dataFile = tempFolder.newFile("coverage" + i + ".ser");
+
+            if (i % 5 == 4) {
+                try (ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(dataFile))) {
+                    output.writeObject(data);
+                }
+            } else {
+                data.writeDataToFile(dataFile);
+            }
+
+            dataFilePaths.add(dataFile.getPath());
+        }
+
+        return dataFilePaths;
+    }
+
+    /**
+     * Creates random coverage data.
+     *
+     * @return the coverage data
+     */
+    CoverageData createRandomCoverageData() {
+        CoverageData data = new CoverageData();
+
+        for (String sourceFile : SOURCE_FILES) {
+            if (random.nextInt(4) > 0) {
+                FileCoverageData fileData = data.getOrAddFile(sourceFile, "cls");
+                addRandomLineCoverage(fileData.lineCoverageInfo);
+                addRandomDataCoverage(fileData.dataCoverageInfo, sourceFile);
+            }
+        }
+
+        return data;
+    }
+
+    /**
+     * Adds random line coverage.
+     *
+     * @param lineInfo
+     *            the line info
+     */
+    void addRandomLineCoverage(PerFileLineCoverage lineInfo) {
+        for (int line = 1; line <= 5; line++) {
+            lineInfo.addLine(line);
+        }
+
+        LineCoverageData lineWithBranches = lineInfo.getOrCreateLineData(LINE_WITH_BRANCHES);
+        lineWithBranches.addBranchingPoint(new Label(), new Label());
+
+        for (int line = 1; line <= 5; line++) {
+            for (int executions = random.nextInt(3); executions > 0; executions--) {
+                lineInfo.registerExecution(line, null);
+            }
+        }
+
+        for (int branchIndex = 0; branchIndex < 2; branchIndex++) {
+            for (int executions = random.nextInt(3); executions > 0; executions--) {
+                lineInfo.registerExecution(LINE_WITH_BRANCHES, branchIndex, null);
+            }
+        }
+    }
+
+    /**
+     * Adds random data coverage.
+     *
+     * @param dataInfo
+     *            the data info
+     * @param sourceFile
+     *            the source file
+     */
+    void addRandomDataCoverage(PerFileDataCoverage dataInfo, String sourceFile) {
+        String className = sourceFile.substring(0, sourceFile.length() - 5);
+        dataInfo.addField(className, "field", true);
+        String field = className + ".field";
+
+        for (int assignments = random.nextInt(3); assignments > 0; assignments--) {
+            dataInfo.registerAssignmentToStaticField(field);
+        }
+
+        for (int reads = random.nextInt(3); reads > 0; reads--) {
+            dataInfo.registerReadOfStaticField(field);
+        }
+    }
+
+    /**
+     * Asserts that the data files merged in parallel give the same data as when merged one after the other, in the way
+     * they were before.
+     *
+     * @param dataFilePaths
+     *            the data file paths
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void assertSameMergedDataAsWhenMergingSequentially(List<String> dataFilePaths) throws IOException {
+        CoverageData sequentiallyMergedData = null;
+
+        for (String dataFilePath : dataFilePaths) {
+            File dataFile = new File(dataFilePath);
+
+            if (dataFile.exists()) {
+                CoverageData data = CoverageData.readDataFromFile(dataFile);
+
+                if (sequentiallyMergedData == null) {
+                    sequentiallyMergedData = data;
+                } else {
+                    sequentiallyMergedData.merge(data);
+                }
+            }
+        }
+
+        CoverageData mergedData = new DataFileMerging(dataFilePaths.toArray(new String[0])).merge();
+
+        String expectedData = describe(sequentiallyMergedData);
+        assertNotEquals("", expectedData);
+        assertEquals(expectedData, describe(mergedData));
+    }
+
+    /**
+     * Describes the coverage data, for each source file in order.
+     *
+     * @param data
+     *            the data
+     *
+     * @return the description
+     */
+    static String describe(CoverageData data) {
+        StringBuilder description = new StringBuilder();
+
+        for (Entry<String, FileCoverageData> fileAndData : new TreeMap<>(data.getFileToFileData()).entrySet()) {
+            description.append(fileAndData.getKey()).append(":\n");
+            PerFileLineCoverage lineInfo = fileAndData.getValue().lineCoverageInfo;
+
+            for (int line = 1; line <= lineInfo.getLineCount(); line++) {
+                description.append(' ').append(lineInfo.getExecutionCount(line));
+            }
+
+            for (BranchCoverageData branchData : lineInfo.getLineData(LINE_WITH_BRANCHES).getBranches()) {
+                description.append(' ').append(branchData.getExecutionCount());
+            }
+
+            for (Entry<String, StaticFieldData> fieldAndData : fileAndData.getValue().dataCoverageInfo.staticFieldsData
+                    .entrySet()) {
+                StaticFieldData fieldData = fieldAndData.getValue();
+                description.append(' ').append(fieldAndData.getKey()).append('=').append(fieldData.getReadCount())
+                        .append('/').append(fieldData.getWriteCount());
+            }
+
+            description.append('\n');
+        }
+
+        return description.toString();
+    }
+}
@@ -0,0 +1,149 @@
+package mockit.coverage.lines;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+/**
+ * The Class PerFileLineCoverageTest.
+ */
+public final class PerFileLineCoverageTest {
+
+    /** The coverage data. */
+    final PerFileLineCoverage lineCoverage = new PerFileLineCoverage();
+
+    /**
+     * Carry previous execution counts over when execution counts are transferred twice.
+     */
+    @Test
+    public void carryPreviousExecutionCountsOverWhenExecutionCountsAreTransferredTwice() {
+        addLines(1, 5);
+        assertEquals(5, registerExecutionsOfLines(1, 5));
+
+        lineCoverage.addLine(40);
+        assertEquals(0, registerExecutionsOfLines(1, 5));
+        lineCoverage.addLine(100);
+        assertEquals(0, registerExecutionsOfLines(1, 5));
+        assertEquals(2, registerExecutionsOfLines(40, 40) + registerExecutionsOfLines(100, 100));
+        assertEquals(0, registerExecutionsOfLines(40, 40) + registerExecutionsOfLines(100, 100));
+
+        for (int line = 1; line <= 5; line++) {
+            assertEquals(3, lineCoverage.getExecutionCount(line));
+        }
+
+        assertEquals(2, lineCoverage.getExecutionCount(40));
+        assertEquals(2, lineCoverage.getExecutionCount(100));
+    }
+
+    /**
+     * Adds the lines.
+     *
+     * @param firstLine
+     *            the first line
+     * @param lastLine
+     *            the last line
+     */
+    void addLines(int firstLine, int lastLine) {
+        for (int line = firstLine; line <= lastLine; line++) {
+            lineCoverage.addLine(line);
+        }
+    }
+
+    /**
+     * Registers one execution of each line.
+     *
+     * @param firstLine
+     *            the first line
+     * @param lastLine
+     *            the last line
+     *
+     * @return the number of lines executed for the first time
+     */
+    int registerExecutionsOfLines(int firstLine, int lastLine) {
+        int newLinesCovered = 0;
+
+        for (int line = firstLine; line <= lastLine; line++) {
+            if (lineCoverage.registerExecutionConcurrently(line) == 0) {
+                newLinesCovered++;
+            }
+        }
+
+        return newLinesCovered;
+    }
+
+    /**
+     * Report each line as newly covered only once while execution counts are transferred concurrently.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void reportEachLineAsNewlyCoveredOnlyOnceWhileExecutionCountsAreTransferredConcurrently()
+            throws Exception {
+        int threadCount = 4;
+        int executionsPerThread = 2000;
+        int lineCount = 10;
+        addLines(1, lineCount);
+        lineCoverage.registerExecutionConcurrently(1);
+
+        AtomicIntegerArray newCoverageReports = new AtomicIntegerArray(lineCount + 1);
+        CyclicBarrier start = new CyclicBarrier(threadCount + 1);
+        List<Thread> threads = new ArrayList<>(threadCount);
+
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(() -> {
+                await(start);
+
+                for (int i = 0; i < executionsPerThread; i++) {
+                    int line = 2 + i % (lineCount - 1);
+
+                    if (lineCoverage.registerExecutionConcurrently(line) == 0) {
+                        newCoverageReports.incrementAndGet(line);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        await(start);
+
+        // Each added line grows the execution counts array, transferring the counts of the lines being executed.
+        for (int line = 100; line < 100 + 31 * 200; line += 31) {
+            lineCoverage.addLine(line);
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int totalExecutions = 0;
+
+        for (int line = 2; line <= lineCount; line++) {
+            assertEquals("line " + line, 1, newCoverageReports.get(line));
+            totalExecutions += lineCoverage.getExecutionCount(line);
+        }
+
+        assertEquals(threadCount * executionsPerThread, totalExecutions);
+        assertEquals(1, lineCoverage.getExecutionCount(1));
+    }
+
+    /**
+     * Await.
+     *
+     * @param barrier
+     *            the barrier
+     */
+    static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package mockit.coverage.modification;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
+
+import mockit.coverage.data.CoverageData;
+import mockit.coverage.data.FileCoverageData;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The Class SourceFileIndexesTest.
+ */
+public final class SourceFileIndexesTest {
+
+    /** The temp folder. */
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /** The registry file. */
+    Path registryFile;
+
+    /**
+     * Sets the up.
+     */
+    @Before
+    public void setUp() {
+        registryFile = tempFolder.getRoot().toPath().resolve("sourceFiles.txt");
+    }
+
+    /**
+     * Assign indexes in registration order.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void assignIndexesInRegistrationOrder() throws Exception {
+        SourceFileIndexes fileIndexes = new SourceFileIndexes(registryFile);
+
+        assertEquals(0, fileIndexes.applyAsInt("pkg/A.java"));
+        assertEquals(1, fileIndexes.applyAsInt("pkg/B.java"));
+        assertEquals(0, fileIndexes.applyAsInt("pkg/A.java"));
+        assertEquals(2, fileIndexes.applyAsInt("pkg/C.java"));
+    }
+
+    /**
+     * Assign same indexes through registries sharing the same file.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void assignSameIndexesThroughRegistriesSharingTheSameFile() throws Exception {
+        SourceFileIndexes fileIndexes1 = new SourceFileIndexes(registryFile);
+        fileIndexes1.applyAsInt("pkg/A.java");
+        fileIndexes1.applyAsInt("pkg/B.java");
+
+        // As if in another JVM, which finds the files already registered and then registers a new one.
+        SourceFileIndexes fileIndexes2 = new SourceFileIndexes(registryFile);
+        assertEquals(1, fileIndexes2.applyAsInt("pkg/B.java"));
+        assertEquals(2, fileIndexes2.applyAsInt("pkg/C.java"));
+
+        assertEquals(2, fileIndexes1.applyAsInt("pkg/C.java"));
+        assertEquals(3, fileIndexes1.applyAsInt("pkg/D.java"));
+        assertEquals(3, fileIndexes2.applyAsInt("pkg/D.java"));
+    }
+
+    /**
+     * Assign distinct contiguous indexes to files registered concurrently.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void assignDistinctContiguousIndexesToFilesRegisteredConcurrently() throws Exception {
+        SourceFileIndexes fileIndexes1 = new SourceFileIndexes(registryFile);
+        SourceFileIndexes fileIndexes2 = new SourceFileIndexes(registryFile);
+        int fileCount = 60;
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<Map<String, Integer>>> results = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < 6; t++) {
+                SourceFileIndexes fileIndexes = t % 2 == 0 ? fileIndexes1 : fileIndexes2;
+                int firstFile = t * 7;
+                results.add(executor.submit(() -> registerFiles(fileIndexes, firstFile, fileCount)));
+            }
+
+            Map<String, Integer> assignedIndexes = new HashMap<>();
+
+            for (Future<Map<String, Integer>> result : results) {
+                for (Map.Entry<String, Integer> fileAndIndex : result.get(10, SECONDS).entrySet()) {
+                    Integer previousIndex = assignedIndexes.putIfAbsent(fileAndIndex.getKey(), fileAndIndex.getValue());
+                    assertTrue(previousIndex == null || previousIndex.equals(fileAndIndex.getValue()));
+                }
+            }
+
+            assertEquals(fileCount, assignedIndexes.size());
+            assertEquals(fileCount, assignedIndexes.values().stream().distinct().count());
+            assertEquals(fileCount - 1, (int) assignedIndexes.values().stream().max(Integer::compare).get());
+
+            SourceFileIndexes reopenedFileIndexes = new SourceFileIndexes(registryFile);
+            assignedIndexes.forEach((file, index) -> assertEquals((int) index, reopenedFileIndexes.applyAsInt(file)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers files with wrap around, starting from a given one.
+     *
+     * @param fileIndexes
+     *            the file indexes
+     * @param firstFile
+     *            the first file
+     * @param fileCount
+     *            the file count
+     *
+     * @return the indexes assigned to the files
+     */
+    static Map<String, Integer> registerFiles(SourceFileIndexes fileIndexes, int firstFile, int fileCount) {
+        Map<String, Integer> assignedIndexes = new HashMap<>();
+
+        for (int i = 0; i < fileCount; i++) {
+            String sourceFile = "pkg/Class" + (firstFile + i) % fileCount + ".java";
+            assignedIndexes.put(sourceFile, fileIndexes.applyAsInt(sourceFile));
+        }
+
+        return assignedIndexes;
+    }
+
+    /**
+     * Add files with assigned indexes, finding them by index.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void addFilesWithAssignedIndexesFindingThemByIndex() throws Exception {
+        SourceFileIndexes fileIndexes = new SourceFileIndexes(registryFile);
+
+        for (int i = 0; i < 250; i++) {
+            fileIndexes.applyAsInt("pkg/Other" + i + ".java");
+        }
+
+        CoverageData coverageData = new CoverageData();
+        coverageData.setFileIndexAssignment(fileIndexes);
+
+        FileCoverageData fileData1 = coverageData.getOrAddFile("pkg/A.java", "cls");
+        FileCoverageData fileData2 = coverageData.getOrAddFile("pkg/Other3.java", "cls");
+
+        assertEquals(250, fileData1.index);
+        assertEquals(3, fileData2.index);
+        assertSame(fileData1, coverageData.getFileData(250));
+        assertSame(fileData2, coverageData.getFileData(3));
+        assertSame(fileData1, coverageData.getOrAddFile("pkg/A.java", null));
+    }
+
+    /**
+     * Add other files while the index for a file is being assigned.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void addOtherFilesWhileTheIndexForAFileIsBeingAssigned() throws Exception {
+        SourceFileIndexes fileIndexes = new SourceFileIndexes(registryFile);
+        CountDownLatch assigningIndex = new CountDownLatch(1);
+        CountDownLatch otherFilesAdded = new CountDownLatch(1);
+        ToIntFunction<String> slowIndexAssignment = file -> {
+            if ("pkg/Slow.java".equals(file)) {
+                assigningIndex.countDown();
+
+                try {
+                    // Stands for waiting on the lock of a registry file held by another JVM.
+                    otherFilesAdded.await(10, SECONDS);
+                } catch (InterruptedException ignore) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return fileIndexes.applyAsInt(file);
+        };
+        CoverageData coverageData = new CoverageData();
+        coverageData.setFileIndexAssignment(slowIndexAssignment);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<FileCoverageData> slowFile = executor
+                    .submit(() -> coverageData.getOrAddFile("pkg/Slow.java", "cls"));
+            assertTrue(assigningIndex.await(10, SECONDS));
+
+            // Enough files for some to share a hash bin with the file being added, and for the map to be resized.
+            Future<?> otherFiles = executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    coverageData.getOrAddFile("pkg/Class" + i + ".java", "cls");
+                }
+            });
+            otherFiles.get(10, SECONDS);
+            otherFilesAdded.countDown();
+
+            FileCoverageData slowFileData = slowFile.get(10, SECONDS);
+            assertSame(slowFileData, coverageData.getFileData(slowFileData.index));
+            assertEquals(101, coverageData.getFileToFileData().size());
+        } finally {
+            otherFilesAdded.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
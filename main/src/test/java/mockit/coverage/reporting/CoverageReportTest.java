@@ -0,0 +1,428 @@
+package mockit.coverage.reporting;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import mockit.coverage.data.CoverageData;
+import mockit.coverage.data.FileCoverageData;
+import mockit.coverage.lines.PerFileLineCoverage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The Class CoverageReportTest.
+ */
+public final class CoverageReportTest {
+
+    /** The temp folder. */
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /** The source dir. */
+    File sourceDir;
+
+    /** The output dir. */
+    File outputDir;
+
+    /** The coverage data. */
+    CoverageData coverageData;
+
+    /** The contents of pages not expected to be generated again. */
+    static final String PAGE_MARKER = "unchanged";
+
+    /** The source files found in the source dir. */
+    final List<String> sourceFiles = new ArrayList<>();
+
+    /**
+     * Creates the source files and their coverage data.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void createSourceFilesAndCoverageData() throws Exception {
+        sourceDir = tempFolder.newFolder("src");
+        outputDir = new File(tempFolder.getRoot(), "report");
+        coverageData = new CoverageData();
+
+        for (int i = 0; i < 12; i++) {
+            String sourceFile = "pkg" + i % 3 + "/Class" + i + ".java";
+            createSourceFile(sourceFile, i);
+            addCoverageData(sourceFile, i);
+            sourceFiles.add(sourceFile);
+        }
+    }
+
+    /**
+     * Creates a source file.
+     *
+     * @param sourceFile
+     *            the source file
+     * @param classNumber
+     *            the class number
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void createSourceFile(String sourceFile, int classNumber) throws IOException {
+        File file = new File(sourceDir, sourceFile);
+        // noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+
+        String packageName = sourceFile.substring(0, sourceFile.indexOf('/'));
+        String source = "package " + packageName + ";\n" + "public class Class" + classNumber + " {\n"
+                + "    int value() {\n" + "        return " + classNumber + ";\n" + "    }\n" + "}\n";
+        Files.write(file.toPath(), source.getBytes(UTF_8));
+    }
+
+    /**
+     * Adds coverage data for a source file.
+     *
+     * @param sourceFile
+     *            the source file
+     * @param executions
+     *            the executions
+     */
+    void addCoverageData(String sourceFile, int executions) {
+        FileCoverageData fileData = coverageData.getOrAddFile(sourceFile, "cls");
+        PerFileLineCoverage lineInfo = fileData.lineCoverageInfo;
+        lineInfo.addLine(2);
+        lineInfo.addLine(4);
+
+        for (int i = 0; i < executions; i++) {
+            lineInfo.registerExecution(4, null);
+        }
+    }
+
+    /**
+     * Generates the report.
+     *
+     * @param reportDir
+     *            the report dir
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void generateReport(File reportDir) throws IOException {
+        generateReport(reportDir, false);
+    }
+
+    /**
+     * Generates the report.
+     *
+     * @param reportDir
+     *            the report dir
+     * @param withCallPoints
+     *            the with call points
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void generateReport(File reportDir, boolean withCallPoints) throws IOException {
+        String[] sourceDirs = { sourceDir.getPath() };
+        new CoverageReport(reportDir.getPath(), false, sourceDirs, coverageData, withCallPoints).generate();
+    }
+
+    /**
+     * Generates the report in incremental mode.
+     *
+     * @param withCallPoints
+     *            the with call points
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void generateIncrementalReport(boolean withCallPoints) throws IOException {
+        System.setProperty("coverage-incremental", "true");
+
+        try {
+            generateReport(outputDir, withCallPoints);
+        } finally {
+            System.clearProperty("coverage-incremental");
+        }
+    }
+
+    /**
+     * Replaces the contents of every page with a marker, which remains for pages not generated again.
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void markAllPages() throws IOException {
+        for (String sourceFile : sourceFiles) {
+            File page = OutputFile.getOutputFile(outputDir.getPath(), sourceFile);
+            Files.write(page.toPath(), PAGE_MARKER.getBytes(UTF_8));
+        }
+    }
+
+    /**
+     * Checks if the page for a source file was generated again since marked.
+     *
+     * @param sourceFile
+     *            the source file
+     *
+     * @return true, if generated again
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    boolean isPageGeneratedAgain(String sourceFile) throws IOException {
+        return !PAGE_MARKER.equals(readPage(outputDir, sourceFile));
+    }
+
+    /**
+     * Asserts that only the pages for the given source files were generated again since marked.
+     *
+     * @param sourceFilesGeneratedAgain
+     *            the source files generated again
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void assertPagesGeneratedAgain(String... sourceFilesGeneratedAgain) throws IOException {
+        List<String> expected = asList(sourceFilesGeneratedAgain);
+
+        for (String sourceFile : sourceFiles) {
+            assertEquals(sourceFile, expected.contains(sourceFile), isPageGeneratedAgain(sourceFile));
+        }
+    }
+
+    /**
+     * Reads a page of the report.
+     *
+     * @param reportDir
+     *            the report dir
+     * @param sourceFile
+     *            the source file
+     *
+     * @return the page contents
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    static String readPage(File reportDir, String sourceFile) throws IOException {
+        File page = OutputFile.getOutputFile(reportDir.getPath(), sourceFile);
+        return new String(Files.readAllBytes(page.toPath()), UTF_8);
+    }
+
+    /**
+     * Reads the index page of the report, without the line with the time of generation.
+     *
+     * @param reportDir
+     *            the report dir
+     *
+     * @return the index page contents
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    static String readIndexPage(File reportDir) throws IOException {
+        List<String> lines = Files.readAllLines(new File(reportDir, "index.html").toPath(), UTF_8);
+        lines.removeIf(line -> line.contains("Generated on"));
+        return String.join("\n", lines);
+    }
+
+    /**
+     * Generate page for each source file found.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void generatePageForEachSourceFileFound() throws Exception {
+        addCoverageData("pkg0/Missing.java", 1);
+        addCoverageData("pkg3/AlsoMissing.java", 1);
+
+        generateReport(outputDir);
+
+        String indexPage = readIndexPage(outputDir);
+
+        for (String sourceFile : sourceFiles) {
+            String classNumber = sourceFile.substring(sourceFile.indexOf("Class") + 5, sourceFile.indexOf('.'));
+            assertTrue(readPage(outputDir, sourceFile).contains("return " + classNumber + ';'));
+            assertTrue(indexPage.contains("<a href='" + sourceFile.replace(".java", ".html") + "'>"));
+        }
+
+        assertFalse(OutputFile.getOutputFile(outputDir.getPath(), "pkg0/Missing.java").exists());
+        assertFalse(OutputFile.getOutputFile(outputDir.getPath(), "pkg3/AlsoMissing.java").exists());
+        assertTrue(indexPage.contains("Missing.java"));
+        assertFalse(indexPage.contains("Missing.html"));
+    }
+
+    /**
+     * Generate same report every time for same coverage data.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void generateSameReportEveryTimeForSameCoverageData() throws Exception {
+        File otherOutputDir = new File(tempFolder.getRoot(), "otherReport");
+
+        generateReport(outputDir);
+        generateReport(otherOutputDir);
+
+        assertEquals(readIndexPage(outputDir), readIndexPage(otherOutputDir));
+
+        for (String sourceFile : sourceFiles) {
+            assertEquals(readPage(outputDir, sourceFile), readPage(otherOutputDir, sourceFile));
+        }
+    }
+
+    /**
+     * Report failure to write page from worker thread.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test(expected = IOException.class)
+    public void reportFailureToWritePageFromWorkerThread() throws Exception {
+        File pageToFail = OutputFile.getOutputFile(outputDir.getPath(), sourceFiles.get(5));
+        assertTrue(pageToFail.mkdirs());
+
+        generateReport(outputDir);
+    }
+
+    /**
+     * Delete outdated page of source file no longer found.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void deleteOutdatedPageOfSourceFileNoLongerFound() throws Exception {
+        generateReport(outputDir);
+        String removedSourceFile = sourceFiles.get(7);
+        assertTrue(new File(sourceDir, removedSourceFile).delete());
+
+        generateReport(outputDir);
+
+        assertFalse(OutputFile.getOutputFile(outputDir.getPath(), removedSourceFile).exists());
+        assertTrue(OutputFile.getOutputFile(outputDir.getPath(), sourceFiles.get(6)).exists());
+    }
+
+    /**
+     * Skip unchanged pages in incremental mode.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void skipUnchangedPagesInIncrementalMode() throws Exception {
+        generateIncrementalReport(false);
+        markAllPages();
+
+        generateIncrementalReport(false);
+
+        assertPagesGeneratedAgain();
+        assertTrue(new File(outputDir, "index.html").exists());
+    }
+
+    /**
+     * Generate again page whose coverage data changed.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void generateAgainPageWhoseCoverageDataChanged() throws Exception {
+        generateIncrementalReport(false);
+        markAllPages();
+        String changedSourceFile = sourceFiles.get(3);
+        coverageData.getFileData(changedSourceFile).lineCoverageInfo.registerExecution(2, null);
+
+        generateIncrementalReport(false);
+
+        assertPagesGeneratedAgain(changedSourceFile);
+    }
+
+    /**
+     * Generate again page whose source file changed.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void generateAgainPageWhoseSourceFileChanged() throws Exception {
+        generateIncrementalReport(false);
+        markAllPages();
+        String changedSourceFile = sourceFiles.get(4);
+        File file = new File(sourceDir, changedSourceFile);
+        assertTrue(file.setLastModified(file.lastModified() + 10000));
+
+        generateIncrementalReport(false);
+
+        assertPagesGeneratedAgain(changedSourceFile);
+    }
+
+    /**
+     * Generate again missing page.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void generateAgainMissingPage() throws Exception {
+        generateIncrementalReport(false);
+        markAllPages();
+        String sourceFileWithMissingPage = sourceFiles.get(2);
+        assertTrue(OutputFile.getOutputFile(outputDir.getPath(), sourceFileWithMissingPage).delete());
+
+        generateIncrementalReport(false);
+
+        assertPagesGeneratedAgain(sourceFileWithMissingPage);
+    }
+
+    /**
+     * Generate again all pages when call points are included or not.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void generateAgainAllPagesWhenCallPointsAreIncludedOrNot() throws Exception {
+        generateIncrementalReport(false);
+        markAllPages();
+
+        generateIncrementalReport(true);
+
+        assertPagesGeneratedAgain(sourceFiles.toArray(new String[0]));
+    }
+
+    /**
+     * Generate again all pages after report generated in full.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void generateAgainAllPagesAfterReportGeneratedInFull() throws Exception {
+        generateIncrementalReport(false);
+        File fingerprintsFile = new File(outputDir, "fingerprints.properties");
+        assertTrue(fingerprintsFile.exists());
+        markAllPages();
+
+        generateReport(outputDir);
+
+        assertFalse(fingerprintsFile.exists());
+        assertPagesGeneratedAgain(sourceFiles.toArray(new String[0]));
+
+        markAllPages();
+        generateIncrementalReport(false);
+
+        assertPagesGeneratedAgain(sourceFiles.toArray(new String[0]));
+    }
+}
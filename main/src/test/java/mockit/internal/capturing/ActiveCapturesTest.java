@@ -0,0 +1,143 @@
+package mockit.internal.capturing;
+
+import static org.junit.Assert.assertEquals;
+
+import mockit.Capturing;
+import mockit.Mock;
+import mockit.MockUp;
+import mockit.internal.state.SavePoint;
+
+import org.junit.Test;
+
+/**
+ * The Class ActiveCapturesTest.
+ */
+public final class ActiveCapturesTest {
+
+    /**
+     * The Interface First.
+     */
+    public interface First {
+        /**
+         * First value.
+         *
+         * @return the int
+         */
+        int firstValue();
+    }
+
+    /**
+     * The Interface Second.
+     */
+    public interface Second {
+        /**
+         * Second value.
+         *
+         * @return the int
+         */
+        int secondValue();
+    }
+
+    /**
+     * The Class Base.
+     */
+    public abstract static class Base {
+        /**
+         * Base value.
+         *
+         * @return the int
+         */
+        public int baseValue() {
+            return -1;
+        }
+    }
+
+    /**
+     * Capture class loaded later implementing several captured interfaces.
+     *
+     * @param first
+     *            the first
+     * @param second
+     *            the second
+     */
+    @Test
+    public void captureClassLoadedLaterImplementingSeveralCapturedInterfaces(@Capturing First first,
+            @Capturing Second second) {
+        final class BothInterfaces implements First, Second {
+            @Override
+            public int firstValue() {
+                return -1;
+            }
+
+            @Override
+            public int secondValue() {
+                return -2;
+            }
+        }
+        BothInterfaces both = new BothInterfaces();
+
+        assertEquals(0, both.firstValue());
+        assertEquals(0, both.secondValue());
+    }
+
+    /**
+     * Capture class loaded later extending captured base class and implementing captured interface.
+     *
+     * @param base
+     *            the base
+     * @param second
+     *            the second
+     */
+    @Test
+    public void captureClassLoadedLaterExtendingCapturedBaseClassAndImplementingCapturedInterface(
+            @Capturing Base base, @Capturing Second second) {
+        final class SubclassOfBase extends Base implements Second {
+            @Override
+            public int secondValue() {
+                return -2;
+            }
+        }
+        SubclassOfBase subclass = new SubclassOfBase();
+
+        assertEquals(0, subclass.baseValue());
+        assertEquals(0, subclass.secondValue());
+    }
+
+    /**
+     * Stop capturing classes once capture is deactivated.
+     *
+     * @param <T>
+     *            the generic type
+     */
+    @Test
+    public <T extends First> void stopCapturingClassesOnceCaptureIsDeactivated() {
+        SavePoint savePoint = new SavePoint();
+
+        new MockUp<T>() {
+            @Mock
+            int firstValue() {
+                return 7;
+            }
+        };
+
+        final class LoadedWhileCaptured implements First {
+            @Override
+            public int firstValue() {
+                return -1;
+            }
+        }
+        First loadedWhileCaptured = new LoadedWhileCaptured();
+        assertEquals(7, loadedWhileCaptured.firstValue());
+
+        savePoint.rollback();
+
+        final class LoadedAfterDeactivation implements First {
+            @Override
+            public int firstValue() {
+                return -3;
+            }
+        }
+        assertEquals(-3, new LoadedAfterDeactivation().firstValue());
+        assertEquals(-1, loadedWhileCaptured.firstValue());
+    }
+}
@@ -0,0 +1,237 @@
+package mockit.internal.classGeneration;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import mockit.asm.classes.ClassReader;
+import mockit.internal.ClassFile;
+import mockit.internal.expectations.mocking.SubclassGenerationModifier;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The Class GeneratedClassCacheTest.
+ */
+public final class GeneratedClassCacheTest {
+
+    /** The temporary folder. */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** The cache. */
+    GeneratedClassCache cache;
+
+    /**
+     * The Class Source.
+     */
+    public abstract static class Source {
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public abstract int getValue();
+
+        /**
+         * Gets the text.
+         *
+         * @param value
+         *            the value
+         *
+         * @return the text
+         */
+        public abstract String getText(long value);
+    }
+
+    /**
+     * The Class SourceWithIntegerConstant.
+     */
+    public abstract static class SourceWithIntegerConstant {
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public abstract int getValue();
+
+        /**
+         * Gets the constant.
+         *
+         * @return the constant
+         */
+        public int getConstant() {
+            return 1234567;
+        }
+    }
+
+    /**
+     * A class generated for a source class, along with its generator.
+     */
+    static final class GeneratedClass {
+        /** The name. */
+        final String name;
+
+        /** The source classfile. */
+        final byte[] sourceClassfile;
+
+        /** The generator. */
+        final SubclassGenerationModifier generator;
+
+        /** The classfile. */
+        final byte[] classfile;
+
+        /**
+         * Generates a class for the given source class.
+         *
+         * @param sourceClass
+         *            the source class
+         */
+        GeneratedClass(Class<?> sourceClass) {
+            name = sourceClass.getName() + "$Impl";
+            ClassReader classReader = ClassFile.createReaderOrGetFromCache(sourceClass);
+            sourceClassfile = classReader.getBytecode();
+            generator = new SubclassGenerationModifier(sourceClass, sourceClass, classReader, name, false);
+            classReader.accept(generator);
+            classfile = generator.toByteArray();
+        }
+    }
+
+    /**
+     * Sets the up.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        cache = new GeneratedClassCache(temporaryFolder.getRoot().toPath());
+    }
+
+    /**
+     * Compute same key for same class to generate.
+     */
+    @Test
+    public void computeSameKeyForSameClassToGenerate() {
+        GeneratedClass generated = new GeneratedClass(Source.class);
+
+        String key = getKey(generated);
+
+        assertNotNull(key);
+        assertEquals(key, getKey(generated));
+        assertNotEquals(key, cache.getKey(SubclassGenerationModifier.class, generated.name + '2', Source.class,
+                Source.class, generated.sourceClassfile));
+    }
+
+    /**
+     * Gets the key.
+     *
+     * @param generated
+     *            the generated
+     *
+     * @return the key
+     */
+    String getKey(GeneratedClass generated) {
+        return cache.getKey(SubclassGenerationModifier.class, generated.name, Source.class, Source.class,
+                generated.sourceClassfile);
+    }
+
+    /**
+     * Miss class not cached yet.
+     */
+    @Test
+    public void missClassNotCachedYet() {
+        GeneratedClass generated = new GeneratedClass(Source.class);
+
+        assertNull(cache.getGeneratedClass(getKey(generated), generated.name));
+    }
+
+    /**
+     * Hit class cached before.
+     */
+    @Test
+    public void hitClassCachedBefore() {
+        GeneratedClass generated = new GeneratedClass(Source.class);
+        String key = getKey(generated);
+
+        cache.addGeneratedClass(key, generated.name, generated.sourceClassfile, generated.generator,
+                generated.classfile);
+
+        assertArrayEquals(generated.classfile, cache.getGeneratedClass(key, generated.name));
+        assertNull(cache.getGeneratedClass(key, generated.name + "Other"));
+    }
+
+    /**
+     * Rewrite mocked method ids of cached class.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void rewriteMockedMethodIdsOfCachedClass() throws Exception {
+        GeneratedClass generated = new GeneratedClass(Source.class);
+        assertFalse(generated.generator.getMockedMethodIds().isEmpty());
+        String key = getKey(generated);
+        cache.addGeneratedClass(key, generated.name, generated.sourceClassfile, generated.generator,
+                generated.classfile);
+
+        // Simulates an entry written by another JVM, where the same methods got registered with other ids.
+        Path entryFile = temporaryFolder.getRoot().toPath().resolve(key + ".class");
+        byte[] entry = Files.readAllBytes(entryFile);
+        int classfileOffset = entry.length - generated.classfile.length;
+        ByteBuffer entryBuffer = ByteBuffer.wrap(entry);
+        int idsReplaced = 0;
+
+        for (int i = classfileOffset; i < entry.length - 4; i++) {
+            if (entry[i] == 3 && generated.generator.getMockedMethodIds().contains(entryBuffer.getInt(i + 1))) {
+                entryBuffer.putInt(i + 1, -1 - idsReplaced);
+                idsReplaced++;
+            }
+        }
+
+        assertEquals(generated.generator.getMockedMethodIds().size(), idsReplaced);
+        Files.write(entryFile, entry);
+
+        assertArrayEquals(generated.classfile, cache.getGeneratedClass(key, generated.name));
+    }
+
+    /**
+     * Refuse to cache class with other integer constants.
+     */
+    @Test
+    public void refuseToCacheClassWithOtherIntegerConstants() {
+        GeneratedClass generated = new GeneratedClass(SourceWithIntegerConstant.class);
+        String key = cache.getKey(SubclassGenerationModifier.class, generated.name, SourceWithIntegerConstant.class,
+                SourceWithIntegerConstant.class, generated.sourceClassfile);
+
+        cache.addGeneratedClass(key, generated.name, generated.sourceClassfile, generated.generator,
+                generated.classfile);
+
+        assertNull(cache.getGeneratedClass(key, generated.name));
+    }
+
+    /**
+     * Refuse to cache class whose source has unknown kind of constant.
+     */
+    @Test
+    public void refuseToCacheClassWhoseSourceHasUnknownKindOfConstant() {
+        GeneratedClass generated = new GeneratedClass(Source.class);
+        String key = getKey(generated);
+        byte[] sourceClassfile = generated.sourceClassfile.clone();
+        sourceClassfile[10] = 2; // the tag of the first constant, which no classfile version uses
+
+        cache.addGeneratedClass(key, generated.name, sourceClassfile, generated.generator, generated.classfile);
+
+        assertNull(cache.getGeneratedClass(key, generated.name));
+    }
+}
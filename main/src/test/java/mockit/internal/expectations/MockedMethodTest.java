@@ -0,0 +1,85 @@
+package mockit.internal.expectations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Modifier;
+
+import org.junit.Test;
+
+/**
+ * The Class MockedMethodTest.
+ */
+public final class MockedMethodTest {
+
+    /** The class desc, unique to this test so that its methods aren't registered elsewhere. */
+    static final String CLASS_DESC = "mockit/internal/expectations/MockedMethodTest$Registered";
+
+    /**
+     * Register same method twice.
+     */
+    @Test
+    public void registerSameMethodTwice() {
+        int id1 = MockedMethod.register(Modifier.PUBLIC, CLASS_DESC, "same()V", null, ExecutionMode.Regular);
+        int id2 = MockedMethod.register(Modifier.PUBLIC, CLASS_DESC, "same()V", null, ExecutionMode.Regular);
+
+        assertEquals(id1, id2);
+    }
+
+    /**
+     * Register methods differing in any part of their metadata.
+     */
+    @Test
+    public void registerMethodsDifferingInAnyPartOfTheirMetadata() {
+        int id = MockedMethod.register(Modifier.PUBLIC, CLASS_DESC, "other(I)I", null, ExecutionMode.Regular);
+
+        assertNotEquals(id, MockedMethod.register(Modifier.PROTECTED, CLASS_DESC, "other(I)I", null,
+                ExecutionMode.Regular));
+        assertNotEquals(id, MockedMethod.register(Modifier.PUBLIC, CLASS_DESC + '2', "other(I)I", null,
+                ExecutionMode.Regular));
+        assertNotEquals(id, MockedMethod.register(Modifier.PUBLIC, CLASS_DESC, "other(J)I", null,
+                ExecutionMode.Regular));
+        assertNotEquals(id, MockedMethod.register(Modifier.PUBLIC, CLASS_DESC, "other(I)I", "<T:Ljava/lang/Object;>",
+                ExecutionMode.Regular));
+        assertNotEquals(id, MockedMethod.register(Modifier.PUBLIC, CLASS_DESC, "other(I)I", null,
+                ExecutionMode.Partial));
+    }
+
+    /**
+     * Get registered metadata by id.
+     */
+    @Test
+    public void getRegisteredMetadataById() {
+        int id = MockedMethod.register(Modifier.PRIVATE | Modifier.STATIC, CLASS_DESC, "<init>(Ljava/lang/String;)V",
+                null, ExecutionMode.PerInstance);
+
+        MockedMethod mockedMethod = MockedMethod.get(id);
+
+        assertEquals(id, mockedMethod.id);
+        assertEquals(Modifier.PRIVATE | Modifier.STATIC, mockedMethod.access);
+        assertEquals(CLASS_DESC, mockedMethod.classDesc);
+        assertEquals("<init>(Ljava/lang/String;)V", mockedMethod.nameAndDesc);
+        assertNull(mockedMethod.genericSignature);
+        assertSame(ExecutionMode.PerInstance, mockedMethod.executionMode);
+    }
+
+    /**
+     * Get each of many registered methods by id.
+     */
+    @Test
+    public void getEachOfManyRegisteredMethodsById() {
+        int methodCount = 600;
+        int[] ids = new int[methodCount];
+
+        for (int i = 0; i < methodCount; i++) {
+            ids[i] = MockedMethod.register(Modifier.PUBLIC, CLASS_DESC, "method" + i + "()V", null,
+                    ExecutionMode.Regular);
+        }
+
+        for (int i = 0; i < methodCount; i++) {
+            assertEquals("method" + i + "()V", MockedMethod.get(ids[i]).nameAndDesc);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package mockit.internal.state;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import mockit.Mock;
+import mockit.MockUp;
+
+import org.junit.Test;
+
+/**
+ * The Class CachedClassfilesTest.
+ */
+public final class CachedClassfilesTest {
+
+    /** The size of each classfile added to the cache. */
+    static final int CLASSFILE_SIZE = 1000;
+
+    /** The maximum size of the caches created by the tests, which holds four classfiles. */
+    static final long MAX_CACHED_BYTES = 4 * CLASSFILE_SIZE;
+
+    /**
+     * The Class Modified.
+     */
+    public static final class Modified {
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public int getValue() {
+            return 1;
+        }
+    }
+
+    /**
+     * Creates a classfile with the given content, which compresses well.
+     *
+     * @param seed
+     *            the seed
+     *
+     * @return the byte[]
+     */
+    static byte[] newClassfile(int seed) {
+        byte[] classfile = new byte[CLASSFILE_SIZE];
+
+        for (int i = 0; i < CLASSFILE_SIZE; i++) {
+            classfile[i] = (byte) (seed + i % 7);
+        }
+
+        return classfile;
+    }
+
+    /**
+     * Adds a classfile for a class of the given name.
+     *
+     * @param cache
+     *            the cache
+     * @param classDesc
+     *            the class desc
+     * @param aClass
+     *            the class whose classfile is cached
+     *
+     * @return the byte[]
+     */
+    static byte[] addClassfile(CachedClassfiles cache, String classDesc, Class<?> aClass) {
+        byte[] classfile = newClassfile(classDesc.hashCode());
+        cache.addClassfile(null, classDesc, aClass, classfile);
+        return classfile;
+    }
+
+    /**
+     * Keep all classfiles when unbounded.
+     */
+    @Test
+    public void keepAllClassfilesWhenUnbounded() {
+        CachedClassfiles cache = new CachedClassfiles(0, false);
+
+        for (int i = 0; i < 100; i++) {
+            addClassfile(cache, "test/Class" + i, Object.class);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertNotNull(cache.findClassfile(null, "test/Class" + i));
+        }
+    }
+
+    /**
+     * Evict least recently used classfiles when maximum size is exceeded.
+     */
+    @Test
+    public void evictLeastRecentlyUsedClassfilesWhenMaximumSizeIsExceeded() {
+        CachedClassfiles cache = new CachedClassfiles(MAX_CACHED_BYTES, false);
+        byte[] classfile1 = addClassfile(cache, "test/Class1", Object.class);
+        addClassfile(cache, "test/Class2", Object.class);
+        addClassfile(cache, "test/Class3", Object.class);
+        addClassfile(cache, "test/Class4", Object.class);
+        assertArrayEquals(classfile1, cache.findClassfile(null, "test/Class1"));
+
+        addClassfile(cache, "test/Class5", Object.class);
+
+        assertNotNull(cache.findClassfile(null, "test/Class1"));
+        assertNull(cache.findClassfile(null, "test/Class2"));
+        assertNull(cache.findClassfile(null, "test/Class3"));
+        assertNotNull(cache.findClassfile(null, "test/Class4"));
+        assertNotNull(cache.findClassfile(null, "test/Class5"));
+    }
+
+    /**
+     * Compress least recently used classfiles instead of evicting them.
+     */
+    @Test
+    public void compressLeastRecentlyUsedClassfilesInsteadOfEvictingThem() {
+        CachedClassfiles cache = new CachedClassfiles(MAX_CACHED_BYTES, true);
+        byte[][] classfiles = new byte[8][];
+
+        for (int i = 0; i < classfiles.length; i++) {
+            classfiles[i] = addClassfile(cache, "test/Class" + i, Object.class);
+        }
+
+        // Each classfile comes back decompressed, with the same contents as when added.
+        for (int i = 0; i < classfiles.length; i++) {
+            assertArrayEquals(classfiles[i], cache.findClassfile(null, "test/Class" + i));
+        }
+    }
+
+    /**
+     * Never evict classfile of class with modified definition.
+     */
+    @Test
+    public void neverEvictClassfileOfClassWithModifiedDefinition() {
+        new MockUp<Modified>() {
+            @Mock
+            int getValue() {
+                return 2;
+            }
+        };
+        assertTrue(TestRun.mockFixture().hasModifiedDefinition(Modified.class));
+
+        CachedClassfiles cache = new CachedClassfiles(MAX_CACHED_BYTES, false);
+        byte[] modifiedClassfile = addClassfile(cache, "test/Modified", Modified.class);
+
+        for (int i = 1; i <= 8; i++) {
+            addClassfile(cache, "test/Class" + i, Object.class);
+        }
+
+        assertArrayEquals(modifiedClassfile, cache.findClassfile(null, "test/Modified"));
+        assertNull(cache.findClassfile(null, "test/Class1"));
+    }
+}
@@ -0,0 +1,167 @@
+package mockit.internal.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import mockit.Mock;
+import mockit.MockUp;
+
+import org.junit.Test;
+
+/**
+ * The Class LoadedClassesTest.
+ */
+public final class LoadedClassesTest {
+
+    /**
+     * The Interface Service.
+     */
+    public interface Service {
+        /**
+         * Do something.
+         *
+         * @return the int
+         */
+        int doSomething();
+    }
+
+    /**
+     * The Class ServiceLoadedTwice.
+     */
+    public static final class ServiceLoadedTwice implements Service {
+        @Override
+        public int doSomething() {
+            return 1;
+        }
+    }
+
+    /**
+     * A class loader which defines its own copy of a given class, instead of delegating to its parent.
+     */
+    static final class IsolatingClassLoader extends ClassLoader {
+
+        /**
+         * Instantiates a new isolating class loader.
+         */
+        IsolatingClassLoader() {
+            super(LoadedClassesTest.class.getClassLoader());
+        }
+
+        /**
+         * Defines a copy of the given class.
+         *
+         * @param aClass
+         *            the class to copy
+         *
+         * @return the copy
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        Class<?> defineCopyOf(Class<?> aClass) throws IOException {
+            String classfileName = aClass.getName().replace('.', '/') + ".class";
+
+            try (InputStream classfile = getParent().getResourceAsStream(classfileName)) {
+                byte[] bytecode = classfile.readAllBytes();
+                return defineClass(aClass.getName(), bytecode, 0, bytecode.length);
+            }
+        }
+    }
+
+    /**
+     * Get class if loaded.
+     */
+    @Test
+    public void getClassIfLoaded() {
+        assertSame(String.class, LoadedClasses.getClassIfLoaded("java.lang.String"));
+        assertSame(LoadedClassesTest.class, LoadedClasses.getClassIfLoaded(LoadedClassesTest.class.getName()));
+        assertNull(LoadedClasses.getClassIfLoaded("mockit.internal.state.NotAClass"));
+    }
+
+    /**
+     * Get class loaded after index was built.
+     */
+    @Test
+    public void getClassLoadedAfterIndexWasBuilt() {
+        LoadedClasses.getClassIfLoaded(Service.class.getName());
+
+        Class<?> loadedLater = newProxyClass();
+
+        assertSame(loadedLater, LoadedClasses.getClassIfLoaded(loadedLater.getName()));
+    }
+
+    /**
+     * Get subtype loaded after index was built.
+     */
+    @Test
+    public void getSubtypeLoadedAfterIndexWasBuilt() {
+        LoadedClasses.getLoadedSubtypes(Service.class);
+
+        Class<?> loadedLater = newProxyClass();
+
+        assertTrue(LoadedClasses.getLoadedSubtypes(Service.class).contains(loadedLater));
+    }
+
+    /**
+     * Defines a new class implementing {@link Service}, never loaded before.
+     *
+     * @return the class
+     */
+    static Class<?> newProxyClass() {
+        ClassLoader loader = new IsolatingClassLoader();
+        Object proxy = Proxy.newProxyInstance(loader, new Class<?>[] { Service.class }, (p, method, args) -> 1);
+        return proxy.getClass();
+    }
+
+    /**
+     * Get subtypes of same name defined by different class loaders.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void getSubtypesOfSameNameDefinedByDifferentClassLoaders() throws Exception {
+        LoadedClasses.getLoadedSubtypes(Service.class);
+        Class<?> original = new ServiceLoadedTwice().getClass();
+        Class<?> copy = new IsolatingClassLoader().defineCopyOf(ServiceLoadedTwice.class);
+        assertNotSame(original, copy);
+
+        List<Class<?>> subtypes = LoadedClasses.getLoadedSubtypes(Service.class);
+
+        assertTrue(subtypes.contains(original));
+        assertTrue(subtypes.contains(copy));
+    }
+
+    /**
+     * Capture implementation loaded after index was built.
+     */
+    @Test
+    public <T extends Service> void captureImplementationLoadedAfterIndexWasBuilt() {
+        LoadedClasses.getLoadedSubtypes(Service.class);
+
+        final class ServiceCapturedLater implements Service {
+            @Override
+            public int doSomething() {
+                return 1;
+            }
+        }
+        Service loadedBeforeCapture = new ServiceCapturedLater();
+
+        new MockUp<T>() {
+            @Mock
+            int doSomething() {
+                return 2;
+            }
+        };
+
+        assertEquals(2, loadedBeforeCapture.doSomething());
+    }
+}
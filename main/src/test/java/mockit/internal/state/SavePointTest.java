@@ -0,0 +1,123 @@
+package mockit.internal.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import mockit.Mock;
+import mockit.MockUp;
+import mockit.internal.ClassIdentification;
+
+import org.junit.Test;
+
+/**
+ * The Class SavePointTest.
+ */
+public final class SavePointTest {
+
+    /** A classfile which the JVM can't parse, to make the restoration of a class fail. */
+    static final byte[] INVALID_CLASSFILE = { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0 };
+
+    /**
+     * The Class RestorableClass.
+     */
+    public static final class RestorableClass {
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public int getValue() {
+            return 1;
+        }
+    }
+
+    /**
+     * The Class UnrestorableClass.
+     */
+    public static final class UnrestorableClass {
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public int getValue() {
+            return 1;
+        }
+    }
+
+    /**
+     * Restore class when another class restored along with it fails to be restored.
+     */
+    @Test
+    public void restoreClassWhenAnotherClassRestoredAlongWithItFailsToBeRestored() {
+        SavePoint savePoint = new SavePoint();
+        new MockUp<RestorableClass>() {
+            @Mock
+            int getValue() {
+                return 2;
+            }
+        };
+        assertEquals(2, new RestorableClass().getValue());
+        addTransformedClassToBeRestoredWithInvalidClassfile(UnrestorableClass.class);
+
+        try {
+            savePoint.rollback();
+            fail("Restoration of class with invalid classfile didn't fail");
+        } catch (ClassFormatError ignore) {
+            // The failure for that class is reported only after the other class got restored.
+        }
+
+        assertEquals(1, new RestorableClass().getValue());
+        assertEquals(1, new UnrestorableClass().getValue());
+    }
+
+    /**
+     * Report failure to restore single class.
+     */
+    @Test(expected = ClassFormatError.class)
+    public void reportFailureToRestoreSingleClass() {
+        SavePoint savePoint = new SavePoint();
+        addTransformedClassToBeRestoredWithInvalidClassfile(UnrestorableClass.class);
+
+        savePoint.rollback();
+    }
+
+    /**
+     * Restore classes together.
+     */
+    @Test
+    public void restoreClassesTogether() {
+        SavePoint savePoint = new SavePoint();
+        new MockUp<RestorableClass>() {
+            @Mock
+            int getValue() {
+                return 2;
+            }
+        };
+        new MockUp<UnrestorableClass>() {
+            @Mock
+            int getValue() {
+                return 3;
+            }
+        };
+        assertEquals(2, new RestorableClass().getValue());
+        assertEquals(3, new UnrestorableClass().getValue());
+
+        savePoint.rollback();
+
+        assertEquals(1, new RestorableClass().getValue());
+        assertEquals(1, new UnrestorableClass().getValue());
+    }
+
+    /**
+     * Adds a transformed class to be restored with an invalid classfile.
+     *
+     * @param transformedClass
+     *            the transformed class
+     */
+    static void addTransformedClassToBeRestoredWithInvalidClassfile(Class<?> transformedClass) {
+        ClassIdentification classId = new ClassIdentification(transformedClass.getClassLoader(),
+                transformedClass.getName());
+        TestRun.mockFixture().addTransformedClass(classId, INVALID_CLASSFILE);
+    }
+}
@@ -0,0 +1,91 @@
+package otherTests.junit5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mockit.Expectations;
+import mockit.Injectable;
+import mockit.Mock;
+import mockit.MockUp;
+import mockit.Verifications;
+import mockit.integration.junit5.JMockitExtension;
+import mockit.internal.state.TestRun;
+
+import otherTests.junit5.ParallelTestClasses.Dependency;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(JMockitExtension.class)
+final class ParallelConcurrentTestClassTest {
+    @Injectable
+    Dependency dependency;
+
+    @BeforeAll
+    static void enterTestClass() {
+        ParallelTestClasses.enterConcurrentClass();
+    }
+
+    @AfterAll
+    static void exitTestClass() {
+        ParallelTestClasses.exitConcurrentClass();
+    }
+
+    @Test
+    void runWithOwnTestState() {
+        assertTrue(TestRun.isRunningConcurrentTest());
+        ParallelTestClasses.assertRunningConcurrently();
+    }
+
+    @Test
+    void invokeInjectableMockFromWorkerThreadStartedByTheTest() throws Exception {
+        new Expectations() {
+            {
+                dependency.getValue();
+                result = 123;
+            }
+        };
+
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Integer> value = worker.submit(dependency::getValue);
+            assertEquals(123, (int) value.get());
+        } finally {
+            worker.shutdown();
+        }
+
+        new Verifications() {
+            {
+                dependency.getValue();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    void rejectFake() {
+        assertThrows(IllegalStateException.class, () -> new MockUp<Dependency>() {
+            @Mock
+            int getValue() {
+                return 1;
+            }
+        });
+    }
+
+    @Test
+    void rejectPartialMocking() {
+        Dependency realDependency = new Dependency();
+
+        assertThrows(IllegalStateException.class, () -> new Expectations(realDependency) {
+        });
+        assertEquals(-1, realDependency.getValue());
+    }
+}
@@ -0,0 +1,65 @@
+package otherTests.junit5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import mockit.Expectations;
+import mockit.Injectable;
+import mockit.Tested;
+import mockit.integration.junit5.JMockitExtension;
+import mockit.internal.state.TestRun;
+
+import otherTests.junit5.ParallelTestClasses.Dependency;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(JMockitExtension.class)
+final class ParallelConcurrentTestedClassTest {
+    public static final class Service {
+        Dependency dependency;
+
+        int doubleValue() {
+            return 2 * dependency.getValue();
+        }
+    }
+
+    @Tested
+    Service service;
+    @Injectable
+    Dependency dependency;
+
+    @BeforeAll
+    static void enterTestClass() {
+        ParallelTestClasses.enterConcurrentClass();
+    }
+
+    @AfterAll
+    static void exitTestClass() {
+        ParallelTestClasses.exitConcurrentClass();
+    }
+
+    @Test
+    void useInjectableMockThroughTestedObject() {
+        assertTrue(TestRun.isRunningConcurrentTest());
+
+        new Expectations() {
+            {
+                dependency.getValue();
+                result = 5;
+            }
+        };
+
+        assertEquals(10, service.doubleValue());
+        ParallelTestClasses.assertRunningConcurrently();
+    }
+
+    @Test
+    void useUnrecordedInjectableMockThroughTestedObject() {
+        assertEquals(0, service.doubleValue());
+        assertEquals(-1, new Dependency().getValue());
+        ParallelTestClasses.assertRunningConcurrently();
+    }
+}
@@ -0,0 +1,49 @@
+package otherTests.junit5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import mockit.Mocked;
+import mockit.integration.junit5.JMockitExtension;
+import mockit.internal.state.TestRun;
+
+import otherTests.junit5.ParallelTestClasses.Dependency;
+import otherTests.junit5.ParallelTestClasses.OtherDependency;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.Isolated;
+
+@Isolated
+@ExtendWith(JMockitExtension.class)
+final class ParallelExclusiveTestClassTest {
+    @Mocked
+    OtherDependency otherDependency;
+
+    @BeforeAll
+    static void enterTestClass() {
+        ParallelTestClasses.enterExclusiveClass();
+    }
+
+    @AfterAll
+    static void exitTestClass() {
+        ParallelTestClasses.exitExclusiveClass();
+    }
+
+    @Test
+    void mockClassAsAWhole() {
+        assertFalse(TestRun.isRunningConcurrentTest());
+        assertEquals(0, new OtherDependency().getValue());
+        ParallelTestClasses.assertRunningExclusively();
+    }
+
+    @Test
+    void useClassRestoredAfterLastConcurrentTestClassFinished() {
+        // Mocked by concurrent test classes, which either haven't started yet or have all finished.
+        assertFalse(TestRun.mockFixture().getMockedClasses().contains(Dependency.class));
+        assertEquals(-1, new Dependency().getValue());
+        ParallelTestClasses.assertRunningExclusively();
+    }
+}
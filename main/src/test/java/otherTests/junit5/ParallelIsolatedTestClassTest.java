@@ -0,0 +1,52 @@
+package otherTests.junit5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import mockit.Injectable;
+import mockit.Mock;
+import mockit.MockUp;
+import mockit.integration.junit5.JMockitExtension;
+import mockit.internal.state.TestRun;
+
+import otherTests.junit5.ParallelTestClasses.Dependency;
+import otherTests.junit5.ParallelTestClasses.OtherDependency;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.Isolated;
+
+@Isolated
+@ExtendWith(JMockitExtension.class)
+final class ParallelIsolatedTestClassTest {
+    @Injectable
+    Dependency dependency;
+
+    @BeforeAll
+    static void enterTestClass() {
+        ParallelTestClasses.enterExclusiveClass();
+    }
+
+    @AfterAll
+    static void exitTestClass() {
+        ParallelTestClasses.exitExclusiveClass();
+    }
+
+    @Test
+    void applyFakeInIsolatedTestClass() {
+        assertFalse(TestRun.isRunningConcurrentTest());
+
+        new MockUp<OtherDependency>() {
+            @Mock
+            int getValue() {
+                return 3;
+            }
+        };
+
+        assertEquals(3, new OtherDependency().getValue());
+        assertEquals(0, dependency.getValue());
+        ParallelTestClasses.assertRunningExclusively();
+    }
+}
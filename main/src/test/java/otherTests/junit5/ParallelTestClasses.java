@@ -0,0 +1,58 @@
+package otherTests.junit5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the "Parallel*Test" classes running at any given time, which are only run with JUnit 5 parallel
+ * execution enabled.
+ */
+final class ParallelTestClasses {
+    private static final AtomicInteger concurrentClassesRunning = new AtomicInteger();
+    private static final AtomicBoolean exclusiveClassRunning = new AtomicBoolean();
+
+    private ParallelTestClasses() {
+    }
+
+    public static class Dependency {
+        public int getValue() {
+            return -1;
+        }
+    }
+
+    public static class OtherDependency {
+        public int getValue() {
+            return -2;
+        }
+    }
+
+    static void enterConcurrentClass() {
+        concurrentClassesRunning.incrementAndGet();
+        assertRunningConcurrently();
+    }
+
+    static void assertRunningConcurrently() {
+        assertFalse(exclusiveClassRunning.get(), "Exclusive test class running along with concurrent one");
+    }
+
+    static void exitConcurrentClass() {
+        concurrentClassesRunning.decrementAndGet();
+    }
+
+    static void enterExclusiveClass() {
+        assertTrue(exclusiveClassRunning.compareAndSet(false, true), "Exclusive test classes running together");
+        assertRunningExclusively();
+    }
+
+    static void assertRunningExclusively() {
+        assertEquals(0, concurrentClassesRunning.get(), "Concurrent test classes running along with exclusive one");
+    }
+
+    static void exitExclusiveClass() {
+        exclusiveClassRunning.set(false);
+    }
+}
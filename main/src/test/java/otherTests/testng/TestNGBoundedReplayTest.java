@@ -0,0 +1,71 @@
+package otherTests.testng;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mockit.BoundedReplay;
+import mockit.Injectable;
+import mockit.Verifications;
+
+import org.testng.annotations.Test;
+
+@BoundedReplay(recentInvocations = 5)
+public final class TestNGBoundedReplayTest {
+    public static class Dependency {
+        public void setSomething(@SuppressWarnings("unused") int value) {
+        }
+    }
+
+    static final String DISCARDED_ARGUMENTS = ".*discarded in bounded replay mode.*";
+
+    @Injectable
+    Dependency mock;
+
+    static void exerciseCodeUnderTest(Dependency dependency, int invocations) {
+        for (int i = 0; i < invocations; i++) {
+            dependency.setSomething(i);
+        }
+    }
+
+    @Test
+    public void verifyInvocationsWithArgumentsKeptInBoundedReplayModeFromTestClass() {
+        exerciseCodeUnderTest(mock, 5);
+
+        new Verifications() {
+            {
+                List<Integer> values = new ArrayList<>();
+                mock.setSomething(withCapture(values));
+                assertEquals(values.size(), 5);
+                mock.setSomething(3);
+                times = 1;
+            }
+        };
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = DISCARDED_ARGUMENTS)
+    public void verifyInvocationWithArgumentsDiscardedInBoundedReplayModeFromTestClass() {
+        exerciseCodeUnderTest(mock, 20);
+
+        new Verifications() {
+            {
+                mock.setSomething(2);
+            }
+        };
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = DISCARDED_ARGUMENTS)
+    @BoundedReplay(recentInvocations = 0)
+    public void verifyInvocationWithArgumentsDiscardedInBoundedReplayModeFromTestMethod() {
+        exerciseCodeUnderTest(mock, 3);
+
+        new Verifications() {
+            {
+                List<Integer> values = new ArrayList<>();
+                mock.setSomething(withCapture(values));
+                assertEquals(values.size(), 3);
+            }
+        };
+    }
+}